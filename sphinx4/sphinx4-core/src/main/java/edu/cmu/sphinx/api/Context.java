@@ -17,6 +17,8 @@ import static edu.cmu.sphinx.util.props.ConfigurationManagerUtils.setProperty;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.util.Collections;
+import java.util.Map;
 
 import edu.cmu.sphinx.frontend.frequencywarp.MelFrequencyFilterBank2;
 import edu.cmu.sphinx.frontend.util.StreamDataSource;
@@ -33,6 +35,7 @@ import edu.cmu.sphinx.util.props.ConfigurationManager;
 public class Context {
 
     private final ConfigurationManager configurationManager;
+    private String languageModelName;
 
     /**
      * Constructs builder that uses default XML configuration.
@@ -55,6 +58,23 @@ public class Context {
      */
     public Context(String path, Configuration config)
         throws IOException, MalformedURLException
+    {
+        this(path, config, Collections.<String, Configurable>emptyMap());
+    }
+
+    /**
+     * Constructs builder which uses already instantiated components in place
+     * of the configured ones.
+     *
+     * @param  path path to XML-resource with configuration
+     * @param  config configuration
+     * @param  sharedComponents components to use, by configuration name
+     * @throws MalformedURLException if failed to load configuration file
+     * @throws IOException           if failed to load configuration file
+     */
+    Context(String path, Configuration config,
+            Map<String, Configurable> sharedComponents)
+        throws IOException, MalformedURLException
     {
         configurationManager = new ConfigurationManager(resourceToURL(path));
 
@@ -68,6 +88,11 @@ public class Context {
 
         setSampleRate(config.getSampleRate());
 
+        for (Map.Entry<String, Configurable> entry : sharedComponents.entrySet()) {
+            configurationManager.removeConfigurable(entry.getKey());
+            configurationManager.addConfigurable(entry.getValue(), entry.getKey());
+        }
+
         // Force ConfigurationManager to build the whole graph
         // in order to enable instance lookup by class.
         configurationManager.lookup("recognizer");
@@ -128,6 +153,7 @@ public class Context {
             setLocalProperty("flatLinguist->grammar", "jsgfGrammar");
         }
         setLocalProperty("decoder->searchManager", "simpleSearchManager");
+        languageModelName = null;
     }
 
     /**
@@ -146,14 +172,17 @@ public class Context {
             setLocalProperty("simpleNGramModel->location", path);
             setLocalProperty(
                 "lexTreeLinguist->languageModel", "simpleNGramModel");
+            languageModelName = "simpleNGramModel";
         } else if (path.endsWith(".dmp")) {
             setLocalProperty("largeTrigramModel->location", path);
             setLocalProperty(
                 "lexTreeLinguist->languageModel", "largeTrigramModel");
+            languageModelName = "largeTrigramModel";
         } else if (path.endsWith(".bin")) {
             setLocalProperty("trieNgramModel->location", path);
             setLocalProperty(
                 "lexTreeLinguist->languageModel", "trieNgramModel");
+            languageModelName = "trieNgramModel";
         } else {
             throw new IllegalArgumentException(
                 "Unknown format extension: " + path);
@@ -167,6 +196,19 @@ public class Context {
         setLocalProperty("trivialScorer->frontend", "liveFrontEnd");
     }
 
+    /**
+     * Sets byte stream with a part of a longer recording as the speech
+     * source. The samples are numbered from the given sample number, so the
+     * times of the results are the ones in the recording.
+     *
+     * @param  stream stream to process
+     * @param  firstSampleNumber number of the first sample of the stream
+     */
+    public void setSpeechSource(InputStream stream, long firstSampleNumber) {
+        getInstance(StreamDataSource.class).setInputStream(stream, firstSampleNumber);
+        setLocalProperty("trivialScorer->frontend", "liveFrontEnd");
+    }
+
     /**
      * Sets byte stream as the speech source.
      *
@@ -224,4 +266,24 @@ public class Context {
     public Loader getLoader(){
     	return (Loader) configurationManager.lookup("acousticModelLoader");
     }
+
+    /**
+     * Returns the configured component with the given name.
+     *
+     * @param  name component name
+     * @param  <C> generic
+     * @return the component or null if there is no such component
+     */
+    <C extends Configurable> C lookup(String name) {
+        return configurationManager.lookup(name);
+    }
+
+    /**
+     * Returns the name of the language model component in use.
+     *
+     * @return component name or null if a grammar is used
+     */
+    String getLanguageModelName() {
+        return languageModelName;
+    }
 }
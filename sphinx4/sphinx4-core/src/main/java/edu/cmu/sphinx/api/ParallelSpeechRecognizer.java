@@ -0,0 +1,331 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ */
+
+package edu.cmu.sphinx.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import edu.cmu.sphinx.frontend.endpoint.SpeechSegmenter;
+import edu.cmu.sphinx.frontend.endpoint.SpeechSegmenter.Segment;
+
+/**
+ * Speech recognizer that decodes the speech segments of a long recording in
+ * parallel.
+ * <p>
+ * A {@link SpeechSegmenter} splits the recording into segments of speech on a
+ * thread of its own, the segments are decoded by a fixed number of
+ * recognizers sharing the models of one {@link RecognizerPool}. The results
+ * are returned by {@link #getResult()} in the order of the recording, as soon
+ * as the segments before them are decoded. The audio of every segment is
+ * numbered from its position in the recording, so the times of the words are
+ * the ones in the recording.
+ * <p>
+ * The recording must be 16-bit signed little-endian raw data with the sample
+ * rate of the configuration. At most twice the number of threads segments are
+ * read ahead of the results, which bounds the memory used for long
+ * recordings.
+ */
+public class ParallelSpeechRecognizer {
+
+    /** The default amount of speech in milliseconds which starts a segment */
+    public static final int DEFAULT_START_SPEECH = 200;
+    /** The default amount of non-speech in milliseconds which ends a segment */
+    public static final int DEFAULT_END_SILENCE = 200;
+    /** The default amount of audio in milliseconds kept before the speech */
+    public static final int DEFAULT_SPEECH_LEADER = 50;
+    /** The default threshold of the speech classifier */
+    public static final double DEFAULT_THRESHOLD = 13;
+
+    private final int sampleRate;
+    private final int numberOfThreads;
+    private final int startSpeech;
+    private final int endSilence;
+    private final int speechLeader;
+    private final double threshold;
+    private final ExecutorService executor;
+    private final BlockingQueue<Worker> idleWorkers;
+    private final List<Worker> workers;
+
+    private BlockingQueue<Future<List<SpeechResult>>> pending;
+    private Thread segmenterThread;
+    private Iterator<SpeechResult> currentResults;
+    private boolean finished;
+
+    /**
+     * Creates a recognizer with its own pool of models.
+     *
+     * @param configuration configuration
+     * @param numberOfThreads number of segments decoded in parallel
+     * @throws IOException if failed to load the models
+     */
+    public ParallelSpeechRecognizer(Configuration configuration, int numberOfThreads) throws IOException {
+        this(new RecognizerPool(configuration), configuration.getSampleRate(), numberOfThreads,
+                DEFAULT_END_SILENCE);
+    }
+
+    /**
+     * Creates a recognizer using the models of the given pool.
+     *
+     * @param pool the pool creating the recognizers
+     * @param sampleRate the sample rate of the recordings
+     * @param numberOfThreads number of segments decoded in parallel
+     * @param endSilence the amount of non-speech in milliseconds which ends a
+     *        segment, it is kept as padding at the end of the segment
+     * @throws IOException if failed to create the recognizers
+     */
+    public ParallelSpeechRecognizer(RecognizerPool pool, int sampleRate, int numberOfThreads, int endSilence)
+            throws IOException {
+        this(pool, sampleRate, numberOfThreads, DEFAULT_START_SPEECH, endSilence, DEFAULT_SPEECH_LEADER,
+                DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a recognizer using the models of the given pool and segmenting
+     * with the given parameters, see {@link SpeechSegmenter}.
+     *
+     * @param pool the pool creating the recognizers
+     * @param sampleRate the sample rate of the recordings
+     * @param numberOfThreads number of segments decoded in parallel
+     * @param startSpeech the amount of speech in milliseconds which starts a
+     *        segment
+     * @param endSilence the amount of non-speech in milliseconds which ends a
+     *        segment, it is kept as padding at the end of the segment
+     * @param speechLeader the amount of audio in milliseconds before the
+     *        speech which is kept as padding at the start of the segment
+     * @param threshold the threshold of the speech classifier
+     * @throws IOException if failed to create the recognizers
+     */
+    public ParallelSpeechRecognizer(RecognizerPool pool, int sampleRate, int numberOfThreads, int startSpeech,
+            int endSilence, int speechLeader, double threshold) throws IOException {
+        this.sampleRate = sampleRate;
+        this.numberOfThreads = numberOfThreads;
+        this.startSpeech = startSpeech;
+        this.endSilence = endSilence;
+        this.speechLeader = speechLeader;
+        this.threshold = threshold;
+        executor = Executors.newFixedThreadPool(numberOfThreads);
+        idleWorkers = new ArrayBlockingQueue<Worker>(numberOfThreads);
+        workers = new ArrayList<Worker>();
+        for (int i = 0; i < numberOfThreads; i++) {
+            Worker worker = new Worker(pool.createRecognizer());
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+    }
+
+    /**
+     * Starts recognition of a recording. Results of a previous recording
+     * which were not read are discarded.
+     *
+     * @param stream the recording
+     */
+    public void startRecognition(InputStream stream) {
+        stopRecognition();
+        final SpeechSegmenter segmenter =
+                new SpeechSegmenter(sampleRate, startSpeech, endSilence, speechLeader, threshold);
+        segmenter.setInputStream(stream);
+        final BlockingQueue<Future<List<SpeechResult>>> queue =
+                new ArrayBlockingQueue<Future<List<SpeechResult>>>(2 * numberOfThreads);
+        pending = queue;
+        finished = false;
+
+        segmenterThread = new Thread(ParallelSpeechRecognizer.class.getSimpleName()) {
+            @Override
+            public void run() {
+                // the recording always ends with a completed future, even after an error
+                Throwable failure = null;
+                try {
+                    Segment segment;
+                    while ((segment = segmenter.getSegment()) != null)
+                        queue.put(executor.submit(new Decoding(segment)));
+                } catch (InterruptedException e) {
+                    // stopped, nobody reads the results anymore
+                    return;
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                try {
+                    queue.put(completed(failure));
+                } catch (InterruptedException e) {
+                    // stopped
+                }
+            }
+        };
+        segmenterThread.setDaemon(true);
+        segmenterThread.start();
+    }
+
+    /**
+     * Returns the result of the next utterance of the recording, waiting for
+     * its segment to be decoded.
+     *
+     * @return recognition result or {@code null} at the end of the recording
+     * @throws IllegalStateException if recognition is not started
+     */
+    public SpeechResult getResult() {
+        if (pending == null)
+            throw new IllegalStateException("recognition is not started");
+        while (currentResults == null || !currentResults.hasNext()) {
+            if (finished)
+                return null;
+            List<SpeechResult> results;
+            try {
+                results = getResults(pending.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for results", e);
+            } catch (RuntimeException e) {
+                finished = true;
+                throw e;
+            } catch (Error e) {
+                finished = true;
+                throw e;
+            }
+            if (results == null) {
+                // end of the recording
+                finished = true;
+                return null;
+            }
+            currentResults = results.iterator();
+        }
+        return currentResults.next();
+    }
+
+    /**
+     * Stops recognition of the current recording. Segments which are not
+     * decoded yet are dropped.
+     */
+    public void stopRecognition() {
+        if (segmenterThread != null) {
+            segmenterThread.interrupt();
+            segmenterThread = null;
+        }
+        if (pending != null) {
+            for (Future<List<SpeechResult>> future : pending)
+                future.cancel(false);
+            pending = null;
+        }
+        currentResults = null;
+    }
+
+    /**
+     * Stops the threads of this recognizer and deallocates its recognizers.
+     * The models of the pool stay loaded.
+     */
+    public void close() {
+        stopRecognition();
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Worker worker : workers)
+            worker.stop();
+    }
+
+    /**
+     * Returns the results of a segment, null marks the end of the recording.
+     */
+    private static List<SpeechResult> getResults(Future<List<SpeechResult>> future)
+            throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Creates a completed future without results, which ends the recording or
+     * carries the error of the segmenter.
+     */
+    private static Future<List<SpeechResult>> completed(final Throwable failure) {
+        FutureTask<List<SpeechResult>> future = new FutureTask<List<SpeechResult>>(
+                new Callable<List<SpeechResult>>() {
+                    public List<SpeechResult> call() throws Exception {
+                        if (failure instanceof Exception)
+                            throw (Exception) failure;
+                        if (failure instanceof Error)
+                            throw (Error) failure;
+                        return null;
+                    }
+                });
+        future.run();
+        return future;
+    }
+
+
+    /** Decodes a segment with one of the idle recognizers */
+    private class Decoding implements Callable<List<SpeechResult>> {
+
+        private final Segment segment;
+
+        Decoding(Segment segment) {
+            this.segment = segment;
+        }
+
+        public List<SpeechResult> call() throws InterruptedException {
+            Worker worker = idleWorkers.take();
+            try {
+                return worker.decode(segment);
+            } finally {
+                idleWorkers.put(worker);
+            }
+        }
+    }
+
+
+    /** A recognizer which stays allocated for all the segments it decodes */
+    private static class Worker {
+
+        private final StreamSpeechRecognizer recognizer;
+        private boolean allocated;
+
+        Worker(StreamSpeechRecognizer recognizer) {
+            this.recognizer = recognizer;
+        }
+
+        List<SpeechResult> decode(Segment segment) {
+            recognizer.startRecognition(new ByteArrayInputStream(segment.getAudio()),
+                    segment.getFirstSampleNumber());
+            allocated = true;
+            List<SpeechResult> results = new ArrayList<SpeechResult>();
+            SpeechResult result;
+            while ((result = recognizer.getResult()) != null)
+                results.add(result);
+            return results;
+        }
+
+        void stop() {
+            if (allocated) {
+                recognizer.stopRecognition();
+                allocated = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ */
+
+package edu.cmu.sphinx.api;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.cmu.sphinx.linguist.acoustic.AcousticModel;
+import edu.cmu.sphinx.linguist.dictionary.Dictionary;
+import edu.cmu.sphinx.linguist.language.ngram.LanguageModel;
+import edu.cmu.sphinx.util.props.Configurable;
+
+/**
+ * Creates stream recognizers which share one copy of the model resources.
+ * <p>
+ * The acoustic model with its loader and unit manager, the dictionary and the
+ * language model are loaded once when the pool is created. Every recognizer
+ * returned by {@link #createRecognizer()} has its own frontend, linguist and
+ * search manager, but uses the shared models, so serving many concurrent
+ * streams costs the model memory and load time only once.
+ * <p>
+ * Recognizers are not thread-safe themselves, each one should be used by a
+ * single thread. The shared models are never deallocated by the recognizers.
+ * Every recognizer caches the language model scores of its utterance, so
+ * that the streams do not wait for each other on the shared language model.
+ */
+public class RecognizerPool {
+
+    private final String path;
+    private final Configuration configuration;
+    private final Map<String, Configurable> sharedComponents;
+    private String languageModelName;
+    private LanguageModel languageModel;
+
+    /**
+     * Loads the models using the default XML configuration.
+     *
+     * @param configuration configuration
+     * @throws IOException if failed to load the models
+     */
+    public RecognizerPool(Configuration configuration) throws IOException {
+        this("resource:/edu/cmu/sphinx/api/default.config.xml", configuration);
+    }
+
+    /**
+     * Loads the models using user-supplied XML configuration.
+     *
+     * @param path path to XML-resource with configuration
+     * @param configuration configuration
+     * @throws IOException if failed to load the models
+     */
+    public RecognizerPool(String path, Configuration configuration)
+        throws IOException
+    {
+        this.path = path;
+        this.configuration = configuration;
+
+        Context context = new Context(path, configuration);
+        sharedComponents = new HashMap<String, Configurable>();
+
+        AcousticModel acousticModel = context.lookup("acousticModel");
+        acousticModel.allocate();
+        sharedComponents.put("unitManager",
+                             context.<Configurable>lookup("unitManager"));
+        sharedComponents.put("acousticModelLoader", context.getLoader());
+        sharedComponents.put("acousticModel", acousticModel);
+
+        Dictionary dictionary = context.lookup("dictionary");
+        dictionary.allocate();
+        sharedComponents.put("dictionary", new SharedDictionary(dictionary));
+
+        languageModelName = context.getLanguageModelName();
+        if (null != languageModelName) {
+            languageModel = context.lookup(languageModelName);
+            languageModel.allocate();
+        }
+    }
+
+    /**
+     * Creates a new recognizer using the shared models.
+     *
+     * @return stream recognizer
+     * @throws IOException if failed to load configuration
+     */
+    public StreamSpeechRecognizer createRecognizer() throws IOException {
+        Map<String, Configurable> components =
+            new HashMap<String, Configurable>(sharedComponents);
+        if (null != languageModel)
+            components.put(languageModelName,
+                           new SharedLanguageModel(languageModel));
+        return new StreamSpeechRecognizer(
+                new Context(path, configuration, components));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ */
+
+package edu.cmu.sphinx.api;
+
+import edu.cmu.sphinx.linguist.dictionary.Dictionary;
+import edu.cmu.sphinx.linguist.dictionary.Word;
+import edu.cmu.sphinx.util.props.PropertyException;
+import edu.cmu.sphinx.util.props.PropertySheet;
+
+/**
+ * Dictionary loaded once by {@link RecognizerPool} and used by all of its
+ * recognizers. Allocation is controlled by the pool, so recognizers can not
+ * unload it. Lookups are synchronized since dictionaries create words lazily.
+ */
+class SharedDictionary implements Dictionary {
+
+    private final Dictionary dictionary;
+
+    SharedDictionary(Dictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public void newProperties(PropertySheet ps) throws PropertyException {
+    }
+
+    public synchronized Word getWord(String text) {
+        return dictionary.getWord(text);
+    }
+
+    public Word getSentenceStartWord() {
+        return dictionary.getSentenceStartWord();
+    }
+
+    public Word getSentenceEndWord() {
+        return dictionary.getSentenceEndWord();
+    }
+
+    public Word getSilenceWord() {
+        return dictionary.getSilenceWord();
+    }
+
+    public Word[] getFillerWords() {
+        return dictionary.getFillerWords();
+    }
+
+    public void allocate() {
+    }
+
+    public void deallocate() {
+    }
+}
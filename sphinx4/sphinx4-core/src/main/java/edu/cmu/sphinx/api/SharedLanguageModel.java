@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ */
+
+package edu.cmu.sphinx.api;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import edu.cmu.sphinx.linguist.WordSequence;
+import edu.cmu.sphinx.linguist.language.ngram.LanguageModel;
+import edu.cmu.sphinx.util.props.PropertyException;
+import edu.cmu.sphinx.util.props.PropertySheet;
+
+/**
+ * Language model loaded once by {@link RecognizerPool} and used by all of its
+ * recognizers. Allocation is controlled by the pool, so recognizers can not
+ * unload it.
+ * <p>
+ * Every recognizer gets its own instance, which caches the probabilities it
+ * looked up in the current utterance. N-gram models keep caches which are not
+ * safe to update concurrently, so the shared model is only entered under its
+ * lock on a miss of the stream cache. A search asks for the same word
+ * histories over and over, so the streams rarely wait for each other.
+ */
+class SharedLanguageModel implements LanguageModel {
+
+    private final LanguageModel languageModel;
+    private final Map<WordSequence, Float> probabilities = new HashMap<WordSequence, Float>();
+    private final Map<WordSequence, Float> smears = new HashMap<WordSequence, Float>();
+
+    SharedLanguageModel(LanguageModel languageModel) {
+        this.languageModel = languageModel;
+    }
+
+    /**
+     * Returns the language model shared by all recognizers of the pool.
+     *
+     * @return the shared language model
+     */
+    LanguageModel getLanguageModel() {
+        return languageModel;
+    }
+
+    public void newProperties(PropertySheet ps) throws PropertyException {
+    }
+
+    public void allocate() {
+    }
+
+    public void deallocate() {
+    }
+
+    public float getProbability(WordSequence wordSequence) {
+        Float probability = probabilities.get(wordSequence);
+        if (probability == null) {
+            synchronized (languageModel) {
+                probability = languageModel.getProbability(wordSequence);
+            }
+            probabilities.put(wordSequence, probability);
+        }
+        return probability;
+    }
+
+    public float getSmear(WordSequence wordSequence) {
+        Float smear = smears.get(wordSequence);
+        if (smear == null) {
+            synchronized (languageModel) {
+                smear = languageModel.getSmear(wordSequence);
+            }
+            smears.put(wordSequence, smear);
+        }
+        return smear;
+    }
+
+    public Set<String> getVocabulary() {
+        return languageModel.getVocabulary();
+    }
+
+    public int getMaxDepth() {
+        return languageModel.getMaxDepth();
+    }
+
+    public void onUtteranceEnd() {
+        probabilities.clear();
+        smears.clear();
+        synchronized (languageModel) {
+            languageModel.onUtteranceEnd();
+        }
+    }
+}
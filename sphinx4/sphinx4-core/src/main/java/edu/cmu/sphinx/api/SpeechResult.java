@@ -52,6 +52,19 @@ public final class SpeechResult {
         return lattice != null ? lattice.getWordResultPath() : result.getTimedBestResult(false);
     }
 
+    /**
+     * Returns the words which became stable since the last call on a result
+     * of the same utterance. Stable words are shared by all hypotheses and
+     * do not change any more, so they can be shown before the utterance is
+     * finished. Fillers are not returned.
+     *
+     * @return newly stable words ordered by time frame
+     * @see Result#getNewStableWords(boolean)
+     */
+    public List<WordResult> getNewStableWords() {
+        return result.getNewStableWords(false);
+    }
+
     /**
      * @return string representation of the result.
      */
@@ -14,6 +14,7 @@ package edu.cmu.sphinx.api;
 import java.io.IOException;
 import java.io.InputStream;
 
+import edu.cmu.sphinx.recognizer.Recognizer.State;
 import edu.cmu.sphinx.util.TimeFrame;
 
 /**
@@ -35,6 +36,10 @@ public class StreamSpeechRecognizer extends AbstractSpeechRecognizer {
         super(configuration);
     }
 
+    StreamSpeechRecognizer(Context context) throws IOException {
+        super(context);
+    }
+
     public void startRecognition(InputStream stream) {
         startRecognition(stream, TimeFrame.INFINITE);
     }
@@ -53,6 +58,21 @@ public class StreamSpeechRecognizer extends AbstractSpeechRecognizer {
         context.setSpeechSource(stream, timeFrame);
     }
 
+    /**
+     * Starts recognition of a part of a longer recording. The samples are
+     * numbered from the given sample number, so the times of the results are
+     * the ones in the recording. The recognizer stays allocated for the
+     * following parts until {@link #stopRecognition()} is called.
+     *
+     * @param stream input stream with the part of the recording
+     * @param firstSampleNumber number of the first sample of the stream
+     */
+    public void startRecognition(InputStream stream, long firstSampleNumber) {
+        if (recognizer.getState() == State.DEALLOCATED)
+            recognizer.allocate();
+        context.setSpeechSource(stream, firstSampleNumber);
+    }
+
     /**
      * Stops recognition process.
      *
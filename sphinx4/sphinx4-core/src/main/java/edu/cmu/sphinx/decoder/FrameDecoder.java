@@ -25,6 +25,9 @@ import java.util.List;
  * A decoder which does not use the common pull-principle of S4 but processes only one single frame on each call of
  * <code>decode()</code>. When using this decoder, make sure that the <code>AcousticScorer</code> used by the
  * <code>SearchManager</code> can access some buffered <code>Data</code>s.
+ * <p>
+ * With <code>fireNonFinalResults</code> the listeners get a result for every frame, they can take the words which
+ * became stable with {@link Result#getNewStableWords(boolean)}.
  */
 public class FrameDecoder extends AbstractDecoder implements DataProcessor {
 
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+package edu.cmu.sphinx.decoder.scorer;
+
+import edu.cmu.sphinx.decoder.search.Token;
+import edu.cmu.sphinx.frontend.BaseDataProcessor;
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DataProcessingException;
+import edu.cmu.sphinx.linguist.HMMSearchState;
+import edu.cmu.sphinx.linguist.SearchState;
+import edu.cmu.sphinx.linguist.acoustic.HMMState;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.GaussianMixture;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.ScoringScratch;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.SenoneHMMState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * An acoustic scorer which evaluates every senone referenced by the active
+ * list exactly once per frame.
+ * <p>
+ * Scoring is done in three passes. First the distinct set of senone IDs used
+ * by the tokens is collected, then this dense set is scored into a per-frame
+ * array indexed by senone ID, and finally every token reads its acoustic
+ * score from that array. Senones are scored through
+ * {@link GaussianMixture#calculateScore} directly, so no score cache objects
+ * are allocated. When more than one thread is configured, the work is split by
+ * senones instead of by tokens. Tokens whose state is not backed by a pooled
+ * {@link GaussianMixture} are scored the usual way.
+ * <p>
+ * All scores are maintained in LogMath log base
+ */
+public class BatchedAcousticScorer extends ThreadedAcousticScorer {
+
+    /** Marks tokens which have no pooled senone and are scored directly */
+    private final static int NO_SENONE = -1;
+
+    private GaussianMixture[] senones = new GaussianMixture[0];
+    private float[] senoneScores = new float[0];
+    private int[] senoneFrames = new int[0];
+    private int[] activeSenones = new int[0];
+    private int numActiveSenones;
+    private int[] tokenSenones = new int[0];
+    private int frame;
+
+    /**
+     * @param frontEnd
+     *            the frontend to retrieve features from for scoring
+     * @param scoreNormalizer
+     *            optional post-processor for computed scores that will
+     *            normalize scores. If not set, no normalization will applied
+     *            and the token scores will be returned unchanged.
+     * @param minScoreablesPerThread
+     *            the minimum number of senones scored by a single thread
+     * @param cpuRelative
+     *            controls whether the number of available CPUs on the system is
+     *            used when determining the number of threads to use for
+     *            scoring
+     * @param numThreads
+     *            the number of threads that are used to score senones
+     * @param threadPriority
+     *            the thread priority of scoring threads
+     */
+    public BatchedAcousticScorer(BaseDataProcessor frontEnd, ScoreNormalizer scoreNormalizer,
+                                 int minScoreablesPerThread, boolean cpuRelative, int numThreads, int threadPriority) {
+        super(frontEnd, scoreNormalizer, minScoreablesPerThread, cpuRelative, numThreads, threadPriority);
+    }
+
+    public BatchedAcousticScorer() {
+    }
+
+    @Override
+    protected <T extends Scoreable> T doScoring(List<T> scoreableList, Data data) {
+        collectSenones(scoreableList);
+        scoreSenones(data);
+
+        T best = null;
+        float bestScore = -Float.MAX_VALUE;
+        int i = 0;
+        for (T item : scoreableList) {
+            int senone = tokenSenones[i++];
+            if (senone == NO_SENONE)
+                item.calculateScore(data);
+            else
+                ((Token) item).applyAcousticScore(senoneScores[senone], data);
+            if (item.getScore() > bestScore) {
+                bestScore = item.getScore();
+                best = item;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Resolves the senone of every scoreable and builds the dense set of
+     * senones active in this frame.
+     *
+     * @param scoreableList the scoreables of this frame
+     */
+    private void collectSenones(List<? extends Scoreable> scoreableList) {
+        if (tokenSenones.length < scoreableList.size())
+            tokenSenones = new int[scoreableList.size() * 3 / 2];
+
+        frame++;
+        numActiveSenones = 0;
+        int i = 0;
+        for (Scoreable item : scoreableList) {
+            GaussianMixture senone = getSenone(item);
+            if (senone == null) {
+                tokenSenones[i++] = NO_SENONE;
+                continue;
+            }
+            int id = (int) senone.getID();
+            if (id >= senones.length)
+                grow(id + 1);
+            if (senoneFrames[id] != frame) {
+                senoneFrames[id] = frame;
+                senones[id] = senone;
+                activeSenones[numActiveSenones++] = id;
+            }
+            tokenSenones[i++] = id;
+        }
+    }
+
+    private void grow(int minSize) {
+        int size = Math.max(minSize, senones.length * 2);
+        senones = Arrays.copyOf(senones, size);
+        senoneScores = Arrays.copyOf(senoneScores, size);
+        senoneFrames = Arrays.copyOf(senoneFrames, size);
+        activeSenones = Arrays.copyOf(activeSenones, size);
+    }
+
+    private static GaussianMixture getSenone(Scoreable item) {
+        if (!(item instanceof Token))
+            return null;
+        SearchState state = ((Token) item).getSearchState();
+        if (!(state instanceof HMMSearchState))
+            return null;
+        HMMState hmmState = ((HMMSearchState) state).getHMMState();
+        if (!(hmmState instanceof SenoneHMMState))
+            return null;
+        Object senone = ((SenoneHMMState) hmmState).getSenone();
+        return senone instanceof GaussianMixture ? (GaussianMixture) senone : null;
+    }
+
+    /**
+     * Scores the active senones of this frame, splitting them among the
+     * scoring threads if there are enough of them.
+     *
+     * @param data the feature to score
+     */
+    private void scoreSenones(final Data data) {
+        int jobSize = numThreads > 1
+                ? Math.max((numActiveSenones + numThreads - 1) / numThreads, minScoreablesPerThread)
+                : numActiveSenones;
+
+        if (jobSize >= numActiveSenones) {
+            scoreSenones(data, 0, numActiveSenones);
+            return;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int from = 0; from < numActiveSenones; from += jobSize) {
+            final int start = from;
+            final int end = Math.min(from + jobSize, numActiveSenones);
+            tasks.add(new Callable<Void>() {
+                public Void call() throws Exception {
+                    ScoringScratch previous = ScoringScratch.bind(scratch);
+                    try {
+                        scoreSenones(data, start, end);
+                    } finally {
+                        ScoringScratch.bind(previous);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> result : executorService.invokeAll(tasks))
+                result.get();
+        } catch (Exception e) {
+            throw new DataProcessingException("No scoring jobs ended", e);
+        }
+    }
+
+    private void scoreSenones(Data data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int id = activeSenones[i];
+            senoneScores[id] = senones[id].calculateScore(data);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import edu.cmu.sphinx.decoder.search.Token;
 import edu.cmu.sphinx.frontend.*;
 import edu.cmu.sphinx.frontend.endpoint.SpeechEndSignal;
 import edu.cmu.sphinx.frontend.util.DataUtil;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.ScoringScratch;
 import edu.cmu.sphinx.util.props.ConfigurableAdapter;
 import edu.cmu.sphinx.util.props.PropertyException;
 import edu.cmu.sphinx.util.props.PropertySheet;
@@ -41,6 +42,9 @@ public class SimpleAcousticScorer extends ConfigurableAdapter implements Acousti
     private LinkedList<Data> storedData;
     private boolean seenEnd = false;
 
+    /** Senone scores and tied mixture state of this scorer */
+    protected final ScoringScratch scratch = new ScoringScratch();
+
     @Override
     public void newProperties(PropertySheet ps) throws PropertyException {
         super.newProperties(ps);
@@ -133,7 +137,13 @@ public class SimpleAcousticScorer extends ConfigurableAdapter implements Acousti
         if (data instanceof DoubleData)
             data = DataUtil.DoubleData2FloatData((DoubleData) data);
 
-        Scoreable bestToken = doScoring(scoreableList, data);
+        Scoreable bestToken;
+        ScoringScratch previous = ScoringScratch.bind(scratch);
+        try {
+            bestToken = doScoring(scoreableList, data);
+        } finally {
+            ScoringScratch.bind(previous);
+        }
 
         // apply optional score normalization
         if (scoreNormalizer != null && bestToken instanceof Token)
@@ -149,6 +159,18 @@ public class SimpleAcousticScorer extends ConfigurableAdapter implements Acousti
 
     public void startRecognition() {
         storedData.clear();
+        scratch.clear();
+    }
+
+    /**
+     * Returns the scratch which keeps the scoring state of this scorer. It is
+     * bound to every thread while it scores for this scorer, so that acoustic
+     * models can be shared with other scorers.
+     *
+     * @return the scoring scratch
+     */
+    public ScoringScratch getScoringScratch() {
+        return scratch;
     }
 
     public void stopRecognition() {
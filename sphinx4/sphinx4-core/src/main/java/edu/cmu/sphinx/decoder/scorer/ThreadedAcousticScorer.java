@@ -14,6 +14,7 @@ package edu.cmu.sphinx.decoder.scorer;
 import edu.cmu.sphinx.frontend.Data;
 import edu.cmu.sphinx.frontend.BaseDataProcessor;
 import edu.cmu.sphinx.frontend.DataProcessingException;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.ScoringScratch;
 import edu.cmu.sphinx.util.CustomThreadFactory;
 import edu.cmu.sphinx.util.props.PropertyException;
 import edu.cmu.sphinx.util.props.PropertySheet;
@@ -69,12 +70,51 @@ public class ThreadedAcousticScorer extends SimpleAcousticScorer {
     @S4Integer(defaultValue = 10)
     public final static String PROP_MIN_SCOREABLES_PER_THREAD = "minScoreablesPerThread";
 
+    /**
+     * The property that controls whether scoring is done by a work-stealing fork/join pool instead of equal sized
+     * jobs on a fixed thread pool. In this mode the scoreable list is split recursively into chunks whose size is
+     * derived from the measured scoring cost per scoreable, so threads that finish early steal work from the others.
+     */
+    @S4Boolean(defaultValue = false)
+    public final static String PROP_WORK_STEALING = "workStealing";
+
+    /**
+     * The property that controls the desired amount of work in a single fork/join scoring chunk, in microseconds.
+     * Only used if work stealing is enabled.
+     */
+    @S4Integer(defaultValue = 50)
+    public final static String PROP_TARGET_CHUNK_MICROS = "targetChunkMicros";
+
+    /**
+     * The property that controls how long scoring threads keep spinning after a frame has been scored, in
+     * microseconds, so that they are awake when the next frame arrives. Zero disables spinning. Only used if work
+     * stealing is enabled.
+     */
+    @S4Integer(defaultValue = 0)
+    public final static String PROP_SPIN_MICROS = "spinMicros";
+
     private final static String className = ThreadedAcousticScorer.class.getSimpleName();
 
-    private int numThreads;         // number of threads in use
+    protected int numThreads;         // number of threads in use
     private int threadPriority;
-    private int minScoreablesPerThread; // min scoreables sent to a thread
-    private ExecutorService executorService;
+    protected int minScoreablesPerThread; // min scoreables sent to a thread
+    protected ExecutorService executorService;
+
+    private boolean workStealing;
+    private long targetChunkNanos;
+    private long spinNanos;
+    private ForkJoinPool forkJoinPool;
+    private double nanosPerScoreable;
+    private volatile int scoringFrame;
+    private final Runnable spinner = new Runnable() {
+        public void run() {
+            int frame = scoringFrame;
+            long deadline = System.nanoTime() + spinNanos;
+            while (scoringFrame == frame && System.nanoTime() < deadline) {
+                // busy wait for the next frame
+            }
+        }
+    };
 
     /**
      * @param frontEnd
@@ -122,6 +162,35 @@ public class ThreadedAcousticScorer extends SimpleAcousticScorer {
         init(minScoreablesPerThread, cpuRelative, numThreads, threadPriority);
     }
 
+    /**
+     * @param frontEnd
+     *            the frontend to retrieve features from for scoring
+     * @param scoreNormalizer
+     *            optional post-processor for computed scores
+     * @param minScoreablesPerThread
+     *            the minimum number of scoreables sent to a thread
+     * @param cpuRelative
+     *            controls whether the number of available CPUs on the system is
+     *            used when determining the number of threads to use
+     * @param numThreads
+     *            the number of threads that are used to score HMM states
+     * @param threadPriority
+     *            the thread priority of scoring threads
+     * @param workStealing
+     *            whether scoring is done by a work-stealing fork/join pool
+     * @param targetChunkMicros
+     *            desired amount of work in a single fork/join chunk
+     * @param spinMicros
+     *            how long scoring threads spin between frames, zero to disable
+     */
+    public ThreadedAcousticScorer(BaseDataProcessor frontEnd, ScoreNormalizer scoreNormalizer,
+                                  int minScoreablesPerThread, boolean cpuRelative, int numThreads, int threadPriority,
+                                  boolean workStealing, int targetChunkMicros, int spinMicros) {
+        super(frontEnd, scoreNormalizer);
+        init(minScoreablesPerThread, cpuRelative, numThreads, threadPriority);
+        initWorkStealing(workStealing, targetChunkMicros, spinMicros);
+    }
+
     public ThreadedAcousticScorer() {
     }
 
@@ -130,6 +199,8 @@ public class ThreadedAcousticScorer extends SimpleAcousticScorer {
         super.newProperties(ps);
         init(ps.getInt(PROP_MIN_SCOREABLES_PER_THREAD), ps.getBoolean(PROP_IS_CPU_RELATIVE),
             ps.getInt(PROP_NUM_THREADS), ps.getInt(PROP_THREAD_PRIORITY));
+        initWorkStealing(ps.getBoolean(PROP_WORK_STEALING), ps.getInt(PROP_TARGET_CHUNK_MICROS),
+            ps.getInt(PROP_SPIN_MICROS));
     }
 
     private void init(int minScoreablesPerThread, boolean cpuRelative, int numThreads, int threadPriority) {
@@ -141,14 +212,31 @@ public class ThreadedAcousticScorer extends SimpleAcousticScorer {
         this.threadPriority = threadPriority;
     }
 
+    private void initWorkStealing(boolean workStealing, int targetChunkMicros, int spinMicros) {
+        this.workStealing = workStealing;
+        this.targetChunkNanos = targetChunkMicros * 1000L;
+        this.spinNanos = spinMicros * 1000L;
+    }
+
     @Override
     public void allocate() {
         super.allocate();
         if (executorService == null) {
             if (numThreads > 1) {
                 logger.fine("# of scoring threads: " + numThreads);
-                executorService = Executors.newFixedThreadPool(numThreads,
-                    new CustomThreadFactory(className, true, threadPriority));
+                if (workStealing) {
+                    forkJoinPool = new ForkJoinPool(numThreads, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                            thread.setPriority(threadPriority);
+                            return thread;
+                        }
+                    }, null, false);
+                    executorService = forkJoinPool;
+                } else {
+                    executorService = Executors.newFixedThreadPool(numThreads,
+                        new CustomThreadFactory(className, true, threadPriority));
+                }
             } else {
                 logger.fine("no scoring threads");
             }
@@ -161,11 +249,15 @@ public class ThreadedAcousticScorer extends SimpleAcousticScorer {
         if (executorService != null) {
             executorService.shutdown();
             executorService = null;
+            forkJoinPool = null;
         }
     }
 
     @Override
     protected <T extends Scoreable> T doScoring(List<T> scoreableList, final Data data) {
+        if (forkJoinPool != null)
+            return doForkJoinScoring(scoreableList, data);
+
         if (numThreads > 1) {
             int totalSize = scoreableList.size();
             int jobSize = Math.max((totalSize + numThreads - 1) / numThreads, minScoreablesPerThread);
@@ -176,7 +268,12 @@ public class ThreadedAcousticScorer extends SimpleAcousticScorer {
                     final List<T> scoringJob = scoreableList.subList(from, Math.min(to, totalSize));
                     tasks.add(new Callable<T>() {
                         public T call() throws Exception {
-                            return ThreadedAcousticScorer.super.doScoring(scoringJob, data);
+                            ScoringScratch previous = ScoringScratch.bind(scratch);
+                            try {
+                                return ThreadedAcousticScorer.super.doScoring(scoringJob, data);
+                            } finally {
+                                ScoringScratch.bind(previous);
+                            }
                         }
                     });
                 }
@@ -197,4 +294,85 @@ public class ThreadedAcousticScorer extends SimpleAcousticScorer {
         return super.doScoring(scoreableList, data);
     }
 
+    /**
+     * Scores the list on the fork/join pool. The chunk size is adapted to the
+     * scoring cost per scoreable measured on previous frames. The result does
+     * not depend on the chunks, ties go to the first scoreable in list order
+     * like in {@link SimpleAcousticScorer}.
+     */
+    private <T extends Scoreable> T doForkJoinScoring(List<T> scoreableList, Data data) {
+        int totalSize = scoreableList.size();
+        if (totalSize == 0)
+            return null;
+        scoringFrame++;
+
+        int chunkSize = (totalSize + numThreads - 1) / numThreads;
+        if (nanosPerScoreable > 0)
+            chunkSize = Math.min(chunkSize, (int) (targetChunkNanos / nanosPerScoreable));
+        chunkSize = Math.max(chunkSize, minScoreablesPerThread);
+
+        long startTime = System.nanoTime();
+        T best = forkJoinPool.invoke(new ScoringTask<T>(scoreableList, data, scratch, 0, totalSize, chunkSize));
+        double cost = (double) (System.nanoTime() - startTime) * numThreads / totalSize;
+        nanosPerScoreable = nanosPerScoreable > 0 ? 0.9 * nanosPerScoreable + 0.1 * cost : cost;
+
+        for (int i = 0; spinNanos > 0 && i < numThreads; i++)
+            forkJoinPool.execute(spinner);
+        return best;
+    }
+
+    /** Scores a range of the scoreable list, splitting it until it is not larger than the chunk size */
+    @SuppressWarnings("serial")
+    private static class ScoringTask<T extends Scoreable> extends RecursiveTask<T> {
+
+        private final List<T> scoreableList;
+        private final Data data;
+        private final ScoringScratch scratch;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        ScoringTask(List<T> scoreableList, Data data, ScoringScratch scratch, int from, int to, int chunkSize) {
+            this.scoreableList = scoreableList;
+            this.data = data;
+            this.scratch = scratch;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from > chunkSize) {
+                int middle = (from + to) >>> 1;
+                ScoringTask<T> left = new ScoringTask<T>(scoreableList, data, scratch, from, middle, chunkSize);
+                left.fork();
+                T rightBest = new ScoringTask<T>(scoreableList, data, scratch, middle, to, chunkSize).compute();
+                T leftBest = left.join();
+                if (leftBest == null)
+                    return rightBest;
+                if (rightBest == null || leftBest.getScore() >= rightBest.getScore())
+                    return leftBest;
+                return rightBest;
+            }
+
+            T best = null;
+            float bestScore = -Float.MAX_VALUE;
+            ScoringScratch previous = ScoringScratch.bind(scratch);
+            try {
+                for (int i = from; i < to; i++) {
+                    T item = scoreableList.get(i);
+                    item.calculateScore(data);
+                    if (item.getScore() > bestScore) {
+                        bestScore = item.getScore();
+                        best = item;
+                    }
+                }
+            } finally {
+                ScoringScratch.bind(previous);
+            }
+            return best;
+        }
+    }
+
 }
@@ -17,6 +17,7 @@ import edu.cmu.sphinx.util.props.S4Double;
 import edu.cmu.sphinx.util.props.S4Integer;
 
 import java.util.Iterator;
+import java.util.List;
 
 /** An active list is maintained as a sorted list */
 public interface ActiveListManager extends Configurable {
@@ -48,6 +49,15 @@ public interface ActiveListManager extends Configurable {
     public Iterator<ActiveList> getNonEmittingListIterator();
 
 
+    /**
+     * Returns the non-emitting ActiveLists as they are, without replacing or checking them like the iterator does.
+     * Tokens reach a list of a lower order after it was grown and wait there for the next frame.
+     *
+     * @return the non-emitting ActiveLists in search state order
+     */
+    public List<ActiveList> getNonEmittingLists();
+
+
     /**
      * Returns the emitting ActiveList from the manager
      *
@@ -80,6 +80,18 @@ public class AlternateHypothesisManager {
         }
     }
 
+    /**
+     * Marks all tokens kept by this manager as being in use.
+     *
+     * @param pool the token pool
+     */
+    void mark(TokenPool pool) {
+        for (Map.Entry<Token, List<Token>> entry : viterbiLoserMap.entrySet()) {
+            pool.mark(entry.getKey());
+            pool.mark(entry.getValue());
+        }
+    }
+
 	public boolean hasAlternatePredecessors(Token token) {
 		return viterbiLoserMap.containsKey(token);
 	}
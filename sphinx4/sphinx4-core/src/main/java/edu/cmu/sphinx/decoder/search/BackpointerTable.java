@@ -0,0 +1,437 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.decoder.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.cmu.sphinx.linguist.SearchState;
+
+/**
+ * Records the word exits of an utterance in primitive arrays. A word exit is
+ * a word token of the search, it keeps the word, the collect time, the scores
+ * and a link to the previous word exit on its path. The link also keeps the
+ * scores of the path between the two word exits, which are the scores of a
+ * lattice edge. When a lattice is built, the links of the paths which lost
+ * against the best path into a word exit are kept as alternates.
+ * <p>
+ * The search tokens only refer to the index of their last word exit, so no
+ * token chains are kept alive and the memory grows with the number of word
+ * exits. A {@link Traceback} turns the word exits back into chains of tokens
+ * for a result.
+ * <p>
+ * The word exits which can no longer be reached from the tokens of the search
+ * are dropped by {@link #compact(List)}, like the garbage collection of the
+ * backpointer table of pocketsphinx. The remaining word exits are moved to
+ * the front and the tokens are given their new indices, so the table only
+ * grows with the word exits of the live paths. A traceback refers to the
+ * indices of the table, so it can't be used after the table was compacted.
+ */
+public class BackpointerTable {
+
+    private final static int INITIAL_CAPACITY = 1024;
+
+    private final int maxLatticeEdges;
+
+    // the distinct word states, the word IDs are indices into this list
+    private List<SearchState> wordStates = new ArrayList<SearchState>();
+    private final Map<SearchState, Integer> wordIds = new HashMap<SearchState, Integer>();
+
+    // the word exits
+    private int numExits;
+    private int[] words = new int[INITIAL_CAPACITY];
+    private long[] collectTimes = new long[INITIAL_CAPACITY];
+    private float[] scores = new float[INITIAL_CAPACITY];
+    private float[] insertionScores = new float[INITIAL_CAPACITY];
+    private float[] languageScores = new float[INITIAL_CAPACITY];
+    private int[] bestLinks = new int[INITIAL_CAPACITY];
+    private int[] alternateLinks = new int[INITIAL_CAPACITY];
+
+    // the links to the previous word exits
+    private int numLinks;
+    private int[] linkPredecessors = new int[INITIAL_CAPACITY];
+    private float[] linkScores = new float[INITIAL_CAPACITY];
+    private float[] linkAcousticScores = new float[INITIAL_CAPACITY];
+    private float[] linkLanguageScores = new float[INITIAL_CAPACITY];
+    private int[] nextLinks = new int[INITIAL_CAPACITY];
+
+    // the number of word exits at which the table is compacted next
+    private int compactionSize = INITIAL_CAPACITY;
+    private int numCompactions;
+
+    /**
+     * Creates an empty table
+     *
+     * @param maxLatticeEdges the maximum number of edges into a word in a lattice
+     */
+    public BackpointerTable(int maxLatticeEdges) {
+        this.maxLatticeEdges = maxLatticeEdges;
+    }
+
+    /**
+     * Adds a word exit.
+     *
+     * @param token the word token
+     * @param predecessor the index of the previous word exit or -1
+     * @param predecessorScore the score of the path before the word token
+     * @param pathAcousticScore the acoustic and insertion scores of the path since the previous word exit
+     * @param pathLanguageScore the language scores of the path since the previous word exit
+     * @return the index of the word exit
+     */
+    public int add(Token token, int predecessor, float predecessorScore, float pathAcousticScore,
+            float pathLanguageScore) {
+        if (numExits == words.length) {
+            int capacity = words.length * 2;
+            words = Arrays.copyOf(words, capacity);
+            collectTimes = Arrays.copyOf(collectTimes, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            insertionScores = Arrays.copyOf(insertionScores, capacity);
+            languageScores = Arrays.copyOf(languageScores, capacity);
+            bestLinks = Arrays.copyOf(bestLinks, capacity);
+            alternateLinks = Arrays.copyOf(alternateLinks, capacity);
+        }
+
+        int exit = numExits++;
+        words[exit] = getWordId(token.getSearchState());
+        alternateLinks[exit] = -1;
+        setScores(exit, token);
+        bestLinks[exit] = addLink(predecessor, predecessorScore, pathAcousticScore, pathLanguageScore);
+        return exit;
+    }
+
+    /**
+     * Replaces the path into a word exit by a better one.
+     *
+     * @param exit the index of the word exit
+     * @param token the updated word token
+     * @param predecessor the index of the previous word exit or -1
+     * @param predecessorScore the score of the path before the word token
+     * @param pathAcousticScore the acoustic and insertion scores of the path since the previous word exit
+     * @param pathLanguageScore the language scores of the path since the previous word exit
+     * @param keepAlternate keep the replaced path as alternate
+     */
+    public void update(int exit, Token token, int predecessor, float predecessorScore, float pathAcousticScore,
+            float pathLanguageScore, boolean keepAlternate) {
+        setScores(exit, token);
+        int link = bestLinks[exit];
+        if (keepAlternate && linkPredecessors[link] >= 0) {
+            nextLinks[link] = alternateLinks[exit];
+            alternateLinks[exit] = link;
+            bestLinks[exit] = addLink(predecessor, predecessorScore, pathAcousticScore, pathLanguageScore);
+        } else {
+            setLink(link, predecessor, predecessorScore, pathAcousticScore, pathLanguageScore);
+        }
+    }
+
+    /**
+     * Adds a path into a word exit which lost against the best one.
+     *
+     * @param exit the index of the word exit
+     * @param predecessor the index of the previous word exit
+     * @param predecessorScore the score of the path before the word token
+     * @param pathAcousticScore the acoustic and insertion scores of the path since the previous word exit
+     * @param pathLanguageScore the language scores of the path since the previous word exit
+     */
+    public void addAlternate(int exit, int predecessor, float predecessorScore, float pathAcousticScore,
+            float pathLanguageScore) {
+        int link = addLink(predecessor, predecessorScore, pathAcousticScore, pathLanguageScore);
+        nextLinks[link] = alternateLinks[exit];
+        alternateLinks[exit] = link;
+    }
+
+    /**
+     * Returns the number of word exits.
+     *
+     * @return the number of word exits
+     */
+    public int size() {
+        return numExits;
+    }
+
+    /**
+     * Returns the index of the previous word exit on the best path into a
+     * word exit.
+     *
+     * @param exit the index of the word exit
+     * @return the index of the previous word exit or -1
+     */
+    public int getPredecessor(int exit) {
+        return linkPredecessors[bestLinks[exit]];
+    }
+
+    /**
+     * Returns whether the table grew enough since it was last compacted to
+     * be compacted again. The table is compacted when the number of word
+     * exits doubled, so the work of compacting is proportional to the
+     * number of word exits added.
+     *
+     * @return <code>true</code> if the table should be compacted
+     */
+    public boolean isCompactionDue() {
+        return numExits >= compactionSize;
+    }
+
+    /**
+     * Drops all word exits which can't be reached from the given tokens
+     * through the best paths and the alternate paths into word exits. The
+     * remaining word exits keep their order and the word exits of the tokens
+     * are set to their new indices. The word states which are no longer used
+     * are dropped as well.
+     *
+     * @param tokenLists the lists with all the tokens of the search
+     */
+    public void compact(List<? extends Iterable<Token>> tokenLists) {
+        List<BackpointerToken> tokens = new ArrayList<BackpointerToken>();
+        List<Integer> pending = new ArrayList<Integer>();
+        for (Iterable<Token> tokenList : tokenLists) {
+            for (Token token : tokenList) {
+                BackpointerToken backpointerToken = (BackpointerToken) token;
+                tokens.add(backpointerToken);
+                if (backpointerToken.wordExit >= 0)
+                    pending.add(backpointerToken.wordExit);
+            }
+        }
+
+        // the paths are walked without recursion, they can be long
+        BitSet live = new BitSet(numExits);
+        while (!pending.isEmpty()) {
+            int exit = pending.remove(pending.size() - 1);
+            if (live.get(exit))
+                continue;
+            live.set(exit);
+            if (linkPredecessors[bestLinks[exit]] >= 0)
+                pending.add(linkPredecessors[bestLinks[exit]]);
+            for (int link = alternateLinks[exit]; link >= 0; link = nextLinks[link])
+                pending.add(linkPredecessors[link]);
+        }
+
+        // the word exits move to the front, a word exit never moves back
+        int[] newExits = new int[numExits];
+        List<SearchState> oldWordStates = wordStates;
+        wordStates = new ArrayList<SearchState>();
+        wordIds.clear();
+        int kept = 0;
+        for (int exit = live.nextSetBit(0); exit >= 0; exit = live.nextSetBit(exit + 1)) {
+            newExits[exit] = kept;
+            words[kept] = getWordId(oldWordStates.get(words[exit]));
+            collectTimes[kept] = collectTimes[exit];
+            scores[kept] = scores[exit];
+            insertionScores[kept] = insertionScores[exit];
+            languageScores[kept] = languageScores[exit];
+            bestLinks[kept] = bestLinks[exit];
+            alternateLinks[kept] = alternateLinks[exit];
+            kept++;
+        }
+        numExits = kept;
+
+        // the links of the remaining word exits are copied to new arrays
+        int[] oldPredecessors = linkPredecessors;
+        float[] oldScores = linkScores;
+        float[] oldAcousticScores = linkAcousticScores;
+        float[] oldLanguageScores = linkLanguageScores;
+        int[] oldNextLinks = nextLinks;
+        linkPredecessors = new int[oldPredecessors.length];
+        linkScores = new float[oldPredecessors.length];
+        linkAcousticScores = new float[oldPredecessors.length];
+        linkLanguageScores = new float[oldPredecessors.length];
+        nextLinks = new int[oldPredecessors.length];
+        numLinks = 0;
+        for (int exit = 0; exit < numExits; exit++) {
+            int link = bestLinks[exit];
+            int predecessor = oldPredecessors[link];
+            bestLinks[exit] = addLink(predecessor >= 0 ? newExits[predecessor] : -1, oldScores[link],
+                    oldAcousticScores[link], oldLanguageScores[link]);
+            int last = -1;
+            for (link = alternateLinks[exit]; link >= 0; link = oldNextLinks[link]) {
+                int alternate = addLink(newExits[oldPredecessors[link]], oldScores[link],
+                        oldAcousticScores[link], oldLanguageScores[link]);
+                if (last < 0)
+                    alternateLinks[exit] = alternate;
+                else
+                    nextLinks[last] = alternate;
+                last = alternate;
+            }
+        }
+
+        // a token can be in several lists, so the old indices are taken first
+        int[] tokenExits = new int[tokens.size()];
+        for (int i = 0; i < tokenExits.length; i++)
+            tokenExits[i] = tokens.get(i).wordExit;
+        for (int i = 0; i < tokenExits.length; i++) {
+            if (tokenExits[i] >= 0)
+                tokens.get(i).wordExit = newExits[tokenExits[i]];
+        }
+
+        compactionSize = Math.max(INITIAL_CAPACITY, numExits * 2);
+        numCompactions++;
+    }
+
+    /**
+     * Creates a traceback, which turns word exits into tokens.
+     *
+     * @return the new traceback
+     */
+    public Traceback newTraceback() {
+        return new Traceback();
+    }
+
+    private int getWordId(SearchState state) {
+        Integer word = wordIds.get(state);
+        if (word == null) {
+            word = wordStates.size();
+            wordIds.put(state, word);
+            wordStates.add(state);
+        }
+        return word;
+    }
+
+    private void setScores(int exit, Token token) {
+        collectTimes[exit] = token.getCollectTime();
+        scores[exit] = token.getScore();
+        insertionScores[exit] = token.getInsertionScore();
+        languageScores[exit] = token.getLanguageScore();
+    }
+
+    private int addLink(int predecessor, float predecessorScore, float pathAcousticScore, float pathLanguageScore) {
+        if (numLinks == linkPredecessors.length) {
+            int capacity = linkPredecessors.length * 2;
+            linkPredecessors = Arrays.copyOf(linkPredecessors, capacity);
+            linkScores = Arrays.copyOf(linkScores, capacity);
+            linkAcousticScores = Arrays.copyOf(linkAcousticScores, capacity);
+            linkLanguageScores = Arrays.copyOf(linkLanguageScores, capacity);
+            nextLinks = Arrays.copyOf(nextLinks, capacity);
+        }
+        int link = numLinks++;
+        nextLinks[link] = -1;
+        setLink(link, predecessor, predecessorScore, pathAcousticScore, pathLanguageScore);
+        return link;
+    }
+
+    private void setLink(int link, int predecessor, float predecessorScore, float pathAcousticScore,
+            float pathLanguageScore) {
+        linkPredecessors[link] = predecessor;
+        linkScores[link] = predecessorScore;
+        linkAcousticScores[link] = pathAcousticScore;
+        linkLanguageScores[link] = pathLanguageScore;
+    }
+
+
+    /**
+     * Turns word exits into chains of tokens like the ones of a search which
+     * only keeps word tokens and builds a lattice: a word token is preceded by
+     * a token without search state, which keeps the scores of the path from
+     * the previous word token. Every word exit becomes one token, so the
+     * tokens can be used as lattice nodes. A traceback fails once the table
+     * was compacted after it was created.
+     */
+    public class Traceback {
+
+        private final int compaction = numCompactions;
+        private final Map<Integer, Token> wordTokens = new HashMap<Integer, Token>();
+        private final List<Integer> traced = new ArrayList<Integer>();
+        private AlternateHypothesisManager alternateHypothesisManager;
+        private int numAlternatesTraced;
+
+        /**
+         * Returns the token with the predecessor chain of a search token.
+         *
+         * @param token the search token
+         * @return the token with predecessors
+         */
+        public Token getToken(Token token) {
+            checkCompaction();
+            if (!(token instanceof BackpointerToken))
+                return token;
+            BackpointerToken searchToken = (BackpointerToken) token;
+            if (searchToken.isWord())
+                return getWordToken(searchToken.wordExit);
+
+            Token predecessor = null;
+            if (searchToken.wordExit >= 0) {
+                predecessor = new Token(getWordToken(searchToken.wordExit), searchToken.getScore(),
+                        searchToken.pathAcousticScore, 0.0f, searchToken.pathLanguageScore,
+                        collectTimes[searchToken.wordExit]);
+            }
+            return new Token(predecessor, searchToken.getSearchState(), searchToken.getScore(),
+                    searchToken.getInsertionScore(), searchToken.getLanguageScore(), searchToken.getCollectTime());
+        }
+
+        /**
+         * Returns the token of a word exit with the chain of its best path.
+         *
+         * @param exit the index of the word exit
+         * @return the word token
+         */
+        public Token getWordToken(int exit) {
+            checkCompaction();
+            Token token = wordTokens.get(exit);
+            if (token != null)
+                return token;
+
+            // the path is walked without recursion, it can be long
+            List<Integer> path = new ArrayList<Integer>();
+            for (int e = exit; e >= 0 && !wordTokens.containsKey(e); e = getPredecessor(e))
+                path.add(e);
+            for (int i = path.size() - 1; i >= 0; i--) {
+                int e = path.get(i);
+                int link = bestLinks[e];
+                token = new Token(getLinkToken(link), wordStates.get(words[e]), scores[e], insertionScores[e],
+                        languageScores[e], collectTimes[e]);
+                wordTokens.put(e, token);
+                traced.add(e);
+            }
+            return token;
+        }
+
+        /**
+         * Returns the alternate predecessors of the word tokens traced so far
+         * and of the word tokens on their alternate paths.
+         *
+         * @return the alternate hypothesis manager
+         */
+        public AlternateHypothesisManager getAlternateHypothesisManager() {
+            checkCompaction();
+            if (alternateHypothesisManager == null)
+                alternateHypothesisManager = new AlternateHypothesisManager(maxLatticeEdges);
+
+            List<Integer> links = new ArrayList<Integer>();
+            while (numAlternatesTraced < traced.size()) {
+                int exit = traced.get(numAlternatesTraced++);
+                for (int link = alternateLinks[exit]; link >= 0; link = nextLinks[link])
+                    links.add(link);
+                // the alternates are linked in reverse order
+                for (int i = links.size() - 1; i >= 0; i--) {
+                    alternateHypothesisManager.addAlternatePredecessor(wordTokens.get(exit),
+                            getLinkToken(links.get(i)));
+                }
+                links.clear();
+            }
+            return alternateHypothesisManager;
+        }
+
+        private void checkCompaction() {
+            if (compaction != numCompactions)
+                throw new IllegalStateException("the word exits were compacted after the traceback was created");
+        }
+
+        private Token getLinkToken(int link) {
+            int predecessor = linkPredecessors[link];
+            if (predecessor < 0)
+                return null;
+            return new Token(getWordToken(predecessor), linkScores[link], linkAcousticScores[link], 0.0f,
+                    linkLanguageScores[link], collectTimes[predecessor]);
+        }
+    }
+}
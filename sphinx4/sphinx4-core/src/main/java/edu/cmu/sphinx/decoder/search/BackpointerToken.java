@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.decoder.search;
+
+import edu.cmu.sphinx.linguist.SearchState;
+
+/**
+ * A token without predecessor, which refers to the last word exit of its path
+ * in a {@link BackpointerTable} instead. It sums up the scores of the path
+ * since the word exit, so that the word exit of the next word can be recorded
+ * with the scores of the lattice edge.
+ */
+class BackpointerToken extends Token {
+
+    /** The index of the last word exit on the path, -1 if there is none */
+    int wordExit = -1;
+    /** The acoustic and insertion scores of the path since the word exit */
+    float pathAcousticScore;
+    /** The language scores of the path since the word exit */
+    float pathLanguageScore;
+
+    BackpointerToken(SearchState state, float logTotalScore, float logInsertionScore, float logLanguageScore,
+            long collectTime) {
+        super(null, state, logTotalScore, logInsertionScore, logLanguageScore, collectTime);
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.decoder.search;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.cmu.sphinx.linguist.IndexedSearchState;
+import edu.cmu.sphinx.linguist.SearchState;
+
+/**
+ * Keeps the best token of every search state reached in a frame.
+ * <p>
+ * The table replaces the hash map which used to be created for every frame.
+ * It is reused from frame to frame, {@link #clear} only advances a generation
+ * counter and entries of older generations are treated as empty. States which
+ * are numbered by their search graph, see {@link IndexedSearchState}, are
+ * looked up directly by index. Other states are kept in an open addressing
+ * table with linear probing.
+ */
+public class BestTokenTable {
+
+    private Token[] indexedTokens = new Token[0];
+    private int[] indexedGenerations = new int[0];
+
+    private SearchState[] keys;
+    private Token[] tokens;
+    private int[] generations;
+    private int mask;
+    private int size;
+
+    private int generation = 1;
+
+    private final Map<SearchState, Token> mapView = new MapView();
+
+
+    public BestTokenTable() {
+        allocate(1024);
+    }
+
+
+    /**
+     * Gets the best token for the state
+     *
+     * @param state the search state
+     * @return the token or null if the state was not reached in this frame
+     */
+    public Token get(SearchState state) {
+        int index = getIndex(state);
+        if (index >= 0) {
+            if (index < indexedTokens.length && indexedGenerations[index] == generation)
+                return indexedTokens[index];
+            return null;
+        }
+
+        for (int i = hash(state) & mask; generations[i] == generation; i = (i + 1) & mask) {
+            SearchState key = keys[i];
+            if (key == state || key.equals(state))
+                return tokens[i];
+        }
+        return null;
+    }
+
+
+    /**
+     * Sets the best token for the state
+     *
+     * @param state the search state
+     * @param token the best token
+     */
+    public void put(SearchState state, Token token) {
+        int index = getIndex(state);
+        if (index >= 0) {
+            if (index >= indexedTokens.length) {
+                int length = Math.max(index + 1, indexedTokens.length * 2);
+                indexedTokens = Arrays.copyOf(indexedTokens, length);
+                indexedGenerations = Arrays.copyOf(indexedGenerations, length);
+            }
+            indexedTokens[index] = token;
+            indexedGenerations[index] = generation;
+            return;
+        }
+
+        int i = hash(state) & mask;
+        for (; generations[i] == generation; i = (i + 1) & mask) {
+            SearchState key = keys[i];
+            if (key == state || key.equals(state)) {
+                tokens[i] = token;
+                return;
+            }
+        }
+        keys[i] = state;
+        tokens[i] = token;
+        generations[i] = generation;
+        if (++size * 2 > keys.length)
+            rehash();
+    }
+
+
+    /** Removes all entries, should be called on every frame */
+    public void clear() {
+        size = 0;
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(indexedGenerations, 0);
+            Arrays.fill(generations, 0);
+            generation = 1;
+        }
+    }
+
+
+    /**
+     * Returns a map backed by this table, for code written against the best
+     * token maps of the search managers. Lookups and updates go to the table,
+     * the entries are those of the current frame.
+     *
+     * @return the map view of the table
+     */
+    public Map<SearchState, Token> asMap() {
+        return mapView;
+    }
+
+
+    private static int getIndex(SearchState state) {
+        return state instanceof IndexedSearchState
+                ? ((IndexedSearchState) state).getStateIndex() : -1;
+    }
+
+
+    private static int hash(SearchState state) {
+        int h = state.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+
+    private void allocate(int capacity) {
+        keys = new SearchState[capacity];
+        tokens = new Token[capacity];
+        generations = new int[capacity];
+        mask = capacity - 1;
+    }
+
+
+    private void rehash() {
+        SearchState[] oldKeys = keys;
+        Token[] oldTokens = tokens;
+        int[] oldGenerations = generations;
+        allocate(keys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldGenerations[j] != generation)
+                continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (generations[i] == generation)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            tokens[i] = oldTokens[j];
+            generations[i] = generation;
+        }
+    }
+
+
+    private class MapView extends AbstractMap<SearchState, Token> {
+
+        @Override
+        public Token get(Object key) {
+            return key instanceof SearchState ? BestTokenTable.this.get((SearchState) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Token put(SearchState state, Token token) {
+            Token previous = BestTokenTable.this.get(state);
+            BestTokenTable.this.put(state, token);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            BestTokenTable.this.clear();
+        }
+
+        /** Returns a snapshot of the entries of the current frame. */
+        @Override
+        public Set<Entry<SearchState, Token>> entrySet() {
+            final List<Entry<SearchState, Token>> entries = new ArrayList<Entry<SearchState, Token>>();
+            for (int i = 0; i < indexedTokens.length; i++) {
+                // the best token of a state is the token in that state
+                if (indexedGenerations[i] == generation && indexedTokens[i] != null)
+                    entries.add(new SimpleImmutableEntry<SearchState, Token>(
+                            indexedTokens[i].getSearchState(), indexedTokens[i]));
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (generations[i] == generation)
+                    entries.add(new SimpleImmutableEntry<SearchState, Token>(keys[i], tokens[i]));
+            }
+            return new AbstractSet<Entry<SearchState, Token>>() {
+                @Override
+                public Iterator<Entry<SearchState, Token>> iterator() {
+                    return entries.iterator();
+                }
+
+                @Override
+                public int size() {
+                    return entries.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+package edu.cmu.sphinx.decoder.search;
+
+import edu.cmu.sphinx.util.props.PropertyException;
+import edu.cmu.sphinx.util.props.PropertySheet;
+import edu.cmu.sphinx.util.props.S4Integer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/** A factory for HistogramActiveLists */
+public class HistogramActiveListFactory extends ActiveListFactory {
+
+    /** The property that sets the number of bins of the score histogram. */
+    @S4Integer(defaultValue = 256)
+    public final static String PROP_NUMBER_OF_BINS = "numberOfBins";
+    protected int numberOfBins;
+
+    /**
+     *
+     * @param absoluteBeamWidth beam for absolute pruning
+     * @param relativeBeamWidth beam for relative pruning
+     * @param numberOfBins number of bins of the score histogram
+     */
+    public HistogramActiveListFactory(int absoluteBeamWidth, double relativeBeamWidth, int numberOfBins) {
+        super(absoluteBeamWidth, relativeBeamWidth);
+        this.numberOfBins = numberOfBins;
+    }
+
+    /**
+     *
+     * @param absoluteBeamWidth beam for absolute pruning
+     * @param relativeBeamWidth beam for relative pruning
+     */
+    public HistogramActiveListFactory(int absoluteBeamWidth, double relativeBeamWidth) {
+        this(absoluteBeamWidth, relativeBeamWidth, 256);
+    }
+
+    public HistogramActiveListFactory() {
+
+    }
+
+    /*
+    * (non-Javadoc)
+    *
+    * @see edu.cmu.sphinx.util.props.Configurable#newProperties(edu.cmu.sphinx.util.props.PropertySheet)
+    */
+    @Override
+    public void newProperties(PropertySheet ps) throws PropertyException {
+        super.newProperties(ps);
+        numberOfBins = ps.getInt(PROP_NUMBER_OF_BINS);
+        if (numberOfBins < 1)
+            throw new PropertyException(ps.getInstanceName(), PROP_NUMBER_OF_BINS,
+                    "number of bins must be positive");
+    }
+
+
+    /*
+    * (non-Javadoc)
+    *
+    * @see edu.cmu.sphinx.decoder.search.ActiveListFactory#newInstance()
+    */
+    @Override
+    public ActiveList newInstance() {
+        return new HistogramActiveList(absoluteBeamWidth, logRelativeBeamWidth, numberOfBins);
+    }
+
+
+    /**
+     * An active list that does absolute beam pruning with a histogram of the
+     * token scores, as the Sphinx-3 decoders do. The scores between the best
+     * score and the relative beam are counted in equally wide bins, the bin
+     * in which the absolute beam width is reached gives the threshold. All
+     * tokens of the better bins are kept, the tokens of the threshold bin are
+     * kept in list order until the list holds absoluteBeamWidth tokens. So
+     * the list may keep a token which is up to one bin width worse than a
+     * dropped one, the best token is always kept.
+     * <p>
+     * Pruning takes three sequential passes over the token array and keeps
+     * the tokens in the order they were added, its run time is O(n) with a
+     * small constant factor also for large beams.
+     * <p>
+     * The histogram is built when the list is purged and not when tokens are
+     * added, because the search managers score the tokens after adding them.
+     * <p>
+     * This class is not thread safe and should only be used by a single thread.
+     * <p>
+     * Note that all scores are maintained in the LogMath log base.
+     */
+    class HistogramActiveList implements ActiveList {
+
+        private int size;
+        private final int absoluteBeamWidth;
+        private final float logRelativeBeamWidth;
+        private final int[] histogram;
+        private Token bestToken;
+        // when the list is changed these things should be
+        // changed/updated as well
+        private Token[] tokenList;
+
+
+        /** Creates an empty active list
+         * @param absoluteBeamWidth beam for absolute pruning
+         * @param logRelativeBeamWidth beam for relative pruning
+         * @param numberOfBins number of bins of the score histogram
+         */
+        public HistogramActiveList(int absoluteBeamWidth,
+                                   float logRelativeBeamWidth,
+                                   int numberOfBins) {
+            this.absoluteBeamWidth = absoluteBeamWidth;
+            this.logRelativeBeamWidth = logRelativeBeamWidth;
+            this.histogram = new int[numberOfBins];
+            int listSize = 2000;
+            if (absoluteBeamWidth > 0) {
+                listSize = absoluteBeamWidth / 3;
+            }
+            this.tokenList = new Token[listSize];
+        }
+
+
+        /**
+         * Adds the given token to the list
+         *
+         * @param token the token to add
+         */
+        public void add(Token token) {
+            if (size == tokenList.length) {
+                // token array too small, double the capacity
+                tokenList = Arrays.copyOf(tokenList, tokenList.length * 2);
+            }
+            tokenList[size++] = token;
+            if (bestToken == null || token.getScore() > bestToken.getScore()) {
+                bestToken = token;
+            }
+        }
+
+
+        /**
+         * Purges excess members. Keeps about the absoluteBeamWidth best
+         * tokens, in the order in which they were added.
+         *
+         * @return a (possible new) active list
+         */
+        public ActiveList purge() {
+            // if the absolute beam is zero, this means there
+            // should be no constraint on the abs beam size at all
+            if (absoluteBeamWidth <= 0 || size <= absoluteBeamWidth) {
+                return this;
+            }
+
+            Token best = tokenList[0];
+            float minScore = best.getScore();
+            for (int i = 1; i < size; i++) {
+                float score = tokenList[i].getScore();
+                if (score > best.getScore()) {
+                    best = tokenList[i];
+                } else if (score < minScore) {
+                    minScore = score;
+                }
+            }
+
+            // scores below the relative beam all go into the lowest bin
+            float maxScore = best.getScore();
+            float floor = Math.max(minScore, maxScore + logRelativeBeamWidth);
+            if (!(maxScore - floor > 0)) {
+                // all scores are equal, keep the first tokens
+                Arrays.fill(tokenList, absoluteBeamWidth, size, null);
+                size = absoluteBeamWidth;
+                return this;
+            }
+            float scale = histogram.length / (maxScore - floor);
+
+            Arrays.fill(histogram, 0);
+            for (int i = 0; i < size; i++) {
+                histogram[getBin(tokenList[i].getScore(), floor, scale)]++;
+            }
+
+            int thresholdBin = histogram.length - 1;
+            int remaining = absoluteBeamWidth;
+            while (histogram[thresholdBin] < remaining) {
+                remaining -= histogram[thresholdBin];
+                thresholdBin--;
+            }
+            // reserve a place for the best token
+            if (thresholdBin == histogram.length - 1) {
+                remaining--;
+            }
+
+            int newSize = 0;
+            for (int i = 0; i < size; i++) {
+                Token token = tokenList[i];
+                int bin = getBin(token.getScore(), floor, scale);
+                if (bin > thresholdBin || token == best
+                        || (bin == thresholdBin && remaining-- > 0)) {
+                    tokenList[newSize++] = token;
+                }
+            }
+            Arrays.fill(tokenList, newSize, size, null);
+            size = newSize;
+            return this;
+        }
+
+
+        /** Returns the histogram bin of the given score. */
+        private int getBin(float score, float floor, float scale) {
+            if (score <= floor) {
+                return 0;
+            }
+            return Math.min((int) ((score - floor) * scale), histogram.length - 1);
+        }
+
+
+        /**
+         * gets the beam threshold best upon the best scoring token
+         *
+         * @return the beam threshold
+         */
+        public float getBeamThreshold() {
+            return getBestScore() + logRelativeBeamWidth;
+        }
+
+
+        /**
+         * gets the best score in the list
+         *
+         * @return the best score
+         */
+        public float getBestScore() {
+            float bestScore = -Float.MAX_VALUE;
+            if (bestToken != null) {
+                bestScore = bestToken.getScore();
+            }
+            return bestScore;
+        }
+
+
+        /**
+         * Sets the best scoring token for this active list
+         *
+         * @param token the best scoring token
+         */
+        public void setBestToken(Token token) {
+            bestToken = token;
+        }
+
+
+        /**
+         * Gets the best scoring token for this active list
+         *
+         * @return the best scoring token
+         */
+        public Token getBestToken() {
+            return bestToken;
+        }
+
+
+        /**
+         * Retrieves the iterator for this tree.
+         *
+         * @return the iterator for this token list
+         */
+        public Iterator<Token> iterator() {
+            return (new TokenArrayIterator(tokenList, size));
+        }
+
+
+        /**
+         * Gets the list of all tokens
+         *
+         * @return the list of tokens
+         */
+        public List<Token> getTokens() {
+            return Arrays.asList(tokenList).subList(0, size);
+        }
+
+        /**
+         * Returns the number of tokens on this active list
+         *
+         * @return the size of the active list
+         */
+        public final int size() {
+            return size;
+        }
+
+
+        /* (non-Javadoc)
+        * @see edu.cmu.sphinx.decoder.search.ActiveList#createNew()
+        */
+        public ActiveList newInstance() {
+            return HistogramActiveListFactory.this.newInstance();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.decoder.search;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks the immortal prefix of the hypotheses of an utterance. The immortal
+ * prefix is the longest token chain which all surviving tokens share, the
+ * search can not change it any more, so the words on it are stable.
+ * <p>
+ * The immortal token, the last token of the prefix, only moves forward in the
+ * course of an utterance. An update therefore only walks the token chains
+ * back to the previous immortal token. The tracker also remembers the last
+ * word token which was reported to the application, so that partial results
+ * only need to return the words which became stable since.
+ * <p>
+ * A search manager creates a new tracker for every utterance and hands it to
+ * the results it creates.
+ */
+public class ImmortalPrefixTracker {
+
+    private Iterable<Token> activeTokens;
+    private Iterable<Token> resultTokens;
+    private Token immortalToken;
+    private Token reportedToken;
+
+    /**
+     * Sets the tokens of the surviving hypotheses, from which the search
+     * continues. The tokens have to descend from the tokens set before.
+     *
+     * @param activeTokens the active tokens
+     * @param resultTokens the result tokens, may be null
+     */
+    public void setTokens(Iterable<Token> activeTokens, Iterable<Token> resultTokens) {
+        this.activeTokens = activeTokens;
+        this.resultTokens = resultTokens;
+    }
+
+    /**
+     * Moves the immortal token to the last common token of the chains of the
+     * surviving tokens.
+     *
+     * @return the immortal token or null if the chains have no common token
+     */
+    public Token update() {
+        // the chain of the first token back to the previous immortal token
+        List<Token> chain = new ArrayList<Token>();
+        Map<Token, Integer> joins = new IdentityHashMap<Token, Integer>();
+        int common = 0;
+
+        List<Token> walked = new ArrayList<Token>();
+        for (int i = 0; i < 2; i++) {
+            Iterable<Token> tokens = i == 0 ? activeTokens : resultTokens;
+            if (tokens == null)
+                continue;
+            for (Token token : tokens) {
+                if (chain.isEmpty()) {
+                    for (Token t = token; t != null; t = t.getPredecessor()) {
+                        joins.put(t, chain.size());
+                        chain.add(t);
+                        if (t == immortalToken)
+                            break;
+                    }
+                    continue;
+                }
+
+                // walk back until the chain or a chain walked before is met
+                Integer join = null;
+                for (Token t = token; join == null; t = t.getPredecessor()) {
+                    if (t == null) {
+                        join = chain.size();
+                        break;
+                    }
+                    join = joins.get(t);
+                    if (join == null)
+                        walked.add(t);
+                }
+                for (Token t : walked)
+                    joins.put(t, join);
+                walked.clear();
+
+                // the last token of the chain can not be passed any more
+                common = Math.max(common, join);
+                if (common >= chain.size() - 1) {
+                    if (common < chain.size())
+                        immortalToken = chain.get(common);
+                    return immortalToken;
+                }
+            }
+        }
+
+        if (!chain.isEmpty())
+            immortalToken = chain.get(common);
+        return immortalToken;
+    }
+
+    /**
+     * Returns the last token which all hypotheses shared at the last update.
+     *
+     * @return the immortal token or null
+     */
+    public Token getImmortalToken() {
+        return immortalToken;
+    }
+
+    /**
+     * Returns the last word token which was reported as stable.
+     *
+     * @return the reported token or null if no word was reported yet
+     */
+    public Token getReportedToken() {
+        return reportedToken;
+    }
+
+    /**
+     * Sets the last word token which was reported as stable.
+     *
+     * @param reportedToken the reported token
+     */
+    public void setReportedToken(Token reportedToken) {
+        this.reportedToken = reportedToken;
+    }
+}
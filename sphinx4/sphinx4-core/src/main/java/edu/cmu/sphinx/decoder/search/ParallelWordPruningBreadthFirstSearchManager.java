@@ -0,0 +1,391 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.decoder.search;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.cmu.sphinx.decoder.pruner.Pruner;
+import edu.cmu.sphinx.decoder.scorer.AcousticScorer;
+import edu.cmu.sphinx.linguist.ConcurrentSearchGraph;
+import edu.cmu.sphinx.linguist.Linguist;
+import edu.cmu.sphinx.linguist.SearchState;
+import edu.cmu.sphinx.linguist.SearchStateArc;
+import edu.cmu.sphinx.linguist.WordSearchState;
+import edu.cmu.sphinx.util.CustomThreadFactory;
+import edu.cmu.sphinx.util.props.PropertyException;
+import edu.cmu.sphinx.util.props.PropertySheet;
+import edu.cmu.sphinx.util.props.S4Boolean;
+import edu.cmu.sphinx.util.props.S4Integer;
+
+/**
+ * A word pruning search manager which grows the emitting branches on several
+ * threads. The results are the same as the ones of the
+ * {@link WordPruningBreadthFirstSearchManager}, independent of the number of
+ * threads.
+ * <p>
+ * The branches are only grown in parallel if the search graph of the linguist
+ * is a {@link ConcurrentSearchGraph}, whose states can give their successors
+ * to several threads at once. With other linguists, or with an active list
+ * too small to be split, the branches are grown on the calling thread. The
+ * non-emitting branches are always grown on the calling thread.
+ * <p>
+ * The emitting active list is split into consecutive chunks. Every chunk is
+ * expanded by a collector with a best token table of its own, so the threads
+ * share nothing but the search graph. A collector creates a token for every
+ * state its chunk reaches and keeps the best entry into the state, exactly as
+ * the serial search would for the chunk alone. The collectors are then merged
+ * into the best token table of the search in the order of the chunks, and the
+ * tokens of a chunk in the order in which the chunk reached their states.
+ * That is the order of the serial search, by index of the predecessor in the
+ * active list and by index of the arc. A token of a collector is taken over
+ * if its state was not reached by an earlier chunk, otherwise it only
+ * replaces the path of the best token if it is better. So the tokens are
+ * created in the same order, with the same scores and predecessors as in the
+ * serial search. When a lattice is built, the entries into word states are
+ * recorded and replayed in order instead, because every entry may be an
+ * alternate predecessor of the word.
+ * <p>
+ * The tokens created on the grow threads are never taken from the token pool.
+ */
+public class ParallelWordPruningBreadthFirstSearchManager extends WordPruningBreadthFirstSearchManager {
+
+    /**
+     * The property that controls the number of threads used to grow the
+     * emitting branches. If isCpuRelative is true, the number of available
+     * processors is added. With less than two threads the branches are grown
+     * on the calling thread.
+     */
+    @S4Integer(defaultValue = 0)
+    public final static String PROP_NUM_THREADS = "numThreads";
+
+    /**
+     * The property that controls whether the number of available processors is
+     * added to the number of threads.
+     */
+    @S4Boolean(defaultValue = true)
+    public final static String PROP_IS_CPU_RELATIVE = "isCpuRelative";
+
+    /**
+     * The property that controls the minimum number of tokens expanded by a
+     * thread, smaller active lists are expanded by less threads.
+     */
+    @S4Integer(defaultValue = 200)
+    public final static String PROP_MIN_TOKENS_PER_THREAD = "minTokensPerThread";
+
+    private final static String className = ParallelWordPruningBreadthFirstSearchManager.class.getSimpleName();
+
+    private int numThreads;
+    private int minTokensPerThread;
+    private ExecutorService executorService;
+    private Collector[] collectors;
+
+    /**
+     * Creates a pruning manager which grows the emitting branches in parallel
+     *
+     * @param linguist a linguist for search space
+     * @param pruner pruner to drop tokens
+     * @param scorer scorer to estimate token probability
+     * @param activeListManager active list manager to store tokens
+     * @param showTokenCount show count during decoding
+     * @param relativeWordBeamWidth relative beam for lookahead pruning
+     * @param growSkipInterval skip interval for grown
+     * @param checkStateOrder check order of states during growth
+     * @param buildWordLattice build a lattice during decoding
+     * @param maxLatticeEdges max edges to keep in lattice
+     * @param acousticLookaheadFrames frames to do lookahead
+     * @param keepAllTokens keep tokens including emitting tokens
+     * @param tokenPool recycle tokens which fell out of the search
+     * @param numThreads the number of threads growing the branches
+     * @param cpuRelative add the number of available processors to numThreads
+     * @param minTokensPerThread the minimum number of tokens expanded by a thread
+     */
+    public ParallelWordPruningBreadthFirstSearchManager(Linguist linguist, Pruner pruner, AcousticScorer scorer,
+            ActiveListManager activeListManager, boolean showTokenCount, double relativeWordBeamWidth,
+            int growSkipInterval, boolean checkStateOrder, boolean buildWordLattice, int maxLatticeEdges,
+            float acousticLookaheadFrames, boolean keepAllTokens, boolean tokenPool, int numThreads,
+            boolean cpuRelative, int minTokensPerThread) {
+        super(linguist, pruner, scorer, activeListManager, showTokenCount, relativeWordBeamWidth, growSkipInterval,
+                checkStateOrder, buildWordLattice, maxLatticeEdges, acousticLookaheadFrames, keepAllTokens, tokenPool);
+        init(numThreads, cpuRelative, minTokensPerThread);
+    }
+
+    public ParallelWordPruningBreadthFirstSearchManager() {
+
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * edu.cmu.sphinx.util.props.Configurable#newProperties(edu.cmu.sphinx.util
+     * .props.PropertySheet)
+     */
+    @Override
+    public void newProperties(PropertySheet ps) throws PropertyException {
+        super.newProperties(ps);
+        init(ps.getInt(PROP_NUM_THREADS), ps.getBoolean(PROP_IS_CPU_RELATIVE),
+                ps.getInt(PROP_MIN_TOKENS_PER_THREAD));
+    }
+
+    private void init(int numThreads, boolean cpuRelative, int minTokensPerThread) {
+        if (cpuRelative) {
+            numThreads += Runtime.getRuntime().availableProcessors();
+        }
+        this.numThreads = numThreads;
+        this.minTokensPerThread = Math.max(minTokensPerThread, 1);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.cmu.sphinx.decoder.search.SearchManager#allocate()
+     */
+    @Override
+    public void allocate() {
+        super.allocate();
+        if (executorService == null && numThreads > 1) {
+            if (!(linguist.getSearchGraph() instanceof ConcurrentSearchGraph))
+                logger.warning("The search graph of " + linguist.getClass().getName()
+                        + " is not concurrent, the branches are grown on one thread");
+            logger.fine("# of grow threads: " + numThreads);
+            executorService = Executors.newFixedThreadPool(numThreads,
+                    new CustomThreadFactory(className, true, Thread.NORM_PRIORITY));
+            createCollectors();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.cmu.sphinx.decoder.search.SearchManager#deallocate()
+     */
+    @Override
+    public void deallocate() {
+        super.deallocate();
+        if (executorService != null) {
+            executorService.shutdown();
+            executorService = null;
+            collectors = null;
+        }
+    }
+
+    /**
+     * Grows the emitting branches on the grow threads, if the search graph
+     * allows it and the active list is large enough to be split.
+     */
+    @Override
+    protected void growEmittingBranches() {
+        List<Token> tokens = activeList.getTokens();
+        int jobSize = executorService == null ? tokens.size()
+                : Math.max((tokens.size() + numThreads - 1) / numThreads, minTokensPerThread);
+        if (jobSize >= tokens.size() || !(linguist.getSearchGraph() instanceof ConcurrentSearchGraph)) {
+            super.growEmittingBranches();
+            return;
+        }
+
+        growTimer.start();
+        boolean lookahead = acousticLookaheadFrames > 0.0f;
+        float threshold;
+        if (lookahead) {
+            float bestScore = -Float.MAX_VALUE;
+            for (Token t : tokens) {
+                float score = t.getScore() + t.getAcousticScore() * acousticLookaheadFrames;
+                if (score > bestScore) {
+                    bestScore = score;
+                }
+            }
+            threshold = bestScore + relativeBeamWidth;
+        } else {
+            threshold = activeList.getBeamThreshold();
+        }
+
+        List<Future<Collector>> jobs = new ArrayList<Future<Collector>>();
+        for (int from = 0, i = 0; from < tokens.size(); from += jobSize, i++) {
+            Collector collector = collectors[i];
+            collector.start(tokens.subList(from, Math.min(from + jobSize, tokens.size())), lookahead, threshold);
+            jobs.add(executorService.submit(collector, collector));
+        }
+
+        // merge the collectors in the order of the active list while the
+        // later chunks are still expanded
+        try {
+            for (Future<Collector> job : jobs)
+                merge(job.get());
+        } catch (InterruptedException e) {
+            // collectors which are still running are left to their threads
+            createCollectors();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Growing of branches interrupted", e);
+        } catch (ExecutionException e) {
+            createCollectors();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new RuntimeException("Growing of branches failed", e.getCause());
+        } finally {
+            growTimer.stop();
+        }
+    }
+
+    private void createCollectors() {
+        collectors = new Collector[numThreads];
+        for (int i = 0; i < numThreads; i++)
+            collectors[i] = new Collector();
+    }
+
+    /**
+     * Takes the tokens of a collector into the search, as if its chunk of the
+     * active list was expanded by {@link #collectSuccessorTokens(Token)}.
+     *
+     * @param collector the collector of the next chunk
+     */
+    private void merge(Collector collector) {
+        resultList.addAll(collector.results);
+        for (Token token : collector.tokens) {
+            List<Expansion> expansions = collector.wordExpansions.get(token);
+            if (expansions != null) {
+                for (Expansion expansion : expansions)
+                    collectSuccessorToken(expansion.predecessor, expansion.arc, expansion.logEntryScore);
+                continue;
+            }
+
+            SearchState state = token.getSearchState();
+            Token bestToken = getBestToken(state);
+            if (bestToken == null) {
+                tokensCreated.value++;
+                setBestToken(token, state);
+                activeListAdd(token);
+            } else if (bestToken.getScore() < token.getScore()) {
+                bestToken.update(token.getPredecessor(), state, token.getScore(), token.getInsertionScore(),
+                        token.getLanguageScore(), token.getCollectTime());
+            }
+        }
+        collector.clear();
+    }
+
+
+    /**
+     * Expands a chunk of the active list on a grow thread. This is the
+     * parallel part of {@link #collectSuccessorTokens(Token)}, the collector
+     * keeps the best tokens of the states reached from the chunk in a best
+     * token table of its own.
+     */
+    private class Collector implements Runnable {
+
+        private final BestTokenTable bestTokens = new BestTokenTable();
+        /** the tokens of the reached states, in the order the states were reached */
+        private final List<Token> tokens = new ArrayList<Token>();
+        private final List<Token> results = new ArrayList<Token>();
+        /** the entries into word states, by the token of the word state, if a lattice is built */
+        private final Map<Token, List<Expansion>> wordExpansions = new IdentityHashMap<Token, List<Expansion>>();
+
+        private List<Token> chunk;
+        private boolean lookahead;
+        private float threshold;
+        private long collectTime;
+
+        void start(List<Token> chunk, boolean lookahead, float threshold) {
+            this.chunk = chunk;
+            this.lookahead = lookahead;
+            this.threshold = threshold;
+            this.collectTime = currentCollectTime;
+        }
+
+        void clear() {
+            bestTokens.clear();
+            tokens.clear();
+            results.clear();
+            wordExpansions.clear();
+            chunk = null;
+        }
+
+        public void run() {
+            for (Token token : chunk) {
+                if (lookahead) {
+                    if (token.getScore() + token.getAcousticScore() * acousticLookaheadFrames <= threshold)
+                        continue;
+                } else if (token.getScore() < threshold || !allowExpansion(token)) {
+                    continue;
+                }
+
+                if (token.isFinal()) {
+                    results.add(getResultListPredecessor(token));
+                    continue;
+                }
+                if (!token.isEmitting() && (keepAllTokens && isVisited(token))) {
+                    continue;
+                }
+
+                SearchState state = token.getSearchState();
+                SearchStateArc[] arcs = state.getSuccessors();
+                Token predecessor = getResultListPredecessor(token);
+
+                for (SearchStateArc arc : arcs) {
+                    SearchState nextState = arc.getState();
+
+                    if (checkStateOrder) {
+                        checkStateOrder(state, nextState);
+                    }
+
+                    float logEntryScore = token.getScore() + arc.getProbability();
+                    collect(predecessor, arc, logEntryScore);
+                }
+            }
+        }
+
+        private void collect(Token predecessor, SearchStateArc arc, float logEntryScore) {
+            SearchState nextState = arc.getState();
+            Token bestToken = bestTokens.get(nextState);
+
+            if (bestToken == null) {
+                bestToken = new Token(predecessor, nextState, logEntryScore, arc.getInsertionProbability(),
+                        arc.getLanguageProbability(), collectTime);
+                bestTokens.put(nextState, bestToken);
+                tokens.add(bestToken);
+            } else if (bestToken.getScore() < logEntryScore) {
+                bestToken.update(predecessor, nextState, logEntryScore, arc.getInsertionProbability(),
+                        arc.getLanguageProbability(), collectTime);
+            }
+
+            if (buildWordLattice && nextState instanceof WordSearchState) {
+                List<Expansion> expansions = wordExpansions.get(bestToken);
+                if (expansions == null) {
+                    expansions = new ArrayList<Expansion>();
+                    wordExpansions.put(bestToken, expansions);
+                }
+                expansions.add(new Expansion(predecessor, arc, logEntryScore));
+            }
+        }
+    }
+
+
+    /** An entry into a word state recorded by a collector */
+    private static class Expansion {
+
+        final Token predecessor;
+        final SearchStateArc arc;
+        final float logEntryScore;
+
+        Expansion(Token predecessor, SearchStateArc arc, float logEntryScore) {
+            this.predecessor = predecessor;
+            this.arc = arc;
+            this.logEntryScore = logEntryScore;
+        }
+    }
+}
@@ -17,6 +17,7 @@ import edu.cmu.sphinx.util.props.PropertySheet;
 import edu.cmu.sphinx.util.props.S4Boolean;
 import edu.cmu.sphinx.util.props.S4ComponentList;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -176,6 +177,11 @@ public class SimpleActiveListManager implements ActiveListManager {
     }
 
 
+    public List<ActiveList> getNonEmittingLists() {
+        return Arrays.asList(currentActiveLists).subList(0, currentActiveLists.length - 1);
+    }
+
+
     private class NonEmittingListIterator implements Iterator<ActiveList> {
 
         private int listPtr;
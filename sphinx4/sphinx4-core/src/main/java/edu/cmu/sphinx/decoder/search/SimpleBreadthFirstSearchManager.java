@@ -131,6 +131,7 @@ public class SimpleBreadthFirstSearchManager extends TokenSearchManager {
     private int growSkipInterval;
     protected ActiveListFactory activeListFactory;
     protected boolean streamEnd;
+    protected ImmortalPrefixTracker immortalPrefixTracker;
 
     public SimpleBreadthFirstSearchManager() {
         
@@ -225,9 +226,12 @@ public class SimpleBreadthFirstSearchManager extends TokenSearchManager {
             ActiveList fixedList = undoLastGrowStep();
             	
             // Now create the result using the fixed active-list.
-            if (!streamEnd)
+            if (!streamEnd) {
            		result =
                     new Result(fixedList, resultList, currentFrameNumber, done, linguist.getSearchGraph().getWordTokenFirst(), false);
+                immortalPrefixTracker.setTokens(fixedList, resultList);
+                result.setImmortalPrefixTracker(immortalPrefixTracker);
+            }
         }
 
         if (showTokenCount) {
@@ -303,6 +307,7 @@ public class SimpleBreadthFirstSearchManager extends TokenSearchManager {
         SearchState state = linguist.getSearchGraph().getInitialState();
         newActiveList.add(new Token(state, -1));
         activeList = newActiveList;
+        immortalPrefixTracker = new ImmortalPrefixTracker();
 
         growBranches();
     }
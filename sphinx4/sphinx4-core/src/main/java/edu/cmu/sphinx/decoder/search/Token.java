@@ -23,6 +23,7 @@ import edu.cmu.sphinx.linguist.WordSearchState;
 import edu.cmu.sphinx.linguist.acoustic.Unit;
 import edu.cmu.sphinx.linguist.dictionary.Pronunciation;
 import edu.cmu.sphinx.linguist.dictionary.Word;
+import edu.cmu.sphinx.util.StatisticsVariable;
 
 import java.text.DecimalFormat;
 import java.util.*;
@@ -35,8 +36,6 @@ import java.util.*;
  */
 public class Token implements Scoreable {
 
-    private static int curCount;
-    private static int lastCount;
     private static final DecimalFormat scoreFmt = new DecimalFormat("0.0000000E00");
     private static final DecimalFormat numFmt = new DecimalFormat("0000");
 
@@ -52,6 +51,9 @@ public class Token implements Scoreable {
     private long collectTime;
     private Data data;
 
+    /** Used by {@link TokenPool} to find the tokens in use */
+    int poolMark;
+
     /**
      * Internal constructor for a token. Used by classes Token, CombineToken, ParallelToken
      *
@@ -74,7 +76,6 @@ public class Token implements Scoreable {
         this.logInsertionScore = logInsertionScore;
         this.logLanguageScore = logLanguageScore;
         this.collectTime = collectTime;
-        curCount++;
     }
 
 
@@ -103,7 +104,27 @@ public class Token implements Scoreable {
                  float logAcousticScore,
                  float logInsertionScore,
                  float logLanguageScore) {
-        this(predecessor, null, logTotalScore, logInsertionScore, logLanguageScore, 0);
+        this(predecessor, logTotalScore, logAcousticScore, logInsertionScore, logLanguageScore, 0);
+    }
+
+
+    /**
+     * Creates a Token with the given acoustic and language scores, predecessor and collect time.
+     *
+     * @param predecessor previous token
+     * @param logTotalScore total score
+     * @param logAcousticScore the log acoustic score
+     * @param logInsertionScore the log insertion score
+     * @param logLanguageScore the log language score
+     * @param collectTime the frame collection time
+     */
+    public Token(Token predecessor,
+                 float logTotalScore,
+                 float logAcousticScore,
+                 float logInsertionScore,
+                 float logLanguageScore,
+                 long collectTime) {
+        this(predecessor, null, logTotalScore, logInsertionScore, logLanguageScore, collectTime);
         this.logAcousticScore = logAcousticScore;
     }
 
@@ -176,7 +197,27 @@ public class Token implements Scoreable {
 
         return logTotalScore;
     }
-    
+
+
+    /**
+     * Applies an acoustic score which was already computed for the given
+     * feature, for example by a scorer that evaluates every senone only once
+     * per frame. Has the same effect as {@link #calculateScore(Data)}.
+     *
+     * @param logAcousticScore the acoustic score of the state of this token
+     * @param feature the feature the score was computed for
+     * @return the total score of the token
+     */
+    public float applyAcousticScore(float logAcousticScore, Data feature) {
+        this.logAcousticScore = logAcousticScore;
+
+        logTotalScore += logAcousticScore;
+
+        setData(feature);
+
+        return logTotalScore;
+    }
+
     public float[] calculateComponentScore(Data feature){
     	return ((ScoreProvider) searchState).getComponentScore(feature);
     }
@@ -427,11 +468,15 @@ public class Token implements Scoreable {
     }
 
 
-    /** Shows the token count */
+    /**
+     * Shows the token count
+     *
+     * @deprecated tokens are counted by search managers in the
+     *             <code>tokensCreated</code> statistics variable
+     */
+    @Deprecated
     public static void showCount() {
-        System.out.println("Cur count: " + curCount + " new " +
-                (curCount - lastCount));
-        lastCount = curCount;
+        StatisticsVariable.getStatisticsVariable("tokensCreated").dump();
     }
 
 
@@ -474,4 +519,12 @@ public class Token implements Scoreable {
         this.logLanguageScore = languageProbability;
         this.collectTime = collectTime;
     }
+
+    /** Drops the references held by this token before it is reused */
+    void clear() {
+        predecessor = null;
+        searchState = null;
+        data = null;
+        logAcousticScore = 0.0f;
+    }
 }
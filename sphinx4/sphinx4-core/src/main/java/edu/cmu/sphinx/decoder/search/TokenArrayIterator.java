@@ -0,0 +1,52 @@
+/*
+ * 
+ * Copyright 1999-2004 Carnegie Mellon University.  
+ * Portions Copyright 2004 Sun Microsystems, Inc.  
+ * Portions Copyright 2004 Mitsubishi Electric Research Laboratories.
+ * All Rights Reserved.  Use is subject to license terms.
+ * 
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL 
+ * WARRANTIES.
+ *
+ */
+package edu.cmu.sphinx.decoder.search;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** Iterates over the first tokens of an array, used by the array based active lists. */
+class TokenArrayIterator implements Iterator<Token> {
+
+    private final Token[] tokenArray;
+    private final int size;
+    private int pos;
+
+
+    TokenArrayIterator(Token[] tokenArray, int size) {
+        this.tokenArray = tokenArray;
+        this.pos = 0;
+        this.size = size;
+    }
+
+
+    /** Returns true if the iteration has more tokens. */
+    public boolean hasNext() {
+        return pos < size;
+    }
+
+
+    /** Returns the next token in the iteration. */
+    public Token next() throws NoSuchElementException {
+        if (pos >= size) {
+            throw new NoSuchElementException();
+        }
+        return tokenArray[pos++];
+    }
+
+
+    /** Unimplemented, throws an Error if called. */
+    public void remove() {
+        throw new Error("TokenArrayIterator.remove() unimplemented");
+    }
+}
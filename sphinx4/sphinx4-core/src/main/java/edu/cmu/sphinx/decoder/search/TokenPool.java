@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.decoder.search;
+
+import java.util.Arrays;
+
+import edu.cmu.sphinx.linguist.SearchState;
+
+/**
+ * Recycles the tokens of a search manager.
+ * <p>
+ * Most tokens created while growing the search are pruned soon after. The
+ * pool keeps track of the tokens it handed out and periodically finds the
+ * ones which are still in use with a simple mark and sweep: the search
+ * manager marks the tokens it holds, the active list, the result list and the
+ * alternate hypotheses, marking follows the predecessor chains, and
+ * {@link #sweep} takes back every tracked token which was not marked.
+ * <p>
+ * Tokens which survive two sweeps are mostly word history and are unlikely
+ * to be dropped soon. They are released from the pool to the garbage
+ * collector and marking stops at them, so a sweep only costs as much as the
+ * tokens created since the previous one. This relies on predecessors never
+ * being newer than their successors which holds as long as tokens are only
+ * updated in the frame they were created in.
+ * <p>
+ * Anything which keeps a token outside of the search manager, like a partial
+ * {@link edu.cmu.sphinx.result.Result}, may see it reused after the next sweep.
+ * The pool is not thread safe.
+ */
+public class TokenPool {
+
+    /** Mark of tokens released from the pool, marking stops there */
+    private final static int RELEASED = -1;
+
+    private Token[] tokens = new Token[1024];
+    private int[] births = new int[1024];
+    private int numTokens;
+
+    private Token[] free = new Token[1024];
+    private int numFree;
+
+    private int epoch = 1;
+    private long recycled;
+
+
+    /**
+     * Gets a token, reusing a free one if possible. The arguments are the
+     * ones of the {@link Token} constructor.
+     *
+     * @param predecessor the predecessor for this token
+     * @param state the search state associated with this token
+     * @param logTotalScore the total entry score for this token
+     * @param logInsertionScore the insertion score associated with this token
+     * @param logLanguageScore the language score associated with this token
+     * @param collectTime the frame collection time
+     * @return the token
+     */
+    public Token get(Token predecessor, SearchState state, float logTotalScore,
+            float logInsertionScore, float logLanguageScore, long collectTime) {
+        Token token;
+        if (numFree > 0) {
+            token = free[--numFree];
+            free[numFree] = null;
+            token.update(predecessor, state, logTotalScore, logInsertionScore,
+                    logLanguageScore, collectTime);
+            token.poolMark = 0;
+        } else {
+            token = new Token(predecessor, state, logTotalScore,
+                    logInsertionScore, logLanguageScore, collectTime);
+        }
+
+        if (numTokens == tokens.length) {
+            tokens = Arrays.copyOf(tokens, numTokens * 2);
+            births = Arrays.copyOf(births, numTokens * 2);
+        }
+        tokens[numTokens] = token;
+        births[numTokens++] = epoch;
+        return token;
+    }
+
+
+    /**
+     * Marks the token and its predecessors as being in use.
+     *
+     * @param token the token to keep
+     */
+    public void mark(Token token) {
+        while (token != null && token.poolMark != epoch && token.poolMark != RELEASED) {
+            token.poolMark = epoch;
+            token = token.getPredecessor();
+        }
+    }
+
+
+    /**
+     * Marks the tokens and their predecessors as being in use.
+     *
+     * @param tokens the tokens to keep
+     */
+    public void mark(Iterable<Token> tokens) {
+        for (Token token : tokens)
+            mark(token);
+    }
+
+
+    /**
+     * Takes back all tokens which were not marked since the previous sweep.
+     * Their references are cleared, so they don't keep features or other
+     * tokens from being collected.
+     */
+    public void sweep() {
+        int kept = 0;
+        for (int i = 0; i < numTokens; i++) {
+            Token token = tokens[i];
+            if (token.poolMark != epoch) {
+                token.clear();
+                if (numFree == free.length)
+                    free = Arrays.copyOf(free, numFree * 2);
+                free[numFree++] = token;
+                recycled++;
+            } else if (births[i] < epoch) {
+                token.poolMark = RELEASED;
+            } else {
+                tokens[kept] = token;
+                births[kept++] = births[i];
+            }
+        }
+        Arrays.fill(tokens, kept, numTokens, null);
+        numTokens = kept;
+        epoch = epoch == Integer.MAX_VALUE ? 1 : epoch + 1;
+    }
+
+
+    /**
+     * Stops tracking the tokens handed out so far, they are left to the
+     * garbage collector. Should be called before each utterance since results
+     * of the previous utterance may still refer to them. Free tokens are kept.
+     */
+    public void reset() {
+        for (int i = 0; i < numTokens; i++)
+            tokens[i].poolMark = RELEASED;
+        Arrays.fill(tokens, 0, numTokens, null);
+        numTokens = 0;
+    }
+
+
+    /** @return the number of tokens which can be reused */
+    public int getNumFree() {
+        return numFree;
+    }
+
+
+    /** @return the number of tokens taken back by the pool so far */
+    public long getRecycled() {
+        return recycled;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.decoder.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.cmu.sphinx.decoder.pruner.Pruner;
+import edu.cmu.sphinx.decoder.scorer.AcousticScorer;
+import edu.cmu.sphinx.linguist.Linguist;
+import edu.cmu.sphinx.linguist.SearchState;
+import edu.cmu.sphinx.linguist.SearchStateArc;
+import edu.cmu.sphinx.linguist.WordSearchState;
+import edu.cmu.sphinx.result.Result;
+import edu.cmu.sphinx.util.props.PropertyException;
+import edu.cmu.sphinx.util.props.PropertySheet;
+
+/**
+ * A word pruning search manager which records the word exits in a
+ * {@link BackpointerTable} instead of keeping chains of tokens. The tokens in
+ * the active lists have no predecessors, they only refer to the last word exit
+ * of their path, so the tokens of a frame can be collected as soon as the next
+ * frame is grown. The word exits which can't be reached from the tokens any
+ * more are dropped from the table from time to time, so the memory of an
+ * utterance grows with the number of word exits on the live paths only. A
+ * partial result can only be traced until the table is compacted, which is
+ * during the next frames.
+ * <p>
+ * The search finds the same hypotheses as the
+ * {@link WordPruningBreadthFirstSearchManager}. The results turn the word
+ * exits into tokens when they are asked for the best token, and the lattice of
+ * a final result is built from the word exits and the alternate paths into
+ * them. The token chains of a result are only those of the word tokens, so
+ * the keepAllTokens and tokenPool properties are ignored, and the words of
+ * partial results only become stable with the final result.
+ */
+public class WordPruningBackpointerSearchManager extends WordPruningBreadthFirstSearchManager {
+
+    private int maxLatticeEdges;
+    private BackpointerTable backpointerTable;
+
+    /**
+     * Creates a pruning manager which records the word exits in a table
+     *
+     * @param linguist a linguist for search space
+     * @param pruner pruner to drop tokens
+     * @param scorer scorer to estimate token probability
+     * @param activeListManager active list manager to store tokens
+     * @param showTokenCount show count during decoding
+     * @param relativeWordBeamWidth relative beam for lookahead pruning
+     * @param growSkipInterval skip interval for grown
+     * @param checkStateOrder check order of states during growth
+     * @param buildWordLattice build a lattice during decoding
+     * @param maxLatticeEdges max edges to keep in lattice
+     * @param acousticLookaheadFrames frames to do lookahead
+     */
+    public WordPruningBackpointerSearchManager(Linguist linguist, Pruner pruner, AcousticScorer scorer,
+            ActiveListManager activeListManager, boolean showTokenCount, double relativeWordBeamWidth,
+            int growSkipInterval, boolean checkStateOrder, boolean buildWordLattice, int maxLatticeEdges,
+            float acousticLookaheadFrames) {
+        super(linguist, pruner, scorer, activeListManager, showTokenCount, relativeWordBeamWidth, growSkipInterval,
+                checkStateOrder, buildWordLattice, maxLatticeEdges, acousticLookaheadFrames, false, false);
+        this.maxLatticeEdges = maxLatticeEdges;
+    }
+
+    public WordPruningBackpointerSearchManager() {
+
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * edu.cmu.sphinx.util.props.Configurable#newProperties(edu.cmu.sphinx.util
+     * .props.PropertySheet)
+     */
+    @Override
+    public void newProperties(PropertySheet ps) throws PropertyException {
+        super.newProperties(ps);
+        maxLatticeEdges = ps.getInt(PROP_MAX_LATTICE_EDGES);
+        keepAllTokens = false;
+        tokenPool = null;
+    }
+
+    /**
+     * Creates a new word exit table and the initial token
+     */
+    @Override
+    protected void localStart() {
+        backpointerTable = new BackpointerTable(maxLatticeEdges);
+        super.localStart();
+    }
+
+    /**
+     * Performs the recognition for the given number of frames.
+     *
+     * @param nFrames
+     *            the number of frames to recognize
+     * @return the current result, which traces the tokens back through the
+     *         word exit table
+     */
+    @Override
+    public Result recognize(int nFrames) {
+        Result result = super.recognize(nFrames);
+        if (result != null)
+            result.setBackpointerTable(backpointerTable);
+        return result;
+    }
+
+    /**
+     * Returns the word exit table of the current utterance
+     *
+     * @return the word exit table
+     */
+    public BackpointerTable getBackpointerTable() {
+        return backpointerTable;
+    }
+
+    /**
+     * Compacts the word exit table once it grew enough. Besides the emitting
+     * list, the tokens which wait in the non-emitting lists and the tokens of
+     * the result list keep their word exits.
+     */
+    @Override
+    protected void recycleTokens() {
+        if (!backpointerTable.isCompactionDue())
+            return;
+        List<Iterable<Token>> tokenLists = new ArrayList<Iterable<Token>>();
+        tokenLists.add(activeList);
+        tokenLists.addAll(activeListManager.getNonEmittingLists());
+        tokenLists.add(resultList);
+        backpointerTable.compact(tokenLists);
+    }
+
+    /**
+     * The successors are created from the token itself, the word exit of its
+     * path is taken from it
+     */
+    @Override
+    protected Token getResultListPredecessor(Token token) {
+        return token;
+    }
+
+    @Override
+    protected Token newToken(Token predecessor, SearchState state, float logEntryScore, float logInsertionScore,
+            float logLanguageScore, long collectTime) {
+        BackpointerToken token = new BackpointerToken(state, logEntryScore, logInsertionScore, logLanguageScore,
+                collectTime);
+        setPath(token, (BackpointerToken) predecessor, false);
+        return token;
+    }
+
+    @Override
+    protected void collectSuccessorToken(Token predecessor, SearchStateArc arc, float logEntryScore) {
+        SearchState nextState = arc.getState();
+        Token bestToken = getBestToken(nextState);
+
+        if (bestToken == null) {
+            Token newBestToken = newToken(predecessor, nextState, logEntryScore, arc.getInsertionProbability(),
+                    arc.getLanguageProbability(), currentCollectTime);
+            tokensCreated.value++;
+            setBestToken(newBestToken, nextState);
+            activeListAdd(newBestToken);
+        } else if (bestToken.getScore() < logEntryScore) {
+            bestToken.update(null, nextState, logEntryScore, arc.getInsertionProbability(),
+                    arc.getLanguageProbability(), currentCollectTime);
+            setPath((BackpointerToken) bestToken, (BackpointerToken) predecessor, true);
+        } else if (buildWordLattice && nextState instanceof WordSearchState) {
+            BackpointerToken searchPredecessor = (BackpointerToken) predecessor;
+            if (searchPredecessor.wordExit >= 0) {
+                backpointerTable.addAlternate(((BackpointerToken) bestToken).wordExit, searchPredecessor.wordExit,
+                        searchPredecessor.getScore(), getPathAcousticScore(searchPredecessor),
+                        getPathLanguageScore(searchPredecessor));
+            }
+        }
+    }
+
+    /**
+     * Sets the word exit and the path scores of a token reached from the
+     * given predecessor. A word token is recorded as a word exit.
+     *
+     * @param token the new or updated token
+     * @param predecessor the token it was reached from, null for the initial token
+     * @param update the token is updated with a better path
+     */
+    private void setPath(BackpointerToken token, BackpointerToken predecessor, boolean update) {
+        int wordExit = -1;
+        float predecessorScore = 0.0f;
+        float pathAcousticScore = 0.0f;
+        float pathLanguageScore = 0.0f;
+        if (predecessor != null) {
+            wordExit = predecessor.wordExit;
+            predecessorScore = predecessor.getScore();
+            pathAcousticScore = getPathAcousticScore(predecessor);
+            pathLanguageScore = getPathLanguageScore(predecessor);
+        }
+
+        if (token.isWord()) {
+            if (update) {
+                backpointerTable.update(token.wordExit, token, wordExit, predecessorScore, pathAcousticScore,
+                        pathLanguageScore, buildWordLattice);
+            } else {
+                token.wordExit = backpointerTable.add(token, wordExit, predecessorScore, pathAcousticScore,
+                        pathLanguageScore);
+            }
+            token.pathAcousticScore = 0.0f;
+            token.pathLanguageScore = 0.0f;
+        } else {
+            token.wordExit = wordExit;
+            token.pathAcousticScore = pathAcousticScore;
+            token.pathLanguageScore = pathLanguageScore;
+        }
+    }
+
+    /** Returns the acoustic and insertion scores of the path since the word exit, including the token */
+    private static float getPathAcousticScore(BackpointerToken token) {
+        if (token.isWord())
+            return 0.0f;
+        return token.pathAcousticScore + token.getAcousticScore() + token.getInsertionScore();
+    }
+
+    /** Returns the language scores of the path since the word exit, including the token */
+    private static float getPathLanguageScore(BackpointerToken token) {
+        if (token.isWord())
+            return 0.0f;
+        return token.pathLanguageScore + token.getLanguageScore();
+    }
+}
@@ -19,6 +19,7 @@ import java.util.Map;
 
 import edu.cmu.sphinx.decoder.pruner.Pruner;
 import edu.cmu.sphinx.decoder.scorer.AcousticScorer;
+import edu.cmu.sphinx.decoder.scorer.SimpleAcousticScorer;
 import edu.cmu.sphinx.frontend.Data;
 import edu.cmu.sphinx.linguist.Linguist;
 import edu.cmu.sphinx.linguist.SearchState;
@@ -94,7 +95,13 @@ public class WordPruningBreadthFirstLookaheadSearchManager extends WordPruningBr
                                              // lookahead matching
     protected ActiveList fastmatchActiveList; // the list of active tokens for
                                               // fast match
-    protected Map<SearchState, Token> fastMatchBestTokenMap;
+    protected BestTokenTable fastMatchBestTokenTable = new BestTokenTable();
+    /**
+     * @deprecated the best tokens are kept in
+     *             {@link #fastMatchBestTokenTable}, this is a map view of it
+     */
+    @Deprecated
+    protected Map<SearchState, Token> fastMatchBestTokenMap = fastMatchBestTokenTable.asMap();
     private boolean fastmatchStreamEnd;
 
     /**
@@ -136,8 +143,7 @@ public class WordPruningBreadthFirstLookaheadSearchManager extends WordPruningBr
                     + ". Value in range [1..10] is expected");
         this.ciScores = new LinkedList<FrameCiScores>();
         this.penalties = new HashMap<Integer, Float>();
-        if (loader instanceof Sphinx3Loader && ((Sphinx3Loader) loader).hasTiedMixtures())
-            ((Sphinx3Loader) loader).setGauScoresQueueLength(lookaheadWindow + 2);
+        initScoresQueue();
     }
 
     public WordPruningBreadthFirstLookaheadSearchManager() {
@@ -165,8 +171,21 @@ public class WordPruningBreadthFirstLookaheadSearchManager extends WordPruningBr
                     "Unsupported lookahead window size: " + lookaheadWindow + ". Value in range [1..10] is expected");
         ciScores = new LinkedList<FrameCiScores>();
         penalties = new HashMap<Integer, Float>();
-        if (loader instanceof Sphinx3Loader && ((Sphinx3Loader) loader).hasTiedMixtures())
-            ((Sphinx3Loader) loader).setGauScoresQueueLength(lookaheadWindow + 2);
+        initScoresQueue();
+    }
+
+    /**
+     * Makes the scorer keep the tied mixture scores of the lookahead window,
+     * so that the main search reuses the scores of the fast match.
+     */
+    private void initScoresQueue() {
+        if (!(loader instanceof Sphinx3Loader) || !((Sphinx3Loader) loader).hasTiedMixtures())
+            return;
+        if (scorer instanceof SimpleAcousticScorer)
+            ((SimpleAcousticScorer) scorer).getScoringScratch().setScoresQueueLength(lookaheadWindow + 2);
+        else
+            logger.warning("Scorer " + scorer.getClass().getName()
+                    + " has no scoring scratch, tied mixture scores of the lookahead window are not kept");
     }
 
     /**
@@ -193,6 +212,7 @@ public class WordPruningBreadthFirstLookaheadSearchManager extends WordPruningBr
         if (!streamEnd) {
             result = new Result(loserManager, activeList, resultList, currentCollectTime, done, linguist.getSearchGraph()
                     .getWordTokenFirst(), true);
+            trackImmortalPrefix(result);
         }
 
         // tokenTypeTracker.show();
@@ -214,14 +234,10 @@ public class WordPruningBreadthFirstLookaheadSearchManager extends WordPruningBr
     }
 
     /**
-     * creates a new best token map with the best size
+     * Clears the fast match best token table for the next frame
      */
     protected void createFastMatchBestTokenMap() {
-        int mapSize = fastmatchActiveList.size() * 10;
-        if (mapSize == 0) {
-            mapSize = 1;
-        }
-        fastMatchBestTokenMap = new HashMap<SearchState, Token>(mapSize);
+        fastMatchBestTokenTable.clear();
     }
 
     /**
@@ -231,8 +247,6 @@ public class WordPruningBreadthFirstLookaheadSearchManager extends WordPruningBr
     @Override
     protected void localStart() {
         currentFastMatchFrameNumber = 0;
-        if (loader instanceof Sphinx3Loader && ((Sphinx3Loader) loader).hasTiedMixtures())
-            ((Sphinx3Loader) loader).clearGauScores();
         // prepare fast match active list
         fastmatchActiveList = fastmatchActiveListFactory.newInstance();
         SearchState fmInitState = fastmatchLinguist.getSearchGraph().getInitialState();
@@ -315,11 +329,11 @@ public class WordPruningBreadthFirstLookaheadSearchManager extends WordPruningBr
     }
 
     protected Token getFastMatchBestToken(SearchState state) {
-        return fastMatchBestTokenMap.get(state);
+        return fastMatchBestTokenTable.get(state);
     }
 
     protected void setFastMatchBestToken(Token token, SearchState state) {
-        fastMatchBestTokenMap.put(state, token);
+        fastMatchBestTokenTable.put(state, token);
     }
 
     protected void collectFastMatchSuccessorTokens(Token token) {
@@ -449,7 +463,7 @@ public class WordPruningBreadthFirstLookaheadSearchManager extends WordPruningBr
             Token bestToken = getBestToken(nextState);
 
             if (bestToken == null) {
-                Token newBestToken = new Token(predecessor, nextState, logEntryScore, arc.getInsertionProbability(),
+                Token newBestToken = newToken(predecessor, nextState, logEntryScore, arc.getInsertionProbability(),
                         arc.getLanguageProbability(), currentCollectTime);
                 tokensCreated.value++;
                 setBestToken(newBestToken, nextState);
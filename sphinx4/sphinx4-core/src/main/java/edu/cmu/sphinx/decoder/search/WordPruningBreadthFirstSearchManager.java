@@ -107,13 +107,22 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
     // TODO: this should be a more meaningful default e.g. the common 1E-80
     public final static String PROP_RELATIVE_BEAM_WIDTH = "relativeBeamWidth";
 
+    /**
+     * The property that controls whether tokens are recycled. When set to
+     * <code>true</code> tokens which fell out of the search are reused for
+     * new states, see {@link TokenPool}. Tokens of partial results are then
+     * only valid until the next call to recognize.
+     */
+    @S4Boolean(defaultValue = false)
+    public final static String PROP_TOKEN_POOL = "tokenPool";
+
     // -----------------------------------
     // Configured Subcomponents
     // -----------------------------------
     protected Linguist linguist; // Provides grammar/language info
     protected Pruner pruner; // used to prune the active list
     protected AcousticScorer scorer; // used to score the active list
-    private ActiveListManager activeListManager;
+    protected ActiveListManager activeListManager;
     protected LogMath logMath;
 
     // -----------------------------------
@@ -146,8 +155,16 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
     protected long currentCollectTime; // the current frame number
     protected ActiveList activeList; // the list of active tokens
     protected List<Token> resultList; // the current set of results
-    protected Map<SearchState, Token> bestTokenMap;
+    protected BestTokenTable bestTokenTable = new BestTokenTable();
+    /**
+     * @deprecated the best tokens are kept in {@link #bestTokenTable}, this
+     *             is a map view of it
+     */
+    @Deprecated
+    protected Map<SearchState, Token> bestTokenMap = bestTokenTable.asMap();
     protected AlternateHypothesisManager loserManager;
+    protected ImmortalPrefixTracker immortalPrefixTracker;
+    protected TokenPool tokenPool;
     private int numStateOrder;
     // private TokenTracker tokenTracker;
     // private TokenTypeTracker tokenTypeTracker;
@@ -172,6 +189,30 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
             ActiveListManager activeListManager, boolean showTokenCount, double relativeWordBeamWidth, int growSkipInterval,
             boolean checkStateOrder, boolean buildWordLattice, int maxLatticeEdges, float acousticLookaheadFrames,
             boolean keepAllTokens) {
+        this(linguist, pruner, scorer, activeListManager, showTokenCount, relativeWordBeamWidth, growSkipInterval,
+                checkStateOrder, buildWordLattice, maxLatticeEdges, acousticLookaheadFrames, keepAllTokens, false);
+    }
+
+    /**
+     * Creates a pruning manager withs separate lists for tokens
+     * @param linguist a linguist for search space
+     * @param pruner pruner to drop tokens
+     * @param scorer scorer to estimate token probability
+     * @param activeListManager active list manager to store tokens
+     * @param showTokenCount show count during decoding
+     * @param relativeWordBeamWidth relative beam for lookahead pruning
+     * @param growSkipInterval skip interval for grown
+     * @param checkStateOrder check order of states during growth
+     * @param buildWordLattice build a lattice during decoding
+     * @param maxLatticeEdges max edges to keep in lattice
+     * @param acousticLookaheadFrames frames to do lookahead
+     * @param keepAllTokens keep tokens including emitting tokens
+     * @param tokenPool recycle tokens which fell out of the search
+     */
+    public WordPruningBreadthFirstSearchManager(Linguist linguist, Pruner pruner, AcousticScorer scorer,
+            ActiveListManager activeListManager, boolean showTokenCount, double relativeWordBeamWidth, int growSkipInterval,
+            boolean checkStateOrder, boolean buildWordLattice, int maxLatticeEdges, float acousticLookaheadFrames,
+            boolean keepAllTokens, boolean tokenPool) {
 
         this.logger = Logger.getLogger(getClass().getName());
         this.logMath = LogMath.getLogMath();
@@ -186,6 +227,7 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
         this.maxLatticeEdges = maxLatticeEdges;
         this.acousticLookaheadFrames = acousticLookaheadFrames;
         this.keepAllTokens = keepAllTokens;
+        this.tokenPool = tokenPool ? new TokenPool() : null;
 
         this.relativeBeamWidth = logMath.linearToLog(relativeWordBeamWidth);
     }
@@ -220,6 +262,7 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
         acousticLookaheadFrames = ps.getFloat(PROP_ACOUSTIC_LOOKAHEAD_FRAMES);
 
         relativeBeamWidth = logMath.linearToLog(ps.getDouble(PROP_RELATIVE_BEAM_WIDTH));
+        tokenPool = ps.getBoolean(PROP_TOKEN_POOL) ? new TokenPool() : null;
     }
 
     /*
@@ -293,6 +336,7 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
         if (!streamEnd) {
             result = new Result(loserManager, activeList, resultList, currentCollectTime, done, linguist.getSearchGraph()
                     .getWordTokenFirst(), true);
+            trackImmortalPrefix(result);
         }
 
         // tokenTypeTracker.show();
@@ -302,6 +346,18 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
         return result;
     }
 
+    /**
+     * Hands the surviving tokens to the immortal prefix tracker of the
+     * utterance and the tracker to the result
+     * 
+     * @param result
+     *            the result of the current frame
+     */
+    protected void trackImmortalPrefix(Result result) {
+        immortalPrefixTracker.setTokens(activeListManager.getEmittingList(), resultList);
+        result.setImmortalPrefixTracker(immortalPrefixTracker);
+    }
+
     protected boolean recognize() {
 
         activeList = activeListManager.getEmittingList();
@@ -311,6 +367,7 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
             pruneBranches();
             currentFrameNumber++;
             if (growSkipInterval == 0 || (currentFrameNumber % growSkipInterval) != 0) {
+                recycleTokens();
                 clearCollectors();
                 growEmittingBranches();
                 growNonEmittingBranches();
@@ -319,6 +376,25 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
         return !more;
     }
 
+    /**
+     * Returns the tokens which are no longer referenced by the search to the
+     * token pool, if there is one. The best token table still refers to
+     * recycled tokens and has to be cleared before growing. Tokens left in
+     * the non-emitting lists are grown in this frame and are kept as well.
+     */
+    protected void recycleTokens() {
+        if (tokenPool == null)
+            return;
+        tokenPool.mark(activeList);
+        for (ActiveList list : activeListManager.getNonEmittingLists())
+            tokenPool.mark(list);
+        if (resultList != null)
+            tokenPool.mark(resultList);
+        if (loserManager != null)
+            loserManager.mark(tokenPool);
+        tokenPool.sweep();
+    }
+
     /**
      * Clears lists and maps before next expansion stage
      */
@@ -329,14 +405,10 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
     }
 
     /**
-     * creates a new best token map with the best size
+     * Clears the best token table for the next frame
      */
     protected void createBestTokenMap() {
-        int mapSize = activeList.size() * 10;
-        if (mapSize == 0) {
-            mapSize = 1;
-        }
-        bestTokenMap = new HashMap<SearchState, Token>(mapSize, 0.3F);
+        bestTokenTable.clear();
     }
 
     /** Terminates a recognition */
@@ -360,11 +432,15 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
         if (buildWordLattice) {
             loserManager = new AlternateHypothesisManager(maxLatticeEdges);
         }
+        if (tokenPool != null) {
+            tokenPool.reset();
+        }
+        immortalPrefixTracker = new ImmortalPrefixTracker();
 
         SearchState state = searchGraph.getInitialState();
 
         activeList = activeListManager.getEmittingList();
-        activeList.add(new Token(state, -1));
+        activeList.add(newToken(null, state, 0.0f, 0.0f, 0.0f, -1));
 
         clearCollectors();
 
@@ -548,7 +624,7 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
      * @return the best token
      */
     protected Token getBestToken(SearchState state) {
-        return bestTokenMap.get(state);
+        return bestTokenTable.get(state);
     }
 
     /**
@@ -560,7 +636,7 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
      *            the state
      */
     protected void setBestToken(Token token, SearchState state) {
-        bestTokenMap.put(state, token);
+        bestTokenTable.put(state, token);
     }
 
     /**
@@ -638,31 +714,64 @@ public class WordPruningBreadthFirstSearchManager extends TokenSearchManager {
             // these come in log(), multiply gets converted to add
             float logEntryScore = token.getScore() + arc.getProbability();
 
-            Token bestToken = getBestToken(nextState);
-
-            if (bestToken == null) {
-                Token newBestToken = new Token(predecessor, nextState, logEntryScore, arc.getInsertionProbability(),
-                        arc.getLanguageProbability(), currentCollectTime);
-                tokensCreated.value++;
-                setBestToken(newBestToken, nextState);
-                activeListAdd(newBestToken);
-            } else if (bestToken.getScore() < logEntryScore) {
-                // System.out.println("Updating " + bestToken + " with " +
-                // newBestToken);
-                Token oldPredecessor = bestToken.getPredecessor();
-                bestToken.update(predecessor, nextState, logEntryScore, arc.getInsertionProbability(),
-                        arc.getLanguageProbability(), currentCollectTime);
-                if (buildWordLattice && nextState instanceof WordSearchState) {
-                    loserManager.addAlternatePredecessor(bestToken, oldPredecessor);
-                }
-            } else if (buildWordLattice && nextState instanceof WordSearchState) {
-                if (predecessor != null) {
-                    loserManager.addAlternatePredecessor(bestToken, predecessor);
-                }
+            collectSuccessorToken(predecessor, arc, logEntryScore);
+        }
+    }
+
+    /**
+     * Enters the state of an arc with the given entry score. Creates a token
+     * if the state was not reached in this frame, or updates the best token of
+     * the state if the score is better.
+     * 
+     * @param predecessor the predecessor for the token
+     * @param arc the arc to the state
+     * @param logEntryScore the total entry score
+     */
+    protected void collectSuccessorToken(Token predecessor, SearchStateArc arc, float logEntryScore) {
+        SearchState nextState = arc.getState();
+        Token bestToken = getBestToken(nextState);
+
+        if (bestToken == null) {
+            Token newBestToken = newToken(predecessor, nextState, logEntryScore, arc.getInsertionProbability(),
+                    arc.getLanguageProbability(), currentCollectTime);
+            tokensCreated.value++;
+            setBestToken(newBestToken, nextState);
+            activeListAdd(newBestToken);
+        } else if (bestToken.getScore() < logEntryScore) {
+            // System.out.println("Updating " + bestToken + " with " +
+            // newBestToken);
+            Token oldPredecessor = bestToken.getPredecessor();
+            bestToken.update(predecessor, nextState, logEntryScore, arc.getInsertionProbability(),
+                    arc.getLanguageProbability(), currentCollectTime);
+            if (buildWordLattice && nextState instanceof WordSearchState) {
+                loserManager.addAlternatePredecessor(bestToken, oldPredecessor);
+            }
+        } else if (buildWordLattice && nextState instanceof WordSearchState) {
+            if (predecessor != null) {
+                loserManager.addAlternatePredecessor(bestToken, predecessor);
             }
         }
     }
 
+    /**
+     * Creates a token for a state reached during growth, taking it from the
+     * token pool if there is one.
+     * 
+     * @param predecessor the predecessor for the token
+     * @param state the search state of the token
+     * @param logEntryScore the total entry score
+     * @param logInsertionScore the insertion score
+     * @param logLanguageScore the language score
+     * @param collectTime the frame collection time
+     * @return the new token
+     */
+    protected Token newToken(Token predecessor, SearchState state, float logEntryScore, float logInsertionScore,
+            float logLanguageScore, long collectTime) {
+        if (tokenPool != null)
+            return tokenPool.get(predecessor, state, logEntryScore, logInsertionScore, logLanguageScore, collectTime);
+        return new Token(predecessor, state, logEntryScore, logInsertionScore, logLanguageScore, collectTime);
+    }
+
     /**
      * Determines whether or not we've visited the state associated with this
      * token since the previous frame.
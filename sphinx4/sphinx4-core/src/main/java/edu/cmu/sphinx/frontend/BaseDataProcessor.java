@@ -13,16 +13,28 @@
 
 package edu.cmu.sphinx.frontend;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import edu.cmu.sphinx.util.props.ConfigurableAdapter;
 
 /**
  * An abstract DataProcessor implementing elements common to all concrete DataProcessors, such as name, predecessor, and
  * timer.
+ * <p>
+ * Blocks of Data are produced by calling {@link #getData()} repeatedly, so every processor supports {@link
+ * #getDataBlock(int)}. Processors which read their input with {@link #readInput()} also pass the request on and read
+ * blocks from their predecessor into a reused list, the others read one Data object at a time. Processors which can
+ * process a block at once override {@link #fillDataBlock(List, int)}.
  */
-public abstract class BaseDataProcessor extends ConfigurableAdapter implements DataProcessor {
+public abstract class BaseDataProcessor extends ConfigurableAdapter implements BlockDataProcessor {
 
     private DataProcessor predecessor;
 
+    private final List<Data> inputBlock = new ArrayList<Data>();
+    private int inputPosition;
+    private int inputBlockSize = 1;
+
     public BaseDataProcessor() {
     }
 
@@ -35,8 +47,109 @@ public abstract class BaseDataProcessor extends ConfigurableAdapter implements D
     public abstract Data getData() throws DataProcessingException;
 
 
+    /**
+     * Returns up to the given number of processed Data objects. While the block is produced, {@link #readInput()}
+     * reads blocks of the same size from the predecessor.
+     *
+     * @param maxFrames the maximum number of Data objects to return
+     * @return the processed Data objects, an empty list if no Data is available
+     * @throws DataProcessingException if a data processor error occurs
+     */
+    public List<Data> getDataBlock(int maxFrames) throws DataProcessingException {
+        List<Data> block = new ArrayList<Data>(maxFrames);
+        fillDataBlock(block, maxFrames);
+        return block;
+    }
+
+
+    /**
+     * Appends up to the given number of processed Data objects to the block. Fewer objects are appended only when no
+     * more Data is available. The default implementation calls {@link #getData()} repeatedly.
+     *
+     * @param block     the list to append the Data objects to
+     * @param maxFrames the maximum number of Data objects to append
+     * @throws DataProcessingException if a data processor error occurs
+     */
+    protected void fillDataBlock(List<Data> block, int maxFrames) throws DataProcessingException {
+        int end = block.size() + maxFrames;
+        int blockSize = inputBlockSize;
+        inputBlockSize = maxFrames;
+        try {
+            Data data;
+            while (block.size() < end && (data = getData()) != null)
+                block.add(data);
+        } finally {
+            inputBlockSize = blockSize;
+        }
+    }
+
+
+    /**
+     * Reads the next Data object from the predecessor. While a block of Data is requested from this processor, a
+     * block of the same size is requested from the predecessor and the Data objects which were read ahead are
+     * returned by the following calls. A processor reading its input this way must not call getData on the
+     * predecessor directly.
+     *
+     * @return the next Data object of the predecessor, or null if no Data is available
+     * @throws DataProcessingException if a data processor error occurs
+     */
+    protected Data readInput() throws DataProcessingException {
+        if (inputPosition < inputBlock.size())
+            return inputBlock.get(inputPosition++);
+        inputBlock.clear();
+        inputPosition = 0;
+        if (inputBlockSize <= 1)
+            return predecessor.getData();
+
+        readBlock(predecessor, inputBlock, inputBlockSize);
+        return inputBlock.isEmpty() ? null : inputBlock.get(inputPosition++);
+    }
+
+
+    /**
+     * Appends up to the given number of Data objects of the predecessor to the block, starting with the ones which
+     * {@link #readInput()} has read ahead.
+     *
+     * @param block     the list to append the Data objects to
+     * @param maxFrames the maximum number of Data objects to append
+     * @throws DataProcessingException if a data processor error occurs
+     */
+    protected void readInputBlock(List<Data> block, int maxFrames) throws DataProcessingException {
+        int end = block.size() + maxFrames;
+        while (block.size() < end && inputPosition < inputBlock.size())
+            block.add(inputBlock.get(inputPosition++));
+        if (block.size() < end)
+            readBlock(predecessor, block, end - block.size());
+    }
+
+
+    /**
+     * Appends up to the given number of Data objects of the source to the block, in blocks if the source supports
+     * them.
+     *
+     * @param source    the processor to read from
+     * @param block     the list to append the Data objects to
+     * @param maxFrames the maximum number of Data objects to append
+     * @throws DataProcessingException if a data processor error occurs
+     */
+    static void readBlock(DataProcessor source, List<Data> block, int maxFrames) throws DataProcessingException {
+        if (source instanceof BaseDataProcessor) {
+            ((BaseDataProcessor) source).fillDataBlock(block, maxFrames);
+        } else if (source instanceof BlockDataProcessor) {
+            block.addAll(((BlockDataProcessor) source).getDataBlock(maxFrames));
+        } else {
+            int end = block.size() + maxFrames;
+            Data data;
+            while (block.size() < end && (data = source.getData()) != null)
+                block.add(data);
+        }
+    }
+
+
     /** Initializes this DataProcessor. This is typically called after the DataProcessor has been configured. */
     public void initialize() {
+        inputBlock.clear();
+        inputPosition = 0;
     }
 
 
@@ -57,5 +170,7 @@ public abstract class BaseDataProcessor extends ConfigurableAdapter implements D
      */
     public void setPredecessor(DataProcessor predecessor) {
         this.predecessor = predecessor;
+        inputBlock.clear();
+        inputPosition = 0;
     }
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+package edu.cmu.sphinx.frontend;
+
+import java.util.List;
+
+/**
+ * A DataProcessor which can return a number of Data objects at once. Offline
+ * processing can call {@link #getDataBlock(int) getDataBlock} to move blocks
+ * of Data through the pipeline. All processors derived from
+ * {@link BaseDataProcessor} support it, other processors may implement this
+ * interface if they can produce blocks.
+ */
+public interface BlockDataProcessor extends DataProcessor {
+
+    /**
+     * Returns up to the given number of processed Data objects, in the order in which {@link #getData()} would return
+     * them. Fewer objects are returned only when no more Data is available. Since the block may have to wait for
+     * several frames to arrive, this is meant for offline processing. Calls of getData and getDataBlock can be
+     * mixed.
+     *
+     * @param maxFrames the maximum number of Data objects to return
+     * @return the processed Data objects, an empty list if no Data is available
+     * @throws DataProcessingException if a data processor error occurs
+     */
+    public List<Data> getDataBlock(int maxFrames) throws DataProcessingException;
+}
@@ -230,6 +230,30 @@ public class FrontEnd extends BaseDataProcessor {
     }
 
 
+    /**
+     * Appends a block of processed Data, basically reads a block from the last processor.
+     *
+     * @param block     the list to append the Data objects to
+     * @param maxFrames the maximum number of Data objects to append
+     * @throws DataProcessingException if a data processor error occurs
+     */
+    @Override
+    protected void fillDataBlock(List<Data> block, int maxFrames) throws DataProcessingException {
+        timer.start();
+        int start = block.size();
+        readBlock(last, block, maxFrames);
+
+        // fire the signal listeners for the signals in the block
+        for (int i = start; i < block.size(); i++) {
+            Data data = block.get(i);
+            if (data instanceof Signal) {
+                fireSignalListeners((Signal) data);
+            }
+        }
+        timer.stop();
+    }
+
+
     /**
      * Sets the source of data for this front end. It basically calls <code>setDataSource(dataSource)</code>.
      *
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.frontend;
+
+import edu.cmu.sphinx.frontend.frequencywarp.MelFrequencyFilterBank;
+import edu.cmu.sphinx.frontend.transform.DiscreteCosineTransform;
+import edu.cmu.sphinx.frontend.transform.RealDiscreteFourierTransform;
+import edu.cmu.sphinx.frontend.window.RaisedCosineWindower;
+import edu.cmu.sphinx.util.props.*;
+
+/**
+ * Computes the legacy MFCC cepstrum of the audio in a single stage. It
+ * replaces the chain of a {@link RaisedCosineWindower}, a
+ * {@link edu.cmu.sphinx.frontend.transform.DiscreteFourierTransform}, a
+ * {@link MelFrequencyFilterBank} and a {@link DiscreteCosineTransform} and
+ * has the properties of all of them.
+ * <p>
+ * Every window is turned into cepstra right after it is cut out of the audio.
+ * The window, the power spectrum and the mel spectrum are kept in arrays which
+ * are reused for every frame, only the cepstrum is allocated. The output is
+ * the same as the one of the chain up to rounding, the power spectrum is
+ * computed by a {@link RealDiscreteFourierTransform}.
+ * <p>
+ * With {@link #PROP_FLOAT_OUTPUT} set the cepstra are {@link FloatData}.
+ * {@link edu.cmu.sphinx.frontend.feature.BatchCMN} and
+ * {@link edu.cmu.sphinx.frontend.feature.LiveCMN} keep them in single
+ * precision and the feature extractors accept them, so the features reach the
+ * scorer without any conversion and every frame buffered after this stage
+ * takes half the memory. The window,
+ * spectra and mel spectra are computed in double precision, but only in
+ * arrays reused for every frame.
+ */
+public class MfccProducer extends RaisedCosineWindower {
+
+    /** The property for the number of points in the Fourier Transform. */
+    @S4Integer(defaultValue = -1)
+    public static final String PROP_NUMBER_FFT_POINTS = "numberFftPoints";
+
+    /** The property for the number of filters in the filterbank. */
+    @S4Integer(defaultValue = 40)
+    public static final String PROP_NUMBER_FILTERS = "numberFilters";
+
+    /** The property for the minimum frequency covered by the filterbank. */
+    @S4Double(defaultValue = 130.0)
+    public static final String PROP_MIN_FREQ = "minimumFrequency";
+
+    /** The property for the maximum frequency covered by the filterbank. */
+    @S4Double(defaultValue = 6800.0)
+    public static final String PROP_MAX_FREQ = "maximumFrequency";
+
+    /** The property for the size of the cepstrum */
+    @S4Integer(defaultValue = 13)
+    public static final String PROP_CEPSTRUM_LENGTH = "cepstrumLength";
+
+    /** The property specifying whether the cepstra are produced as FloatData. */
+    @S4Boolean(defaultValue = false)
+    public static final String PROP_FLOAT_OUTPUT = "floatOutput";
+    private boolean floatOutput;
+
+    private RealDiscreteFourierTransform fft;
+    private MelFrequencyFilterBank filterBank;
+    private DiscreteCosineTransform dct;
+
+    private double[] window;
+    private double[] spectrum;
+    private double[] melSpectrum;
+
+    public MfccProducer(double alpha, float windowSizeInMs, float windowShiftInMs, int numberFftPoints,
+                        double minFreq, double maxFreq, int numberFilters, int cepstrumLength,
+                        boolean floatOutput) {
+        super(alpha, windowSizeInMs, windowShiftInMs);
+        createComponents(numberFftPoints, minFreq, maxFreq, numberFilters, cepstrumLength);
+        this.floatOutput = floatOutput;
+    }
+
+    public MfccProducer(double alpha, float windowSizeInMs, float windowShiftInMs, int numberFftPoints,
+                        double minFreq, double maxFreq, int numberFilters, int cepstrumLength) {
+        this(alpha, windowSizeInMs, windowShiftInMs, numberFftPoints, minFreq, maxFreq, numberFilters,
+                cepstrumLength, false);
+    }
+
+    public MfccProducer() {
+    }
+
+    @Override
+    public void newProperties(PropertySheet ps) throws PropertyException {
+        super.newProperties(ps);
+        createComponents(ps.getInt(PROP_NUMBER_FFT_POINTS), ps.getDouble(PROP_MIN_FREQ),
+                ps.getDouble(PROP_MAX_FREQ), ps.getInt(PROP_NUMBER_FILTERS), ps.getInt(PROP_CEPSTRUM_LENGTH));
+        floatOutput = ps.getBoolean(PROP_FLOAT_OUTPUT);
+    }
+
+    private void createComponents(int numberFftPoints, double minFreq, double maxFreq, int numberFilters,
+                                  int cepstrumLength) {
+        fft = new RealDiscreteFourierTransform(numberFftPoints, false);
+        filterBank = new MelFrequencyFilterBank(minFreq, maxFreq, numberFilters);
+        dct = new DiscreteCosineTransform(numberFilters, cepstrumLength);
+    }
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        fft.initialize();
+        filterBank.initialize();
+        dct.initialize();
+    }
+
+    /**
+     * Computes the cepstrum of the window starting at the given position of the audio data.
+     *
+     * @param in                the audio data
+     * @param start             the index of the first sample of the window
+     * @param firstSampleNumber the number of the first sample of the window in the stream
+     * @return the cepstrum of the window
+     */
+    @Override
+    protected Data createWindowData(double[] in, int start, long firstSampleNumber) {
+        if (window == null || window.length != getWindowSize())
+            window = new double[getWindowSize()];
+        applyWindow(in, start, window);
+        spectrum = fft.transform(window, spectrum);
+        melSpectrum = filterBank.filter(spectrum, getSampleRate(), melSpectrum);
+        double[] cepstrum = dct.transform(melSpectrum);
+        if (floatOutput) {
+            float[] values = new float[cepstrum.length];
+            for (int i = 0; i < values.length; i++)
+                values[i] = (float) cepstrum[i];
+            return new FloatData(values, getSampleRate(), firstSampleNumber);
+        }
+        return new DoubleData(cepstrum, getSampleRate(), firstSampleNumber);
+    }
+}
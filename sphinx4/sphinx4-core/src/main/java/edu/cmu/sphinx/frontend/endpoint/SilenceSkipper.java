@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.frontend.endpoint;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import edu.cmu.sphinx.frontend.*;
+import edu.cmu.sphinx.util.props.PropertyException;
+import edu.cmu.sphinx.util.props.PropertySheet;
+import edu.cmu.sphinx.util.props.S4Integer;
+
+/**
+ * Collapses long runs of non-speech audio, so the frames of the silence are
+ * neither computed by the rest of the front end nor scored by the decoder.
+ * It is put between the {@link SpeechClassifier} and the {@link SpeechMarker}
+ * and reads the {@link SpeechClassifiedData} objects of the classifier.
+ * <p>
+ * Of every run of non-speech, the first {@link #PROP_SILENCE_HEAD}
+ * milliseconds and the last {@link #PROP_SILENCE_TAIL} milliseconds before
+ * the speech resumes are passed on, the audio in between is dropped. The
+ * durations are taken from the sample counts and sample rates of the blocks,
+ * so any block size of the DataBlocker works. The Data objects keep their first sample numbers, so the windower restarts at
+ * the gap and the collect times of the features, and with them the times of
+ * tokens and words, are the times in the audio.
+ * <p>
+ * With a silence head shorter than the endSilence of the SpeechMarker, long
+ * pauses no longer end the utterance but are decoded as a short pause. With
+ * a longer head the SpeechMarker ends the utterance and drops the rest of the
+ * silence itself, as it does without this processor.
+ */
+public class SilenceSkipper extends BaseDataProcessor {
+
+    /** The property for the amount of non-speech in milliseconds kept at the start of a run. */
+    @S4Integer(defaultValue = 100)
+    public static final String PROP_SILENCE_HEAD = "silenceHead";
+    private int silenceHead;
+
+    /** The property for the amount of non-speech in milliseconds kept before the speech resumes. */
+    @S4Integer(defaultValue = 50)
+    public static final String PROP_SILENCE_TAIL = "silenceTail";
+    private int silenceTail;
+
+    private long silenceSamples;
+    private long tailSamples;
+    private long skippedFrames;
+    private Deque<SpeechClassifiedData> tail;
+    private Deque<Data> outputQueue;
+
+    public SilenceSkipper(int silenceHead, int silenceTail) {
+        initLogger();
+        this.silenceHead = silenceHead;
+        this.silenceTail = silenceTail;
+    }
+
+    public SilenceSkipper() {
+    }
+
+    @Override
+    public void newProperties(PropertySheet ps) throws PropertyException {
+        super.newProperties(ps);
+        silenceHead = ps.getInt(PROP_SILENCE_HEAD);
+        silenceTail = ps.getInt(PROP_SILENCE_TAIL);
+    }
+
+    /** Initializes this SilenceSkipper. */
+    @Override
+    public void initialize() {
+        super.initialize();
+        tail = new ArrayDeque<SpeechClassifiedData>();
+        outputQueue = new ArrayDeque<Data>();
+        reset();
+    }
+
+    private void reset() {
+        silenceSamples = 0;
+        skippedFrames = 0;
+        clearTail();
+    }
+
+    private void clearTail() {
+        outputQueue.addAll(tail);
+        tail.clear();
+        tailSamples = 0;
+    }
+
+    /**
+     * Returns the next Data object. Speech and the kept non-speech are
+     * returned as SpeechClassifiedData, signals are returned unmodified.
+     *
+     * @return the next Data object, or null if none available
+     * @throws DataProcessingException if a data processing error occurs
+     */
+    @Override
+    public Data getData() throws DataProcessingException {
+        while (outputQueue.isEmpty()) {
+            Data data = getPredecessor().getData();
+
+            if (data instanceof SpeechClassifiedData) {
+                SpeechClassifiedData block = (SpeechClassifiedData) data;
+                if (block.isSpeech()) {
+                    silenceSamples = 0;
+                    clearTail();
+                    outputQueue.add(block);
+                    continue;
+                }
+                int samples = block.getValues().length;
+                silenceSamples += samples;
+                if (!exceeds(silenceSamples, silenceHead, block.getSampleRate())) {
+                    outputQueue.add(block);
+                    continue;
+                }
+                tail.addLast(block);
+                tailSamples += samples;
+                while (exceeds(tailSamples, silenceTail, block.getSampleRate())) {
+                    tailSamples -= tail.removeFirst().getValues().length;
+                    skippedFrames++;
+                }
+                continue;
+            }
+
+            // the audio before a signal is not skipped
+            clearTail();
+            silenceSamples = 0;
+            if (data == null)
+                break;
+            if (data instanceof DataEndSignal)
+                logger.fine("Skipped " + skippedFrames + " frames of silence");
+            if (data instanceof DataStartSignal)
+                reset();
+            outputQueue.add(data);
+        }
+        return outputQueue.pollFirst();
+    }
+
+    /** Checks if the given number of samples lasts longer than the given milliseconds. */
+    private static boolean exceeds(long samples, int milliseconds, int sampleRate) {
+        return samples * 1000 > (long) milliseconds * sampleRate;
+    }
+
+    /**
+     * Returns the number of frames skipped in the current stream.
+     *
+     * @return the number of skipped frames
+     */
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+}
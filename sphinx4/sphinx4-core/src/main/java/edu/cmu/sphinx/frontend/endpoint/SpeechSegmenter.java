@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.frontend.endpoint;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.cmu.sphinx.frontend.*;
+import edu.cmu.sphinx.frontend.util.StreamDataSource;
+
+/**
+ * Splits a long recording into the segments of speech found by a
+ * {@link SpeechClassifier} and a {@link SpeechMarker}. The segments are
+ * independent of each other, so they can be decoded in parallel.
+ * <p>
+ * The recording is read as 16-bit signed little-endian raw data. Every
+ * {@link Segment} holds the audio of one speech region in the same format,
+ * together with the number of its first sample in the recording. The audio
+ * includes speechLeader milliseconds before the start of the speech and the
+ * endSilence milliseconds of non-speech after it, which is the padding the
+ * decoder of the segment sees around the speech. Non-speech audio between the
+ * segments is dropped.
+ *
+ * @see edu.cmu.sphinx.api.ParallelSpeechRecognizer
+ */
+public class SpeechSegmenter {
+
+    private final StreamDataSource dataSource;
+    private final DataProcessor speechMarker;
+
+    /**
+     * Creates a segmenter.
+     *
+     * @param sampleRate    the sample rate of the recording
+     * @param startSpeech   the amount of continuous speech in milliseconds which starts a segment
+     * @param endSilence    the amount of continuous non-speech in milliseconds which ends a segment
+     * @param speechLeader  the amount of audio in milliseconds before the speech added to a segment
+     * @param threshold     the threshold of the SpeechClassifier
+     */
+    public SpeechSegmenter(int sampleRate, int startSpeech, int endSilence, int speechLeader, double threshold) {
+        dataSource = new StreamDataSource(sampleRate, 3200, 16, false, true);
+        DataProcessor blocker = new DataBlocker(10);
+        DataProcessor classifier = new SpeechClassifier(10, 0.003, threshold, 0);
+        speechMarker = new SpeechMarker(startSpeech, endSilence, speechLeader);
+        blocker.setPredecessor(dataSource);
+        classifier.setPredecessor(blocker);
+        speechMarker.setPredecessor(classifier);
+        for (DataProcessor processor : new DataProcessor[] {dataSource, blocker, classifier, speechMarker})
+            processor.initialize();
+    }
+
+    /**
+     * Creates a segmenter with the defaults of the live front end.
+     *
+     * @param sampleRate the sample rate of the recording
+     */
+    public SpeechSegmenter(int sampleRate) {
+        this(sampleRate, 200, 200, 50, 13);
+    }
+
+    /**
+     * Sets the recording to split.
+     *
+     * @param stream the stream of the recording
+     */
+    public void setInputStream(InputStream stream) {
+        dataSource.setInputStream(stream);
+    }
+
+    /**
+     * Reads the recording up to the end of the next segment of speech.
+     *
+     * @return the next segment, or null at the end of the recording
+     * @throws DataProcessingException if the recording cannot be read
+     */
+    public Segment getSegment() throws DataProcessingException {
+        List<DoubleData> audio = null;
+        Data data;
+        while ((data = speechMarker.getData()) != null) {
+            if (data instanceof SpeechStartSignal) {
+                audio = new ArrayList<DoubleData>();
+            } else if (data instanceof DoubleData && audio != null) {
+                audio.add((DoubleData) data);
+            } else if (data instanceof SpeechEndSignal && audio != null) {
+                if (!audio.isEmpty())
+                    return new Segment(audio);
+                audio = null;
+            }
+        }
+        return null;
+    }
+
+
+    /** The audio of one segment of speech. */
+    public static class Segment {
+
+        private final long firstSampleNumber;
+        private final int sampleRate;
+        private final byte[] audio;
+
+        Segment(List<DoubleData> blocks) {
+            firstSampleNumber = blocks.get(0).getFirstSampleNumber();
+            sampleRate = blocks.get(0).getSampleRate();
+            int samples = 0;
+            for (DoubleData block : blocks)
+                samples += block.getValues().length;
+            audio = new byte[samples * 2];
+            int position = 0;
+            for (DoubleData block : blocks) {
+                for (double value : block.getValues()) {
+                    int sample = (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+                    audio[position++] = (byte) sample;
+                    audio[position++] = (byte) (sample >> 8);
+                }
+            }
+        }
+
+        /** @return the number of the first sample of the segment in the recording */
+        public long getFirstSampleNumber() {
+            return firstSampleNumber;
+        }
+
+        /** @return the sample rate of the audio */
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        /** @return the audio of the segment as 16-bit signed little-endian raw data */
+        public byte[] getAudio() {
+            return audio;
+        }
+
+        /** @return the start time of the segment in the recording in milliseconds */
+        public long getStartTime() {
+            return firstSampleNumber * 1000 / sampleRate;
+        }
+    }
+}
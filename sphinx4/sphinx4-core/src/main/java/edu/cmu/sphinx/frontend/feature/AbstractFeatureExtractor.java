@@ -20,7 +20,12 @@ import java.util.*;
 /**
  * Abstract base class for windowed feature extractors like DeltasFeatureExtractor, ConcatFeatureExtractor
  * or S3FeatureExtractor. The main purpose of this it to collect window size cepstra frames in a buffer
- * and let the extractor compute the feature frame with them.
+ * and let the extractor compute the feature frame with them. The cepstra may be {@link DoubleData} or
+ * {@link FloatData}.
+ * <p>
+ * The buffer is circular. Next to the Data objects it holds a copy of the values of every cepstrum in an array of
+ * double values, the arrays are allocated once and reused for the cepstra of all the segments, so the extractors read
+ * the window through {@link #getCepstrum(int)} without any conversion or allocation.
  */
 public abstract class AbstractFeatureExtractor extends BaseDataProcessor {
 
@@ -30,13 +35,20 @@ public abstract class AbstractFeatureExtractor extends BaseDataProcessor {
 
     private int bufferPosition;
     private Signal pendingSignal;
-    private LinkedList<Data> outputQueue;
+    private Deque<Data> outputQueue;
 
     protected int cepstraBufferEdge;
     protected int window;
     protected int currentPosition;
     protected int cepstraBufferSize;
+    /**
+     * @deprecated holds the input Data only when it is DoubleData, null for FloatData; use {@link
+     *             #getCepstrum(int)}, {@link #getSampleRate(int)} and {@link #getFirstSampleNumber(int)}
+     */
+    @Deprecated
     protected DoubleData[] cepstraBuffer;
+    private Data[] cepstra;
+    private double[][] cepstraValues;
 
     public AbstractFeatureExtractor(int window) {
         initLogger();
@@ -68,8 +80,10 @@ public abstract class AbstractFeatureExtractor extends BaseDataProcessor {
         super.initialize();
         cepstraBufferSize = 256;
         cepstraBuffer = new DoubleData[cepstraBufferSize];
+        cepstra = new Data[cepstraBufferSize];
+        cepstraValues = new double[cepstraBufferSize][];
         cepstraBufferEdge = cepstraBufferSize - (window * 2 + 2);
-        outputQueue = new LinkedList<Data>();
+        outputQueue = new ArrayDeque<Data>();
         reset();
     }
 
@@ -92,8 +106,8 @@ public abstract class AbstractFeatureExtractor extends BaseDataProcessor {
         if (outputQueue.isEmpty()) {
             Data input = getNextData();
             if (input != null) {
-                if (input instanceof DoubleData) {
-                    addCepstrum((DoubleData) input);
+                if (isCepstrum(input)) {
+                    addCepstrum(input);
                     computeFeatures(1);
                 } else if (input instanceof DataStartSignal) {
                     pendingSignal = null;
@@ -119,10 +133,10 @@ public abstract class AbstractFeatureExtractor extends BaseDataProcessor {
 
 
     private Data getNextData() throws DataProcessingException {
-        Data d = getPredecessor().getData();
-        while (d != null && !(d instanceof DoubleData || d instanceof DataEndSignal || d instanceof DataStartSignal || d instanceof SpeechEndSignal)) {
+        Data d = readInput();
+        while (d != null && !(isCepstrum(d) || d instanceof DataEndSignal || d instanceof DataStartSignal || d instanceof SpeechEndSignal)) {
             outputQueue.add(d);
-            d = getPredecessor().getData();
+            d = readInput();
         }
 
         return d;
@@ -149,9 +163,9 @@ public abstract class AbstractFeatureExtractor extends BaseDataProcessor {
             // into window+1 frames, and then read the next "window" number
             // of frames. This will allow us to compute the delta-
             // double-delta of the first frame.
-            Arrays.fill(cepstraBuffer, 0, window + 1, cepstrum);
-            bufferPosition = window + 1;
-            bufferPosition %= cepstraBufferSize;
+            bufferPosition = 0;
+            for (int i = 0; i <= window; i++)
+                addCepstrum(cepstrum);
             currentPosition = window;
             currentPosition %= cepstraBufferSize;
             int numberFeatures = 1;
@@ -159,9 +173,9 @@ public abstract class AbstractFeatureExtractor extends BaseDataProcessor {
             for (int i = 0; i < window; i++) {
                 Data next = getNextData();
                 if (next != null) {
-                    if (next instanceof DoubleData) {
+                    if (isCepstrum(next)) {
                         // just a cepstra
-                        addCepstrum((DoubleData) next);
+                        addCepstrum(next);
                     } else if (next instanceof DataEndSignal || next instanceof SpeechEndSignal) {
                         // end of segment cepstrum
                         pendingSignal = (Signal) next;
@@ -178,14 +192,40 @@ public abstract class AbstractFeatureExtractor extends BaseDataProcessor {
     }
 
 
+    private static boolean isCepstrum(Data data) {
+        return data instanceof DoubleData || data instanceof FloatData;
+    }
+
+
     /**
-     * Adds the given DoubleData object to the cepstraBuffer.
+     * Adds the given DoubleData or FloatData object to the cepstraBuffer.
      *
-     * @param cepstrum the DoubleData object to add
+     * @param cepstrum the Data object to add
      */
-    private void addCepstrum(DoubleData cepstrum) {
-        cepstraBuffer[bufferPosition++] = cepstrum;
-        bufferPosition %= cepstraBufferSize;
+    private void addCepstrum(Data cepstrum) {
+        cepstra[bufferPosition] = cepstrum;
+        cepstraBuffer[bufferPosition] = cepstrum instanceof DoubleData ? (DoubleData) cepstrum : null;
+        if (cepstrum instanceof DoubleData) {
+            double[] values = ((DoubleData) cepstrum).getValues();
+            System.arraycopy(values, 0, getValuesBuffer(values.length), 0, values.length);
+        } else {
+            float[] values = ((FloatData) cepstrum).getValues();
+            double[] buffer = getValuesBuffer(values.length);
+            for (int i = 0; i < values.length; i++)
+                buffer[i] = values[i];
+        }
+        bufferPosition = (bufferPosition + 1) % cepstraBufferSize;
+    }
+
+
+    /** Returns the array for the values of the cepstrum at the bufferPosition. */
+    private double[] getValuesBuffer(int length) {
+        double[] buffer = cepstraValues[bufferPosition];
+        if (buffer == null || buffer.length != length) {
+            buffer = new double[length];
+            cepstraValues[bufferPosition] = buffer;
+        }
+        return buffer;
     }
 
 
@@ -195,11 +235,11 @@ public abstract class AbstractFeatureExtractor extends BaseDataProcessor {
      * @return the number of replicated Cepstrum
      */
     private int replicateLastCepstrum() {
-        DoubleData last;
+        Data last;
         if (bufferPosition > 0) {
-            last = cepstraBuffer[bufferPosition - 1];
+            last = cepstra[bufferPosition - 1];
         } else if (bufferPosition == 0) {
-            last = cepstraBuffer[cepstraBuffer.length - 1];
+            last = cepstra[cepstra.length - 1];
         } else {
             throw new Error("BufferPosition < 0");
         }
@@ -234,6 +274,46 @@ public abstract class AbstractFeatureExtractor extends BaseDataProcessor {
     }
 
 
+    /**
+     * Returns the values of a cepstrum in the cepstraBuffer in double precision. The array is reused for later
+     * cepstra, so it must not be modified or kept.
+     *
+     * @param position the position in the cepstraBuffer
+     * @return the values of the cepstrum
+     */
+    protected double[] getCepstrum(int position) {
+        return cepstraValues[position];
+    }
+
+
+    /**
+     * Returns the sample rate of a cepstrum in the cepstraBuffer.
+     *
+     * @param position the position in the cepstraBuffer
+     * @return the sample rate
+     */
+    protected int getSampleRate(int position) {
+        Data cepstrum = cepstra[position];
+        return cepstrum instanceof DoubleData
+                ? ((DoubleData) cepstrum).getSampleRate()
+                : ((FloatData) cepstrum).getSampleRate();
+    }
+
+
+    /**
+     * Returns the first sample number of a cepstrum in the cepstraBuffer.
+     *
+     * @param position the position in the cepstraBuffer
+     * @return the first sample number
+     */
+    protected long getFirstSampleNumber(int position) {
+        Data cepstrum = cepstra[position];
+        return cepstrum instanceof DoubleData
+                ? ((DoubleData) cepstrum).getFirstSampleNumber()
+                : ((FloatData) cepstrum).getFirstSampleNumber();
+    }
+
+
     /**
      * Computes the next feature. Advances the pointers as well.
      *
@@ -43,6 +43,8 @@ import java.util.*;
  * time, the mean is an estimate of the channel, which remains roughly constant. The channel is thus removed from the
  * cepstrum by subtracting the mean cepstral vector. Intuitively, the mean cepstral vector approximately describes the
  * spectral characteristics of the transmission channel (e.g., microphone).
+ * <p>
+ * Both {@link DoubleData} and {@link FloatData} cepstra are normalized in place.
  *
  * @see LiveCMN
  */
@@ -121,28 +123,14 @@ public class BatchCMN extends BaseDataProcessor {
         Data input = null;
 
         do {
-            input = getPredecessor().getData();
+            input = readInput();
             if (input != null) {
-                if (input instanceof DoubleData) {
-                    double[] cepstrumData = ((DoubleData) input).getValues();
-                    if (sums == null) {
-                        sums = new double[cepstrumData.length];
-                    } else {
-                        if (sums.length != cepstrumData.length) {
-                            throw new Error
-                                    ("Inconsistent cepstrum lengths: sums: " +
-                                            sums.length + ", cepstrum: " +
-                                            cepstrumData.length);
-                        }
-                    }
-                    if (cepstrumData[0] >= 0) {
-                        // add the cepstrum data to the sums
-                        for (int j = 0; j < cepstrumData.length; j++) {
-                            sums[j] += cepstrumData[j];
-                        }
+                int length = CepstrumSums.getLength(input);
+                if (length >= 0) {
+                    checkLength(length);
+                    // add the cepstrum data to the sums
+                    if (CepstrumSums.accumulate(input, sums))
                         numberDataCepstra++;
-                    }
-
                     cepstraList.add(input);
 
                 } else if (input instanceof DataEndSignal || input instanceof SpeechEndSignal) {
@@ -158,6 +146,21 @@ public class BatchCMN extends BaseDataProcessor {
     }
 
 
+    /** Creates the sums array or checks that the cepstrum length didn't change. */
+    private void checkLength(int length) {
+        if (sums == null) {
+            sums = new double[length];
+        } else {
+            if (sums.length != length) {
+                throw new Error
+                        ("Inconsistent cepstrum lengths: sums: " +
+                                sums.length + ", cepstrum: " +
+                                length);
+            }
+        }
+    }
+
+
     /** Normalizes the list of Data. */
     private void normalizeList() {
     	StringBuilder cmn = new StringBuilder();
@@ -170,12 +173,8 @@ public class BatchCMN extends BaseDataProcessor {
         logger.info(cmn.toString());
 
         for (Data data : cepstraList) {
-            if (data instanceof DoubleData) {
-                double[] cepstrum = ((DoubleData)data).getValues();
-                for (int j = 0; j < cepstrum.length; j++) {
-                    cepstrum[j] -= sums[j]; // sums[] is now the means[]
-                }
-            }
+            if (CepstrumSums.getLength(data) >= 0)
+                CepstrumSums.subtract(data, sums); // sums[] is now the means[]
         }
     }
 
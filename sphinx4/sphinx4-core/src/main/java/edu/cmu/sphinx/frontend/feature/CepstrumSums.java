@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.frontend.feature;
+
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DoubleData;
+import edu.cmu.sphinx.frontend.FloatData;
+
+/**
+ * The loops of cepstral mean normalization over the values of a cepstrum,
+ * which may come as {@link DoubleData} or as {@link FloatData}.
+ */
+final class CepstrumSums {
+
+    private CepstrumSums() {
+    }
+
+
+    /**
+     * Returns the number of values of a cepstrum.
+     *
+     * @param data the Data object
+     * @return the length of the cepstrum, or -1 if the data is no cepstrum
+     */
+    static int getLength(Data data) {
+        if (data instanceof DoubleData)
+            return ((DoubleData) data).getValues().length;
+        if (data instanceof FloatData)
+            return ((FloatData) data).getValues().length;
+        return -1;
+    }
+
+
+    /**
+     * Adds a cepstrum to the sums unless its energy is negative, frames with
+     * zero energy are not counted in CMN.
+     *
+     * @param data the cepstrum
+     * @param sums the sums to add to
+     * @return true if the cepstrum was added
+     */
+    static boolean accumulate(Data data, double[] sums) {
+        if (data instanceof DoubleData) {
+            double[] cepstrum = ((DoubleData) data).getValues();
+            if (cepstrum[0] < 0)
+                return false;
+            for (int j = 0; j < cepstrum.length; j++)
+                sums[j] += cepstrum[j];
+        } else {
+            float[] cepstrum = ((FloatData) data).getValues();
+            if (cepstrum[0] < 0)
+                return false;
+            for (int j = 0; j < cepstrum.length; j++)
+                sums[j] += cepstrum[j];
+        }
+        return true;
+    }
+
+
+    /**
+     * Subtracts the means from a cepstrum in place.
+     *
+     * @param data  the cepstrum
+     * @param means the means to subtract
+     */
+    static void subtract(Data data, double[] means) {
+        if (data instanceof DoubleData) {
+            double[] cepstrum = ((DoubleData) data).getValues();
+            for (int j = 0; j < cepstrum.length; j++)
+                cepstrum[j] -= means[j];
+        } else {
+            float[] cepstrum = ((FloatData) data).getValues();
+            for (int j = 0; j < cepstrum.length; j++)
+                cepstrum[j] -= means[j];
+        }
+    }
+}
@@ -37,20 +37,20 @@ public class ConcatFeatureExtractor extends AbstractFeatureExtractor {
      */
     @Override
     protected Data computeNextFeature() {
-        DoubleData currentCepstrum = cepstraBuffer[currentPosition];
-        float[] feature = new float[(window * 2 + 1) * currentCepstrum.getValues().length];
+        float[] feature = new float[(window * 2 + 1) * getCepstrum(currentPosition).length];
         int j = 0;
         for (int k = -window; k <= window; k++) {
         	int position = (currentPosition + k + cepstraBufferSize) % cepstraBufferSize;
-        	double[] buffer = cepstraBuffer[position].getValues();
+        	double[] buffer = getCepstrum(position);
             for (double val : buffer) {
                 feature[j++] = (float)val;
             }
         }
-        currentPosition = (currentPosition + 1) % cepstraBufferSize ;
 
-        return (new FloatData(feature,
-                currentCepstrum.getSampleRate(),
-                currentCepstrum.getFirstSampleNumber()));
+        Data data = new FloatData(feature,
+                getSampleRate(currentPosition),
+                getFirstSampleNumber(currentPosition));
+        currentPosition = (currentPosition + 1) % cepstraBufferSize;
+        return data;
     }
 }
@@ -35,6 +35,9 @@ import edu.cmu.sphinx.frontend.*;
  * similar. It is computed by subtracting the delta cepstrum one time frame behind from the delta cepstrum one time
  * frame ahead. Replacing delta cepstra with cepstra, this works out to a formula involving the cepstra that are one and
  * three behind and after the current cepstrum.
+ * <p>
+ * {@link FloatData} cepstra are accepted as well, the window is read from the buffer of double values kept by the
+ * {@link AbstractFeatureExtractor}.
  */
 public class DeltasFeatureExtractor extends AbstractFeatureExtractor {
 
@@ -60,18 +63,15 @@ public class DeltasFeatureExtractor extends AbstractFeatureExtractor {
         int jf2 = (currentPosition + 2) % cepstraBufferSize;
         int jf3 = (currentPosition + 3) % cepstraBufferSize;
         
-    	DoubleData currentCepstrum = cepstraBuffer[currentPosition];
-        double[] mfc3f = cepstraBuffer[jf3].getValues();
-        double[] mfc2f = cepstraBuffer[jf2].getValues();
-        double[] mfc1f = cepstraBuffer[jf1].getValues();
-        double[] current = currentCepstrum.getValues();
-        double[] mfc1p = cepstraBuffer[jp1].getValues();
-        double[] mfc2p = cepstraBuffer[jp2].getValues();
-        double[] mfc3p = cepstraBuffer[jp3].getValues();
+        double[] mfc3f = getCepstrum(jf3);
+        double[] mfc2f = getCepstrum(jf2);
+        double[] mfc1f = getCepstrum(jf1);
+        double[] current = getCepstrum(currentPosition);
+        double[] mfc1p = getCepstrum(jp1);
+        double[] mfc2p = getCepstrum(jp2);
+        double[] mfc3p = getCepstrum(jp3);
         float[] feature = new float[current.length * 3];
 
-        currentPosition = (currentPosition + 1) % cepstraBufferSize;
-
         // CEP; copy all the cepstrum data
         int j = 0;
         for (double val : current) {
@@ -86,8 +86,10 @@ public class DeltasFeatureExtractor extends AbstractFeatureExtractor {
         for (int k = 0; k < mfc3f.length; k++) {
             feature[j++] = (float) ((mfc3f[k] - mfc1p[k]) - (mfc1f[k] - mfc3p[k]));
         }
-        return (new FloatData(feature,
-                currentCepstrum.getSampleRate(),
-                currentCepstrum.getFirstSampleNumber()));
+        Data data = new FloatData(feature,
+                getSampleRate(currentPosition),
+                getFirstSampleNumber(currentPosition));
+        currentPosition = (currentPosition + 1) % cepstraBufferSize;
+        return data;
     }
 }
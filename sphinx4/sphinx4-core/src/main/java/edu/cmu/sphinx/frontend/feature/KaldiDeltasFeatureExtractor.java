@@ -32,20 +32,17 @@ public class KaldiDeltasFeatureExtractor extends AbstractFeatureExtractor {
         int jf3 = (currentPosition + 3) % cepstraBufferSize;
         int jf4 = (currentPosition + 4) % cepstraBufferSize;
         
-    	DoubleData currentCepstrum = cepstraBuffer[currentPosition];
-        double[] mfc4f = cepstraBuffer[jf4].getValues();
-        double[] mfc3f = cepstraBuffer[jf3].getValues();
-        double[] mfc2f = cepstraBuffer[jf2].getValues();
-        double[] mfc1f = cepstraBuffer[jf1].getValues();
-        double[] current = currentCepstrum.getValues();
-        double[] mfc1p = cepstraBuffer[jp1].getValues();
-        double[] mfc2p = cepstraBuffer[jp2].getValues();
-        double[] mfc3p = cepstraBuffer[jp3].getValues();
-        double[] mfc4p = cepstraBuffer[jp4].getValues();
+        double[] mfc4f = getCepstrum(jf4);
+        double[] mfc3f = getCepstrum(jf3);
+        double[] mfc2f = getCepstrum(jf2);
+        double[] mfc1f = getCepstrum(jf1);
+        double[] current = getCepstrum(currentPosition);
+        double[] mfc1p = getCepstrum(jp1);
+        double[] mfc2p = getCepstrum(jp2);
+        double[] mfc3p = getCepstrum(jp3);
+        double[] mfc4p = getCepstrum(jp4);
         float[] feature = new float[current.length * 3];
 
-        currentPosition = (currentPosition + 1) % cepstraBufferSize;
-
         int j = 0;
         for (double val : current) {
             feature[j++] = (float)val;
@@ -58,8 +55,10 @@ public class KaldiDeltasFeatureExtractor extends AbstractFeatureExtractor {
             feature[j++] = (float) ((4 * mfc4f[k] + 4 * mfc3f[k] + mfc2f[k] - 4 * mfc1f[k]) - 10 * current[k] +
         	    (4 * mfc4p[k] + 4 * mfc3p[k] + mfc2p[k] - 4 * mfc1p[k])) / 100.0f;
         }
-        return (new FloatData(feature,
-                currentCepstrum.getSampleRate(),
-                currentCepstrum.getFirstSampleNumber()));
+        Data data = new FloatData(feature,
+                getSampleRate(currentPosition),
+                getFirstSampleNumber(currentPosition));
+        currentPosition = (currentPosition + 1) % cepstraBufferSize;
+        return data;
     }
 }
@@ -49,6 +49,9 @@ import edu.cmu.sphinx.util.props.S4Integer;
  * <pre>
  * cmnWindow/(cmnWindow + number of frames since the last recalculation)
  * </pre>
+ * <p>
+ * Both {@link DoubleData} and {@link FloatData} cepstra are normalized in
+ * place.
  * 
  * @see BatchCMN
  */
@@ -113,25 +116,20 @@ public class LiveCMN extends BaseDataProcessor {
         int size = -1;
 
         for (Data data : initialList) {
-            if (!(data instanceof DoubleData))
+            int length = CepstrumSums.getLength(data);
+            if (length < 0)
                 continue;
-        
-            double[] cepstrum = ((DoubleData) data).getValues();
 
             // Initialize arrays if needed
             if (size < 0) {
-                size = cepstrum.length;
+                size = length;
                 sum = new double[size];
                 numberFrame = 0;
             }
 
             // Accumulate cepstrum, avoid counting zero energy in CMN
-            if (cepstrum[0] >= 0) {
-                for (int j = 0; j < size; j++) {
-                    sum[j] += cepstrum[j];
-                }
+            if (CepstrumSums.accumulate(data, sum))
                 numberFrame++;
-            }
         }
 
         // If we didn't meet any data, do nothing
@@ -190,28 +188,17 @@ public class LiveCMN extends BaseDataProcessor {
      */
     private void normalize(Data data) {
 
-        if (!(data instanceof DoubleData))
+        int length = CepstrumSums.getLength(data);
+        if (length < 0)
             return;
-
-        double[] cepstrum = ((DoubleData) data).getValues();
-
-        if (cepstrum.length != sum.length) {
-            throw new Error("Data length (" + cepstrum.length
-                    + ") not equal sum array length (" + sum.length + ')');
-        }
+        checkLength(length);
 
         // Accumulate cepstrum, avoid counting zero energy in CMN
-        if (cepstrum[0] >= 0) {
-            for (int j = 0; j < cepstrum.length; j++) {
-                sum[j] += cepstrum[j];
-            }
+        if (CepstrumSums.accumulate(data, sum))
             numberFrame++;
-        }
-        
+
         // Subtract current mean
-        for (int j = 0; j < cepstrum.length; j++) {
-            cepstrum[j] -= currentMean[j];
-        }
+        CepstrumSums.subtract(data, currentMean);
 
         if (numberFrame > cmnShiftWindow) {
             
@@ -227,6 +214,13 @@ public class LiveCMN extends BaseDataProcessor {
         }
     }
 
+    private void checkLength(int length) {
+        if (length != sum.length) {
+            throw new Error("Data length (" + length
+                    + ") not equal sum array length (" + sum.length + ')');
+        }
+    }
+
     /**
      * Updates the currentMean buffer with the values in the sum buffer. Then
      * decay the sum buffer exponentially, i.e., divide the sum with
@@ -41,18 +41,15 @@ public class S3FeatureExtractor extends AbstractFeatureExtractor {
         int jf2 = (currentPosition + 2) % cepstraBufferSize;
         int jf3 = (currentPosition + 3) % cepstraBufferSize;
 
-    	DoubleData currentCepstrum = cepstraBuffer[currentPosition];
-        double[] mfc3f = cepstraBuffer[jf3].getValues();
-        double[] mfc2f = cepstraBuffer[jf2].getValues();
-        double[] mfc1f = cepstraBuffer[jf1].getValues();
-        double[] current = currentCepstrum.getValues();
-        double[] mfc1p = cepstraBuffer[jp1].getValues();
-        double[] mfc2p = cepstraBuffer[jp2].getValues();
-        double[] mfc3p = cepstraBuffer[jp3].getValues();
+        double[] mfc3f = getCepstrum(jf3);
+        double[] mfc2f = getCepstrum(jf2);
+        double[] mfc1f = getCepstrum(jf1);
+        double[] current = getCepstrum(currentPosition);
+        double[] mfc1p = getCepstrum(jp1);
+        double[] mfc2p = getCepstrum(jp2);
+        double[] mfc3p = getCepstrum(jp3);
         float[] feature = new float[current.length * 3];
 
-        currentPosition = (currentPosition + 1)% cepstraBufferSize;
-
         // CEP; skip C[0]
         int j = 0;
         for (int k = 1; k < current.length; k++) {
@@ -74,8 +71,10 @@ public class S3FeatureExtractor extends AbstractFeatureExtractor {
                     ((mfc3f[k] - mfc1p[k]) - (mfc1f[k] - mfc3p[k]));
         }
 
-        return (new FloatData(feature,
-                currentCepstrum.getSampleRate(),
-                currentCepstrum.getFirstSampleNumber()));
+        Data data = new FloatData(feature,
+                getSampleRate(currentPosition),
+                getFirstSampleNumber(currentPosition));
+        currentPosition = (currentPosition + 1) % cepstraBufferSize;
+        return data;
     }
 }
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.frontend.feature;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import edu.cmu.sphinx.frontend.*;
+import edu.cmu.sphinx.frontend.endpoint.SpeechEndSignal;
+import edu.cmu.sphinx.util.props.*;
+
+/**
+ * Applies cepstral mean normalization with the mean of a sliding window of
+ * frames around every frame, optionally followed by variance normalization.
+ * <p>
+ * Unlike the {@link BatchCMN}, it does not wait for the end of the utterance.
+ * A cepstrum is returned as soon as the {@link #PROP_LOOKAHEAD} cepstra
+ * following it have been read, so the delay is bounded by the lookahead. The
+ * statistics are taken over the last {@link #PROP_WINDOW} cepstra read, that
+ * is the current cepstrum, the lookahead and the cepstra before it. At the
+ * start of the stream the window holds the cepstra read so far. At the end of
+ * the utterance, marked by a {@link DataEndSignal} or a
+ * {@link SpeechEndSignal}, the remaining cepstra are returned with the
+ * statistics of the last window.
+ * <p>
+ * The sums and the sums of squares of the window are updated incrementally:
+ * every cepstrum read is added and the one leaving the window is subtracted,
+ * so the cost per frame does not depend on the window size. A copy of the
+ * cepstra in the window is kept in arrays allocated once per stream.
+ * <p>
+ * With {@link #PROP_VARIANCE_NORMALIZATION} set, the normalized cepstra are
+ * also divided by the standard deviation of the window, like the
+ * {@link BatchVarNorm} does for the whole utterance. Both {@link DoubleData}
+ * and {@link FloatData} cepstra are normalized in place. Statistics are reset
+ * by every {@link DataStartSignal}.
+ *
+ * @see LiveCMN
+ * @see BatchCMN
+ */
+public class SlidingWindowCMN extends BaseDataProcessor {
+
+    /** The property for the number of cepstra the statistics are computed over. */
+    @S4Integer(defaultValue = 300)
+    public static final String PROP_WINDOW = "cmnWindow";
+    private int window;
+
+    /** The property for the number of cepstra read ahead of the returned one. */
+    @S4Integer(defaultValue = 50)
+    public static final String PROP_LOOKAHEAD = "lookahead";
+    private int lookahead;
+
+    /** The property specifying whether the cepstra are also normalized to unit variance. */
+    @S4Boolean(defaultValue = false)
+    public static final String PROP_VARIANCE_NORMALIZATION = "varianceNormalization";
+    private boolean varianceNormalization;
+
+    private Deque<Data> pending;
+    private int pendingCepstra;
+    private boolean flushing;
+
+    private double[][] history; // copies of the cepstra in the window
+    private int historyStart;
+    private int historySize;
+    private double[] sums;
+    private double[] squareSums;
+    private double[] means;
+    private double[] scales;
+
+    public SlidingWindowCMN(int window, int lookahead, boolean varianceNormalization) {
+        initLogger();
+        this.window = window;
+        this.lookahead = lookahead;
+        this.varianceNormalization = varianceNormalization;
+        if (lookahead < 0 || lookahead >= window)
+            throw new IllegalArgumentException("lookahead must be non-negative and smaller than the window");
+    }
+
+    public SlidingWindowCMN(int window, int lookahead) {
+        this(window, lookahead, false);
+    }
+
+    public SlidingWindowCMN() {
+    }
+
+    /*
+    * (non-Javadoc)
+    *
+    * @see edu.cmu.sphinx.util.props.Configurable#newProperties(edu.cmu.sphinx.util.props.PropertySheet)
+    */
+    @Override
+    public void newProperties(PropertySheet ps) throws PropertyException {
+        super.newProperties(ps);
+        window = ps.getInt(PROP_WINDOW);
+        lookahead = ps.getInt(PROP_LOOKAHEAD);
+        varianceNormalization = ps.getBoolean(PROP_VARIANCE_NORMALIZATION);
+        if (lookahead < 0 || lookahead >= window)
+            throw new PropertyException(ps.getInstanceName(), PROP_LOOKAHEAD,
+                    "lookahead must be non-negative and smaller than the window");
+    }
+
+    /** Initializes this SlidingWindowCMN. */
+    @Override
+    public void initialize() {
+        super.initialize();
+        pending = new ArrayDeque<Data>();
+        pendingCepstra = 0;
+        flushing = false;
+        history = null;
+    }
+
+    /**
+     * Returns the next Data object, which is a normalized cepstrum. Signal
+     * objects are returned unmodified in the order they were read.
+     *
+     * @return the next available Data object, returns null if no Data object is available
+     * @throws DataProcessingException if there is a data processing error
+     */
+    @Override
+    public Data getData() throws DataProcessingException {
+        while (true) {
+            Data head = pending.peekFirst();
+            if (head != null && (flushing || !isCepstrum(head) || pendingCepstra > lookahead)) {
+                pending.removeFirst();
+                if (pending.isEmpty())
+                    flushing = false;
+                if (head instanceof DataStartSignal)
+                    history = null;
+                if (isCepstrum(head)) {
+                    pendingCepstra--;
+                    normalize(head);
+                }
+                return head;
+            }
+
+            Data input = getPredecessor().getData();
+            if (input == null) {
+                if (pending.isEmpty())
+                    return null;
+                flushing = true;
+                continue;
+            }
+            if (isCepstrum(input)) {
+                add(input);
+                pendingCepstra++;
+            } else if (input instanceof DataEndSignal || input instanceof SpeechEndSignal
+                    || input instanceof DataStartSignal) {
+                // the statistics are reset when the DataStartSignal is returned
+                flushing = true;
+            }
+            pending.addLast(input);
+        }
+    }
+
+    private static boolean isCepstrum(Data data) {
+        return data instanceof DoubleData || data instanceof FloatData;
+    }
+
+    /** Adds the cepstrum to the window, dropping the oldest one if the window is full. */
+    private void add(Data data) {
+        int length = data instanceof DoubleData
+                ? ((DoubleData) data).getValues().length
+                : ((FloatData) data).getValues().length;
+        if (history == null) {
+            history = new double[window][length];
+            historyStart = 0;
+            historySize = 0;
+            sums = new double[length];
+            squareSums = new double[length];
+            means = new double[length];
+            scales = new double[length];
+        } else if (length != sums.length) {
+            throw new Error("Inconsistent cepstrum lengths: sums: " + sums.length
+                    + ", cepstrum: " + length);
+        }
+
+        double[] slot;
+        if (historySize == window) {
+            slot = history[historyStart];
+            historyStart = (historyStart + 1) % window;
+            for (int i = 0; i < length; i++) {
+                sums[i] -= slot[i];
+                squareSums[i] -= slot[i] * slot[i];
+            }
+        } else {
+            slot = history[(historyStart + historySize) % window];
+            historySize++;
+        }
+
+        if (data instanceof DoubleData) {
+            System.arraycopy(((DoubleData) data).getValues(), 0, slot, 0, length);
+        } else {
+            float[] cepstrum = ((FloatData) data).getValues();
+            for (int i = 0; i < length; i++)
+                slot[i] = cepstrum[i];
+        }
+        for (int i = 0; i < length; i++) {
+            sums[i] += slot[i];
+            squareSums[i] += slot[i] * slot[i];
+        }
+    }
+
+    /** Normalizes the cepstrum with the statistics of the current window. */
+    private void normalize(Data data) {
+        for (int i = 0; i < sums.length; i++) {
+            means[i] = sums[i] / historySize;
+            scales[i] = 1.0;
+            if (varianceNormalization) {
+                double variance = squareSums[i] / historySize - means[i] * means[i];
+                if (variance > 0)
+                    scales[i] = 1.0 / Math.sqrt(variance);
+            }
+        }
+
+        if (data instanceof DoubleData) {
+            double[] cepstrum = ((DoubleData) data).getValues();
+            for (int i = 0; i < cepstrum.length; i++)
+                cepstrum[i] = (cepstrum[i] - means[i]) * scales[i];
+        } else {
+            float[] cepstrum = ((FloatData) data).getValues();
+            for (int i = 0; i < cepstrum.length; i++)
+                cepstrum[i] = (float) ((cepstrum[i] - means[i]) * scales[i]);
+        }
+    }
+}
@@ -15,6 +15,8 @@ import edu.cmu.sphinx.frontend.*;
 import edu.cmu.sphinx.frontend.endpoint.*;
 import edu.cmu.sphinx.util.props.*;
 
+import java.util.List;
+
 /**
  * Implements a high-pass filter that compensates for attenuation in the audio data. Speech signals have an attenuation
  * (a decrease in intensity of a signal) of 20 dB/dec. It increases the relative magnitude of the higher frequencies
@@ -81,16 +83,39 @@ public class Preemphasizer extends BaseDataProcessor {
     public Data getData() throws DataProcessingException {
         Data input = getPredecessor().getData();
         if (input != null) {
-            if (input instanceof DoubleData) {
-                applyPreemphasis(((DoubleData) input).getValues());
-            } else if (input instanceof DataEndSignal || input instanceof SpeechEndSignal) {
-                prior = 0;
-            }
+            process(input);
         }
         return input;
     }
 
 
+    /**
+     * Appends the next Data objects being processed by this Preemphasizer. The block is read from the predecessor at
+     * once and processed in place.
+     *
+     * @param block     the list to append the Data objects to
+     * @param maxFrames the maximum number of Data objects to append
+     * @throws DataProcessingException if there is a processing error
+     */
+    @Override
+    protected void fillDataBlock(List<Data> block, int maxFrames) throws DataProcessingException {
+        int start = block.size();
+        readInputBlock(block, maxFrames);
+        for (int i = start; i < block.size(); i++) {
+            process(block.get(i));
+        }
+    }
+
+
+    private void process(Data input) {
+        if (input instanceof DoubleData) {
+            applyPreemphasis(((DoubleData) input).getValues());
+        } else if (input instanceof DataEndSignal || input instanceof SpeechEndSignal) {
+            prior = 0;
+        }
+    }
+
+
     /**
      * Applies pre-emphasis filter to the given Audio. The preemphasis is applied in place.
      *
@@ -254,11 +254,29 @@ public class MelFrequencyFilterBank extends BaseDataProcessor {
      */
     private DoubleData process(DoubleData input)
             throws IllegalArgumentException {
-        double[] in = input.getValues();
+        double[] output = filter(input.getValues(), input.getSampleRate(), null);
+        DoubleData outputMelSpectrum = new DoubleData(output,
+                sampleRate, input.getFirstSampleNumber());
+        return outputMelSpectrum;
+    }
+
 
-        if (filter == null || sampleRate != input.getSampleRate()) {
+    /**
+     * Filters a power spectrum with the filterbank, which is built for the size of the spectrum and the sample rate
+     * when needed. This can be used by processors which compute several stages of the front end at once.
+     *
+     * @param in         the power spectrum
+     * @param sampleRate the sample rate of the audio
+     * @param output     the array to store the mel spectrum in, a new one is allocated if it is null or doesn't have
+     *                   numberFilters elements
+     * @return the mel spectrum
+     * @throws IllegalArgumentException if the size of the spectrum changed
+     */
+    public double[] filter(double[] in, int sampleRate, double[] output)
+            throws IllegalArgumentException {
+        if (filter == null || this.sampleRate != sampleRate) {
             numberFftPoints = (in.length - 1) << 1;
-            sampleRate = input.getSampleRate();
+            this.sampleRate = sampleRate;
             buildFilterbank(numberFftPoints, numberFilters, minFreq, maxFreq);
         } else if (in.length != ((numberFftPoints >> 1) + 1)) {
             throw new IllegalArgumentException(
@@ -266,16 +284,15 @@ public class MelFrequencyFilterBank extends BaseDataProcessor {
                             + ", numberFftPoints == "
                             + ((numberFftPoints >> 1) + 1));
         }
-        double[] output = new double[numberFilters];
+        if (output == null || output.length != numberFilters)
+            output = new double[numberFilters];
         /**
          * Filter input power spectrum
          */
         for (int i = 0; i < numberFilters; i++) {
             output[i] = filter[i].filterOutput(in);
         }
-        DoubleData outputMelSpectrum = new DoubleData(output,
-                sampleRate, input.getFirstSampleNumber());
-        return outputMelSpectrum;
+        return output;
     }
 
 
@@ -92,8 +92,22 @@ public class DiscreteCosineTransform extends BaseDataProcessor {
      */
     private DoubleData process(DoubleData input)
             throws IllegalArgumentException {
-        double[] melspectrum = input.getValues();
+        double[] cepstrum = transform(input.getValues());
+        return new DoubleData(cepstrum, input.getSampleRate(),
+                input.getFirstSampleNumber());
+    }
 
+
+    /**
+     * Computes the mel cepstrum of a mel spectrum. The log of the spectrum is computed in place, so the given array
+     * is modified. This can be used by processors which compute several stages of the front end at once.
+     *
+     * @param melspectrum the mel spectrum
+     * @return the mel cepstrum
+     * @throws IllegalArgumentException if the size of the mel spectrum changed
+     */
+    public double[] transform(double[] melspectrum)
+            throws IllegalArgumentException {
         if (melcosine == null) {
             numberMelFilters = melspectrum.length;
             computeMelCosine();
@@ -109,13 +123,8 @@ public class DiscreteCosineTransform extends BaseDataProcessor {
             melspectrum[i] = Math.log(melspectrum[i] + LOG_FLOOR);
         }
 
-        double[] cepstrum;
-
         // create the cepstrum by apply the melcosine filter
-        cepstrum = applyMelCosine(melspectrum);
-
-        return new DoubleData(cepstrum, input.getSampleRate(),
-                input.getFirstSampleNumber());
+        return applyMelCosine(melspectrum);
     }
 
 
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.frontend.transform;
+
+import edu.cmu.sphinx.frontend.BaseDataProcessor;
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DataProcessingException;
+import edu.cmu.sphinx.frontend.DoubleData;
+import edu.cmu.sphinx.util.props.*;
+
+/**
+ * Computes the power spectrum of a window of audio like
+ * {@link DiscreteFourierTransform} and can replace it in the front end
+ * configuration, it has the same properties and produces the same output up
+ * to rounding.
+ * <p>
+ * The transform is computed on primitive arrays without allocating anything
+ * per frame. Since the input is real, the N point transform is computed as a
+ * complex transform of N/2 points whose real and imaginary parts are the even
+ * and odd samples, followed by a split step which separates the spectra of
+ * the two halves. The complex transform is an iterative radix 2 transform
+ * done in place, the bit reversal permutation and all twiddle factors are
+ * computed once when the number of points is known.
+ * <p>
+ * With {@link #PROP_REUSE_OUTPUT} set the same array is returned for every
+ * frame. This is only safe if the next processor is done with the spectrum
+ * before it asks for the next one, as the {@link
+ * edu.cmu.sphinx.frontend.frequencywarp.MelFrequencyFilterBank} is.
+ */
+public class RealDiscreteFourierTransform extends BaseDataProcessor {
+
+    /** The property for the number of points in the Fourier Transform. */
+    @S4Integer(defaultValue = -1)
+    public static final String PROP_NUMBER_FFT_POINTS = "numberFftPoints";
+
+    /** The property for the invert transform. */
+    @S4Boolean(defaultValue = false)
+    public static final String PROP_INVERT = "invert";
+
+    /** The property that controls whether the output array is reused for every frame. */
+    @S4Boolean(defaultValue = false)
+    public static final String PROP_REUSE_OUTPUT = "reuseOutput";
+
+    private boolean isNumberFftPointsSet;
+    private int numberFftPoints;
+    private int numberDataPoints;
+    private boolean invert;
+    private boolean reuseOutput;
+
+    private double[] real;
+    private double[] imag;
+    private int[] bitReversal;
+    private double[] cos;
+    private double[] sin;
+    private double[] splitCos;
+    private double[] splitSin;
+    private double[] output;
+
+    public RealDiscreteFourierTransform(int numberFftPoints, boolean invert, boolean reuseOutput) {
+        initLogger();
+        this.numberFftPoints = numberFftPoints;
+        this.isNumberFftPointsSet = (numberFftPoints != -1);
+        this.invert = invert;
+        this.reuseOutput = reuseOutput;
+    }
+
+    public RealDiscreteFourierTransform(int numberFftPoints, boolean invert) {
+        this(numberFftPoints, invert, false);
+    }
+
+    public RealDiscreteFourierTransform() {
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.cmu.sphinx.util.props.Configurable#newProperties(edu.cmu.sphinx.util.props.PropertySheet)
+     */
+    @Override
+    public void newProperties(PropertySheet ps) throws PropertyException {
+        super.newProperties(ps);
+        logger = ps.getLogger();
+        numberFftPoints = ps.getInt(PROP_NUMBER_FFT_POINTS);
+        isNumberFftPointsSet = (numberFftPoints != -1);
+        invert = ps.getBoolean(PROP_INVERT);
+        reuseOutput = ps.getBoolean(PROP_REUSE_OUTPUT);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.cmu.sphinx.frontend.DataProcessor#initialize()
+     */
+    @Override
+    public void initialize() {
+        super.initialize();
+        if (isNumberFftPointsSet) {
+            initializeFFT();
+        }
+    }
+
+    /** Precomputes the permutation and the twiddle factors for the number of points. */
+    private void initializeFFT() {
+        if (numberFftPoints < 1 || Integer.bitCount(numberFftPoints) != 1)
+            throw new IllegalArgumentException("Not a power of 2: " + numberFftPoints);
+
+        int half = Math.max(numberFftPoints >> 1, 1);
+        real = new double[half];
+        imag = new double[half];
+
+        int bits = Integer.numberOfTrailingZeros(half);
+        bitReversal = new int[half];
+        for (int i = 0; i < half; i++)
+            bitReversal[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+
+        cos = new double[Math.max(half >> 1, 1)];
+        sin = new double[cos.length];
+        for (int k = 0; k < (half >> 1); k++) {
+            cos[k] = Math.cos(2 * Math.PI * k / half);
+            sin[k] = Math.sin(2 * Math.PI * k / half);
+        }
+
+        splitCos = new double[half + 1];
+        splitSin = new double[half + 1];
+        for (int k = 0; k <= half; k++) {
+            splitCos[k] = Math.cos(2 * Math.PI * k / numberFftPoints);
+            splitSin[k] = Math.sin(2 * Math.PI * k / numberFftPoints);
+        }
+    }
+
+    /**
+     * Reads the next DoubleData object, which is a data frame from which we'll compute the power spectrum. Signal
+     * objects just pass through unmodified.
+     *
+     * @return the next available power spectrum DoubleData object, or null if no Spectrum object is available
+     * @throws DataProcessingException if there is a processing error
+     */
+    @Override
+    public Data getData() throws DataProcessingException {
+        Data input = getPredecessor().getData();
+
+        if (input instanceof DoubleData) {
+            DoubleData data = (DoubleData) input;
+            double[] spectrum = transform(data.getValues(), reuseOutput ? output : null);
+            if (reuseOutput)
+                output = spectrum;
+            input = new DoubleData(spectrum, data.getSampleRate(), data.getFirstSampleNumber());
+        }
+        return input;
+    }
+
+    /**
+     * Computes the power spectrum of a frame of samples. This can be used by
+     * processors which compute several stages of the front end at once.
+     *
+     * @param in the samples of the frame
+     * @param spectrum the array to store the spectrum in, a new one is
+     *        allocated if it is null or doesn't have numberFftPoints / 2 + 1
+     *        elements
+     * @return the power spectrum
+     */
+    public double[] transform(double[] in, double[] spectrum) {
+        if (numberDataPoints != in.length) {
+            numberDataPoints = in.length;
+            int idealFftPoints = getNumberFftPoints(numberDataPoints);
+            if (!isNumberFftPointsSet) {
+                if (real == null || idealFftPoints != numberFftPoints) {
+                    numberFftPoints = idealFftPoints;
+                    initializeFFT();
+                }
+            } else if (idealFftPoints != numberFftPoints) {
+                logger.warning("User set numberFftPoints (" + numberFftPoints + ") is not ideal ("
+                        + idealFftPoints + ')');
+            }
+        }
+        if (spectrum == null || spectrum.length != (numberFftPoints >> 1) + 1)
+            spectrum = new double[(numberFftPoints >> 1) + 1];
+
+        if (numberFftPoints == 1) {
+            double sum = 0;
+            for (double value : in)
+                sum += value;
+            spectrum[0] = sum * sum;
+        } else {
+            packInput(in);
+            transform();
+            split(spectrum);
+        }
+
+        if (invert) {
+            double scale = 1.0 / ((double) numberFftPoints * numberFftPoints);
+            for (int i = 0; i < spectrum.length; i++)
+                spectrum[i] *= scale;
+        }
+        return spectrum;
+    }
+
+    /**
+     * Stores the even samples as real and the odd ones as imaginary parts, in
+     * bit reversed order. Samples beyond the number of points are wrapped
+     * around, the missing ones are zero.
+     */
+    private void packInput(double[] in) {
+        int half = real.length;
+        for (int j = 0; j < half; j++) {
+            int k = bitReversal[j];
+            real[k] = j * 2 < in.length ? in[j * 2] : 0;
+            imag[k] = j * 2 + 1 < in.length ? in[j * 2 + 1] : 0;
+        }
+        for (int i = numberFftPoints; i < in.length; i++) {
+            int j = (i % numberFftPoints) >> 1;
+            if ((i & 1) == 0)
+                real[bitReversal[j]] += in[i];
+            else
+                imag[bitReversal[j]] += in[i];
+        }
+    }
+
+    /** Computes the complex transform of the bit reversed input in place. */
+    private void transform() {
+        int half = real.length;
+        for (int size = 2; size <= half; size <<= 1) {
+            int step = half / size;
+            int span = size >> 1;
+            for (int start = 0; start < half; start += size) {
+                for (int j = 0; j < span; j++) {
+                    double wr = cos[j * step];
+                    double wi = -sin[j * step];
+                    int a = start + j;
+                    int b = a + span;
+                    double tr = wr * real[b] - wi * imag[b];
+                    double ti = wr * imag[b] + wi * real[b];
+                    real[b] = real[a] - tr;
+                    imag[b] = imag[a] - ti;
+                    real[a] += tr;
+                    imag[a] += ti;
+                }
+            }
+        }
+    }
+
+    /**
+     * Separates the transforms of the even and odd samples and combines them
+     * into the power spectrum of the whole input.
+     */
+    private void split(double[] spectrum) {
+        int half = real.length;
+        for (int k = 0; k <= half; k++) {
+            int a = k == half ? 0 : k;
+            int b = k == 0 ? 0 : half - k;
+            double zr = real[a];
+            double zi = imag[a];
+            double cr = real[b];
+            double ci = -imag[b];
+
+            double er = (zr + cr) * 0.5;
+            double ei = (zi + ci) * 0.5;
+            double or = (zi - ci) * 0.5;
+            double oi = (cr - zr) * 0.5;
+
+            double c = splitCos[k];
+            double s = splitSin[k];
+            double xr = er + c * or + s * oi;
+            double xi = ei + c * oi - s * or;
+            spectrum[k] = xr * xr + xi * xi;
+        }
+    }
+
+    /**
+     * Returns the ideal number of FFT points given the number of samples. The ideal number of FFT points is the closest
+     * power of 2 that is equal to or larger than the number of samples in the incoming window.
+     *
+     * @param numberSamples the number of samples in the incoming window
+     * @return the closest power of 2 that is equal to or larger than the number of samples in the incoming window
+     */
+    private static int getNumberFftPoints(int numberSamples) {
+        int fftPoints = 1;
+        while (fftPoints < numberSamples) {
+            fftPoints <<= 1;
+            if (fftPoints < 1)
+                throw new Error("Invalid # of FFT points: " + fftPoints);
+        }
+        return fftPoints;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.frontend.util;
+
+import edu.cmu.sphinx.frontend.*;
+import edu.cmu.sphinx.util.RingBuffer;
+import edu.cmu.sphinx.util.props.*;
+
+/**
+ * Runs the front end ahead of the decoder on a thread of its own. Put at the
+ * end of the front end pipeline, feature extraction overlaps with the search
+ * which pulls the features.
+ * <p>
+ * A reader thread gets the Data objects from the predecessor and passes them
+ * through a bounded {@link RingBuffer} of {@link #PROP_QUEUE_SIZE} objects to
+ * the thread calling {@link #getData()}. Signals are passed in order with the
+ * rest of the data. The reader stops after a {@link DataEndSignal}, or when
+ * the predecessor runs out of data, and is started again by the next call of
+ * getData, so it never reads ahead into the next stream. Errors of the
+ * predecessor are thrown by getData on the calling thread.
+ * <p>
+ * Setting a new predecessor stops the reader. The reader is never
+ * interrupted, as predecessors reading from an interruptible channel would
+ * close it. A stop flag is checked instead. When the flag is set, the reader
+ * queues a {@link DataEndSignal} sentinel after its last Data object and
+ * exits. The queue is cleared when the reader starts again, and the data read
+ * ahead for the abandoned stream is discarded up to the sentinel. A stopped
+ * reader may still be blocked in the predecessor, so the new reader is only
+ * started once the sentinel is taken. If the predecessor is the same, the Data
+ * object the stopped reader was reading is passed on to the new reader
+ * instead of being lost.
+ */
+public class PrefetchingDataProcessor extends BaseDataProcessor {
+
+    /** The property for the maximum number of Data objects read ahead. */
+    @S4Integer(defaultValue = 128)
+    public static final String PROP_QUEUE_SIZE = "queueSize";
+    private int queueSize;
+
+    /** Marks the end of the data of the predecessor in the queue */
+    private static final Data END = new Data() {
+    };
+
+    /** Queued by a stopped reader after its last Data object */
+    private static final DataEndSignal STOPPED = new DataEndSignal(0);
+
+    private RingBuffer<Data> queue;
+    private Reader reader;
+    /** The stopped reader whose last Data object is still to be discarded */
+    private Reader stoppedReader;
+    /** The Data object the stopped reader read from its predecessor after it was stopped */
+    private Data leftover;
+    private DataProcessor leftoverSource;
+
+    public PrefetchingDataProcessor(int queueSize) {
+        initLogger();
+        this.queueSize = queueSize;
+        queue = new RingBuffer<Data>(queueSize);
+    }
+
+    public PrefetchingDataProcessor() {
+    }
+
+    /*
+    * (non-Javadoc)
+    *
+    * @see edu.cmu.sphinx.util.props.Configurable#newProperties(edu.cmu.sphinx.util.props.PropertySheet)
+    */
+    @Override
+    public void newProperties(PropertySheet ps) throws PropertyException {
+        super.newProperties(ps);
+        queueSize = ps.getInt(PROP_QUEUE_SIZE);
+        queue = new RingBuffer<Data>(queueSize);
+    }
+
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        stopReader();
+    }
+
+
+    /**
+     * Returns the next Data object read by the reader thread, waiting for it if needed.
+     *
+     * @return the next available Data object, returns null if no Data object is available
+     * @throws DataProcessingException if the predecessor failed or the thread was interrupted while waiting
+     */
+    @Override
+    public Data getData() throws DataProcessingException {
+        Data data;
+        try {
+            if (reader == null) {
+                while (stoppedReader != null)
+                    discard(queue.take());
+                DataProcessor source = getPredecessor();
+                reader = new Reader(source, queue, leftoverSource == source ? leftover : null);
+                leftover = null;
+                leftoverSource = null;
+                reader.start();
+            }
+            data = queue.take();
+        } catch (InterruptedException e) {
+            throw new DataProcessingException("cannot take Data from queue", e);
+        }
+
+        if (isLast(data)) {
+            // the reader has finished, the next one need not wait for it
+            reader = null;
+        }
+        if (data == END) {
+            return null;
+        }
+        if (data instanceof Failure) {
+            Throwable cause = ((Failure) data).cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new DataProcessingException(cause);
+        }
+        return data;
+    }
+
+
+    /**
+     * Sets the predecessor and stops the reader thread of the previous one.
+     *
+     * @param predecessor the new predecessor of this DataProcessor
+     */
+    @Override
+    public void setPredecessor(DataProcessor predecessor) {
+        super.setPredecessor(predecessor);
+        stopReader();
+    }
+
+
+    /**
+     * Stops the reader and discards the data it has queued, so that a reader
+     * waiting for space notices the stop flag. The data it queues afterwards
+     * is discarded when the reader starts again.
+     */
+    private void stopReader() {
+        if (reader != null) {
+            reader.stopReading();
+            stoppedReader = reader;
+            reader = null;
+            Data data;
+            while (stoppedReader != null && (data = queue.poll()) != null)
+                discard(data);
+        }
+    }
+
+
+    /** Discards a Data object of the stopped reader and keeps what it read after it was stopped */
+    private void discard(Data data) {
+        if (data == STOPPED) {
+            leftover = stoppedReader.leftover;
+            leftoverSource = stoppedReader.source;
+        }
+        if (isLast(data))
+            stoppedReader = null;
+    }
+
+
+    /** Returns whether a reader queues nothing after the Data object */
+    private static boolean isLast(Data data) {
+        return data == END || data instanceof Failure || data instanceof DataEndSignal;
+    }
+
+
+    /** Carries an error of the predecessor to the thread calling getData */
+    private static class Failure implements Data {
+
+        final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+
+    /** Reads the data of the predecessor into the queue until the end of the stream */
+    private static class Reader extends Thread {
+
+        private final DataProcessor source;
+        private final RingBuffer<Data> queue;
+        private Data first;
+        /** The Data object read after the reader was stopped, set before the sentinel is queued */
+        private Data leftover;
+        /** Set when the reader is stopped, it is checked before and after reading */
+        private volatile boolean stopped;
+
+        Reader(DataProcessor source, RingBuffer<Data> queue, Data first) {
+            super(PrefetchingDataProcessor.class.getSimpleName());
+            setDaemon(true);
+            this.source = source;
+            this.queue = queue;
+            this.first = first;
+        }
+
+        void stopReading() {
+            stopped = true;
+        }
+
+        @Override
+        public void run() {
+            Data last;
+            try {
+                last = read();
+            } catch (Throwable t) {
+                last = new Failure(t);
+            }
+            try {
+                queue.put(last);
+            } catch (InterruptedException e) {
+                // the reader is never interrupted
+            }
+        }
+
+        /**
+         * Queues the data of the predecessor up to the end of the stream or
+         * until the reader is stopped.
+         *
+         * @return the last Data object to queue
+         * @throws InterruptedException if the thread is interrupted while waiting for space
+         */
+        private Data read() throws InterruptedException {
+            Data data = first;
+            first = null;
+            while (!stopped) {
+                if (data == null) {
+                    data = source.getData();
+                    if (data == null)
+                        return END;
+                    if (stopped)
+                        break;
+                }
+                if (data instanceof DataEndSignal)
+                    return data;
+                queue.put(data);
+                data = null;
+            }
+            // stopped, the next reader passes the data on
+            leftover = data;
+            return STOPPED;
+        }
+    }
+}
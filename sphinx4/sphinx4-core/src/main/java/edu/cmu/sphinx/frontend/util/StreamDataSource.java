@@ -13,6 +13,10 @@ package edu.cmu.sphinx.frontend.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 import edu.cmu.sphinx.frontend.*;
 import edu.cmu.sphinx.util.TimeFrame;
@@ -34,6 +38,14 @@ import edu.cmu.sphinx.util.props.*;
  *
  * You can use AudioFileDataSource instead to read the file headers and
  * to convert incoming data to the required format automatically.
+ * <p>
+ * Data can also be read from a {@link ReadableByteChannel}, see {@link
+ * #setInputChannel(ReadableByteChannel, TimeFrame) setInputChannel}. The bytes
+ * are read into a {@link ByteBuffer} which is reused for every frame and the
+ * samples are decoded from it directly. With {@link #PROP_DIRECT_BUFFER} set
+ * the buffer is a direct one, which saves a copy when reading from sockets or
+ * files. Samples of 8, 16 and 32 bits in either byte order are decoded with
+ * the buffer's accessors, other sizes byte by byte.
  */
 public class StreamDataSource extends BaseDataProcessor {
 
@@ -60,7 +72,13 @@ public class StreamDataSource extends BaseDataProcessor {
     @S4Boolean(defaultValue = true)
     public static final String PROP_SIGNED_DATA = "signedData";
 
+    /** The property specifying whether the bytes are read into a direct buffer. */
+    @S4Boolean(defaultValue = false)
+    public static final String PROP_DIRECT_BUFFER = "directBuffer";
+
     private InputStream dataStream;
+    private ReadableByteChannel dataChannel;
+    private ByteBuffer samplesBuffer;
     protected int sampleRate;
     private int bytesPerRead;
     private int bytesPerValue;
@@ -75,9 +93,17 @@ public class StreamDataSource extends BaseDataProcessor {
     private TimeFrame timeFrame = TimeFrame.INFINITE;
 
     public StreamDataSource(int sampleRate, int bytesPerRead,
-            int bitsPerSample, boolean bigEndian, boolean signedData) {
+            int bitsPerSample, boolean bigEndian, boolean signedData,
+            boolean directBuffer) {
         initLogger();
-        init(sampleRate, bytesPerRead, bitsPerSample, bigEndian, signedData);
+        init(sampleRate, bytesPerRead, bitsPerSample, bigEndian, signedData,
+             directBuffer);
+    }
+
+    public StreamDataSource(int sampleRate, int bytesPerRead,
+            int bitsPerSample, boolean bigEndian, boolean signedData) {
+        this(sampleRate, bytesPerRead, bitsPerSample, bigEndian, signedData,
+             false);
     }
 
     public StreamDataSource() {
@@ -98,14 +124,16 @@ public class StreamDataSource extends BaseDataProcessor {
              ps.getInt(PROP_BYTES_PER_READ),
              ps.getInt(PROP_BITS_PER_SAMPLE),
              ps.getBoolean(PROP_BIG_ENDIAN_DATA),
-             ps.getBoolean(PROP_SIGNED_DATA));
+             ps.getBoolean(PROP_SIGNED_DATA),
+             ps.getBoolean(PROP_DIRECT_BUFFER));
     }
 
     private void init(int sampleRate,
                       int bytesPerRead,
                       int bitsPerSample,
                       boolean bigEndian,
-                      boolean signedData) {
+                      boolean signedData,
+                      boolean directBuffer) {
         this.sampleRate = sampleRate;
         this.bytesPerRead = bytesPerRead;
         this.bitsPerSample = bitsPerSample;
@@ -118,6 +146,13 @@ public class StreamDataSource extends BaseDataProcessor {
         this.bigEndian = bigEndian;
         this.signedData = signedData;
         this.bytesPerRead += bytesPerRead % 2;
+
+        // room for the padding of the last frame
+        int capacity = this.bytesPerRead + 3;
+        samplesBuffer = directBuffer
+                ? ByteBuffer.allocateDirect(capacity)
+                : ByteBuffer.allocate(capacity);
+        samplesBuffer.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
     }
 
     /*
@@ -143,6 +178,44 @@ public class StreamDataSource extends BaseDataProcessor {
      */
     public void setInputStream(InputStream inputStream, TimeFrame timeFrame) {
         dataStream = inputStream;
+        dataChannel = null;
+        if (inputStream != null && !samplesBuffer.hasArray())
+            dataChannel = Channels.newChannel(inputStream);
+        reset(timeFrame);
+    }
+
+    /**
+     * Sets the InputStream from which this StreamDataSource reads a part of a
+     * longer recording. The samples are numbered from the given sample number
+     * instead of zero, so the Data objects keep the time they have in the
+     * recording.
+     *
+     * @param inputStream the InputStream from which audio data comes
+     * @param firstSampleNumber the number of the first sample of the stream in the recording
+     */
+    public void setInputStream(InputStream inputStream, long firstSampleNumber) {
+        setInputStream(inputStream, TimeFrame.INFINITE);
+        totalValuesRead = firstSampleNumber;
+    }
+
+    public void setInputChannel(ReadableByteChannel inputChannel) {
+        setInputChannel(inputChannel, TimeFrame.INFINITE);
+    }
+
+    /**
+     * Sets the channel from which this StreamDataSource reads. The channel
+     * has to be in blocking mode.
+     *
+     * @param inputChannel the channel from which audio data comes
+     * @param timeFrame time frame to process
+     */
+    public void setInputChannel(ReadableByteChannel inputChannel, TimeFrame timeFrame) {
+        dataStream = null;
+        dataChannel = inputChannel;
+        reset(timeFrame);
+    }
+
+    private void reset(TimeFrame timeFrame) {
         this.timeFrame = timeFrame;
         streamEndReached = false;
         utteranceEndSent = false;
@@ -173,7 +246,7 @@ public class StreamDataSource extends BaseDataProcessor {
                 utteranceStarted = true;
                 output = new DataStartSignal(sampleRate);
             } else {
-                if (dataStream != null) {
+                if (dataStream != null || dataChannel != null) {
                     do {
                         output = readNextFrame();
                     } while (output != null && getDuration() < timeFrame.getStart());
@@ -205,19 +278,11 @@ public class StreamDataSource extends BaseDataProcessor {
      */
     private DoubleData readNextFrame() throws DataProcessingException {
         // read one frame's worth of bytes
-        int read;
-        int totalRead = 0;
+        int totalRead;
         final int bytesToRead = bytesPerRead;
-        byte[] samplesBuffer = new byte[bytesPerRead];
         long firstSample = totalValuesRead;
         try {
-            do {
-                read = dataStream.read(samplesBuffer, totalRead, bytesToRead
-                        - totalRead);
-                if (read > 0) {
-                    totalRead += read;
-                }
-            } while (read != -1 && totalRead < bytesToRead);
+            totalRead = fillBuffer(bytesToRead);
             if (totalRead <= 0) {
                 closeDataStream();
                 return null;
@@ -225,37 +290,100 @@ public class StreamDataSource extends BaseDataProcessor {
             // shrink incomplete frames
             totalValuesRead += (totalRead / bytesPerValue);
             if (totalRead < bytesToRead) {
-                totalRead = (totalRead % 2 == 0)
+                int paddedLength = (totalRead % 2 == 0)
                         ? totalRead + 2
                         : totalRead + 3;
-                byte[] shrinkedBuffer = new byte[totalRead];
-                System
-                        .arraycopy(samplesBuffer, 0, shrinkedBuffer, 0,
-                                   totalRead);
-                samplesBuffer = shrinkedBuffer;
+                for (int i = totalRead; i < paddedLength; i++)
+                    samplesBuffer.put(i, (byte) 0);
+                totalRead = paddedLength;
                 closeDataStream();
             }
         } catch (IOException ioe) {
             throw new DataProcessingException("Error reading data", ioe);
         }
         // turn it into an Data object
-        double[] doubleData;
-        if (bigEndian) {
-            doubleData = DataUtil.bytesToValues(samplesBuffer, 0, totalRead,
-                                                bytesPerValue, signedData);
+        return new DoubleData(toValues(totalRead), sampleRate, firstSample);
+    }
+
+    /**
+     * Reads up to the given number of bytes into the start of the samples
+     * buffer, less only if the end of the data is reached.
+     *
+     * @return the number of bytes read
+     */
+    private int fillBuffer(int bytesToRead) throws IOException {
+        int read;
+        int totalRead = 0;
+        if (dataChannel == null) {
+            byte[] bytes = samplesBuffer.array();
+            int offset = samplesBuffer.arrayOffset();
+            do {
+                read = dataStream.read(bytes, offset + totalRead, bytesToRead
+                        - totalRead);
+                if (read > 0) {
+                    totalRead += read;
+                }
+            } while (read != -1 && totalRead < bytesToRead);
+        } else {
+            samplesBuffer.clear();
+            samplesBuffer.limit(bytesToRead);
+            do {
+                read = dataChannel.read(samplesBuffer);
+            } while (read != -1 && samplesBuffer.hasRemaining());
+            totalRead = samplesBuffer.position();
+            samplesBuffer.clear();
+        }
+        return totalRead;
+    }
+
+    /**
+     * Decodes the samples at the start of the samples buffer. The byte order
+     * of the buffer is the one of the data.
+     *
+     * @param length the number of bytes to decode
+     * @return the samples
+     */
+    private double[] toValues(int length) {
+        ByteBuffer bytes = samplesBuffer;
+        double[] values = new double[length / bytesPerValue];
+        if (bytesPerValue == 2) {
+            for (int i = 0; i < values.length; i++) {
+                short value = bytes.getShort(i << 1);
+                values[i] = signedData ? value : value & 0xffff;
+            }
+        } else if (bytesPerValue == 1) {
+            for (int i = 0; i < values.length; i++) {
+                byte value = bytes.get(i);
+                values[i] = signedData ? value : value & 0xff;
+            }
+        } else if (bytesPerValue == 4) {
+            // unsigned values don't fit into an int, like in DataUtil
+            for (int i = 0; i < values.length; i++)
+                values[i] = bytes.getInt(i << 2);
         } else {
-            doubleData = DataUtil.littleEndianBytesToValues(samplesBuffer,
-                                                            0,
-                                                            totalRead,
-                                                            bytesPerValue,
-                                                            signedData);
+            // start at the most significant byte of each value
+            int step = bigEndian ? 1 : -1;
+            for (int i = 0; i < values.length; i++) {
+                int index = bigEndian ? i * bytesPerValue : (i + 1) * bytesPerValue - 1;
+                int value = bytes.get(index);
+                if (!signedData) {
+                    value &= 0xff; // remove the sign extension
+                }
+                for (int c = 1; c < bytesPerValue; c++) {
+                    index += step;
+                    value = (value << 8) + (bytes.get(index) & 0xff);
+                }
+                values[i] = value;
+            }
         }
-        return new DoubleData(doubleData, sampleRate, firstSample);
+        return values;
     }
 
     private void closeDataStream() throws IOException {
         streamEndReached = true;
-        if (dataStream != null) {
+        if (dataChannel != null) {
+            dataChannel.close();
+        } else if (dataStream != null) {
             dataStream.close();
         }
     }
@@ -47,6 +47,10 @@ import java.util.Map;
  * for this system is the Hamming window, with alpha 0.46 !). Figure 2 below shows the Hamming window function (a =
  * 0.46), using our default window size of 25.625 ms and assuming a sample rate of 16kHz, thus yielding 410 samples per
  * window. <p> <img alt="Hamming window" src="doc-files/hamming-window.gif"> <br><b>Figure 2: The Hamming window function.</b>
+ * <p> If samples are missing between two Data objects, for example because a
+ * {@link edu.cmu.sphinx.frontend.endpoint.SilenceSkipper} dropped some silence, the samples before the gap which don't
+ * fill a window are dropped and the windows restart after the gap, so the first sample numbers of the windows always
+ * match the audio.
  *
  * @see Data
  */
@@ -151,7 +155,7 @@ public class RaisedCosineWindower extends BaseDataProcessor {
     public Data getData() throws DataProcessingException {
 
         if (outputQueue.isEmpty()) {
-            Data input = getPredecessor().getData();
+            Data input = readInput();
 
             if (input != null) {
                 if (input instanceof DoubleData) {
@@ -160,6 +164,11 @@ public class RaisedCosineWindower extends BaseDataProcessor {
                     // System.err.println(Arrays.toString(data.getValues()));
                     if (currentFirstSampleNumber == -1) {
                         currentFirstSampleNumber = data.getFirstSampleNumber();
+                    } else if (data.getFirstSampleNumber() > currentFirstSampleNumber
+                            + overflowBuffer.getOccupancy()) {
+                        // samples are missing, e.g. skipped silence
+                        overflowBuffer.reset();
+                        currentFirstSampleNumber = data.getFirstSampleNumber();
                     }
 
                     // should not be necessary if all DataProcessor would forward Signals. Unfortunately this
@@ -196,12 +205,7 @@ public class RaisedCosineWindower extends BaseDataProcessor {
         }
 
         if (!outputQueue.isEmpty()) {
-            Data output = outputQueue.remove(0);
-            if (output instanceof DoubleData) {
-                assert ((DoubleData) output).getValues().length ==
-                        cosineWindow.length;
-            }
-            return output;
+            return outputQueue.remove(0);
         } else {
             return null;
         }
@@ -216,8 +220,7 @@ public class RaisedCosineWindower extends BaseDataProcessor {
      */
     private void process(DoubleData input) throws DataProcessingException {
 
-        double[] in = input.getValues();
-        int length = overflowBuffer.getOccupancy() + in.length;
+        int length = overflowBuffer.getOccupancy() + input.getValues().length;
 
         List<DoubleData> dataList = new LinkedList<DoubleData>();
         dataList.add(input);
@@ -226,10 +229,18 @@ public class RaisedCosineWindower extends BaseDataProcessor {
 
         // read in more Data if we have under one window's length of data
         while (length < cosineWindow.length) {
-            Data next = getPredecessor().getData();
+            Data next = readInput();
             if (next instanceof DoubleData) {
-                dataList.add((DoubleData) next);
-                length += ((DoubleData) next).getValues().length;
+                DoubleData nextData = (DoubleData) next;
+                if (nextData.getFirstSampleNumber() > currentFirstSampleNumber + length) {
+                    // samples are missing, e.g. skipped silence, drop the ones which don't fill a window
+                    overflowBuffer.reset();
+                    dataList.clear();
+                    length = 0;
+                    currentFirstSampleNumber = nextData.getFirstSampleNumber();
+                }
+                dataList.add(nextData);
+                length += nextData.getValues().length;
             } else {
                 if (next instanceof DataEndSignal || next instanceof SpeechEndSignal) {
                     utteranceEnd = next;
@@ -240,10 +251,10 @@ public class RaisedCosineWindower extends BaseDataProcessor {
             }
         }
 
-        double[] allSamples = in;
+        double[] allSamples = dataList.get(0).getValues();
 
         // prepend overflow samples
-        if (length != in.length) {
+        if (length != allSamples.length) {
 
             allSamples = new double[length];
 
@@ -312,24 +323,11 @@ public class RaisedCosineWindower extends BaseDataProcessor {
             windowCount = getWindowCount(length, cosineWindow.length, windowShift);
         }
 
-        // create all the windows at once, not individually, saves time
-        double[][] windows = new double[windowCount][cosineWindow.length];
-
         int windowStart = 0;
 
         for (int i = 0; i < windowCount; windowStart += windowShift, i++) {
-
-            double[] myWindow = windows[i];
-
-            // apply the Hamming Window function to the window of data
-            for (int w = 0, s = windowStart; w < myWindow.length; s++, w++) {
-                myWindow[w] = in[s] * cosineWindow[w];
-            }
-
             // add the frame to the output queue
-            outputQueue.add(new DoubleData
-                    (myWindow, sampleRate,
-                            currentFirstSampleNumber));
+            outputQueue.add(createWindowData(in, windowStart, currentFirstSampleNumber));
             currentFirstSampleNumber += windowShift;
         }
 
@@ -337,6 +335,48 @@ public class RaisedCosineWindower extends BaseDataProcessor {
     }
 
 
+    /**
+     * Creates the Data object for the window starting at the given position of the audio data. By default the
+     * windowing function is applied to a new array. Subclasses may override this to process the window further
+     * without creating intermediate Data objects.
+     *
+     * @param in                the audio data
+     * @param start             the index of the first sample of the window
+     * @param firstSampleNumber the number of the first sample of the window in the stream
+     * @return the Data object added to the output
+     */
+    protected Data createWindowData(double[] in, int start, long firstSampleNumber) {
+        double[] window = new double[cosineWindow.length];
+        applyWindow(in, start, window);
+        return new DoubleData(window, sampleRate, firstSampleNumber);
+    }
+
+
+    /**
+     * Applies the windowing function to a window of the audio data.
+     *
+     * @param in     the audio data
+     * @param start  the index of the first sample of the window
+     * @param window the array to store the window in, must have {@link #getWindowSize()} elements
+     */
+    protected void applyWindow(double[] in, int start, double[] window) {
+        assert window.length == cosineWindow.length;
+        for (int w = 0, s = start; w < window.length; s++, w++) {
+            window[w] = in[s] * cosineWindow[w];
+        }
+    }
+
+
+    /**
+     * Returns the number of samples in a window, which is known once the sample rate of the data is known.
+     *
+     * @return the window size in samples
+     */
+    protected int getWindowSize() {
+        return cosineWindow.length;
+    }
+
+
     /**
      * Returns the number of windows in the given array, given the windowSize and windowShift.
      *
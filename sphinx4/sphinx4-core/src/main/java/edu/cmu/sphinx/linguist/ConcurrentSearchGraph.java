@@ -0,0 +1,25 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.linguist;
+
+/**
+ * A search graph whose states can be asked for their successors by several
+ * threads at once. Most linguists build their states and arcs lazily and
+ * cache them without locking, their graphs must not implement this
+ * interface. A graph which is built completely before the search starts and
+ * is not changed during the search, like the one of the flat linguist, can.
+ * <p>
+ * Search managers may grow the branches of such a graph on several threads.
+ * The threads only call {@link SearchState#getSuccessors()} and read the
+ * states and arcs, the search itself stays on one thread.
+ */
+public interface ConcurrentSearchGraph extends SearchGraph {
+}
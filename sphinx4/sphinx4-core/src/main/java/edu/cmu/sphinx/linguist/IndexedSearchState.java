@@ -0,0 +1,27 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.linguist;
+
+/**
+ * Represents a search state of a precompiled search graph. Such states are
+ * numbered densely from zero, so the search manager can keep per state data
+ * in arrays instead of hashing the states.
+ */
+public interface IndexedSearchState extends SearchState {
+
+    /**
+     * Gets the index of this state in its search graph. Two states of the
+     * same search graph have the same index only if they are equal.
+     *
+     * @return the index or -1 if the state was not numbered
+     */
+    int getStateIndex();
+}
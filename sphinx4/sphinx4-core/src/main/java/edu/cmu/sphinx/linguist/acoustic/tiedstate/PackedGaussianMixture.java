@@ -0,0 +1,85 @@
+/*
+* Copyright 2014 Carnegie Mellon University.
+* All Rights Reserved.  Use is subject to license terms.
+*
+* See the file "license.terms" for information on usage and
+* redistribution of this file, and for a DISCLAIMER OF ALL
+* WARRANTIES.
+*
+*/
+
+package edu.cmu.sphinx.linguist.acoustic.tiedstate;
+
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DoubleData;
+import edu.cmu.sphinx.frontend.FloatData;
+
+/**
+ * Gaussian mixture which is scored from the {@link PackedGaussians} shared by
+ * all senones of the model. Its components are {@link PackedMixtureComponent
+ * PackedMixtureComponents} which keep their transformed parameters in the
+ * packed storage only, the mixture scores all of them in one loop.
+ * <p>
+ * All scores and weights are maintained in LogMath log base.
+ */
+@SuppressWarnings("serial")
+public class PackedGaussianMixture extends GaussianMixture {
+
+    private final PackedGaussians gaussians;
+    private final int firstGaussian;
+    private final int numGaussians;
+
+    /**
+     * Creates a new senone from the given components.
+     *
+     * @param mixtureWeights the mixture weights for this senone in LogMath log base
+     * @param mixtureComponents the mixture components for this senone, packed
+     *        in consecutive slots
+     * @param id id of the mixture
+     */
+    public PackedGaussianMixture(GaussianWeights mixtureWeights,
+                                 PackedMixtureComponent[] mixtureComponents, int id) {
+        super(mixtureWeights, mixtureComponents, id);
+        this.gaussians = mixtureComponents[0].getPackedGaussians();
+        this.firstGaussian = mixtureComponents[0].getGaussian();
+        this.numGaussians = mixtureComponents.length;
+        for (int i = 0; i < numGaussians; i++) {
+            assert mixtureComponents[i].getPackedGaussians() == gaussians;
+            assert mixtureComponents[i].getGaussian() == firstGaussian + i;
+            gaussians.setLogWeight(firstGaussian + i, getLogComponentWeight(i));
+        }
+    }
+
+    @Override
+    public float calculateScore(Data feature) {
+        if (feature instanceof DoubleData)
+            System.err.println("DoubleData conversion required on mixture level!");
+
+        float[] featureVector = FloatData.toFloatData(feature).getValues();
+        return gaussians.score(featureVector, firstGaussian, numGaussians);
+    }
+
+    @Override
+    public float[] calculateComponentScore(Data feature) {
+        if (feature instanceof DoubleData)
+            System.err.println("DoubleData conversion required on mixture level!");
+
+        float[] featureVector = FloatData.toFloatData(feature).getValues();
+        float[] logComponentScore = new float[numGaussians];
+        gaussians.componentScores(featureVector, firstGaussian, logComponentScore);
+        return logComponentScore;
+    }
+
+    /**
+     * Transforms the mixture components again, which packs them, and copies
+     * the mixture weights into the packed storage. Has to be called after the
+     * means or variances were adapted.
+     */
+    public void repack() {
+        MixtureComponent[] components = getMixtureComponents();
+        for (int i = 0; i < numGaussians; i++) {
+            components[i].transformStats();
+            gaussians.setLogWeight(firstGaussian + i, getLogComponentWeight(i));
+        }
+    }
+}
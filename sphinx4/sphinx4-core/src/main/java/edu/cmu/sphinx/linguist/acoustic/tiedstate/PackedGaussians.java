@@ -0,0 +1,157 @@
+/*
+* Copyright 2014 Carnegie Mellon University.
+* All Rights Reserved.  Use is subject to license terms.
+*
+* See the file "license.terms" for information on usage and
+* redistribution of this file, and for a DISCLAIMER OF ALL
+* WARRANTIES.
+*
+*/
+
+package edu.cmu.sphinx.linguist.acoustic.tiedstate;
+
+import java.util.logging.Logger;
+
+import edu.cmu.sphinx.util.LogMath;
+
+/**
+ * Structure-of-arrays storage for the Gaussians of a continuous model.
+ * <p>
+ * Transformed means and precisions of all Gaussians are laid out in
+ * contiguous primitive arrays, components of one senone occupying
+ * consecutive slots. A senone is thus scored in a single tight loop over
+ * flat arrays which the JIT is able to unroll and vectorize, instead of
+ * visiting a separate {@link MixtureComponent} object for every Gaussian.
+ * <p>
+ * Scores are computed exactly as {@link MixtureComponent#getScore(float[])}
+ * and {@link GaussianMixture} do, so results are identical to the object
+ * based layout. All scores and weights are in LogMath log base.
+ */
+public class PackedGaussians {
+
+    private final int numGaussians;
+    private final int dimension;
+
+    /** means[gaussian * dimension + i] */
+    private final float[] means;
+    /** precisions[gaussian * dimension + i], already scaled by -1/2 */
+    private final float[] precisions;
+    private final float[] gaussianFactors;
+    private final float[] distFloors;
+    private final float[] logWeights;
+
+    private final LogMath logMath;
+
+    /**
+     * Creates empty storage for the given number of Gaussians.
+     *
+     * @param numGaussians total number of Gaussians in the model
+     * @param dimension dimension of the feature vectors
+     */
+    public PackedGaussians(int numGaussians, int dimension) {
+        this.numGaussians = numGaussians;
+        this.dimension = dimension;
+        means = new float[numGaussians * dimension];
+        precisions = new float[numGaussians * dimension];
+        gaussianFactors = new float[numGaussians];
+        distFloors = new float[numGaussians];
+        logWeights = new float[numGaussians];
+        logMath = LogMath.getLogMath();
+    }
+
+    /**
+     * Copies the transformed parameters of a mixture component into the given
+     * slot. Should be called again if the component is adapted.
+     *
+     * @param gaussian index of the slot
+     * @param component component to pack
+     */
+    public void put(int gaussian, MixtureComponent component) {
+        assert component.meanTransformed.length == dimension;
+        System.arraycopy(component.meanTransformed, 0, means, gaussian * dimension, dimension);
+        System.arraycopy(component.precisionTransformed, 0, precisions, gaussian * dimension, dimension);
+        gaussianFactors[gaussian] = component.logPreComputedGaussianFactor;
+        distFloors[gaussian] = component.distFloor;
+    }
+
+    /**
+     * Sets the mixture weight of the Gaussian in the given slot.
+     *
+     * @param gaussian index of the slot
+     * @param logWeight mixture weight of the component in LogMath log base
+     */
+    public void setLogWeight(int gaussian, float logWeight) {
+        logWeights[gaussian] = logWeight;
+    }
+
+    /**
+     * Computes the weighted sum of the given range of Gaussians, that is the
+     * score of a senone whose components start at <code>first</code>.
+     *
+     * @param feature the feature vector
+     * @param first index of the first Gaussian of the senone
+     * @param count number of Gaussians in the senone
+     * @return the senone score in LogMath log base
+     */
+    public float score(float[] feature, int first, int count) {
+        float logTotal = LogMath.LOG_ZERO;
+        for (int g = first; g < first + count; g++) {
+            // In linear form, this would be:
+            //
+            // Total += Mixture[i].score * MixtureWeight[i]
+            logTotal = logMath.addAsLinear(logTotal, gaussianScore(feature, g) + logWeights[g]);
+        }
+        return logTotal;
+    }
+
+    /**
+     * Computes weighted scores of the given range of Gaussians.
+     *
+     * @param feature the feature vector
+     * @param first index of the first Gaussian of the senone
+     * @param scores array to store <code>scores.length</code> component scores to
+     */
+    public void componentScores(float[] feature, int first, float[] scores) {
+        for (int i = 0; i < scores.length; i++)
+            scores[i] = gaussianScore(feature, first + i) + logWeights[first + i];
+    }
+
+    /**
+     * Computes the unweighted score of a single Gaussian, that is the score of
+     * its {@link MixtureComponent}.
+     *
+     * @param feature the feature vector
+     * @param gaussian index of the slot
+     * @return the score in LogMath log base
+     */
+    float gaussianScore(float[] feature, int gaussian) {
+        final float[] means = this.means;
+        final float[] precisions = this.precisions;
+        final int offset = gaussian * dimension;
+
+        float logDval = gaussianFactors[gaussian];
+        for (int i = 0; i < dimension; i++) {
+            float logDiff = feature[i] - means[offset + i];
+            logDval += logDiff * logDiff * precisions[offset + i];
+        }
+
+        logDval = logMath.lnToLog(logDval);
+        if (Float.isNaN(logDval))
+            logDval = LogMath.LOG_ZERO;
+        if (logDval < distFloors[gaussian])
+            logDval = distFloors[gaussian];
+        return logDval;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return numGaussians;
+    }
+
+    public void logInfo(Logger logger) {
+        logger.info("Packed gaussians. Entries: " + numGaussians + ", dimension: " + dimension);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+* Copyright 2014 Carnegie Mellon University.
+* All Rights Reserved.  Use is subject to license terms.
+*
+* See the file "license.terms" for information on usage and
+* redistribution of this file, and for a DISCLAIMER OF ALL
+* WARRANTIES.
+*
+*/
+
+package edu.cmu.sphinx.linguist.acoustic.tiedstate;
+
+/**
+ * Mixture component whose transformed mean and precision are kept in a slot
+ * of {@link PackedGaussians} only. The component packs its parameters
+ * whenever they are transformed and drops its own transformed arrays, so
+ * packing does not add to the memory of the model. The untransformed mean
+ * and variance stay referenced for adaptation.
+ * <p>
+ * Note that all scores and weights are in LogMath log base
+ */
+@SuppressWarnings("serial")
+public class PackedMixtureComponent extends MixtureComponent {
+
+    private final PackedGaussians gaussians;
+    private final int gaussian;
+
+    /**
+     * Create a MixtureComponent which is stored in the given packed slot.
+     *
+     * @param mean                         the mean vector for this PDF
+     * @param meanTransformationMatrix     transformation matrix for this pdf
+     * @param meanTransformationVector     transform vector for this PDF
+     * @param variance                     the variance for this PDF
+     * @param varianceTransformationMatrix var. transform matrix for this PDF
+     * @param varianceTransformationVector var. transform vector for this PDF
+     * @param distFloor                    the lowest score value (in linear domain)
+     * @param varianceFloor                the lowest value for the variance
+     * @param gaussians                    packed storage of the model
+     * @param gaussian                     index of the slot of this component
+     */
+    public PackedMixtureComponent(
+            float[] mean,
+            float[][] meanTransformationMatrix,
+            float[] meanTransformationVector,
+            float[] variance,
+            float[][] varianceTransformationMatrix,
+            float[] varianceTransformationVector,
+            float distFloor,
+            float varianceFloor,
+            PackedGaussians gaussians,
+            int gaussian) {
+        super(mean, meanTransformationMatrix, meanTransformationVector, variance,
+                varianceTransformationMatrix, varianceTransformationVector, distFloor, varianceFloor);
+        this.gaussians = gaussians;
+        this.gaussian = gaussian;
+        pack();
+    }
+
+    @Override
+    public float getScore(float[] feature) {
+        return gaussians.gaussianScore(feature, gaussian);
+    }
+
+    /** Applies transformations to means and variances and packs the result. */
+    @Override
+    public void transformStats() {
+        super.transformStats();
+        // the super constructor transforms before the storage is set
+        if (gaussians != null) {
+            logPreComputedGaussianFactor = super.precomputeDistance();
+            pack();
+        }
+    }
+
+    @Override
+    public float precomputeDistance() {
+        if (precisionTransformed == null)
+            return logPreComputedGaussianFactor;
+        return super.precomputeDistance();
+    }
+
+    /**
+     * Returns the packed storage of this component.
+     *
+     * @return the packed storage
+     */
+    public PackedGaussians getPackedGaussians() {
+        return gaussians;
+    }
+
+    /**
+     * Returns the index of the slot of this component in the packed storage.
+     *
+     * @return the slot index
+     */
+    public int getGaussian() {
+        return gaussian;
+    }
+
+    private void pack() {
+        gaussians.put(gaussian, this);
+        meanTransformed = null;
+        precisionTransformed = null;
+    }
+}
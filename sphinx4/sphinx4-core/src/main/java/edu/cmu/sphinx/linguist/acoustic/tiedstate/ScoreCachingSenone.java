@@ -1,33 +1,28 @@
 package edu.cmu.sphinx.linguist.acoustic.tiedstate;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 import edu.cmu.sphinx.frontend.Data;
 
 /**
- * Implements a Senone that contains a cache of the last scored data.
+ * Implements a Senone that caches the last scored data.
  * <p>
  * Subclasses should implement the abstract {@link #calculateScore} method,
  * which is called by the {@link #getScore} method to calculate the score
  * for each cache miss.
  * <p>
- * Note: this implementation is thread-safe and can be safely used
- * across different threads without external synchronization.
+ * Note: the cache is not kept in the senone itself but in the
+ * {@link ScoringScratch} of the current thread, so this implementation is
+ * thread-safe and the same senone can be scored by several decoders
+ * processing different data at the same time.
  *
  * @author Yaniv Kunda
  */
 @SuppressWarnings("serial")
 public abstract class ScoreCachingSenone implements Senone {
 
-    private class ScoreCache {
-        private final Data feature;
-        private final float score;
-
-        public ScoreCache(Data feature, float score) {
-            this.feature = feature;
-            this.score = score;
-        }
-    }
-
-    private volatile ScoreCache scoreCache = new ScoreCache(null, 0.0f);
+    private transient ScoringScratch.Slot scoreSlot = ScoringScratch.newSenoneSlot(this);
 
     /**
      * Gets the cached score for this senone based upon the given feature.
@@ -35,12 +30,7 @@ public abstract class ScoreCachingSenone implements Senone {
      * cached, and then returned.  
      */
     public float getScore(Data feature) {
-        ScoreCache cached = scoreCache;
-        if (feature != cached.feature) {
-            cached = new ScoreCache(feature, calculateScore(feature));
-            scoreCache = cached;
-        }
-        return cached.score;
+        return ScoringScratch.current().getScore(this, scoreSlot, feature);
     }
 
     /**
@@ -51,4 +41,9 @@ public abstract class ScoreCachingSenone implements Senone {
      */
     protected abstract float calculateScore(Data feature);
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        scoreSlot = ScoringScratch.newSenoneSlot(this);
+    }
+
 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.linguist.acoustic.tiedstate;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import edu.cmu.sphinx.frontend.Data;
+
+/**
+ * Mutable scoring state of a single decoder.
+ * <p>
+ * Senones and mixture component sets of an acoustic model are not modified
+ * while scoring, the last computed senone scores and the per-frame state of
+ * tied mixtures are kept here instead. This way one model can be used by
+ * several decoders processing different audio at the same time, each decoder
+ * using its own scratch.
+ * <p>
+ * The scratch used for scoring is looked up from the current thread. A scorer
+ * binds its scratch with {@link #bind} around the scoring of a frame, in every
+ * thread it scores in. Threads without a bound scratch use a private one, so
+ * a model used by a single thread works without any setup.
+ * <p>
+ * Entries are indexed by slots which senones and component sets obtain once
+ * on creation with {@link #newSenoneSlot} and {@link #newStateSlot}. The slot
+ * of a senone or set which was garbage collected is handed out again, so the
+ * scratch only grows with the number of senones alive at the same time and
+ * not with every model ever loaded. An entry left by the previous owner of a
+ * slot is not used, it is replaced on the next access.
+ * <p>
+ * Threads scoring for the same decoder may use a scratch concurrently. Cached
+ * senone scores are immutable, states stored by component sets have to
+ * synchronize themselves. An entry stored while another thread grows the
+ * scratch may get lost, which only means that it is computed again.
+ */
+public class ScoringScratch {
+
+    private static final SlotAllocator senoneSlots = new SlotAllocator();
+    private static final SlotAllocator stateSlots = new SlotAllocator();
+
+    private static final ThreadLocal<ScoringScratch> current = new ThreadLocal<ScoringScratch>() {
+        @Override
+        protected ScoringScratch initialValue() {
+            return new ScoringScratch();
+        }
+    };
+
+    /**
+     * The index of the entries of a senone or a component set in every
+     * scratch. Slots are compared by identity, so an entry of a slot which
+     * was handed out before is recognized even though the index is the same.
+     */
+    public static final class Slot {
+
+        private final int index;
+
+        private Slot(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+    }
+
+    private static class ScoreCache {
+        private final Slot slot;
+        private final Data feature;
+        private final float score;
+
+        public ScoreCache(Slot slot, Data feature, float score) {
+            this.slot = slot;
+            this.feature = feature;
+            this.score = score;
+        }
+    }
+
+    private static class StateEntry {
+        private final Slot slot;
+        private final Object state;
+
+        public StateEntry(Slot slot, Object state) {
+            this.slot = slot;
+            this.state = state;
+        }
+    }
+
+    private volatile ScoreCache[] scores = new ScoreCache[0];
+    private volatile StateEntry[] states = new StateEntry[0];
+    private volatile int scoresQueueLength;
+
+    /**
+     * Returns the scratch bound to the current thread.
+     *
+     * @return scoring scratch
+     */
+    public static ScoringScratch current() {
+        return current.get();
+    }
+
+    /**
+     * Makes the given scratch current for the calling thread.
+     *
+     * @param scratch scratch to use for scoring
+     * @return the previously current scratch, to be bound again when done
+     */
+    public static ScoringScratch bind(ScoringScratch scratch) {
+        ScoringScratch previous = current.get();
+        current.set(scratch);
+        return previous;
+    }
+
+    /**
+     * Returns a slot for the score of a senone, which is handed out again
+     * when the senone was garbage collected.
+     *
+     * @param senone the senone which keeps the slot
+     * @return a new slot for a senone score
+     */
+    public static Slot newSenoneSlot(Object senone) {
+        return senoneSlots.allocate(senone);
+    }
+
+    /**
+     * Returns a slot for the scoring state of an object, which is handed out
+     * again when the object was garbage collected.
+     *
+     * @param owner the object which keeps the slot
+     * @return a new slot for a scoring state
+     */
+    public static Slot newStateSlot(Object owner) {
+        return stateSlots.allocate(owner);
+    }
+
+    /**
+     * Gets the score of the senone for the given feature, calculating it if
+     * the senone was not yet scored against this feature.
+     *
+     * @param senone the senone to score
+     * @param slot the slot of the senone
+     * @param feature the feature to score
+     * @return the score in LogMath log base
+     */
+    float getScore(ScoreCachingSenone senone, Slot slot, Data feature) {
+        ScoreCache[] scores = this.scores;
+        int index = slot.index;
+        if (index >= scores.length)
+            scores = growScores(index + 1);
+
+        ScoreCache cached = scores[index];
+        if (cached == null || cached.slot != slot || cached.feature != feature) {
+            cached = new ScoreCache(slot, feature, senone.calculateScore(feature));
+            scores[index] = cached;
+        }
+        return cached.score;
+    }
+
+    /**
+     * Gets the state stored for the given slot.
+     *
+     * @param slot state slot
+     * @return the state or null if nothing was stored yet
+     */
+    public Object getState(Slot slot) {
+        StateEntry[] states = this.states;
+        StateEntry entry = slot.index < states.length ? states[slot.index] : null;
+        return entry != null && entry.slot == slot ? entry.state : null;
+    }
+
+    /**
+     * Stores the state for the given slot.
+     *
+     * @param slot state slot
+     * @param state the state to store
+     */
+    public void putState(Slot slot, Object state) {
+        StateEntry[] states = this.states;
+        if (slot.index >= states.length)
+            states = growStates(slot.index + 1);
+        states[slot.index] = new StateEntry(slot, state);
+    }
+
+    /**
+     * How long scores for previous frames should be kept by tied mixtures. For
+     * fast match this value is lookahead_window_length + 1.
+     *
+     * @param scoresQueueLength queue length
+     */
+    public void setScoresQueueLength(int scoresQueueLength) {
+        this.scoresQueueLength = scoresQueueLength;
+    }
+
+    public int getScoresQueueLength() {
+        return scoresQueueLength;
+    }
+
+    /**
+     * Drops all cached scores and states. Should be called on each new
+     * utterance.
+     */
+    public synchronized void clear() {
+        scores = new ScoreCache[scores.length];
+        states = new StateEntry[states.length];
+    }
+
+    private synchronized ScoreCache[] growScores(int minSize) {
+        if (scores.length < minSize)
+            scores = Arrays.copyOf(scores, Math.max(minSize, scores.length * 3 / 2));
+        return scores;
+    }
+
+    private synchronized StateEntry[] growStates(int minSize) {
+        if (states.length < minSize)
+            states = Arrays.copyOf(states, Math.max(minSize, states.length * 3 / 2));
+        return states;
+    }
+
+
+    /** Hands out the lowest free slot and takes back the slots of collected owners */
+    private static class SlotAllocator {
+
+        private final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+        private final Set<OwnerReference> owners = new HashSet<OwnerReference>();
+        private final BitSet free = new BitSet();
+        private int size;
+
+        synchronized Slot allocate(Object owner) {
+            Reference<?> reference;
+            while ((reference = collected.poll()) != null) {
+                owners.remove(reference);
+                free.set(((OwnerReference) reference).index);
+            }
+
+            int index = free.nextSetBit(0);
+            if (index < 0)
+                index = size++;
+            else
+                free.clear(index);
+            owners.add(new OwnerReference(owner, index, collected));
+            return new Slot(index);
+        }
+    }
+
+    private static class OwnerReference extends PhantomReference<Object> {
+
+        private final int index;
+
+        OwnerReference(Object owner, int index, ReferenceQueue<Object> queue) {
+            super(owner, queue);
+            this.index = index;
+        }
+    }
+}
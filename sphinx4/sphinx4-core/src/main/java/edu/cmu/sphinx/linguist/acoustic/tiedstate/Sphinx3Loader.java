@@ -94,6 +94,13 @@ public class Sphinx3Loader implements Loader {
     @S4Integer(defaultValue = 4)
     public final static String PROP_TOPN = "topGaussiansNum";
 
+    /**
+     * The property specifying whether Gaussians of a continuous model should
+     * be packed into contiguous arrays for faster scoring.
+     */
+    @S4Boolean(defaultValue = false)
+    public final static String PROP_PACKED_GAUSSIANS = "usePackedGaussians";
+
     protected final static String FILLER = "filler";
     protected final static String SILENCE_CIPHONE = "SIL";
     protected final static int BYTE_ORDER_MAGIC = 0x11223344;
@@ -124,6 +131,7 @@ public class Sphinx3Loader implements Loader {
     protected float[][] transformMatrix;
     private MixtureComponentSet[] phoneticTiedMixtures;
     protected Pool<Senone> senonePool;
+    private PackedGaussians packedGaussians;
 
     private Map<String, Unit> contextIndependentUnits;
     private HMMManager hmmManager;
@@ -145,6 +153,7 @@ public class Sphinx3Loader implements Loader {
     protected float varianceFloor;
     private int topGauNum;
     protected boolean useCDUnits;
+    protected boolean usePackedGaussians;
     private boolean loaded;
 
     public Sphinx3Loader(URL location,
@@ -167,6 +176,17 @@ public class Sphinx3Loader implements Loader {
                 Logger.getLogger(getClass().getName()));
     }
 
+    public Sphinx3Loader(URL location,
+            UnitManager unitManager, float distFloor, float mixtureWeightFloor,
+            float varianceFloor, int topGauNum, boolean useCDUnits,
+            boolean usePackedGaussians) {
+
+        init(location, unitManager, distFloor,
+                mixtureWeightFloor, varianceFloor, topGauNum, useCDUnits,
+                Logger.getLogger(getClass().getName()));
+        this.usePackedGaussians = usePackedGaussians;
+    }
+
     protected void init(URL location,
             UnitManager unitManager, float distFloor, float mixtureWeightFloor,
             float varianceFloor, int topGauNum, boolean useCDUnits, Logger logger) {
@@ -222,6 +242,7 @@ public class Sphinx3Loader implements Loader {
                 ps.getFloat(PROP_VARIANCE_FLOOR),
                 ps.getInt(PROP_TOPN),
                 ps.getBoolean(PROP_USE_CD_UNITS), ps.getLogger());
+        usePackedGaussians = ps.getBoolean(PROP_PACKED_GAUSSIANS);
     }
 
     // This function is a bit different from the
@@ -420,21 +441,46 @@ public class Sphinx3Loader implements Loader {
         float[] varianceTransformationVector = varianceTransformationVectorPool == null ? null
                 : varianceTransformationVectorPool.get(0);
 
+        boolean packed = usePackedGaussians && numStreams == 1;
+        if (usePackedGaussians && !packed)
+            logger.warning("Packed gaussians require single stream model, using regular senones");
+        if (packed)
+            packedGaussians = new PackedGaussians(numSenones * numGaussiansPerSenone,
+                    meansPool.get(0).length);
+
         for (int i = 0; i < numSenones; i++) {
-            MixtureComponent[] mixtureComponents = new MixtureComponent[numGaussiansPerSenone
-                    * numStreams];
+            MixtureComponent[] mixtureComponents = packed
+                    ? new PackedMixtureComponent[numGaussiansPerSenone]
+                    : new MixtureComponent[numGaussiansPerSenone * numStreams];
             for (int j = 0; j < numGaussiansPerSenone; j++) {
-                mixtureComponents[j] = new MixtureComponent(
-                        meansPool.get(whichGaussian),
-                        meansTransformationMatrix, meansTransformationVector,
-                        variancePool.get(whichGaussian),
-                        varianceTransformationMatrix,
-                        varianceTransformationVector, distFloor, varianceFloor);
+                if (packed) {
+                    // the transformed parameters are kept in the packed storage only
+                    mixtureComponents[j] = new PackedMixtureComponent(
+                            meansPool.get(whichGaussian),
+                            meansTransformationMatrix, meansTransformationVector,
+                            variancePool.get(whichGaussian),
+                            varianceTransformationMatrix,
+                            varianceTransformationVector, distFloor, varianceFloor,
+                            packedGaussians, whichGaussian);
+                } else {
+                    mixtureComponents[j] = new MixtureComponent(
+                            meansPool.get(whichGaussian),
+                            meansTransformationMatrix, meansTransformationVector,
+                            variancePool.get(whichGaussian),
+                            varianceTransformationMatrix,
+                            varianceTransformationVector, distFloor, varianceFloor);
+                }
 
                 whichGaussian++;
             }
 
-            Senone senone = new GaussianMixture(mixtureWeights, mixtureComponents, i);
+            Senone senone;
+            if (packed) {
+                senone = new PackedGaussianMixture(mixtureWeights,
+                        (PackedMixtureComponent[]) mixtureComponents, i);
+            } else {
+                senone = new GaussianMixture(mixtureWeights, mixtureComponents, i);
+            }
             pool.put(i, senone);
         }
         return pool;
@@ -1135,18 +1181,32 @@ public class Sphinx3Loader implements Loader {
         return result;
     }
     
+    /**
+     * Clears the tied mixture scores kept for the calling thread.
+     *
+     * @deprecated scoring state is kept by each scorer in its
+     *             {@link ScoringScratch}, which is cleared on
+     *             startRecognition. This only clears the scratch of the
+     *             calling thread.
+     */
+    @Deprecated
     public void clearGauScores() {
-        if (phoneticTiedMixtures == null)
-            return;
-        for (MixtureComponentSet mixture : phoneticTiedMixtures)
-            mixture.clearStoredScores();
+        ScoringScratch.current().clear();
     }
-    
+
+    /**
+     * Sets how long scores for previous frames are kept by tied mixtures
+     * scored in the calling thread.
+     *
+     * @param scoresQueueLen queue length
+     * @deprecated use
+     *             {@link ScoringScratch#setScoresQueueLength(int)} on the
+     *             scratch of the scorer. This only affects the scratch of the
+     *             calling thread.
+     */
+    @Deprecated
     public void setGauScoresQueueLength(int scoresQueueLen) {
-        if (phoneticTiedMixtures == null)
-            return;
-        for (MixtureComponentSet mixture : phoneticTiedMixtures)
-            mixture.setScoreQueueLength(scoresQueueLen);
+        ScoringScratch.current().setScoresQueueLength(scoresQueueLen);
     }
 
     public Pool<float[]> getMeansPool() {
@@ -1219,6 +1279,8 @@ public class Sphinx3Loader implements Loader {
 
         mixtureWeights.logInfo(logger);
         senonePool.logInfo(logger);
+        if (packedGaussians != null)
+            packedGaussians.logInfo(logger);
         logger.info("Context Independent Unit Entries: "
                 + contextIndependentUnits.size());
         hmmManager.logInfo(logger);
@@ -1259,5 +1321,18 @@ public class Sphinx3Loader implements Loader {
                 System.arraycopy(tmean, 0, mean, 0, tmean.length);
             }
         }
+
+        if (packedGaussians != null)
+            for (int i = 0; i < senonePool.size(); i++)
+                ((PackedGaussianMixture) senonePool.get(i)).repack();
+    }
+
+    /**
+     * Returns the packed gaussian storage of the senone pool.
+     *
+     * @return packed gaussians or null if senones are not packed
+     */
+    public PackedGaussians getPackedGaussians() {
+        return packedGaussians;
     }
 }
@@ -167,8 +167,8 @@ public class TiedStateAcousticModel implements AcousticModel {
      * @param exactMatch if true, only an exact match is acceptable.
      * @return the HMM that best matches, or null if no match could be found.
      */
-    public HMM lookupNearestHMM(Unit unit, HMMPosition position,
-                                boolean exactMatch) {
+    public synchronized HMM lookupNearestHMM(Unit unit, HMMPosition position,
+                                             boolean exactMatch) {
 
         if (exactMatch)
             return lookupHMM(unit, position);
@@ -12,63 +12,85 @@ package edu.cmu.sphinx.linguist.acoustic.tiedstate.tiedmixture;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.LinkedList;
 
 import edu.cmu.sphinx.frontend.Data;
 import edu.cmu.sphinx.frontend.DoubleData;
 import edu.cmu.sphinx.frontend.FloatData;
 import edu.cmu.sphinx.linguist.acoustic.tiedstate.MixtureComponent;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.ScoringScratch;
+import edu.cmu.sphinx.util.LogMath;
 
 /**
  * MixtureComponentsSet - phonetically tied set of gaussians
+ * <p>
+ * The set itself is immutable. The top gaussians tracked from frame to frame
+ * and the scores of recent frames are kept in the {@link ScoringScratch} of
+ * the decoder, so the set may be shared by concurrent decoders.
  */
 public class MixtureComponentSet {
     
-    private int scoresQueueLen;
-    private boolean toStoreScore;
-    private LinkedList<MixtureComponentSetScores> storedScores;
-    MixtureComponentSetScores curScores;
+    /** Per-decoder scoring state of the set */
+    private static class State {
+        // topIds[featureStreamIdx][i] ascending by score, with scores and partial scores
+        final int[][] topIds;
+        final float[][] topScores;
+        final float[][] topPartialScores;
+        final LinkedList<MixtureComponentSetScores> storedScores;
+        MixtureComponentSetScores curScores;
+        MixtureComponentSetScores allScores;
 
-    private ArrayList<PrunableMixtureComponent[]> components;
-    private ArrayList<PrunableMixtureComponent[]> topComponents;
-    private int numStreams;
-    private int topGauNum;
-    private int gauNum;
-    private long gauCalcSampleNumber;
+        State(int numStreams, int topGauNum) {
+            topIds = new int[numStreams][topGauNum];
+            topScores = new float[numStreams][topGauNum];
+            topPartialScores = new float[numStreams][topGauNum];
+            for (int i = 0; i < numStreams; i++) {
+                for (int j = 0; j < topGauNum; j++) {
+                    topIds[i][j] = j;
+                    topScores[i][j] = LogMath.LOG_ZERO;
+                    topPartialScores[i][j] = LogMath.LOG_ZERO;
+                }
+            }
+            storedScores = new LinkedList<MixtureComponentSetScores>();
+        }
+    }
+
+    private final ArrayList<PrunableMixtureComponent[]> components;
+    private final int numStreams;
+    private final int topGauNum;
+    private final int gauNum;
+    private final ScoringScratch.Slot stateSlot;
     
     public MixtureComponentSet(ArrayList<PrunableMixtureComponent[]> components, int topGauNum) {
         this.components = components;
         this.numStreams = components.size();
         this.topGauNum = topGauNum;
         this.gauNum = components.get(0).length;
-        topComponents = new ArrayList<PrunableMixtureComponent[]>();
-        for (int i = 0; i < numStreams; i++) {
-            PrunableMixtureComponent[] featTopComponents = new PrunableMixtureComponent[topGauNum];
-            for (int j = 0; j < topGauNum; j++)
-                featTopComponents[j] = components.get(i)[j];
-            topComponents.add(featTopComponents);
+        this.stateSlot = ScoringScratch.newStateSlot(this);
+    }
+    
+    private State getState(ScoringScratch scratch) {
+        State state = (State) scratch.getState(stateSlot);
+        if (state == null) {
+            state = new State(numStreams, topGauNum);
+            scratch.putState(stateSlot, state);
         }
-        gauCalcSampleNumber = -1;
-        toStoreScore = false;
-        storedScores = new LinkedList<MixtureComponentSetScores>();
-        curScores = null;
+        return state;
     }
     
-    private void storeScores(MixtureComponentSetScores scores) {
-        storedScores.add(scores);
-        while(storedScores.size() > scoresQueueLen)
-            storedScores.poll();
+    private void storeScores(State state, MixtureComponentSetScores scores, int scoresQueueLen) {
+        state.storedScores.add(scores);
+        while(state.storedScores.size() > scoresQueueLen)
+            state.storedScores.poll();
     }
     
-    private MixtureComponentSetScores getStoredScores(long frameFirstSample) {
-        if (storedScores.isEmpty())
+    private MixtureComponentSetScores getStoredScores(State state, long frameFirstSample) {
+        if (state.storedScores.isEmpty())
             return null;
-        if (storedScores.peekLast().getFrameStartSample() < frameFirstSample)
+        if (state.storedScores.peekLast().getFrameStartSample() < frameFirstSample)
             //new frame
             return null;
-        for (MixtureComponentSetScores scores : storedScores) {
+        for (MixtureComponentSetScores scores : state.storedScores) {
             if (scores.getFrameStartSample() == frameFirstSample)
                 return scores;
         }
@@ -76,127 +98,200 @@ public class MixtureComponentSet {
         return null;
     }
     
-    private MixtureComponentSetScores createFromTopGau(long firstFrameSample) {
+    private MixtureComponentSetScores createFromTopGau(State state, long firstFrameSample) {
         MixtureComponentSetScores scores = new MixtureComponentSetScores(numStreams, topGauNum, firstFrameSample);
         for (int i = 0; i < numStreams; i++) {
             for (int j = 0; j < topGauNum; j++) {
-                scores.setScore(i, j, topComponents.get(i)[j].getStoredScore());
-                scores.setGauId(i, j, topComponents.get(i)[j].getId());
+                scores.setScore(i, j, state.topScores[i][j]);
+                scores.setGauId(i, j, components.get(i)[state.topIds[i][j]].getId());
             }
         }
         return scores;
     }
     
-    private void insertTopComponent(PrunableMixtureComponent[] topComponents, PrunableMixtureComponent component) {
+    private void setTop(int[] ids, float[] scores, float[] partialScores, int to, int from) {
+        ids[to] = ids[from];
+        scores[to] = scores[from];
+        partialScores[to] = partialScores[from];
+    }
+    
+    private void insertTopComponent(int[] ids, float[] scores, float[] partialScores,
+                                    int id, float score, float partialScore) {
         int i;
-        for (i = 0; i < topComponents.length - 1; i++) {
-            if (component.getPartialScore() < topComponents[i].getPartialScore()) {
-                topComponents[i - 1] = component;
+        int last = ids.length - 1;
+        for (i = 0; i < last; i++) {
+            if (partialScore < partialScores[i]) {
+                ids[i - 1] = id;
+                scores[i - 1] = score;
+                partialScores[i - 1] = partialScore;
                 return;
             }
-            topComponents[i] = topComponents[i + 1];
+            setTop(ids, scores, partialScores, i, i + 1);
         }
-        if (component.getPartialScore() < topComponents[topComponents.length - 1].getPartialScore())
-            topComponents[topComponents.length - 2] = component;
-        else
-            topComponents[topComponents.length - 1] = component;
+        int slot = partialScore < partialScores[last] ? last - 1 : last;
+        ids[slot] = id;
+        scores[slot] = score;
+        partialScores[slot] = partialScore;
     }
     
-    private boolean isInTopComponents(PrunableMixtureComponent[] topComponents, PrunableMixtureComponent component) {
-        for (PrunableMixtureComponent topComponent : topComponents)
-            if (topComponent.getId() == component.getId())
+    private boolean isInTopComponents(int[] ids, int id) {
+        for (int topId : ids)
+            if (topId == id)
                 return true;
         return false;
     }
     
-    private void updateTopScores(float[] featureVector) {
+    /** Stable insertion sort of the top components by ascending score */
+    private void sortTopComponents(int[] ids, float[] scores, float[] partialScores) {
+        for (int i = 1; i < ids.length; i++) {
+            int id = ids[i];
+            float score = scores[i];
+            float partialScore = partialScores[i];
+            int j = i - 1;
+            while (j >= 0 && (int) (scores[j] - score) > 0) {
+                setTop(ids, scores, partialScores, j + 1, j);
+                j--;
+            }
+            ids[j + 1] = id;
+            scores[j + 1] = score;
+            partialScores[j + 1] = partialScore;
+        }
+    }
+    
+    private void updateTopScores(State state, float[] featureVector) {
         int step = featureVector.length / numStreams;        
         
         float[] streamVector = new float[step];
         for (int i = 0; i < numStreams; i++) {
             System.arraycopy(featureVector, i * step, streamVector, 0, step);
-            PrunableMixtureComponent[] featTopComponents = topComponents.get(i);
+            int[] topIds = state.topIds[i];
+            float[] topScores = state.topScores[i];
+            float[] topPartialScores = state.topPartialScores[i];
             PrunableMixtureComponent[] featComponents = components.get(i);
             
             //update scores in top gaussians from previous frame
-            for (PrunableMixtureComponent topComponent : featTopComponents)
-                topComponent.updateScore(streamVector);
-            Arrays.sort(featTopComponents, componentComparator);
+            for (int j = 0; j < topGauNum; j++) {
+                PrunableMixtureComponent topComponent = featComponents[topIds[j]];
+                topPartialScores[j] = topComponent.getPartialScore(streamVector);
+                topScores[j] = topComponent.convertScore(topPartialScores[j]);
+            }
+            sortTopComponents(topIds, topScores, topPartialScores);
             
             //Check if there is any gaussians that should float into top
-            float threshold = featTopComponents[0].getPartialScore();    
-            for (PrunableMixtureComponent component : featComponents) {
-                if (isInTopComponents(featTopComponents, component))
+            float threshold = topPartialScores[0];
+            for (int j = 0; j < featComponents.length; j++) {
+                if (isInTopComponents(topIds, j))
                     continue;
-                if (component.isTopComponent(streamVector, threshold)) {
-                    insertTopComponent(featTopComponents, component);
-                    threshold = featTopComponents[0].getPartialScore();
+                float partialScore = featComponents[j].getPartialScore(streamVector, threshold);
+                if (partialScore >= threshold) {
+                    insertTopComponent(topIds, topScores, topPartialScores, j,
+                            featComponents[j].convertScore(partialScore), partialScore);
+                    threshold = topPartialScores[0];
                 }
             }
         }
     }
     
-    public void updateTopScores(Data feature) {
+    /**
+     * Updates the top gaussians of the current decoder for the given frame,
+     * unless this was already done.
+     *
+     * @param feature the frame to score
+     * @return the scores and ids of the top gaussians for the frame
+     */
+    public MixtureComponentSetScores updateTopScores(Data feature) {
         
         if (feature instanceof DoubleData)
             System.err.println("DoubleData conversion required on mixture level!");
         
+        ScoringScratch scratch = ScoringScratch.current();
+        int scoresQueueLen = scratch.getScoresQueueLength();
+        State state = getState(scratch);
         long firstSampleNumber = FloatData.toFloatData(feature).getFirstSampleNumber();
-        if (toStoreScore) {
-            curScores = getStoredScores(firstSampleNumber);
-        } else {
-            if (curScores != null && curScores.getFrameStartSample() != firstSampleNumber)
-                curScores = null;
+        synchronized (state) {
+            if (scoresQueueLen > 0) {
+                state.curScores = getStoredScores(state, firstSampleNumber);
+            } else {
+                if (state.curScores != null && state.curScores.getFrameStartSample() != firstSampleNumber)
+                    state.curScores = null;
+            }
+            if (state.curScores != null)
+                //component scores for this frame was already calculated
+                return state.curScores;
+            float[] featureVector = FloatData.toFloatData(feature).getValues();
+            updateTopScores(state, featureVector);
+            //store just calculated score in list
+            state.curScores = createFromTopGau(state, firstSampleNumber);
+            if (scoresQueueLen > 0)
+                storeScores(state, state.curScores, scoresQueueLen);
+            return state.curScores;
         }
-        if (curScores != null)
-            //component scores for this frame was already calculated
-            return;
-        float[] featureVector = FloatData.toFloatData(feature).getValues();
-        updateTopScores(featureVector);
-        //store just calculated score in list
-        curScores = createFromTopGau(firstSampleNumber);
-        if (toStoreScore)
-            storeScores(curScores);
     }
     
-    private void updateScores(float[] featureVector) {
+    private MixtureComponentSetScores calculateScores(float[] featureVector, long firstSampleNumber) {
+        MixtureComponentSetScores scores = new MixtureComponentSetScores(numStreams, gauNum, firstSampleNumber);
         int step = featureVector.length / numStreams;
         float[] streamVector = new float[step];
         for (int i = 0; i < numStreams; i++) {
             System.arraycopy(featureVector, i * step, streamVector, 0, step);
-            for (PrunableMixtureComponent component : components.get(i)) {
-                component.updateScore(streamVector);
+            PrunableMixtureComponent[] featComponents = components.get(i);
+            for (int j = 0; j < gauNum; j++) {
+                PrunableMixtureComponent component = featComponents[j];
+                scores.setScore(i, j, component.convertScore(component.getPartialScore(streamVector)));
+                scores.setGauId(i, j, component.getId());
             }
         }
+        return scores;
     }
     
-    public void updateScores(Data feature) {
+    /**
+     * Scores all gaussians of the set for the given frame, unless this was
+     * already done by the current decoder.
+     *
+     * @param feature the frame to score
+     * @return the scores and ids of all gaussians for the frame
+     */
+    public MixtureComponentSetScores updateScores(Data feature) {
         if (feature instanceof DoubleData)
             System.err.println("DoubleData conversion required on mixture level!");
         
+        State state = getState(ScoringScratch.current());
         long firstSampleNumber = FloatData.toFloatData(feature).getFirstSampleNumber();
-        if (gauCalcSampleNumber != firstSampleNumber) {
-            float[] featureVector = FloatData.toFloatData(feature).getValues();
-            updateScores(featureVector);
-            gauCalcSampleNumber = firstSampleNumber;
+        synchronized (state) {
+            if (state.allScores == null || state.allScores.getFrameStartSample() != firstSampleNumber) {
+                float[] featureVector = FloatData.toFloatData(feature).getValues();
+                state.allScores = calculateScores(featureVector, firstSampleNumber);
+            }
+            return state.allScores;
         }
     }
     
     /**
      * Should be called on each new utterance to scores for old frames
+     *
+     * @deprecated the scores are kept in the {@link ScoringScratch} of the
+     *             scorer, which is cleared on startRecognition. This only
+     *             clears the scores of the scratch of the calling thread.
      */
+    @Deprecated
     public void clearStoredScores() {
-        storedScores.clear();
+        State state = getState(ScoringScratch.current());
+        synchronized (state) {
+            state.storedScores.clear();
+        }
     }
     
     /**
      * How long scores for previous frames should be stored.
      * For fast match this value is lookahead_window_length + 1)
      * @param scoresQueueLen queue length
+     * @deprecated use {@link ScoringScratch#setScoresQueueLength(int)} on
+     *             the scratch of the scorer. This only affects the scratch of
+     *             the calling thread.
      */
+    @Deprecated
     public void setScoreQueueLength(int scoresQueueLen) {
-        toStoreScore = scoresQueueLen > 0;
-        this.scoresQueueLen = scoresQueueLen;
+        ScoringScratch.current().setScoresQueueLength(scoresQueueLen);
     }
     
     public int getTopGauNum() {
@@ -207,20 +302,48 @@ public class MixtureComponentSet {
         return gauNum;
     }
     
+    /**
+     * @param streamId stream index
+     * @param topGauId index among the top gaussians
+     * @return score of the top gaussian of the last frame of the calling thread
+     * @deprecated use the scores returned by {@link #updateTopScores(Data)}
+     */
+    @Deprecated
     public float getTopGauScore(int streamId, int topGauId) {
-        return curScores.getScore(streamId, topGauId);
+        return getState(ScoringScratch.current()).curScores.getScore(streamId, topGauId);
     }
     
+    /**
+     * @param streamId stream index
+     * @param topGauId index among the top gaussians
+     * @return id of the top gaussian of the last frame of the calling thread
+     * @deprecated use the scores returned by {@link #updateTopScores(Data)}
+     */
+    @Deprecated
     public int getTopGauId(int streamId, int topGauId) {
-        return curScores.getGauId(streamId, topGauId);
+        return getState(ScoringScratch.current()).curScores.getGauId(streamId, topGauId);
     }
     
-    public float getGauScore(int streamId, int topGauId) {
-        return components.get(streamId)[topGauId].getStoredScore();
+    /**
+     * @param streamId stream index
+     * @param gauId gaussian index
+     * @return score of the gaussian of the last frame of the calling thread
+     * @deprecated use the scores returned by {@link #updateScores(Data)}
+     */
+    @Deprecated
+    public float getGauScore(int streamId, int gauId) {
+        return getState(ScoringScratch.current()).allScores.getScore(streamId, gauId);
     }
     
-    public int getGauId(int streamId, int topGauId) {
-        return components.get(streamId)[topGauId].getId();
+    /**
+     * @param streamId stream index
+     * @param gauId gaussian index
+     * @return id of the gaussian
+     * @deprecated use the scores returned by {@link #updateScores(Data)}
+     */
+    @Deprecated
+    public int getGauId(int streamId, int gauId) {
+        return components.get(streamId)[gauId].getId();
     }
     
     private <T> T[] concatenate (T[] A, T[] B) {
@@ -258,11 +381,4 @@ public class MixtureComponentSet {
         return size;
     }
     
-    private Comparator<PrunableMixtureComponent> componentComparator = new Comparator<PrunableMixtureComponent>() {
-
-        public int compare(PrunableMixtureComponent a, PrunableMixtureComponent b) {
-            return (int)(a.getStoredScore() - b.getStoredScore());
-        }
-    };
-    
 }
@@ -15,14 +15,17 @@ import edu.cmu.sphinx.util.LogMath;
 
 /**
  * Mixture component with partial score computation result.
- * Allows to skip score computing if temporary score reaches provided threshold
+ * Allows to skip score computing if temporary score reaches provided threshold.
+ * The component keeps no scoring state, computed scores are returned to
+ * the caller.
  */
 @SuppressWarnings("serial")
 public class PrunableMixtureComponent extends MixtureComponent {
 
+    private int id;
+    // only written by the deprecated stateful methods
     private float score = LogMath.LOG_ZERO;
     private float partScore = LogMath.LOG_ZERO;
-    private int id;
     
     public PrunableMixtureComponent(
             float[] mean,
@@ -38,7 +41,13 @@ public class PrunableMixtureComponent extends MixtureComponent {
         this.id = id;
     }
     
-    private float convertScore(float val) {
+    /**
+     * Converts the partial score to the score of this component.
+     *
+     * @param val partial score
+     * @return the score in LogMath log base
+     */
+    public float convertScore(float val) {
         // Convert to the appropriate base.
         val = LogMath.getLogMath().lnToLog(val);
 
@@ -56,7 +65,16 @@ public class PrunableMixtureComponent extends MixtureComponent {
         return val;
     }
     
-    public boolean isTopComponent(float[] feature, float threshold) {
+    /**
+     * Computes the partial score, stopping as soon as it falls below the
+     * threshold.
+     *
+     * @param feature the feature vector
+     * @param threshold the partial score the component has to reach
+     * @return the partial score, or a value below the threshold if the
+     *         component does not reach it
+     */
+    public float getPartialScore(float[] feature, float threshold) {
 
         float logDval = logPreComputedGaussianFactor;
 
@@ -68,15 +86,20 @@ public class PrunableMixtureComponent extends MixtureComponent {
             float logDiff = feature[i] - meanTransformed[i];
             logDval += logDiff * logDiff * precisionTransformed[i];
             if (logDval < threshold)
-                return false;
+                return logDval;
         }
         
-        partScore = logDval;  
-        score = convertScore(logDval);
-        return true;
+        return logDval;
     }
     
-    public void updateScore(float[] feature) {
+    /**
+     * Computes the partial score, that is the score before conversion to
+     * LogMath base and flooring.
+     *
+     * @param feature the feature vector
+     * @return the partial score
+     */
+    public float getPartialScore(float[] feature) {
         
         float logDval = logPreComputedGaussianFactor;
 
@@ -89,14 +112,53 @@ public class PrunableMixtureComponent extends MixtureComponent {
             logDval += logDiff * logDiff * precisionTransformed[i];
         }
         
-        partScore = logDval;  
+        return logDval;
+    }
+    
+    /**
+     * @param feature the feature vector
+     * @param threshold the partial score the component has to reach
+     * @return true if the component reaches the threshold
+     * @deprecated use {@link #getPartialScore(float[], float)}. The scores
+     *             stored by this method are not safe to use when the model
+     *             is shared by several decoders.
+     */
+    @Deprecated
+    public boolean isTopComponent(float[] feature, float threshold) {
+        float logDval = getPartialScore(feature, threshold);
+        if (logDval < threshold)
+            return false;
+        partScore = logDval;
         score = convertScore(logDval);
+        return true;
+    }
+    
+    /**
+     * @param feature the feature vector
+     * @deprecated use {@link #getPartialScore(float[])}. The scores stored by
+     *             this method are not safe to use when the model is shared by
+     *             several decoders.
+     */
+    @Deprecated
+    public void updateScore(float[] feature) {
+        partScore = getPartialScore(feature);
+        score = convertScore(partScore);
     }
     
+    /**
+     * @return the score stored by the last call of a deprecated method
+     * @deprecated use {@link #convertScore(float)} of the partial score
+     */
+    @Deprecated
     public float getStoredScore() {
         return score;
     }
     
+    /**
+     * @return the partial score stored by the last call of a deprecated method
+     * @deprecated use {@link #getPartialScore(float[])}
+     */
+    @Deprecated
     public float getPartialScore() {
         return partScore;
     }
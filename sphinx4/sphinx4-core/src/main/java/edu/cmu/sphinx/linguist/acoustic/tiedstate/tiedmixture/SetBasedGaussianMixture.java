@@ -35,13 +35,13 @@ public class SetBasedGaussianMixture extends GaussianMixture {
 
     @Override
     public float calculateScore(Data feature) { 
-        mixtureComponentSet.updateTopScores(feature);
+        MixtureComponentSetScores topScores = mixtureComponentSet.updateTopScores(feature);
         float ascore = 0;
         for (int i = 0; i < mixtureWeights.getStreamsNum(); i++) {
             float logTotal = LogMath.LOG_ZERO;
             for (int j = 0; j < mixtureComponentSet.getTopGauNum(); j++) {
-                float gauScore = mixtureComponentSet.getTopGauScore(i, j);
-                int gauId = mixtureComponentSet.getTopGauId(i, j);
+                float gauScore = topScores.getScore(i, j);
+                int gauId = topScores.getGauId(i, j);
                 logTotal = logMath.addAsLinear(logTotal, gauScore + mixtureWeights.get(id, i, gauId));
             }
             ascore += logTotal;
@@ -57,12 +57,12 @@ public class SetBasedGaussianMixture extends GaussianMixture {
      */
     @Override
     public float[] calculateComponentScore(Data feature) {
-        mixtureComponentSet.updateScores(feature);
+        MixtureComponentSetScores gauScores = mixtureComponentSet.updateScores(feature);
         float[] scores = new float[mixtureComponentSet.size()];
         int scoreIdx = 0;
         for (int i = 0; i < mixtureWeights.getStreamsNum(); i++) {
             for (int j = 0; j < mixtureComponentSet.getGauNum(); j++) {
-                scores[scoreIdx++] = mixtureComponentSet.getGauScore(i, j) + mixtureWeights.get(id, i, mixtureComponentSet.getGauId(i, j));
+                scores[scoreIdx++] = gauScores.getScore(i, j) + mixtureWeights.get(id, i, gauScores.getGauId(i, j));
             }
         }
         return scores;
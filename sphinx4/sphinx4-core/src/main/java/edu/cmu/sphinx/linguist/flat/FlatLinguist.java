@@ -11,6 +11,7 @@
  */
 package edu.cmu.sphinx.linguist.flat;
 
+import edu.cmu.sphinx.linguist.ConcurrentSearchGraph;
 import edu.cmu.sphinx.linguist.Linguist;
 import edu.cmu.sphinx.linguist.SearchGraph;
 import edu.cmu.sphinx.linguist.SearchState;
@@ -393,7 +394,9 @@ public class FlatLinguist implements Linguist, Configurable {
         }
         nodeStateMap = null;
         arcPool = null;
-        return SentenceHMMState.collectStates(initialState);
+        Set<SentenceHMMState> states = SentenceHMMState.collectStates(initialState);
+        SentenceHMMState.indexStates(states);
+        return states;
     }
 
 
@@ -485,9 +488,12 @@ public class FlatLinguist implements Linguist, Configurable {
 
 
     /**
-     * The search graph that is produced by the flat linguist.
+     * The search graph that is produced by the flat linguist. All states are
+     * connected when the grammar is compiled, and collecting the states builds
+     * the successor array of every state, so the successors can be taken on
+     * several threads.
      */
-    protected class FlatSearchGraph implements SearchGraph {
+    protected class FlatSearchGraph implements ConcurrentSearchGraph {
 
         /**
          * An array of classes that represents the order in which the states will be returned.
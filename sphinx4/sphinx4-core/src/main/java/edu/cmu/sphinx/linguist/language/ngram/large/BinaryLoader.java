@@ -21,6 +21,9 @@ import edu.cmu.sphinx.util.LogMath;
 import edu.cmu.sphinx.util.Utilities;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
@@ -44,6 +47,9 @@ public class BinaryLoader {
     
     private static final int LOG2_NGRAM_SEGMENT_SIZE = 9;
     
+    private static final long MAPPED_REGION_SIZE = 1L << 30;
+    private static final long MAPPED_REGION_OVERLAP = 1L << 24;
+
     private static final float MIN_PROBABILITY = -99.0f;
     private static final int MAX_PROB_TABLE_SIZE = java.lang.Integer.MAX_VALUE;
 
@@ -76,6 +82,7 @@ public class BinaryLoader {
     private float[][] NGramBackoffTable;
 
     private RandomAccessFile file;
+    private MappedByteBuffer[] mappedRegions;
 
     // Bytes multiplier for LM (2 = 16 bits, 4 = 32 bits)
     private int bytesPerField;
@@ -123,6 +130,7 @@ public class BinaryLoader {
     }
 
     public void deallocate() throws IOException {
+        mappedRegions = null;
         if (null != file)
             file.close();
     }
@@ -378,6 +386,80 @@ public class BinaryLoader {
     }
 
 
+    /**
+     * Returns a view of the given part of the file without copying it. The
+     * NGram part of the file is mapped into memory on the first call, in
+     * overlapping regions of about 1GB, so that views of NGram followers never
+     * need a mapping of their own unless they are very large.
+     *
+     * @param position the starting position in the file
+     * @param size     the number of bytes to view
+     * @return the buffer with the requested bytes
+     * @throws java.io.IOException if mapping failed
+     */
+    public ByteBuffer mapBuffer(long position, int size) throws IOException {
+        MappedByteBuffer[] regions = getMappedRegions();
+        long start = NGramOffset[1];
+        int region = (int) ((position - start) / MAPPED_REGION_SIZE);
+        long offset = position - start - region * MAPPED_REGION_SIZE;
+
+        if (region < regions.length && offset + size <= regions[region].capacity()) {
+            ByteBuffer buffer = regions[region].duplicate();
+            buffer.position((int) offset);
+            buffer.limit((int) offset + size);
+            return buffer.slice();
+        }
+        return file.getChannel().map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+
+    private synchronized MappedByteBuffer[] getMappedRegions() throws IOException {
+        if (mappedRegions == null) {
+            FileChannel channel = file.getChannel();
+            long start = NGramOffset[1];
+            long end = channel.size();
+            int numRegions = (int) ((end - start + MAPPED_REGION_SIZE - 1) / MAPPED_REGION_SIZE);
+            MappedByteBuffer[] regions = new MappedByteBuffer[numRegions];
+            for (int i = 0; i < numRegions; i++) {
+                long regionStart = start + i * MAPPED_REGION_SIZE;
+                long regionSize = Math.min(end - regionStart, MAPPED_REGION_SIZE + MAPPED_REGION_OVERLAP);
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionSize);
+            }
+            mappedRegions = regions;
+        }
+        return mappedRegions;
+    }
+
+
+    /**
+     * Asks the operating system to read all bigrams of the file into the page
+     * cache in the background, so that later lookups of bigram followers of
+     * any vocabulary word do not wait for the disk.
+     */
+    public void prefetchBigrams() {
+        if (file == null)
+            return;
+        final long start = NGramOffset[1];
+        final long size = (long) (numberNGrams[1] + 1) * LargeNGramModel.BYTES_PER_NGRAM * getBytesPerField();
+        final FileChannel channel = file.getChannel();
+        Thread prefetcher = new Thread("LM bigram prefetch") {
+            @Override
+            public void run() {
+                try {
+                    for (long position = start; position < start + size; position += MAPPED_REGION_SIZE) {
+                        long length = Math.min(MAPPED_REGION_SIZE, start + size - position);
+                        channel.map(FileChannel.MapMode.READ_ONLY, position, length).load();
+                    }
+                } catch (IOException e) {
+                    // prefetch is only a hint, the data is read on demand anyway
+                }
+            }
+        };
+        prefetcher.setDaemon(true);
+        prefetcher.start();
+    }
+
+
     /**
      * Loads the language model from the given file.
      *
@@ -19,6 +19,7 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
 
 /**
  * Language model that reads whole model into memory. Useful
@@ -71,4 +72,9 @@ public class BinaryStreamLoader extends BinaryLoader {
         System.arraycopy(modelData, (int)position, result, 0, size);
         return result;
     }
+
+    @Override
+    public ByteBuffer mapBuffer(long position, int size) throws IOException {
+        return ByteBuffer.wrap(modelData, (int)position, size);
+    }
 }
@@ -17,6 +17,7 @@ package edu.cmu.sphinx.linguist.language.ngram.large;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -26,6 +27,7 @@ import edu.cmu.sphinx.linguist.dictionary.Dictionary;
 import edu.cmu.sphinx.linguist.dictionary.Word;
 import edu.cmu.sphinx.linguist.language.ngram.LanguageModel;
 import edu.cmu.sphinx.linguist.util.LRUCache;
+import edu.cmu.sphinx.linguist.util.LongFloatCache;
 import edu.cmu.sphinx.util.LogMath;
 import edu.cmu.sphinx.util.TimerPool;
 import edu.cmu.sphinx.util.props.*;
@@ -75,6 +77,21 @@ public class LargeNGramModel implements LanguageModel {
     @S4Boolean(defaultValue = false)
     public final static String PROP_FULL_SMEAR = "fullSmear";
 
+    /**
+     * The property that controls whether NGrams are read from a memory mapped
+     * model file instead of being copied into the heap for every N-1Gram
+     */
+    @S4Boolean(defaultValue = false)
+    public final static String PROP_MEMORY_MAPPED = "memoryMapped";
+
+    /**
+     * The property that controls whether all bigrams are read into the page
+     * cache in the background after the model is loaded. Useful only for
+     * memory mapped models.
+     */
+    @S4Boolean(defaultValue = false)
+    public final static String PROP_PREFETCH_BIGRAMS = "prefetchBigrams";
+
     /**
      * The number of bytes per N-gram in the LM file generated by the
      * CMU-Cambridge Statistical Language Modeling Toolkit.
@@ -96,6 +113,8 @@ public class LargeNGramModel implements LanguageModel {
     protected boolean clearCacheAfterUtterance;
 
     protected boolean fullSmear;
+    protected boolean memoryMapped;
+    protected boolean prefetchBigrams;
 
     protected Dictionary dictionary;
     protected String format;
@@ -123,7 +142,9 @@ public class LargeNGramModel implements LanguageModel {
     // --------------------------------
     private Map<Word, UnigramProbability> unigramIDMap;
     private Map<WordSequence, NGramBuffer>[] loadedNGramBuffers;
-    private LRUCache<WordSequence, Float> ngramProbCache;
+    private LongFloatCache ngramProbCache;
+    private LRUCache<WordSequence, Float> sequenceProbCache;
+    private int cacheKeyBits;
     private Map<Long, Float> bigramSmearMap;
 
     private NGramBuffer[] loadedBigramBuffers;
@@ -138,6 +159,18 @@ public class LargeNGramModel implements LanguageModel {
             int maxDepth, Dictionary dictionary,
             boolean applyLanguageWeightAndWip, float languageWeight,
             double wip, float unigramWeight, boolean fullSmear) {
+        this(format, location, ngramLogFile, maxNGramCacheSize,
+                clearCacheAfterUtterance, maxDepth, dictionary,
+                applyLanguageWeightAndWip, languageWeight, wip, unigramWeight,
+                fullSmear, false, false);
+    }
+
+    public LargeNGramModel(String format, URL location, String ngramLogFile,
+            int maxNGramCacheSize, boolean clearCacheAfterUtterance,
+            int maxDepth, Dictionary dictionary,
+            boolean applyLanguageWeightAndWip, float languageWeight,
+            double wip, float unigramWeight, boolean fullSmear,
+            boolean memoryMapped, boolean prefetchBigrams) {
         logger = Logger.getLogger(getClass().getName());
         this.format = format;
         this.location = location;
@@ -152,6 +185,8 @@ public class LargeNGramModel implements LanguageModel {
         this.wip = wip;
         this.unigramWeight = unigramWeight;
         this.fullSmear = fullSmear;
+        this.memoryMapped = memoryMapped;
+        this.prefetchBigrams = prefetchBigrams;
     }
 
     public LargeNGramModel() {
@@ -179,6 +214,8 @@ public class LargeNGramModel implements LanguageModel {
         wip = ps.getDouble(PROP_WORD_INSERTION_PROBABILITY);
         unigramWeight = ps.getFloat(PROP_UNIGRAM_WEIGHT);
         fullSmear = ps.getBoolean(PROP_FULL_SMEAR);
+        memoryMapped = ps.getBoolean(PROP_MEMORY_MAPPED);
+        prefetchBigrams = ps.getBoolean(PROP_PREFETCH_BIGRAMS);
     }
 
     /*
@@ -232,7 +269,6 @@ public class LargeNGramModel implements LanguageModel {
             }
         }
 
-        ngramProbCache = new LRUCache<WordSequence, Float>(ngramCacheSize);
         if (dictionary != null)
             buildUnigramIDMap(dictionary);
         else
@@ -242,10 +278,20 @@ public class LargeNGramModel implements LanguageModel {
         if (maxDepth <= 0 || maxDepth > loader.getMaxDepth())
             maxDepth = loader.getMaxDepth();
 
+        cacheKeyBits = LongFloatCache.getKeyBits(unigrams.length, maxDepth);
+        if (cacheKeyBits == 0)
+            logger.info("Word IDs of " + maxDepth
+                    + "-grams don't fit into cache keys, caching word sequences");
+        ngramProbCache = new LongFloatCache(ngramCacheSize);
+        sequenceProbCache = new LRUCache<WordSequence, Float>(ngramCacheSize);
+
         for (int i = 1; i <= loader.getMaxDepth(); i++)
             logger.info(Integer.toString(i) + "-grams: "
                     + loader.getNumberNGrams(i));
 
+        if (memoryMapped && prefetchBigrams)
+            loader.prefetchBigrams();
+
         if (fullSmear) {
             System.out.println("Full Smear");
             try {
@@ -339,10 +385,12 @@ public class LargeNGramModel implements LanguageModel {
         for (int i = 2; i <= loader.getMaxDepth(); i++) {
             loadedNGramBuffers[i - 1] = new HashMap<WordSequence, NGramBuffer>();
         }
-        logger.info("LM Cache Size: " + ngramProbCache.size() + " Hits: "
-                + ngramHits + " Misses: " + ngramMisses);
+        logger.info("LM Cache Size: "
+                + (ngramProbCache.size() + sequenceProbCache.size())
+                + " Hits: " + ngramHits + " Misses: " + ngramMisses);
         if (clearCacheAfterUtterance) {
-            ngramProbCache = new LRUCache<WordSequence, Float>(ngramCacheSize);
+            ngramProbCache.clear();
+            sequenceProbCache = new LRUCache<WordSequence, Float>(ngramCacheSize);
         }
     }
 
@@ -357,26 +405,32 @@ public class LargeNGramModel implements LanguageModel {
      */
     public float getProbability(WordSequence wordSequence) {
         int numberWords = wordSequence.size();
-        Float probability;
+        long key = -1;
 
         if (numberWords > maxDepth) {
             throw new Error("Unsupported NGram: " + wordSequence.size());
         }
 
         if (numberWords == maxDepth) {
-            probability = ngramProbCache.get(wordSequence);
+            key = getCacheKey(wordSequence);
+            float cached = key >= 0 ? ngramProbCache.get(key)
+                    : getSequenceProbability(wordSequence);
 
-            if (probability != null) {
+            if (!Float.isNaN(cached)) {
                 ngramHits++;
-                return probability;
+                return cached;
             }
             ngramMisses++;
         }
 
-        probability = getNGramProbability(wordSequence);
+        Float probability = getNGramProbability(wordSequence);
 
-        if (numberWords == maxDepth)
-            ngramProbCache.put(wordSequence, probability);
+        if (numberWords == maxDepth) {
+            if (key >= 0)
+                ngramProbCache.put(key, probability);
+            else
+                sequenceProbCache.put(wordSequence, probability);
+        }
 
         if (logFile != null && probability != null)
             logFile.println(wordSequence.toString().replace("][", " ") + " : "
@@ -385,6 +439,31 @@ public class LargeNGramModel implements LanguageModel {
         return probability;
     }
 
+    /**
+     * Packs the IDs of the words into a cache key.
+     * 
+     * @param wordSequence
+     *            the word sequence
+     * @return the key or -1 if the sequence can't be packed
+     */
+    private long getCacheKey(WordSequence wordSequence) {
+        if (cacheKeyBits == 0)
+            return -1;
+        long key = 0;
+        for (int i = 0; i < wordSequence.size(); i++) {
+            UnigramProbability unigram = getUnigram(wordSequence.getWord(i));
+            if (unigram == null)
+                return -1;
+            key = LongFloatCache.appendKey(key, unigram.getWordID(), cacheKeyBits);
+        }
+        return key;
+    }
+
+    private float getSequenceProbability(WordSequence wordSequence) {
+        Float probability = sequenceProbCache.get(wordSequence);
+        return probability != null ? probability : Float.NaN;
+    }
+
     private Float getNGramProbability(WordSequence wordSequence) {
         int numberWords = wordSequence.size();
         Word firstWord = wordSequence.getWord(0);
@@ -525,7 +604,9 @@ public class LargeNGramModel implements LanguageModel {
         }
 
         try {
-            byte[] buffer = loader.loadBuffer(position, size);
+            ByteBuffer buffer = memoryMapped
+                    ? loader.mapBuffer(position, size)
+                    : ByteBuffer.wrap(loader.loadBuffer(position, size));
 
             if (loader.getMaxDepth() == orderBuffer) {
                 currentBuffer = new NMaxGramBuffer(buffer, numberNGrams,
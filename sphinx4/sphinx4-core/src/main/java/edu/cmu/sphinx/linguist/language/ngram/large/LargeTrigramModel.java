@@ -90,5 +90,7 @@ public class LargeTrigramModel extends LargeNGramModel {
         wip = ps.getDouble(PROP_WORD_INSERTION_PROBABILITY);
         unigramWeight = ps.getFloat(PROP_UNIGRAM_WEIGHT);
         fullSmear = ps.getBoolean(PROP_FULL_SMEAR);
+        memoryMapped = ps.getBoolean(PROP_MEMORY_MAPPED);
+        prefetchBigrams = ps.getBoolean(PROP_PREFETCH_BIGRAMS);
     }
 }
@@ -15,15 +15,18 @@
 
 package edu.cmu.sphinx.linguist.language.ngram.large;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 
 /**
  * Implements a buffer that contains NGrams. It assumes that the first two bytes of each n-gram entry is the ID of the
- * n-gram.
+ * n-gram. The NGrams are either copied into the heap or are a view of a memory mapped region of the model file.
  */
 
 class NGramBuffer {
 
-    private final byte[] buffer;
+    private final ByteBuffer buffer;
     private final int numberNGrams;
     private int position;
     private final boolean bigEndian;
@@ -43,7 +46,22 @@ class NGramBuffer {
      * @param firstNGramEntry  the first NGram Entry
      */
     public NGramBuffer(byte[] buffer, int numberNGrams, boolean bigEndian, boolean is32bits, int n, int firstNGramEntry) {
-        this.buffer = buffer;
+        this(ByteBuffer.wrap(buffer), numberNGrams, bigEndian, is32bits, n, firstNGramEntry);
+    }
+
+
+    /**
+     * Constructs a NGramBuffer object reading NGrams from the given ByteBuffer, starting at its position.
+     *
+     * @param buffer       the ByteBuffer with NGrams
+     * @param numberNGrams the number of N-gram
+     * @param bigEndian	   the buffer's endianness
+     * @param is32bits     whether the buffer is 16 or 32 bits
+     * @param n	           the buffer's order
+     * @param firstNGramEntry  the first NGram Entry
+     */
+    public NGramBuffer(ByteBuffer buffer, int numberNGrams, boolean bigEndian, boolean is32bits, int n, int firstNGramEntry) {
+        this.buffer = buffer.slice().order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
         this.numberNGrams = numberNGrams;
         this.bigEndian = bigEndian;
         this.is32bits = is32bits;
@@ -54,11 +72,11 @@ class NGramBuffer {
 
 
     /**
-     * Returns the byte[] of n-grams.
+     * Returns the buffer of n-grams.
      *
-     * @return the byte[] of n-grams
+     * @return the buffer of n-grams
      */
-    public byte[] getBuffer() {
+    public ByteBuffer getBuffer() {
         return buffer;
     }
 
@@ -78,7 +96,7 @@ class NGramBuffer {
      * @return the size of the buffer in bytes
      */
     public int getSize() {
-        return buffer.length;
+        return buffer.capacity();
     }
 
 
@@ -124,7 +142,7 @@ class NGramBuffer {
      * @return the word ID
      */
     public final int getWordID(int nthFollower) {
-        int nthPosition = nthFollower * (buffer.length / numberNGrams);
+        int nthPosition = nthFollower * (buffer.capacity() / numberNGrams);
         setPosition(nthPosition);
         return readBytesAsInt();
     }
@@ -155,42 +173,15 @@ class NGramBuffer {
      * @return the next two bytes as an integer
      */
     public final int readBytesAsInt() {
-    	if (is32bits) {
-            if (bigEndian) {
-                int value = (0x000000ff & buffer[position++]);
-                value <<= 8;
-                value |= (0x000000ff & buffer[position++]);
-                value <<= 8;
-                value |= (0x000000ff & buffer[position++]);
-                value <<= 8;
-                value |= (0x000000ff & buffer[position++]);
-                return value;
-            } else {
-                int value = (0x000000ff & buffer[position+3]);
-                value <<= 8;
-                value |= (0x000000ff & buffer[position+2]);
-                value <<= 8;
-                value |= (0x000000ff & buffer[position+1]);
-                value <<= 8;
-                value |= (0x000000ff & buffer[position]);
-                position += 4;
-                return value;
-            }
-    	}
-    	else {
-            if (bigEndian) {
-                int value = (0x000000ff & buffer[position++]);
-                value <<= 8;
-                value |= (0x000000ff & buffer[position++]);
-                return value;
-            } else {
-                int value = (0x000000ff & buffer[position + 1]);
-                value <<= 8;
-                value |= (0x000000ff & buffer[position]);
-                position += 2;
-                return value;
-            }
-    	}
+        int value;
+        if (is32bits) {
+            value = buffer.getInt(position);
+            position += 4;
+        } else {
+            value = buffer.getShort(position) & 0xffff;
+            position += 2;
+        }
+        return value;
     }
 
 
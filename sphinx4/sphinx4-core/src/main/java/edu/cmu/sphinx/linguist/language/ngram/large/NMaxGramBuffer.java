@@ -15,6 +15,8 @@
 
 package edu.cmu.sphinx.linguist.language.ngram.large;
 
+import java.nio.ByteBuffer;
+
 
 /**
  * Implements a buffer that contains NGrams of model's MAX order. 
@@ -39,6 +41,21 @@ class NMaxGramBuffer extends NGramBuffer {
     }
 
 
+    /**
+     * Constructs a NMaxGramBuffer object reading NGrams from the given ByteBuffer.
+     *
+     * @param buffer       the ByteBuffer with NGrams
+     * @param numberNGrams the number of N-gram
+     * @param bigEndian	   the buffer's endianness
+     * @param is32bits     whether the buffer is 16 or 32 bits
+     * @param n	           the buffer's order
+     * @param firstCurrentNGramEntry the first Current NGram Entry
+    */
+    public NMaxGramBuffer(ByteBuffer buffer, int numberNGrams, boolean bigEndian, boolean is32bits, int n, int firstCurrentNGramEntry) {
+        super(buffer, numberNGrams, bigEndian, is32bits, n, firstCurrentNGramEntry);
+    }
+
+
     /**
      * Returns the NGramProbability of the nth follower.
      *
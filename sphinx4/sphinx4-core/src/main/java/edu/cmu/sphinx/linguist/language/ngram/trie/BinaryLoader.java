@@ -9,6 +9,8 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import edu.cmu.sphinx.linguist.language.ngram.trie.NgramTrieModel.TrieUnigram;
 import edu.cmu.sphinx.util.Utilities;
@@ -32,9 +34,12 @@ public class BinaryLoader {
     private static final String TRIE_HEADER = "Trie Language Model";
 
     private DataInputStream inStream;
+    private FileChannel channel;
 
     public BinaryLoader(File location) throws IOException {
-        inStream = new DataInputStream(new FileInputStream(location));
+        FileInputStream stream = new FileInputStream(location);
+        channel = stream.getChannel();
+        inStream = new DataInputStream(stream);
     }
 
     private void loadModelData(InputStream stream) throws IOException {
@@ -127,6 +132,31 @@ public class BinaryLoader {
         inStream.read(arr);
     }
 
+    /**
+     * Checks if trie can be mapped into memory instead of reading,
+     * that is if model is loaded from a file
+     * @return true if {@link #mapTrieByteArr} can be used
+     */
+    public boolean canMap() {
+        return channel != null;
+    }
+
+    /**
+     * Maps trie from model file into memory instead of reading it.
+     * Trie is not copied, it is paged in by operating system on access
+     * and shared through page cache with other processes using same file.
+     * Mapping stays valid after loader is closed.
+     * @param len - size of trie in bytes, see {@link NgramTrie#getMemLen}
+     * @return read-only buffer with trie
+     * @throws IOException if mapping failed
+     */
+    public ByteBuffer mapTrieByteArr(int len) throws IOException {
+        long position = channel.position();
+        ByteBuffer mem = channel.map(FileChannel.MapMode.READ_ONLY, position, len);
+        channel.position(position + len);
+        return mem;
+    }
+
     /**
      * Reads vocabulary of language model. Ordinal number of word stays for wordId.
      * @param unigramNum - amount of unigrams
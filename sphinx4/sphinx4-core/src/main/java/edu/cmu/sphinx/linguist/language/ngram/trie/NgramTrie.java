@@ -1,5 +1,7 @@
 package edu.cmu.sphinx.linguist.language.ngram.trie;
 
+import java.nio.ByteBuffer;
+
 import edu.cmu.sphinx.linguist.language.ngram.trie.NgramTrieModel.TrieRange;
 
 /**
@@ -17,7 +19,54 @@ public class NgramTrie {
     private int quantProbLen;
 
     public NgramTrie(int[] counts, int quantProbBoLen, int quantProbLen) {
+        this(counts, quantProbBoLen, quantProbLen, null);
+    }
+
+    /**
+     * Creates trie which reads ngrams from the provided buffer,
+     * typically a region of the model file mapped into memory.
+     * @param counts - ngram counts, ordinal number is ngram order
+     * @param quantProbBoLen - bits of quantized probability and backoff
+     * @param quantProbLen - bits of quantized probability
+     * @param mem - buffer of {@link #getMemLen} bytes holding trie, if null trie is allocated in heap
+     */
+    public NgramTrie(int[] counts, int quantProbBoLen, int quantProbLen, ByteBuffer mem) {
+        int[] ngramMemSize = getNgramMemSizes(counts, quantProbBoLen, quantProbLen);
+        bitArr = mem == null
+                ? new NgramTrieBitarr(getMemLen(counts, quantProbBoLen, quantProbLen))
+                : new NgramTrieBitarr(mem);
+        this.quantProbLen = quantProbLen;
+        this.quantProbBoLen = quantProbBoLen;
+        middles = new MiddleNgramSet[counts.length - 2];
+        int[] startPtrs = new int[counts.length - 2];
+        int startPtr = 0;
+        for (int i = 0; i < counts.length - 2; i++) {
+            startPtrs[i] = startPtr;
+            startPtr += ngramMemSize[i];
+        }
+        // Crazy backwards thing so we initialize using pointers to ones that have already been initialized
+        for (int i = counts.length - 1; i >= 2; --i) {
+            middles[i - 2] = new MiddleNgramSet(startPtrs[i - 2], quantProbBoLen, counts[i-1], counts[0], counts[i]);
+        }
+        longest = new LongestNgramSet(startPtr, quantProbLen, counts[0]);
+        ordersNum = middles.length + 1;
+    }
+
+    /**
+     * Calculates amount of memory in bytes required for trie of given specification
+     * @param counts - ngram counts, ordinal number is ngram order
+     * @param quantProbBoLen - bits of quantized probability and backoff
+     * @param quantProbLen - bits of quantized probability
+     * @return trie size in bytes
+     */
+    public static int getMemLen(int[] counts, int quantProbBoLen, int quantProbLen) {
         int memLen = 0;
+        for (int len : getNgramMemSizes(counts, quantProbBoLen, quantProbLen))
+            memLen += len;
+        return memLen;
+    }
+
+    private static int[] getNgramMemSizes(int[] counts, int quantProbBoLen, int quantProbLen) {
         int[] ngramMemSize = new int[counts.length - 1];
         for (int i = 1; i <= counts.length - 1; i++) {
             int entryLen = requiredBits(counts[0]);
@@ -33,31 +82,14 @@ public class NgramTrie {
             // +7 then / 8 to round up bits and convert to bytes
             // +8 (or +sizeof(uint64))so that reading bit array doesn't exceed bounds 
             // Note that this waste is O(order), not O(number of ngrams).
-            int tmpLen = ((1 + counts[i]) * entryLen + 7) / 8 + 8; 
-            ngramMemSize[i - 1] = tmpLen;
-            memLen += tmpLen;
-        }
-        bitArr = new NgramTrieBitarr(memLen);
-        this.quantProbLen = quantProbLen;
-        this.quantProbBoLen = quantProbBoLen;
-        middles = new MiddleNgramSet[counts.length - 2];
-        int[] startPtrs = new int[counts.length - 2];
-        int startPtr = 0;
-        for (int i = 0; i < counts.length - 2; i++) {
-            startPtrs[i] = startPtr;
-            startPtr += ngramMemSize[i];
-        }
-        // Crazy backwards thing so we initialize using pointers to ones that have already been initialized
-        for (int i = counts.length - 1; i >= 2; --i) {
-            middles[i - 2] = new MiddleNgramSet(startPtrs[i - 2], quantProbBoLen, counts[i-1], counts[0], counts[i]);
+            ngramMemSize[i - 1] = ((1 + counts[i]) * entryLen + 7) / 8 + 8; 
         }
-        longest = new LongestNgramSet(startPtr, quantProbLen, counts[0]);
-        ordersNum = middles.length + 1;
+        return ngramMemSize;
     }
 
     /**
      * Getter for allocated byte array to which trie is mapped
-     * @return byte[] with ngram trie 
+     * @return byte[] with ngram trie or null if trie is read from a provided buffer
      */
     public byte[] getMem() {
         return bitArr.getArr();
@@ -161,7 +193,7 @@ public class NgramTrie {
     /**
      * Calculates minimum amount of bits to store provided int
      */
-    private int requiredBits(int maxValue) {
+    private static int requiredBits(int maxValue) {
         if (maxValue == 0) return 0;
         int res = 1;
         while ((maxValue >>= 1) != 0) res++;
@@ -1,23 +1,38 @@
 package edu.cmu.sphinx.linguist.language.ngram.trie;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
- * Byte array that keeps ngram trie
+ * Byte array that keeps ngram trie. Trie is either kept in heap
+ * or read directly from a buffer, e.g. memory mapped model file.
+ * Reads don't change buffer state, so array can be used from several threads.
  */
 
 public class NgramTrieBitarr {
 
-    private byte[] mem;
+    private byte[] arr;
+    private ByteBuffer mem;
     
     public NgramTrieBitarr(int memLen) {
-        mem = new byte[memLen];
+        arr = new byte[memLen];
+        mem = ByteBuffer.wrap(arr).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Creates array reading trie from provided buffer starting at its position
+     * @param mem - buffer with trie
+     */
+    public NgramTrieBitarr(ByteBuffer mem) {
+        this.mem = mem.slice().order(ByteOrder.LITTLE_ENDIAN);
     }
 
     /**
      * Getter for byte array, so it can be filled with actual data
-     * @return data array
+     * @return data array or null if trie is read from provided buffer
      */
     public byte[] getArr() {
-        return mem;
+        return arr;
     }
 
     /**
@@ -30,11 +45,7 @@ public class NgramTrieBitarr {
      * @return requested integer
      */
     public int readInt(int memPtr, int bitOffset, int mask) {
-        int idx = memPtr + (bitOffset >> 3);
-        int value = mem[idx++] & 0xFF;
-        value |= (mem[idx++] << 8) & 0xFFFF;
-        value |= (mem[idx++] << 16) & 0xFFFFFF;
-        value |= (mem[idx++] << 24) & 0xFFFFFFFF;
+        int value = mem.getInt(memPtr + (bitOffset >> 3));
         value >>= (bitOffset & 7);
         value &= mask;
         return value;
@@ -19,6 +19,7 @@ import edu.cmu.sphinx.linguist.dictionary.Dictionary;
 import edu.cmu.sphinx.linguist.dictionary.Word;
 import edu.cmu.sphinx.linguist.language.ngram.LanguageModel;
 import edu.cmu.sphinx.linguist.util.LRUCache;
+import edu.cmu.sphinx.linguist.util.LongFloatCache;
 import edu.cmu.sphinx.util.LogMath;
 import edu.cmu.sphinx.util.TimerPool;
 import edu.cmu.sphinx.util.props.ConfigurationManagerUtils;
@@ -70,6 +71,15 @@ public class NgramTrieModel implements LanguageModel {
     @S4Double(defaultValue = 1.0f)
     public final static String PROP_WORD_INSERTION_PROBABILITY = "wordInsertionProbability";
 
+    /**
+     * The property that controls whether the trie is mapped into memory from
+     * the model file instead of being read into the heap. Mapped model loads
+     * almost instantly and is shared through the page cache between processes.
+     * Works only for models loaded from files.
+     */
+    @S4Boolean(defaultValue = false)
+    public final static String PROP_MEMORY_MAPPED = "memoryMapped";
+
     // ------------------------------
     // Configuration data
     // ------------------------------
@@ -89,6 +99,7 @@ public class NgramTrieModel implements LanguageModel {
     protected float languageWeight;
     protected float unigramWeight;
     protected float logWip;
+    protected boolean memoryMapped;
 
     // -------------------------------
     // Statistics
@@ -114,13 +125,26 @@ public class NgramTrieModel implements LanguageModel {
     // Working data
     //-----------------------------
     protected Map<Word, Integer> unigramIDMap;
-    private LRUCache<WordSequence, Float> ngramProbCache;
+    private LongFloatCache ngramProbCache;
+    private LRUCache<WordSequence, Float> sequenceProbCache;
+    private int cacheKeyBits;
     
     public NgramTrieModel(String format, URL location, String ngramLogFile,
             int maxNGramCacheSize, boolean clearCacheAfterUtterance,
             int maxDepth, Dictionary dictionary,
             boolean applyLanguageWeightAndWip, float languageWeight,
             double wip, float unigramWeight) {
+        this(format, location, ngramLogFile, maxNGramCacheSize,
+                clearCacheAfterUtterance, maxDepth, dictionary,
+                applyLanguageWeightAndWip, languageWeight, wip, unigramWeight,
+                false);
+    }
+
+    public NgramTrieModel(String format, URL location, String ngramLogFile,
+            int maxNGramCacheSize, boolean clearCacheAfterUtterance,
+            int maxDepth, Dictionary dictionary,
+            boolean applyLanguageWeightAndWip, float languageWeight,
+            double wip, float unigramWeight, boolean memoryMapped) {
         logger = Logger.getLogger(getClass().getName());
         this.format = format;
         this.location = location;
@@ -134,6 +158,7 @@ public class NgramTrieModel implements LanguageModel {
         this.languageWeight = languageWeight;
         this.logWip = logMath.linearToLog(wip);
         this.unigramWeight = unigramWeight;
+        this.memoryMapped = memoryMapped;
     }
 
     public NgramTrieModel() {
@@ -161,6 +186,7 @@ public class NgramTrieModel implements LanguageModel {
         languageWeight = ps.getFloat(PROP_LANGUAGE_WEIGHT);
         logWip = logMath.linearToLog(ps.getDouble(PROP_WORD_INSERTION_PROBABILITY));
         unigramWeight = ps.getFloat(PROP_UNIGRAM_WEIGHT);
+        memoryMapped = ps.getBoolean(PROP_MEMORY_MAPPED);
     }
 
     /**
@@ -226,13 +252,26 @@ public class NgramTrieModel implements LanguageModel {
         }
         unigrams = loader.readUnigrams(counts[0]);
         if (maxDepth > 1) {
-            trie = new NgramTrie(counts, quant.getProbBoSize(), quant.getProbSize());
-            loader.readTrieByteArr(trie.getMem());
+            if (memoryMapped && loader.canMap()) {
+                int memLen = NgramTrie.getMemLen(counts, quant.getProbBoSize(), quant.getProbSize());
+                trie = new NgramTrie(counts, quant.getProbBoSize(), quant.getProbSize(),
+                        loader.mapTrieByteArr(memLen));
+            } else {
+                if (memoryMapped)
+                    logger.warning("Can't map language model from " + location + ", reading it");
+                trie = new NgramTrie(counts, quant.getProbBoSize(), quant.getProbSize());
+                loader.readTrieByteArr(trie.getMem());
+            }
         }
         //string words can be read here
         words = loader.readWords(counts[0]);
         buildUnigramIDMap();
-        ngramProbCache = new LRUCache<WordSequence, Float>(ngramCacheSize);
+        cacheKeyBits = LongFloatCache.getKeyBits(words.length, maxDepth);
+        if (cacheKeyBits == 0)
+            logger.info("Word IDs of " + maxDepth
+                    + "-grams don't fit into cache keys, caching word sequences");
+        ngramProbCache = new LongFloatCache(ngramCacheSize);
+        sequenceProbCache = new LRUCache<WordSequence, Float>(ngramCacheSize);
         loader.close();
         TimerPool.getTimer(this, "Load LM").stop();
     }
@@ -348,24 +387,54 @@ public class NgramTrieModel implements LanguageModel {
             throw new Error("Unsupported NGram: " + wordSequence.size());
         }
 
+        long key = -1;
         if (numberWords == maxDepth) {
-            Float probability = ngramProbCache.get(wordSequence);
+            key = getCacheKey(wordSequence);
+            float cached = key >= 0 ? ngramProbCache.get(key)
+                    : getSequenceProbability(wordSequence);
 
-            if (probability != null) {
+            if (!Float.isNaN(cached)) {
                 ngramHits++;
-                return probability;
+                return cached;
             }
             ngramMisses++;
         }
         float probability = applyWeights(getProbabilityRaw(wordSequence));
-        if (numberWords == maxDepth)
-            ngramProbCache.put(wordSequence, probability);
+        if (numberWords == maxDepth) {
+            if (key >= 0)
+                ngramProbCache.put(key, probability);
+            else
+                sequenceProbCache.put(wordSequence, probability);
+        }
         if (logFile != null)
             logFile.println(wordSequence.toString().replace("][", " ") + " : "
                     + Float.toString(probability));
         return probability;
     }
 
+    /**
+     * Packs the IDs of the words into a cache key
+     * @param wordSequence - the word sequence
+     * @return the key or -1 if the sequence can't be packed
+     */
+    private long getCacheKey(WordSequence wordSequence) {
+        if (cacheKeyBits == 0)
+            return -1;
+        long key = 0;
+        for (int i = 0; i < wordSequence.size(); i++) {
+            Integer wordId = unigramIDMap.get(wordSequence.getWord(i));
+            if (wordId == null)
+                return -1;
+            key = LongFloatCache.appendKey(key, wordId, cacheKeyBits);
+        }
+        return key;
+    }
+
+    private float getSequenceProbability(WordSequence wordSequence) {
+        Float probability = sequenceProbCache.get(wordSequence);
+        return probability != null ? probability : Float.NaN;
+    }
+
     /**
      * Gets the smear term for the given wordSequence
      * 
@@ -420,10 +489,12 @@ public class NgramTrieModel implements LanguageModel {
 
     /** Clears the various N-gram caches. */
     private void clearCache() {
-        logger.info("LM Cache Size: " + ngramProbCache.size() + " Hits: "
-                + ngramHits + " Misses: " + ngramMisses);
+        logger.info("LM Cache Size: "
+                + (ngramProbCache.size() + sequenceProbCache.size())
+                + " Hits: " + ngramHits + " Misses: " + ngramMisses);
         if (clearCacheAfterUtterance) {
-            ngramProbCache = new LRUCache<WordSequence, Float>(ngramCacheSize);
+            ngramProbCache.clear();
+            sequenceProbCache = new LRUCache<WordSequence, Float>(ngramCacheSize);
         }
     }
 
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.linguist.util;
+
+import java.util.Arrays;
+
+/**
+ * A cache of float values keyed by non-negative longs.
+ * <p>
+ * Unlike {@link LRUCache} no objects are allocated on lookup or insertion.
+ * Entries are kept in an open addressing table with linear probing which is
+ * at most half full. When the cache is full the entry to drop is chosen with
+ * the clock algorithm: every entry has a reference bit which is set on a hit,
+ * the clock hand sweeps the table clearing the bits and evicts the first entry
+ * which was not referenced since the previous sweep.
+ * <p>
+ * The cache is not thread safe.
+ */
+public class LongFloatCache {
+
+    private final static long EMPTY = -1L;
+    private final static int MAX_SIZE = 1 << 29;
+
+    private final int maxSize;
+    private final int mask;
+    private final long[] keys;
+    private final float[] values;
+    private final boolean[] referenced;
+    private int size;
+    private int hand;
+
+
+    /**
+     * Creates a cache with the given maximum size
+     *
+     * @param maxSize the maximum number of entries in the cache
+     */
+    public LongFloatCache(int maxSize) {
+        this.maxSize = Math.min(Math.max(maxSize, 1), MAX_SIZE);
+        int capacity = Integer.highestOneBit(2 * this.maxSize - 1) << 1;
+        mask = capacity - 1;
+        keys = new long[capacity];
+        values = new float[capacity];
+        referenced = new boolean[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+
+    /**
+     * Gets the cached value
+     *
+     * @param key the key, must not be negative
+     * @return the value or <code>Float.NaN</code> if the key is not cached
+     */
+    public float get(long key) {
+        for (int i = index(key); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                referenced[i] = true;
+                return values[i];
+            }
+        }
+        return Float.NaN;
+    }
+
+
+    /**
+     * Caches the value, evicting another entry if the cache is full
+     *
+     * @param key the key, must not be negative
+     * @param value the value to cache
+     */
+    public void put(long key, float value) {
+        assert key >= 0;
+        int i = index(key);
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+
+        if (size >= maxSize) {
+            evict();
+            for (i = index(key); keys[i] != EMPTY; i = (i + 1) & mask)
+                ;
+        }
+        keys[i] = key;
+        values[i] = value;
+        referenced[i] = false;
+        size++;
+    }
+
+
+    /** Removes all entries */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+
+    /** @return the number of cached entries */
+    public int size() {
+        return size;
+    }
+
+
+    /** @return the maximum number of cached entries */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+
+    /**
+     * Computes the number of bits needed to pack a tuple of IDs into a key
+     *
+     * @param numIds the number of distinct IDs, IDs are in range [0, numIds)
+     * @param length the maximum length of a tuple
+     * @return bits per ID or 0 if the tuples don't fit into a key
+     */
+    public static int getKeyBits(int numIds, int length) {
+        int bits = 32 - Integer.numberOfLeadingZeros(numIds);
+        return bits * length <= 63 ? bits : 0;
+    }
+
+
+    /**
+     * Appends an ID to a key packing a tuple of IDs. Tuples of different
+     * lengths get different keys.
+     *
+     * @param key the key of the tuple so far, 0 for the empty tuple
+     * @param id the ID to append
+     * @param bits bits per ID as given by {@link #getKeyBits}
+     * @return the key of the extended tuple
+     */
+    public static long appendKey(long key, int id, int bits) {
+        return (key << bits) | (id + 1);
+    }
+
+
+    private int index(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+
+    /** Advances the clock hand to the first unreferenced entry and removes it */
+    private void evict() {
+        while (true) {
+            hand = (hand + 1) & mask;
+            if (keys[hand] == EMPTY)
+                continue;
+            if (referenced[hand]) {
+                referenced[hand] = false;
+                continue;
+            }
+            remove(hand);
+            return;
+        }
+    }
+
+
+    /**
+     * Removes the entry at the given slot, shifting back the entries of its
+     * probe sequence so that no tombstones are needed.
+     */
+    private void remove(int slot) {
+        int gap = slot;
+        for (int i = (slot + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int home = index(keys[i]);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                referenced[gap] = referenced[i];
+                gap = i;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+    }
+}
@@ -21,6 +21,8 @@ import java.util.List;
 
 import edu.cmu.sphinx.decoder.search.ActiveList;
 import edu.cmu.sphinx.decoder.search.AlternateHypothesisManager;
+import edu.cmu.sphinx.decoder.search.BackpointerTable;
+import edu.cmu.sphinx.decoder.search.ImmortalPrefixTracker;
 import edu.cmu.sphinx.decoder.search.Token;
 import edu.cmu.sphinx.frontend.Data;
 import edu.cmu.sphinx.linguist.dictionary.Word;
@@ -43,6 +45,8 @@ public class Result {
     private final ActiveList activeList;
     private final List<Token> resultList;
     private AlternateHypothesisManager alternateHypothesisManager;
+    private ImmortalPrefixTracker immortalPrefixTracker;
+    private BackpointerTable.Traceback traceback;
     private boolean isFinal;
     private boolean wordTokenFirst;
     private final long currentCollectTime;
@@ -171,6 +175,11 @@ public class Result {
      * @return the AlternateHypothesisManager
      */
     public AlternateHypothesisManager getAlternateHypothesisManager() {
+        if (traceback != null) {
+            // the alternates of the traced word tokens
+            getBestToken();
+            return traceback.getAlternateHypothesisManager();
+        }
         return alternateHypothesisManager;
     }
 
@@ -196,7 +205,7 @@ public class Result {
                 bestToken = token;
             }
         }
-        return bestToken;
+        return trace(bestToken);
     }
 
     /**
@@ -231,7 +240,17 @@ public class Result {
                 }
             }
         }
-        return bestToken;
+        return trace(bestToken);
+    }
+
+    /**
+     * Returns the token with its predecessors, which are kept in a word exit
+     * table if the result was created by a search with such a table.
+     */
+    private Token trace(Token token) {
+        if (traceback == null || token == null)
+            return token;
+        return traceback.getToken(token);
     }
 
     /**
@@ -484,6 +503,152 @@ public class Result {
         return result;
     }
 
+    /**
+     * Returns the words which became stable since the last call on a result
+     * of the same utterance. A word is stable when it is on the immortal
+     * prefix, the part of the hypotheses which is shared by all surviving
+     * tokens and which the search can not change any more. When the word
+     * tokens come first, a word is returned once the next word is stable
+     * too, so that its end is known. A final result returns the rest of the
+     * best hypothesis.
+     * <p>
+     * Only the tokens which were added to the prefix since the last call are
+     * walked. The method has to be called before the next frame is decoded,
+     * so it is best called from a result listener of a decoder which fires
+     * non-final results.
+     * 
+     * @param withFillers
+     *            true if we want filler words included, false otherwise
+     * @return the newly stable words with timestamps, empty if the search
+     *         manager does not track the immortal prefix
+     */
+    public List<WordResult> getNewStableWords(boolean withFillers) {
+        if (immortalPrefixTracker == null)
+            return emptyList();
+
+        Token token;
+        if (isFinal) {
+            token = getBestToken();
+        } else {
+            token = immortalPrefixTracker.update();
+        }
+        if (token == null)
+            return emptyList();
+
+        Token reported = immortalPrefixTracker.getReportedToken();
+        List<WordResult> result = new ArrayList<WordResult>();
+        Token newReported;
+        if (wordTokenFirst) {
+            newReported = getStableWordPath(token, reported, withFillers, result);
+        } else {
+            newReported = getStableWordTokenLastPath(token, reported, withFillers, result);
+        }
+        if (newReported == null)
+            return emptyList();
+
+        immortalPrefixTracker.setReportedToken(newReported);
+        reverse(result);
+        return result;
+    }
+
+    /**
+     * Collects the stable words after the reported word token, newest first.
+     * This method assumes that the word tokens come before other types of
+     * token.
+     * 
+     * @return the new last reported word token or null if the token does not
+     *         descend from the reported token
+     */
+    private Token getStableWordPath(Token token, Token reported, boolean withFillers, List<WordResult> result) {
+        long prevWordEnd = isFinal ? token.getCollectTime() : -1;
+        Token newReported = reported;
+
+        for (; token != reported; token = token.getPredecessor()) {
+            if (token == null || (reported != null && token.getCollectTime() < reported.getCollectTime()))
+                return null;
+
+            if (token.isWord()) {
+                // the end of the newest word is not known before it is final
+                if (prevWordEnd >= 0) {
+                    Word word = token.getWord();
+                    if (withFillers || !word.isFiller()) {
+                        TimeFrame timeFrame = new TimeFrame(token.getCollectTime(), prevWordEnd);
+                        result.add(new WordResult(word, timeFrame, token.getScore(), 1.));
+                    }
+                    if (newReported == reported)
+                        newReported = token;
+                }
+                prevWordEnd = token.getCollectTime();
+            }
+        }
+        return newReported;
+    }
+
+    /**
+     * Collects the stable words after the reported word token, newest first.
+     * This method assumes that the word tokens come after the unit and HMM
+     * tokens.
+     * 
+     * @return the new last reported word token or null if the token does not
+     *         descend from the reported token
+     */
+    private Token getStableWordTokenLastPath(Token token, Token reported, boolean withFillers,
+            List<WordResult> result) {
+        long lastWordEnd = -1;
+        long lastWordStart = -1;
+        Word word = null;
+        Token newReported = reported;
+
+        for (; token != reported; token = token.getPredecessor()) {
+            if (token == null || (reported != null && token.getCollectTime() < reported.getCollectTime()))
+                return null;
+
+            if (token.isWord()) {
+                if (word != null)
+                    addWord(result, word, lastWordStart, lastWordEnd, token.getScore(), withFillers);
+                if (newReported == reported)
+                    newReported = token;
+                lastWordEnd = token.getCollectTime();
+                word = token.getWord();
+            }
+            lastWordStart = token.getCollectTime();
+        }
+        // the first word of the utterance is dropped like in the timed best
+        // result
+        if (word != null && reported != null)
+            addWord(result, word, lastWordStart, lastWordEnd, reported.getScore(), withFillers);
+        return newReported;
+    }
+
+    private static void addWord(List<WordResult> result, Word word, long start, long end, float score,
+            boolean withFillers) {
+        if (withFillers || !word.isFiller())
+            result.add(new WordResult(word, new TimeFrame(start, end), score, 1.));
+    }
+
+    /**
+     * Sets the word exit table of the utterance. The search tokens of the
+     * active and the result list have no predecessors then, the best tokens
+     * are traced back through the table.
+     * 
+     * @param backpointerTable
+     *            the word exit table of the utterance
+     */
+    public void setBackpointerTable(BackpointerTable backpointerTable) {
+        traceback = backpointerTable.newTraceback();
+    }
+
+    /**
+     * Sets the tracker of the immortal prefix of the utterance, which enables
+     * {@link #getNewStableWords(boolean)}.
+     * 
+     * @param immortalPrefixTracker
+     *            the tracker of the utterance
+     */
+    public void setImmortalPrefixTracker(ImmortalPrefixTracker immortalPrefixTracker) {
+        this.immortalPrefixTracker = immortalPrefixTracker;
+    }
+
     /** Returns a string representation of this object */
     @Override
     public String toString() {
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014 Carnegie Mellon University.
+ * All Rights Reserved.  Use is subject to license terms.
+ *
+ * See the file "license.terms" for information on usage and
+ * redistribution of this file, and for a DISCLAIMER OF ALL
+ * WARRANTIES.
+ *
+ */
+
+package edu.cmu.sphinx.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue for passing items from one producer thread to one consumer
+ * thread.
+ * <p>
+ * The items are kept in an array used as a ring. The producer only writes the
+ * tail and the consumer only writes the head, so neither needs a lock. A
+ * thread which has to wait because the buffer is full or empty parks and is
+ * unparked by the other side as soon as it made progress.
+ * <p>
+ * Using the buffer from more than one producer or more than one consumer
+ * thread at a time breaks it.
+ *
+ * @param <T> the type of the items
+ */
+public class RingBuffer<T> {
+
+    private final Object[] items;
+    private final int mask;
+
+    /** index of the next item to take, written by the consumer only */
+    private volatile long head;
+    /** index of the next item to put, written by the producer only */
+    private volatile long tail;
+
+    private volatile Thread waitingProducer;
+    private volatile Thread waitingConsumer;
+
+
+    /**
+     * Creates a buffer
+     *
+     * @param capacity the minimum number of items the buffer can hold, it is
+     *        rounded up to a power of two
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        int length = 1;
+        while (length < capacity)
+            length <<= 1;
+        items = new Object[length];
+        mask = items.length - 1;
+    }
+
+
+    /**
+     * Adds an item if the buffer is not full
+     *
+     * @param item the item, not null
+     * @return true if the item was added
+     */
+    public boolean offer(T item) {
+        if (item == null)
+            throw new NullPointerException();
+        long t = tail;
+        if (t - head == items.length)
+            return false;
+        items[(int) t & mask] = item;
+        tail = t + 1;
+        Thread waiter = waitingConsumer;
+        if (waiter != null)
+            LockSupport.unpark(waiter);
+        return true;
+    }
+
+
+    /**
+     * Adds an item, waiting for space if the buffer is full
+     *
+     * @param item the item, not null
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void put(T item) throws InterruptedException {
+        while (!offer(item)) {
+            waitingProducer = Thread.currentThread();
+            if (tail - head == items.length)
+                LockSupport.park(this);
+            waitingProducer = null;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+    }
+
+
+    /**
+     * Removes the oldest item if there is one
+     *
+     * @return the item or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long h = head;
+        if (h == tail)
+            return null;
+        int i = (int) h & mask;
+        T item = (T) items[i];
+        items[i] = null;
+        head = h + 1;
+        Thread waiter = waitingProducer;
+        if (waiter != null)
+            LockSupport.unpark(waiter);
+        return item;
+    }
+
+
+    /**
+     * Removes the oldest item, waiting for one if the buffer is empty
+     *
+     * @return the item
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public T take() throws InterruptedException {
+        T item;
+        while ((item = poll()) == null) {
+            waitingConsumer = Thread.currentThread();
+            if (head == tail)
+                LockSupport.park(this);
+            waitingConsumer = null;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+        return item;
+    }
+
+
+    /** @return the number of items in the buffer */
+    public int size() {
+        return (int) (tail - head);
+    }
+
+
+    /** @return the number of items the buffer can hold */
+    public int getCapacity() {
+        return items.length;
+    }
+}
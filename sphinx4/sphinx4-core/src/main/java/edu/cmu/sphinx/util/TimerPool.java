@@ -50,7 +50,7 @@ public class TimerPool {
 
 
     /** @return the number of currently caches {@code Timer} instances. */
-    public static int getNumCachedTimers() {
+    public static synchronized int getNumCachedTimers() {
         int counter = 0;
         for (List<Timer> timers : weakRefTimerPool.values()) {
             counter += timers.size();
@@ -64,7 +64,7 @@ public class TimerPool {
      * Dump all timers 
      * @param logger the logger to use for dump
      */
-    public static void dumpAll(Logger logger) {
+    public static synchronized void dumpAll(Logger logger) {
         showTimesShortTitle(logger);
 
         for (List<Timer> timers : weakRefTimerPool.values()) {
@@ -94,7 +94,7 @@ public class TimerPool {
 
 
     /** Resets all timers */
-    public static void resetAll() {
+    public static synchronized void resetAll() {
         for (List<Timer> timers : weakRefTimerPool.values()) {
             for (Timer timer : timers) {
                 timer.reset();
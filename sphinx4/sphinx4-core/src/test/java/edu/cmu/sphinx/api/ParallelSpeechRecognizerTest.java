@@ -0,0 +1,44 @@
+package edu.cmu.sphinx.api;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+
+import java.io.InputStream;
+
+import org.testng.annotations.Test;
+
+/**
+ * Checks that the results of a parallel recognizer end, also when reading
+ * the recording fails.
+ */
+public class ParallelSpeechRecognizerTest {
+
+    @Test(timeOut = 60000)
+    public void testSegmenterError() throws Exception {
+        RecognizerPool pool = new RecognizerPool(RecognizerPoolTest.createConfiguration());
+        ParallelSpeechRecognizer recognizer = new ParallelSpeechRecognizer(pool, 16000, 2, 150, 200, 50, 13);
+        try {
+            recognizer.startRecognition(new InputStream() {
+                @Override
+                public int read() {
+                    throw new AssertionError("broken recording");
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    throw new AssertionError("broken recording");
+                }
+            });
+            try {
+                recognizer.getResult();
+                fail();
+            } catch (AssertionError e) {
+                assertEquals(e.getMessage(), "broken recording");
+            }
+            assertNull(recognizer.getResult());
+        } finally {
+            recognizer.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package edu.cmu.sphinx.api;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.linguist.acoustic.AcousticModel;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.test.ContinuousModelWriter;
+import edu.cmu.sphinx.linguist.dictionary.Dictionary;
+
+/**
+ * Decodes with recognizers of one pool on several threads and compares the
+ * results with those of a recognizer which loaded its own models. The
+ * acoustic model is random, the results only have to be the same.
+ */
+public class RecognizerPoolTest {
+
+    private static final int RECOGNIZERS = 3;
+
+    @Test
+    public void testSharedModels() throws Exception {
+        Configuration configuration = createConfiguration();
+        RecognizerPool pool = new RecognizerPool(configuration);
+        StreamSpeechRecognizer first = pool.createRecognizer();
+        StreamSpeechRecognizer second = pool.createRecognizer();
+
+        assertSame(second.context.getInstance(AcousticModel.class),
+                   first.context.getInstance(AcousticModel.class));
+        assertSame(second.context.getInstance(Dictionary.class),
+                   first.context.getInstance(Dictionary.class));
+
+        // every recognizer caches the scores of the shared language model
+        String name = first.context.getLanguageModelName();
+        SharedLanguageModel firstModel = first.context.lookup(name);
+        SharedLanguageModel secondModel = second.context.lookup(name);
+        assertNotSame(secondModel, firstModel);
+        assertSame(secondModel.getLanguageModel(), firstModel.getLanguageModel());
+    }
+
+    @Test
+    public void testIndependentDecoding() throws Exception {
+        Configuration configuration = createConfiguration();
+        // the live CMN of a recognizer adapts from one stream to the next
+        StreamSpeechRecognizer reference = new StreamSpeechRecognizer(configuration);
+        String expected = decode(reference) + decode(reference);
+
+        final RecognizerPool pool = new RecognizerPool(configuration);
+        ExecutorService executor = Executors.newFixedThreadPool(RECOGNIZERS);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < RECOGNIZERS; i++) {
+                final StreamSpeechRecognizer recognizer = pool.createRecognizer();
+                results.add(executor.submit(new Callable<String>() {
+                    public String call() throws IOException {
+                        // twice, so that the utterance ends of one stream fall into the decoding of the others
+                        return decode(recognizer) + decode(recognizer);
+                    }
+                }));
+            }
+            for (Future<String> result : results)
+                assertEquals(result.get(), expected);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    static Configuration createConfiguration() throws IOException {
+        ContinuousModelWriter writer = new ContinuousModelWriter(
+                new String[] {"SIL", "W", "AH", "N", "Z", "IH", "R", "OW"},
+                2, 39, 50.0f);
+        File model = writer.write(new Random(5));
+
+        Configuration configuration = new Configuration();
+        configuration.setAcousticModelPath(model.toURI().toString());
+        configuration.setDictionaryPath("resource:/edu/cmu/sphinx/linguist/language/ngram/arpa/test.dic");
+        configuration.setLanguageModelPath("resource:/edu/cmu/sphinx/linguist/language/ngram/arpa/test.lm");
+        return configuration;
+    }
+
+    /**
+     * Describes the results of all utterances of the test recording.
+     */
+    private static String decode(StreamSpeechRecognizer recognizer) throws IOException {
+        InputStream stream = RecognizerPoolTest.class
+                .getResourceAsStream("/edu/cmu/sphinx/tools/bandwidth/10001-90210-01803.wav");
+        stream.skip(44);
+        recognizer.startRecognition(stream);
+        StringBuilder description = new StringBuilder();
+        SpeechResult result;
+        while ((result = recognizer.getResult()) != null) {
+            assertNotNull(result.getResult().getBestToken());
+            description.append(result.getResult().getBestToken().getScore()).append(' ')
+                    .append(result.getWords()).append('\n');
+        }
+        recognizer.stopRecognition();
+        stream.close();
+        return description.toString();
+    }
+}
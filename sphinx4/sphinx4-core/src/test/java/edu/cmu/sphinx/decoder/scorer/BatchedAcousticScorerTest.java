@@ -0,0 +1,204 @@
+package edu.cmu.sphinx.decoder.scorer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.decoder.search.Token;
+import edu.cmu.sphinx.frontend.BaseDataProcessor;
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DataEndSignal;
+import edu.cmu.sphinx.frontend.DataStartSignal;
+import edu.cmu.sphinx.frontend.FloatData;
+import edu.cmu.sphinx.linguist.HMMSearchState;
+import edu.cmu.sphinx.linguist.SearchStateArc;
+import edu.cmu.sphinx.linguist.WordSequence;
+import edu.cmu.sphinx.linguist.acoustic.HMM;
+import edu.cmu.sphinx.linguist.acoustic.HMMState;
+import edu.cmu.sphinx.linguist.acoustic.UnitManager;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.GaussianMixture;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.SenoneHMMState;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.Sphinx3Loader;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.test.ContinuousModelWriter;
+
+/**
+ * Scores tokens on the states of a random tied state model and checks that
+ * the batched scorer gives every token exactly the score which the simple
+ * scorer gives it. The tokens scored by the batched scorer fail if a senone
+ * is scored per token, so the batched path is the one under test.
+ */
+public class BatchedAcousticScorerTest {
+
+    private static final int DIMENSION = 39;
+    private static final int FRAMES = 20;
+    private static final int TOKENS = 300;
+
+    @Test
+    public void testSingleThread() throws IOException {
+        assertSameScores(1);
+    }
+
+    @Test
+    public void testSeveralThreads() throws IOException {
+        assertSameScores(4);
+    }
+
+    private static void assertSameScores(int numThreads) throws IOException {
+        List<SenoneState> states = loadStates();
+        SimpleAcousticScorer reference = new SimpleAcousticScorer(createFrontEnd(), null);
+        BatchedAcousticScorer scorer = new BatchedAcousticScorer(createFrontEnd(), null, 2, false, numThreads,
+                Thread.NORM_PRIORITY);
+        reference.allocate();
+        reference.startRecognition();
+        scorer.allocate();
+        scorer.startRecognition();
+
+        Random random = new Random(17);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            List<Token> expected = new ArrayList<Token>();
+            List<Token> tokens = new ArrayList<Token>();
+            for (int i = 0; i < TOKENS; i++) {
+                // most states are shared by several tokens, some have no senone
+                SenoneState state = i % 10 == 0 ? new SenoneState(null)
+                        : states.get(random.nextInt(states.size()));
+                float score = -random.nextInt(1000);
+                expected.add(new Token(null, state, score, 0, 0, frame));
+                tokens.add(new BatchedToken(state, score, frame));
+            }
+
+            Data best = scorer.calculateScores(tokens);
+            Data expectedBest = reference.calculateScores(expected);
+            for (int i = 0; i < TOKENS; i++) {
+                assertEquals(tokens.get(i).getAcousticScore(), expected.get(i).getAcousticScore());
+                assertEquals(tokens.get(i).getScore(), expected.get(i).getScore());
+            }
+            assertSame(best, tokens.get(expected.indexOf(expectedBest)));
+        }
+
+        scorer.deallocate();
+        reference.deallocate();
+    }
+
+    private static List<SenoneState> loadStates() throws IOException {
+        ContinuousModelWriter writer = new ContinuousModelWriter(new String[] {"SIL", "AA", "B", "K"}, 4,
+                DIMENSION, 0.5f);
+        File model = writer.write(new Random(5));
+        Sphinx3Loader loader = new Sphinx3Loader(model.toURI().toURL(), new UnitManager(), 0.0f, 1e-7f, 1e-4f, 4,
+                false);
+        loader.load();
+
+        List<SenoneState> states = new ArrayList<SenoneState>();
+        for (HMM hmm : loader.getHMMManager()) {
+            for (int i = 0; i < ContinuousModelWriter.NUM_STATES; i++) {
+                HMMState state = hmm.getState(i);
+                assertEquals(((SenoneHMMState) state).getSenone().getClass(), GaussianMixture.class);
+                states.add(new SenoneState(state));
+            }
+        }
+        assertEquals(states.size(), writer.getNumSenones());
+        return states;
+    }
+
+    private static BaseDataProcessor createFrontEnd() {
+        return new BaseDataProcessor() {
+
+            private final Random random = new Random(23);
+            private int frame = -1;
+
+            @Override
+            public Data getData() {
+                if (frame > FRAMES)
+                    return null;
+                if (frame < 0) {
+                    frame++;
+                    return new DataStartSignal(16000);
+                }
+                if (frame++ == FRAMES)
+                    return new DataEndSignal(FRAMES * 10);
+                float[] values = new float[DIMENSION];
+                for (int i = 0; i < DIMENSION; i++)
+                    values[i] = (float) random.nextGaussian();
+                return new FloatData(values, 16000, (frame - 1) * 160);
+            }
+        };
+    }
+
+
+    /** A token which must not be scored on its own if its state has a senone */
+    private static class BatchedToken extends Token {
+
+        BatchedToken(SenoneState state, float score, long frame) {
+            super(null, state, score, 0, 0, frame);
+        }
+
+        @Override
+        public float calculateScore(Data feature) {
+            if (((SenoneState) getSearchState()).hmmState != null)
+                fail("senone scored per token");
+            return super.calculateScore(feature);
+        }
+    }
+
+
+    /** A search state of an HMM state, states without one score a constant */
+    private static class SenoneState implements HMMSearchState, ScoreProvider {
+
+        private final HMMState hmmState;
+
+        SenoneState(HMMState hmmState) {
+            this.hmmState = hmmState;
+        }
+
+        public HMMState getHMMState() {
+            return hmmState;
+        }
+
+        public float getScore(Data data) {
+            return hmmState == null ? -100 : hmmState.getScore(data);
+        }
+
+        public float[] getComponentScore(Data feature) {
+            return new float[] {getScore(feature)};
+        }
+
+        public SearchStateArc[] getSuccessors() {
+            return new SearchStateArc[0];
+        }
+
+        public boolean isEmitting() {
+            return true;
+        }
+
+        public boolean isFinal() {
+            return false;
+        }
+
+        public String toPrettyString() {
+            return getSignature();
+        }
+
+        public String getSignature() {
+            return String.valueOf(hmmState);
+        }
+
+        public WordSequence getWordHistory() {
+            return null;
+        }
+
+        public Object getLexState() {
+            return null;
+        }
+
+        public int getOrder() {
+            return 0;
+        }
+    }
+}
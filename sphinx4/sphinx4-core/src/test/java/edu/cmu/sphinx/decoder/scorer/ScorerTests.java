@@ -47,6 +47,7 @@ public class ScorerTests {
         List<Class<? extends SimpleAcousticScorer>> scorerClasses = new ArrayList<Class<? extends SimpleAcousticScorer>>();
         scorerClasses.add(SimpleAcousticScorer.class);
         scorerClasses.add(ThreadedAcousticScorer.class);
+        scorerClasses.add(BatchedAcousticScorer.class);
 
         for (Class<? extends SimpleAcousticScorer> scorerClass : scorerClasses) {
             System.err.println("testing: " + scorerClass.getSimpleName());
@@ -119,4 +120,39 @@ public class ScorerTests {
         
         // ensure that all scoring threads have died
     }
+
+
+    @Test
+    public void testWorkStealingScorer() {
+        Map<String, Object> props = new HashMap<String, Object>();
+        DataBufferProcessor dummyFrontEnd = createDummyFrontEnd();
+
+        props.put(SimpleAcousticScorer.FEATURE_FRONTEND, dummyFrontEnd);
+        props.put(ThreadedAcousticScorer.PROP_NUM_THREADS, 4);
+        props.put(ThreadedAcousticScorer.PROP_IS_CPU_RELATIVE, false);
+        props.put(ThreadedAcousticScorer.PROP_WORK_STEALING, true);
+        props.put(ThreadedAcousticScorer.PROP_SPIN_MICROS, 100);
+        AcousticScorer scorer = ConfigurationManager.getInstance(ThreadedAcousticScorer.class, props);
+
+        scorer.allocate();
+        scorer.startRecognition();
+
+        List<Token> tokens = new ArrayList<Token>();
+        for (int i = 0; i < 1000; i++) {
+            final float score = -Math.abs(i - 700);
+            tokens.add(new Token(null, 0.f, 0.f, 0.f, 0.f) {
+                @Override
+                public float calculateScore(Data feature) {
+                    setScore(score);
+                    return score;
+                }
+            });
+        }
+
+        for (int i = 0; i < 3; i++)
+            Assert.assertSame(scorer.calculateScores(tokens), tokens.get(700));
+
+        scorer.stopRecognition();
+        scorer.deallocate();
+    }
 }
@@ -0,0 +1,133 @@
+package edu.cmu.sphinx.decoder.search.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.decoder.search.BestTokenTable;
+import edu.cmu.sphinx.decoder.search.Token;
+import edu.cmu.sphinx.linguist.IndexedSearchState;
+import edu.cmu.sphinx.linguist.SearchState;
+import edu.cmu.sphinx.linguist.SearchStateArc;
+import edu.cmu.sphinx.linguist.WordSequence;
+
+public class BestTokenTableTest {
+
+    @Test
+    public void testHashedStates() {
+        BestTokenTable table = new BestTokenTable();
+        Token[] tokens = new Token[5000];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = new Token(new TestState(i, -1), 0);
+            table.put(new TestState(i, -1), tokens[i]);
+        }
+        for (int i = 0; i < tokens.length; i++)
+            assertSame(table.get(new TestState(i, -1)), tokens[i]);
+
+        Token better = new Token(new TestState(7, -1), 0);
+        table.put(new TestState(7, -1), better);
+        assertSame(table.get(new TestState(7, -1)), better);
+
+        table.clear();
+        for (int i = 0; i < tokens.length; i++)
+            assertNull(table.get(new TestState(i, -1)));
+        table.put(new TestState(7, -1), better);
+        assertSame(table.get(new TestState(7, -1)), better);
+        assertNull(table.get(new TestState(8, -1)));
+    }
+
+    @Test
+    public void testIndexedStates() {
+        BestTokenTable table = new BestTokenTable();
+        SearchState state = new TestState(1, 3);
+        Token token = new Token(state, 0);
+        table.put(state, token);
+        assertSame(table.get(state), token);
+        assertNull(table.get(new TestState(1, 4)));
+        assertNull(table.get(new TestState(1, 100)));
+
+        table.clear();
+        assertNull(table.get(state));
+    }
+
+    @Test
+    public void testMapView() {
+        BestTokenTable table = new BestTokenTable();
+        Map<SearchState, Token> map = table.asMap();
+        SearchState indexed = new TestState(1, 3);
+        SearchState hashed = new TestState(2, -1);
+        Token first = new Token(indexed, 0);
+        Token second = new Token(hashed, 0);
+        assertNull(map.put(indexed, first));
+        map.put(hashed, second);
+        assertSame(table.get(indexed), first);
+        assertSame(map.get(new TestState(2, -1)), second);
+        assertSame(map.put(hashed, first), second);
+        assertEquals(map.size(), 2);
+
+        table.clear();
+        assertEquals(map.size(), 0);
+        assertNull(map.get(hashed));
+    }
+
+    private static class TestState implements IndexedSearchState {
+
+        private final int id;
+        private final int index;
+
+        TestState(int id, int index) {
+            this.id = id;
+            this.index = index;
+        }
+
+        public int getStateIndex() {
+            return index;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 17;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestState && ((TestState) o).id == id;
+        }
+
+        public SearchStateArc[] getSuccessors() {
+            return new SearchStateArc[0];
+        }
+
+        public boolean isEmitting() {
+            return true;
+        }
+
+        public boolean isFinal() {
+            return false;
+        }
+
+        public String toPrettyString() {
+            return getSignature();
+        }
+
+        public String getSignature() {
+            return "test-" + id;
+        }
+
+        public WordSequence getWordHistory() {
+            return null;
+        }
+
+        public Object getLexState() {
+            return null;
+        }
+
+        public int getOrder() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.cmu.sphinx.decoder.search.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.decoder.search.ActiveList;
+import edu.cmu.sphinx.decoder.search.HistogramActiveListFactory;
+import edu.cmu.sphinx.decoder.search.Token;
+
+public class HistogramActiveListTest {
+
+    private static final int NUMBER_OF_BINS = 256;
+
+    @Test
+    public void testPurge() {
+        Random random = new Random(42);
+        int absoluteBeamWidth = 2000;
+        ActiveList activeList = new HistogramActiveListFactory(absoluteBeamWidth, 0, NUMBER_OF_BINS).newInstance();
+
+        Token parent = new Token(null, 0);
+        float[] scores = new float[20000];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = -random.nextFloat() * 100000;
+            activeList.add(new Token(parent, null, scores[i], 0.0f, 0.0f, i));
+        }
+        Token best = activeList.getBestToken();
+        activeList = activeList.purge();
+
+        assertEquals(activeList.size(), absoluteBeamWidth);
+        assertTrue(activeList.getTokens().contains(best));
+
+        // the kept tokens are in the order they were added
+        long last = -1;
+        float lowestKept = Float.MAX_VALUE;
+        for (Token token : activeList) {
+            assertTrue(token.getCollectTime() > last);
+            last = token.getCollectTime();
+            lowestKept = Math.min(lowestKept, token.getScore());
+        }
+
+        // the threshold is the one of the exact top n within a bin width
+        float[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        float exactThreshold = sorted[sorted.length - absoluteBeamWidth];
+        float binWidth = (sorted[sorted.length - 1] - sorted[0]) / NUMBER_OF_BINS;
+        assertTrue(Math.abs(lowestKept - exactThreshold) <= binWidth);
+    }
+
+    @Test
+    public void testRelativeBeamRange() {
+        // the histogram only spans the relative beam, so outliers do not
+        // make the bins coarse
+        int absoluteBeamWidth = 100;
+        ActiveList activeList = new HistogramActiveListFactory(absoluteBeamWidth, 1e-10, NUMBER_OF_BINS).newInstance();
+        Token parent = new Token(null, 0);
+        activeList.add(new Token(parent, null, -Float.MAX_VALUE, 0.0f, 0.0f, 0));
+        // the worst tokens first
+        for (int i = 1000; i > 0; i--)
+            activeList.add(new Token(parent, null, -1000 * i, 0.0f, 0.0f, 1001 - i));
+        activeList = activeList.purge();
+
+        assertEquals(activeList.size(), absoluteBeamWidth);
+        for (Token token : activeList)
+            assertTrue(token.getScore() >= -1000 * (absoluteBeamWidth + 1), "score " + token.getScore());
+    }
+
+    @Test
+    public void testNoPruning() {
+        Token parent = new Token(null, 0);
+        ActiveList unlimited = new HistogramActiveListFactory(-1, 0).newInstance();
+        ActiveList small = new HistogramActiveListFactory(100, 0).newInstance();
+        for (int i = 0; i < 50; i++) {
+            unlimited.add(new Token(parent, null, -i, 0.0f, 0.0f, i));
+            small.add(new Token(parent, null, -i, 0.0f, 0.0f, i));
+        }
+        for (int i = 50; i < 10000; i++)
+            unlimited.add(new Token(parent, null, -i, 0.0f, 0.0f, i));
+
+        assertEquals(unlimited.purge().size(), 10000);
+        assertEquals(small.purge().size(), 50);
+    }
+
+    @Test
+    public void testEqualScores() {
+        ActiveList activeList = new HistogramActiveListFactory(10, 0).newInstance();
+        Token parent = new Token(null, 0);
+        for (int i = 0; i < 100; i++)
+            activeList.add(new Token(parent, null, -1.0f, 0.0f, 0.0f, i));
+        assertEquals(activeList.purge().size(), 10);
+    }
+}
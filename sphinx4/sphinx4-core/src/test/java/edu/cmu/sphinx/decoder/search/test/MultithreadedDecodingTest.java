@@ -0,0 +1,127 @@
+package edu.cmu.sphinx.decoder.search.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.decoder.pruner.SimplePruner;
+import edu.cmu.sphinx.decoder.scorer.AcousticScorer;
+import edu.cmu.sphinx.decoder.scorer.BatchedAcousticScorer;
+import edu.cmu.sphinx.decoder.scorer.SimpleAcousticScorer;
+import edu.cmu.sphinx.decoder.scorer.ThreadedAcousticScorer;
+import edu.cmu.sphinx.decoder.search.ActiveListFactory;
+import edu.cmu.sphinx.decoder.search.PartitionActiveListFactory;
+import edu.cmu.sphinx.decoder.search.SimpleActiveListManager;
+import edu.cmu.sphinx.decoder.search.WordPruningBreadthFirstSearchManager;
+import edu.cmu.sphinx.frontend.BaseDataProcessor;
+import edu.cmu.sphinx.linguist.acoustic.UnitManager;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.Sphinx3Loader;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.test.ContinuousModelWriter;
+import edu.cmu.sphinx.result.Lattice;
+import edu.cmu.sphinx.result.Result;
+
+/**
+ * Checks that multithreaded scoring finds exactly the same
+ * hypotheses, scores and lattices as single threaded decoding.
+ */
+public class MultithreadedDecodingTest {
+
+    private static final int FRAMES = 100;
+    private static final int THREADS = 4;
+    private static final long[] SEEDS = {11, 12, 13};
+
+    @Test
+    public void testThreadedScorer() {
+        for (long seed : SEEDS) {
+            String expected = decode(seed, new SimpleAcousticScorer(frontEnd(seed), null));
+            assertEquals(decode(seed, new ThreadedAcousticScorer(frontEnd(seed), null, 5, false, THREADS,
+                    Thread.NORM_PRIORITY)), expected);
+        }
+    }
+
+    @Test
+    public void testWorkStealingScorer() {
+        for (long seed : SEEDS) {
+            String expected = decode(seed, new SimpleAcousticScorer(frontEnd(seed), null));
+            assertEquals(decode(seed, new ThreadedAcousticScorer(frontEnd(seed), null, 5, false, THREADS,
+                    Thread.NORM_PRIORITY, true, 1, 0)), expected);
+        }
+    }
+
+    /**
+     * The batched scorer only scores senones of a tied state model itself,
+     * so the states are scored by a random continuous model.
+     */
+    @Test
+    public void testBatchedScorer() throws IOException {
+        ContinuousModelWriter writer = new ContinuousModelWriter(new String[] {"SIL", "AA", "B", "K", "S", "T"}, 2,
+                RandomLinguist.DIMENSION, 0.5f);
+        Sphinx3Loader model = new Sphinx3Loader(writer.write(new Random(3)).toURI().toURL(), new UnitManager(),
+                0.0f, 1e-7f, 1e-4f, 2, false);
+        model.load();
+
+        for (long seed : SEEDS) {
+            String expected = decode(new RandomLinguist(80, 3, seed, true, model),
+                    new SimpleAcousticScorer(frontEnd(seed), null));
+            assertEquals(decode(new RandomLinguist(80, 3, seed, true, model),
+                    new BatchedAcousticScorer(frontEnd(seed), null, 5, false, 1, Thread.NORM_PRIORITY)), expected);
+            assertEquals(decode(new RandomLinguist(80, 3, seed, true, model),
+                    new BatchedAcousticScorer(frontEnd(seed), null, 5, false, THREADS, Thread.NORM_PRIORITY)),
+                    expected);
+        }
+    }
+
+    @Test
+    public void testRepeatedRuns() {
+        String expected = decode(SEEDS[0], new ThreadedAcousticScorer(frontEnd(SEEDS[0]), null, 5, false, THREADS,
+                Thread.NORM_PRIORITY, true, 1, 0));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(decode(SEEDS[0], new ThreadedAcousticScorer(frontEnd(SEEDS[0]), null, 5, false, THREADS,
+                    Thread.NORM_PRIORITY, true, 1, 0)), expected);
+        }
+    }
+
+    private static BaseDataProcessor frontEnd(long seed) {
+        return RandomLinguist.createFrontEnd(FRAMES, seed);
+    }
+
+    /**
+     * Decodes random features and describes the partial results, the best
+     * path, the tokens and the lattice of the final result.
+     */
+    private static String decode(long seed, AcousticScorer scorer) {
+        return decode(new RandomLinguist(80, 3, seed), scorer);
+    }
+
+    private static String decode(RandomLinguist linguist, AcousticScorer scorer) {
+        SimpleActiveListManager activeListManager = new SimpleActiveListManager(Arrays.<ActiveListFactory> asList(
+                new PartitionActiveListFactory(40, 1e-40), new PartitionActiveListFactory(150, 1e-40)), false);
+        WordPruningBreadthFirstSearchManager searchManager = new WordPruningBreadthFirstSearchManager(linguist,
+                new SimplePruner(), scorer, activeListManager, false, 1e-40, 0, false, true, 100, 0, true, false);
+
+        StringBuilder description = new StringBuilder();
+        searchManager.allocate();
+        searchManager.startRecognition();
+        Result result;
+        do {
+            result = searchManager.recognize(1);
+            description.append(result.getBestResultNoFiller()).append('\n');
+        } while (!result.isFinal());
+        searchManager.stopRecognition();
+        searchManager.deallocate();
+
+        assertFalse(result.getResultTokens().isEmpty());
+        description.append(result.getTimedBestResult(true)).append('\n');
+        description.append(RandomLinguist.describe(result));
+        Lattice lattice = new Lattice(result);
+        assertTrue(lattice.getEdges().size() > lattice.getNodes().size(), "lattice has alternatives");
+        description.append(RandomLinguist.describe(lattice));
+        return description.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package edu.cmu.sphinx.decoder.search.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.decoder.pruner.SimplePruner;
+import edu.cmu.sphinx.decoder.scorer.SimpleAcousticScorer;
+import edu.cmu.sphinx.decoder.search.ActiveListFactory;
+import edu.cmu.sphinx.decoder.search.ParallelWordPruningBreadthFirstSearchManager;
+import edu.cmu.sphinx.decoder.search.PartitionActiveListFactory;
+import edu.cmu.sphinx.decoder.search.SimpleActiveListManager;
+import edu.cmu.sphinx.decoder.search.WordPruningBreadthFirstSearchManager;
+import edu.cmu.sphinx.result.Lattice;
+import edu.cmu.sphinx.result.Result;
+
+/**
+ * Checks that growing the emitting branches on several threads creates
+ * exactly the tokens, scores, predecessors and lattices of the serial search.
+ */
+public class ParallelWordPruningBreadthFirstSearchManagerTest {
+
+    private static final int FRAMES = 80;
+    private static final int THREADS = 4;
+
+    @Test
+    public void testLattice() {
+        assertSameSearch(true, true, true, 0, false);
+    }
+
+    @Test
+    public void testKeepAllTokens() {
+        assertSameSearch(true, false, true, 0, false);
+    }
+
+    @Test
+    public void testAcousticLookahead() {
+        assertSameSearch(true, true, true, 1.5f, false);
+    }
+
+    @Test
+    public void testWordTokenLast() {
+        assertSameSearch(false, true, true, 0, false);
+        assertSameSearch(false, false, true, 0, false);
+    }
+
+    @Test
+    public void testTokenPool() {
+        assertSameSearch(true, false, false, 0, true);
+        assertSameSearch(false, false, true, 0, true);
+    }
+
+    private static void assertSameSearch(boolean wordTokenFirst, boolean buildWordLattice, boolean keepAllTokens,
+            float acousticLookaheadFrames, boolean tokenPool) {
+        for (long seed = 1; seed <= 3; seed++) {
+            RandomLinguist linguist = new RandomLinguist(60, 3, seed, wordTokenFirst);
+
+            WordPruningBreadthFirstSearchManager serial = new WordPruningBreadthFirstSearchManager(linguist,
+                    new SimplePruner(), new SimpleAcousticScorer(RandomLinguist.createFrontEnd(FRAMES, seed), null),
+                    createActiveListManager(), false, 1e-40, 0, false, buildWordLattice, 100,
+                    acousticLookaheadFrames, keepAllTokens, tokenPool);
+            WordPruningBreadthFirstSearchManager parallel = new ParallelWordPruningBreadthFirstSearchManager(linguist,
+                    new SimplePruner(), new SimpleAcousticScorer(RandomLinguist.createFrontEnd(FRAMES, seed), null),
+                    createActiveListManager(), false, 1e-40, 0, false, buildWordLattice, 100,
+                    acousticLookaheadFrames, keepAllTokens, tokenPool, THREADS, false, 5);
+
+            String expected = decode(serial, buildWordLattice);
+            assertEquals(decode(parallel, buildWordLattice), expected);
+        }
+    }
+
+    private static SimpleActiveListManager createActiveListManager() {
+        return new SimpleActiveListManager(Arrays.<ActiveListFactory> asList(
+                new PartitionActiveListFactory(30, 1e-40), new PartitionActiveListFactory(120, 1e-40)), false);
+    }
+
+    /**
+     * Decodes frame by frame and describes the best scores, the final tokens
+     * and the lattice, if one is built.
+     */
+    private static String decode(WordPruningBreadthFirstSearchManager searchManager, boolean buildWordLattice) {
+        Set<Thread> growThreads = getGrowThreads();
+        searchManager.allocate();
+        searchManager.startRecognition();
+        StringBuilder description = new StringBuilder();
+        Result result;
+        do {
+            result = searchManager.recognize(1);
+            if (result.getBestToken() != null)
+                description.append(Float.floatToIntBits(result.getBestToken().getScore())).append('\n');
+        } while (!result.isFinal());
+        assertFalse(result.getResultTokens().isEmpty());
+        description.append(RandomLinguist.describe(result));
+        if (buildWordLattice)
+            description.append(RandomLinguist.describe(new Lattice(result)));
+        searchManager.stopRecognition();
+
+        // the pool only starts a thread for a submitted chunk
+        if (searchManager instanceof ParallelWordPruningBreadthFirstSearchManager)
+            assertFalse(growThreads.containsAll(getGrowThreads()), "branches grown in parallel");
+        searchManager.deallocate();
+        return description.toString();
+    }
+
+    private static Set<Thread> getGrowThreads() {
+        Set<Thread> threads = new HashSet<Thread>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(ParallelWordPruningBreadthFirstSearchManager.class.getSimpleName()))
+                threads.add(thread);
+        }
+        return threads;
+    }
+}
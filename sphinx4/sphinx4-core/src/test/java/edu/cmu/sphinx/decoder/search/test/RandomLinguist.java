@@ -0,0 +1,428 @@
+package edu.cmu.sphinx.decoder.search.test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import edu.cmu.sphinx.decoder.scorer.ScoreProvider;
+import edu.cmu.sphinx.decoder.search.AlternateHypothesisManager;
+import edu.cmu.sphinx.decoder.search.Token;
+import edu.cmu.sphinx.frontend.BaseDataProcessor;
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DataEndSignal;
+import edu.cmu.sphinx.frontend.DataStartSignal;
+import edu.cmu.sphinx.frontend.FloatData;
+import edu.cmu.sphinx.linguist.ConcurrentSearchGraph;
+import edu.cmu.sphinx.linguist.HMMSearchState;
+import edu.cmu.sphinx.linguist.Linguist;
+import edu.cmu.sphinx.linguist.SearchGraph;
+import edu.cmu.sphinx.linguist.SearchState;
+import edu.cmu.sphinx.linguist.SearchStateArc;
+import edu.cmu.sphinx.linguist.WordSearchState;
+import edu.cmu.sphinx.linguist.WordSequence;
+import edu.cmu.sphinx.linguist.acoustic.HMM;
+import edu.cmu.sphinx.linguist.acoustic.HMMState;
+import edu.cmu.sphinx.linguist.acoustic.Unit;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.Loader;
+import edu.cmu.sphinx.linguist.dictionary.Dictionary;
+import edu.cmu.sphinx.linguist.dictionary.Pronunciation;
+import edu.cmu.sphinx.linguist.dictionary.Word;
+import edu.cmu.sphinx.result.Edge;
+import edu.cmu.sphinx.result.Lattice;
+import edu.cmu.sphinx.result.Node;
+import edu.cmu.sphinx.result.Result;
+import edu.cmu.sphinx.util.LogMath;
+import edu.cmu.sphinx.util.props.PropertyException;
+import edu.cmu.sphinx.util.props.PropertySheet;
+
+/**
+ * A linguist with a random word loop, so that the search can be tested
+ * without acoustic and language models. Every word is a chain of emitting
+ * states with self loops, which are scored by a gaussian with random means.
+ * The last state of a word leads to all words and to the sentence end, the
+ * word tokens come first. A linguist with the word tokens last puts the word
+ * state after the states of the word instead, it leads to the first states
+ * of all words and to the sentence end.
+ * <p>
+ * The states can also be scored by the senones of a loaded acoustic model,
+ * then every emitting state is an {@link HMMSearchState} on a random HMM
+ * state of the model, so that several states share a senone.
+ * <p>
+ * All arcs are created by the constructor, so the search graph is a
+ * {@link ConcurrentSearchGraph}.
+ */
+public class RandomLinguist implements Linguist {
+
+    public static final int DIMENSION = 4;
+    public static final int SAMPLE_RATE = 16000;
+
+    private final LogMath logMath = LogMath.getLogMath();
+    private final WordState initialState;
+    private final boolean wordTokenFirst;
+
+    public RandomLinguist(int numWords, int numStates, long seed) {
+        this(numWords, numStates, seed, true);
+    }
+
+    public RandomLinguist(int numWords, int numStates, long seed, boolean wordTokenFirst) {
+        this(numWords, numStates, seed, wordTokenFirst, null);
+    }
+
+    /**
+     * @param numWords the number of words of the loop
+     * @param numStates the number of emitting states of a word
+     * @param seed the seed of the graph
+     * @param wordTokenFirst whether the word states come before the states of a word
+     * @param model the loaded model whose HMM states score the states, null for random gaussians
+     */
+    public RandomLinguist(int numWords, int numStates, long seed, boolean wordTokenFirst, Loader model) {
+        this.wordTokenFirst = wordTokenFirst;
+        Random random = new Random(seed);
+
+        List<HMMState> hmmStates = new ArrayList<HMMState>();
+        if (model != null) {
+            for (HMM hmm : model.getHMMManager()) {
+                for (int i = 0; i < hmm.getOrder(); i++)
+                    hmmStates.add(hmm.getState(i));
+            }
+        }
+
+        List<WordState> words = new ArrayList<WordState>();
+        for (int i = 0; i < numWords; i++)
+            words.add(new WordState("w" + i));
+        WordState sentenceEnd = new WordState(Dictionary.SENTENCE_END_SPELLING);
+        initialState = new WordState(Dictionary.SENTENCE_START_SPELLING);
+
+        List<SearchStateArc> wordEntries = new ArrayList<SearchStateArc>();
+        List<HmmState> firstStates = new ArrayList<HmmState>();
+        for (WordState word : words) {
+            HmmState[] states = new HmmState[numStates];
+            for (int i = 0; i < numStates; i++) {
+                float[] means = new float[DIMENSION];
+                for (int j = 0; j < DIMENSION; j++)
+                    means[j] = random.nextFloat() * 2 - 1;
+                HMMState hmmState = hmmStates.isEmpty() ? null : hmmStates.get(random.nextInt(hmmStates.size()));
+                states[i] = new HmmState(word.toString() + '.' + i, means, hmmState);
+            }
+            for (int i = 0; i < numStates; i++) {
+                float loop = 0.3f + random.nextFloat() * 0.6f;
+                List<SearchStateArc> arcs = new ArrayList<SearchStateArc>();
+                arcs.add(new Arc(states[i], 0, logMath.linearToLog(loop)));
+                if (i + 1 < numStates) {
+                    arcs.add(new Arc(states[i + 1], 0, logMath.linearToLog(1 - loop)));
+                } else if (!wordTokenFirst) {
+                    arcs.add(new Arc(word, 0, logMath.linearToLog(1 - loop)));
+                } else {
+                    for (WordState next : words)
+                        arcs.add(new Arc(next, logMath.linearToLog(random.nextFloat() / numWords),
+                                logMath.linearToLog(1 - loop)));
+                    arcs.add(new Arc(sentenceEnd, logMath.linearToLog(1.0 / numWords),
+                            logMath.linearToLog(1 - loop)));
+                }
+                states[i].arcs = arcs.toArray(new SearchStateArc[arcs.size()]);
+            }
+            if (wordTokenFirst)
+                word.arcs = new SearchStateArc[] {new Arc(states[0], 0, 0)};
+            firstStates.add(states[0]);
+            wordEntries.add(new Arc(states[0], logMath.linearToLog(1.0 / numWords), 0));
+        }
+        if (!wordTokenFirst) {
+            for (WordState word : words) {
+                List<SearchStateArc> arcs = new ArrayList<SearchStateArc>();
+                for (HmmState next : firstStates)
+                    arcs.add(new Arc(next, logMath.linearToLog(random.nextFloat() / numWords), 0));
+                arcs.add(new Arc(sentenceEnd, logMath.linearToLog(1.0 / numWords), 0));
+                word.arcs = arcs.toArray(new SearchStateArc[arcs.size()]);
+            }
+        }
+        initialState.arcs = wordEntries.toArray(new SearchStateArc[wordEntries.size()]);
+        sentenceEnd.arcs = new SearchStateArc[0];
+    }
+
+    /**
+     * Creates a front end which returns random features.
+     *
+     * @param numFrames the number of features
+     * @param seed the seed of the features
+     * @return the front end
+     */
+    public static BaseDataProcessor createFrontEnd(final int numFrames, final long seed) {
+        return new BaseDataProcessor() {
+
+            private final Random random = new Random(seed);
+            private int frame = -1;
+
+            @Override
+            public Data getData() {
+                if (frame > numFrames)
+                    return null;
+                if (frame < 0) {
+                    frame++;
+                    return new DataStartSignal(SAMPLE_RATE);
+                }
+                if (frame++ == numFrames)
+                    return new DataEndSignal(numFrames * 10);
+                float[] values = new float[DIMENSION];
+                for (int i = 0; i < DIMENSION; i++)
+                    values[i] = random.nextFloat() * 2 - 1;
+                return new FloatData(values, SAMPLE_RATE, (frame - 1) * SAMPLE_RATE / 100);
+            }
+        };
+    }
+
+    /**
+     * Describes the tokens of a result, their scores, their predecessors and
+     * their alternate predecessors, so that results can be compared.
+     *
+     * @param result the result
+     * @return the description
+     */
+    public static String describe(Result result) {
+        AlternateHypothesisManager alternates = result.getAlternateHypothesisManager();
+        Map<Token, Integer> ids = new IdentityHashMap<Token, Integer>();
+        Deque<Token> queue = new ArrayDeque<Token>();
+        StringBuilder description = new StringBuilder();
+
+        description.append("active:");
+        for (Token token : result.getActiveTokens())
+            description.append(' ').append(getId(token, ids, queue));
+        description.append("\nresults:");
+        for (Token token : result.getResultTokens())
+            description.append(' ').append(getId(token, ids, queue));
+        description.append('\n');
+
+        while (!queue.isEmpty()) {
+            Token token = queue.poll();
+            description.append(ids.get(token)).append(' ');
+            description.append(token.getSearchState() == null ? "-" : token.getSearchState().getSignature());
+            description.append(' ').append(Float.floatToIntBits(token.getScore()));
+            description.append(' ').append(Float.floatToIntBits(token.getAcousticScore()));
+            description.append(' ').append(Float.floatToIntBits(token.getLanguageScore()));
+            description.append(' ').append(token.getCollectTime());
+            description.append(" <- ").append(getId(token.getPredecessor(), ids, queue));
+            List<Token> losers = alternates == null ? null : alternates.getAlternatePredecessors(token);
+            if (losers != null) {
+                for (Token loser : losers)
+                    description.append(' ').append(getId(loser, ids, queue));
+            }
+            description.append('\n');
+        }
+        return description.toString();
+    }
+
+    /**
+     * Describes the nodes and edges of a lattice. The node IDs are not
+     * stable from run to run, so nodes are described by word and times.
+     *
+     * @param lattice the lattice
+     * @return the description
+     */
+    public static String describe(Lattice lattice) {
+        List<String> nodes = new ArrayList<String>();
+        for (Node node : lattice.getNodes())
+            nodes.add(describe(node));
+        List<String> edges = new ArrayList<String>();
+        for (Edge edge : lattice.getEdges()) {
+            edges.add(describe(edge.getFromNode()) + " -> " + describe(edge.getToNode()) + ' '
+                    + Double.doubleToLongBits(edge.getAcousticScore()) + ' '
+                    + Double.doubleToLongBits(edge.getLMScore()));
+        }
+        Collections.sort(nodes);
+        Collections.sort(edges);
+        return "nodes: " + nodes + "\nedges: " + edges + '\n';
+    }
+
+    private static String describe(Node node) {
+        return node.getWord().getSpelling() + '[' + node.getBeginTime() + ':' + node.getEndTime() + ']';
+    }
+
+    private static String getId(Token token, Map<Token, Integer> ids, Deque<Token> queue) {
+        if (token == null)
+            return "null";
+        Integer id = ids.get(token);
+        if (id == null) {
+            id = ids.size();
+            ids.put(token, id);
+            queue.add(token);
+        }
+        return id.toString();
+    }
+
+    public void newProperties(PropertySheet ps) throws PropertyException {
+    }
+
+    public SearchGraph getSearchGraph() {
+        return new ConcurrentSearchGraph() {
+
+            public SearchState getInitialState() {
+                return initialState;
+            }
+
+            public int getNumStateOrder() {
+                return 2;
+            }
+
+            public boolean getWordTokenFirst() {
+                return wordTokenFirst;
+            }
+        };
+    }
+
+    public void startRecognition() {
+    }
+
+    public void stopRecognition() {
+    }
+
+    public void allocate() {
+    }
+
+    public void deallocate() {
+    }
+
+
+    private static class Arc implements SearchStateArc {
+
+        private final SearchState state;
+        private final float languageProbability;
+        private final float insertionProbability;
+
+        Arc(SearchState state, float languageProbability, float insertionProbability) {
+            this.state = state;
+            this.languageProbability = languageProbability;
+            this.insertionProbability = insertionProbability;
+        }
+
+        public SearchState getState() {
+            return state;
+        }
+
+        public float getProbability() {
+            return languageProbability + insertionProbability;
+        }
+
+        public float getLanguageProbability() {
+            return languageProbability;
+        }
+
+        public float getInsertionProbability() {
+            return insertionProbability;
+        }
+    }
+
+
+    private static abstract class State implements SearchState {
+
+        private final String name;
+        SearchStateArc[] arcs;
+
+        State(String name) {
+            this.name = name;
+        }
+
+        public SearchStateArc[] getSuccessors() {
+            return arcs;
+        }
+
+        public String toPrettyString() {
+            return name;
+        }
+
+        public String getSignature() {
+            return name;
+        }
+
+        public WordSequence getWordHistory() {
+            return null;
+        }
+
+        public Object getLexState() {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+
+    private static class WordState extends State implements WordSearchState {
+
+        private final Pronunciation pronunciation;
+
+        WordState(String spelling) {
+            super(spelling);
+            pronunciation = new Pronunciation(new Unit[0], null, 1.0f);
+            pronunciation.setWord(new Word(spelling, new Pronunciation[] {pronunciation}, false));
+        }
+
+        public boolean isEmitting() {
+            return false;
+        }
+
+        public boolean isFinal() {
+            return toString().equals(Dictionary.SENTENCE_END_SPELLING);
+        }
+
+        public int getOrder() {
+            return 0;
+        }
+
+        public Pronunciation getPronunciation() {
+            return pronunciation;
+        }
+
+        public boolean isWordStart() {
+            return false;
+        }
+    }
+
+
+    private class HmmState extends State implements HMMSearchState, ScoreProvider {
+
+        private final float[] means;
+        private final HMMState hmmState;
+
+        HmmState(String name, float[] means, HMMState hmmState) {
+            super(name);
+            this.means = means;
+            this.hmmState = hmmState;
+        }
+
+        public HMMState getHMMState() {
+            return hmmState;
+        }
+
+        public boolean isEmitting() {
+            return true;
+        }
+
+        public boolean isFinal() {
+            return false;
+        }
+
+        public int getOrder() {
+            return 1;
+        }
+
+        public float getScore(Data data) {
+            if (hmmState != null)
+                return hmmState.getScore(data);
+            float[] values = ((FloatData) data).getValues();
+            float distance = 0;
+            for (int i = 0; i < means.length; i++)
+                distance += (values[i] - means[i]) * (values[i] - means[i]);
+            return logMath.lnToLog(-distance * 4);
+        }
+
+        public float[] getComponentScore(Data data) {
+            return new float[] {getScore(data)};
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package edu.cmu.sphinx.decoder.search.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.decoder.pruner.SimplePruner;
+import edu.cmu.sphinx.decoder.scorer.SimpleAcousticScorer;
+import edu.cmu.sphinx.decoder.search.ActiveListFactory;
+import edu.cmu.sphinx.decoder.search.PartitionActiveListFactory;
+import edu.cmu.sphinx.decoder.search.SearchManager;
+import edu.cmu.sphinx.decoder.search.SimpleActiveListManager;
+import edu.cmu.sphinx.decoder.search.SimpleBreadthFirstSearchManager;
+import edu.cmu.sphinx.decoder.search.WordPruningBreadthFirstSearchManager;
+import edu.cmu.sphinx.result.Result;
+import edu.cmu.sphinx.result.WordResult;
+
+public class StableWordsTest {
+
+    private static final int FRAMES = 150;
+
+    @Test
+    public void testWordPruning() {
+        for (long seed = 1; seed <= 3; seed++) {
+            assertStableWords(createWordPruning(seed, true, false, false), true);
+            assertStableWords(createWordPruning(seed, true, false, false), false);
+        }
+    }
+
+    @Test
+    public void testKeepAllTokens() {
+        for (long seed = 1; seed <= 3; seed++)
+            assertStableWords(createWordPruning(seed, true, true, true), true);
+    }
+
+    @Test
+    public void testWordTokenLast() {
+        for (long seed = 1; seed <= 3; seed++) {
+            assertStableWords(createWordPruning(seed, false, false, false), true);
+            assertStableWords(createWordPruning(seed, false, false, false), false);
+            assertStableWords(createWordPruning(seed, false, true, true), true);
+        }
+    }
+
+    @Test
+    public void testSimpleSearch() {
+        for (long seed = 1; seed <= 3; seed++) {
+            SearchManager searchManager = new SimpleBreadthFirstSearchManager(new RandomLinguist(30, 3, seed),
+                    new SimplePruner(), new SimpleAcousticScorer(RandomLinguist.createFrontEnd(FRAMES, seed), null),
+                    new PartitionActiveListFactory(100, 1e-40), false, 1e-40, 0, false);
+            assertStableWords(searchManager, true);
+        }
+    }
+
+    private static SearchManager createWordPruning(long seed, boolean wordTokenFirst, boolean buildWordLattice,
+            boolean keepAllTokens) {
+        SimpleActiveListManager activeListManager = new SimpleActiveListManager(Arrays.<ActiveListFactory> asList(
+                new PartitionActiveListFactory(30, 1e-40), new PartitionActiveListFactory(120, 1e-40)), false);
+        return new WordPruningBreadthFirstSearchManager(new RandomLinguist(30, 3, seed, wordTokenFirst),
+                new SimplePruner(),
+                new SimpleAcousticScorer(RandomLinguist.createFrontEnd(FRAMES, seed), null), activeListManager, false,
+                1e-40, 0, false, buildWordLattice, 100, 0, keepAllTokens, false);
+    }
+
+    /**
+     * Decodes frame by frame and checks that the stable words add up to the
+     * final best result and that some words are stable before the end.
+     */
+    private static void assertStableWords(SearchManager searchManager, boolean withFillers) {
+        searchManager.allocate();
+        searchManager.startRecognition();
+        List<String> stableWords = new ArrayList<String>();
+        int earlyWords = 0;
+        Result result;
+        do {
+            result = searchManager.recognize(1);
+            for (WordResult word : result.getNewStableWords(withFillers)) {
+                stableWords.add(word.toString());
+                if (!result.isFinal())
+                    earlyWords++;
+            }
+            assertTrue(result.getNewStableWords(withFillers).isEmpty());
+        } while (!result.isFinal());
+        searchManager.stopRecognition();
+        searchManager.deallocate();
+
+        List<String> bestWords = new ArrayList<String>();
+        for (WordResult word : result.getTimedBestResult(withFillers))
+            bestWords.add(word.toString());
+        assertEquals(stableWords, bestWords);
+        assertTrue(earlyWords > 0, "words are stable before the end");
+    }
+}
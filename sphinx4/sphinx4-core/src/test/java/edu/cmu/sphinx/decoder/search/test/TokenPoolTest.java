@@ -0,0 +1,145 @@
+package edu.cmu.sphinx.decoder.search.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.decoder.pruner.SimplePruner;
+import edu.cmu.sphinx.decoder.scorer.SimpleAcousticScorer;
+import edu.cmu.sphinx.decoder.search.ActiveListFactory;
+import edu.cmu.sphinx.decoder.search.PartitionActiveListFactory;
+import edu.cmu.sphinx.decoder.search.SimpleActiveListManager;
+import edu.cmu.sphinx.decoder.search.Token;
+import edu.cmu.sphinx.decoder.search.TokenPool;
+import edu.cmu.sphinx.decoder.search.WordPruningBreadthFirstSearchManager;
+import edu.cmu.sphinx.result.Lattice;
+import edu.cmu.sphinx.result.Result;
+
+public class TokenPoolTest {
+
+    private static final int FRAMES = 150;
+    private static final long[] SEEDS = {21, 22, 23};
+
+    @Test
+    public void testRecycling() {
+        TokenPool pool = new TokenPool();
+        Token root = pool.get(null, null, 0, 0, 0, 0);
+        List<Token> active = new ArrayList<Token>();
+        List<Token> pruned = new ArrayList<Token>();
+        for (int i = 0; i < 10; i++) {
+            Token token = pool.get(root, null, i, 0, 0, 1);
+            if (i % 2 == 0)
+                active.add(token);
+            else
+                pruned.add(token);
+        }
+
+        pool.mark(active);
+        pool.sweep();
+        assertEquals(pool.getNumFree(), pruned.size());
+        for (Token token : pruned)
+            assertNull(token.getPredecessor());
+
+        List<Token> next = new ArrayList<Token>();
+        for (Token token : active)
+            next.add(pool.get(token, null, token.getScore(), 0, 0, 2));
+        assertEquals(pool.getNumFree(), 0);
+        for (int i = 0; i < next.size(); i++) {
+            assertSame(next.get(i).getPredecessor(), active.get(i));
+            assertSame(active.get(i).getPredecessor(), root);
+        }
+
+        // tokens which survived two sweeps leave the pool
+        int dropped = 2 * (next.size() - 1);
+        pool.mark(next.subList(0, 1));
+        pool.sweep();
+        assertEquals(pool.getNumFree(), dropped);
+        pool.mark(next.subList(0, 1));
+        pool.sweep();
+        assertEquals(pool.getNumFree(), dropped);
+        assertSame(next.get(0).getPredecessor(), active.get(0));
+        assertSame(active.get(0).getPredecessor(), root);
+
+        pool.sweep();
+        assertEquals(pool.getNumFree(), dropped);
+        Token reused = pool.get(null, null, 0, 0, 0, 3);
+        assertNotSame(reused, next.get(0));
+        assertNotSame(reused, root);
+    }
+
+    /**
+     * Decodes with and without recycling tokens and compares the partial
+     * results, the stable words, the token graph and the lattice. Recycling a
+     * token which is still referenced would change some of them.
+     */
+    @Test
+    public void testDecoding() {
+        for (long seed : SEEDS) {
+            for (boolean wordTokenFirst : new boolean[] {true, false}) {
+                assertSameDecoding(seed, wordTokenFirst, false, false);
+                assertSameDecoding(seed, wordTokenFirst, false, true);
+                // lattices need all tokens
+                assertSameDecoding(seed, wordTokenFirst, true, true);
+            }
+        }
+    }
+
+    private static void assertSameDecoding(long seed, boolean wordTokenFirst, boolean buildWordLattice,
+            boolean keepAllTokens) {
+        PooledSearchManager pooled = new PooledSearchManager(seed, wordTokenFirst, buildWordLattice, keepAllTokens,
+                true);
+        String expected = decode(new PooledSearchManager(seed, wordTokenFirst, buildWordLattice, keepAllTokens,
+                false), buildWordLattice);
+        assertEquals(decode(pooled, buildWordLattice), expected);
+        assertTrue(pooled.getRecycled() > 0, "tokens are recycled");
+    }
+
+    /**
+     * Describes what a decoding reports, partial results are described
+     * before the next frame since the pool may reuse their tokens then.
+     */
+    private static String decode(PooledSearchManager searchManager, boolean buildWordLattice) {
+        StringBuilder description = new StringBuilder();
+        searchManager.allocate();
+        searchManager.startRecognition();
+        Result result;
+        do {
+            result = searchManager.recognize(1);
+            description.append(result.getBestResultNoFiller()).append(' ');
+            description.append(result.getNewStableWords(true)).append('\n');
+        } while (!result.isFinal());
+        searchManager.stopRecognition();
+        searchManager.deallocate();
+
+        description.append(result.getTimedBestResult(true)).append('\n');
+        description.append(RandomLinguist.describe(result));
+        if (buildWordLattice)
+            description.append(RandomLinguist.describe(new Lattice(result)));
+        return description.toString();
+    }
+
+
+    private static class PooledSearchManager extends WordPruningBreadthFirstSearchManager {
+
+        PooledSearchManager(long seed, boolean wordTokenFirst, boolean buildWordLattice, boolean keepAllTokens,
+                boolean tokenPool) {
+            super(new RandomLinguist(30, 3, seed, wordTokenFirst), new SimplePruner(),
+                    new SimpleAcousticScorer(RandomLinguist.createFrontEnd(FRAMES, seed), null),
+                    new SimpleActiveListManager(Arrays.<ActiveListFactory> asList(
+                            new PartitionActiveListFactory(30, 1e-40), new PartitionActiveListFactory(120, 1e-40)),
+                            false), false, 1e-40, 0, false, buildWordLattice, 100, 0, keepAllTokens, tokenPool);
+        }
+
+        long getRecycled() {
+            return tokenPool == null ? 0 : tokenPool.getRecycled();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package edu.cmu.sphinx.decoder.search.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.decoder.pruner.SimplePruner;
+import edu.cmu.sphinx.decoder.scorer.SimpleAcousticScorer;
+import edu.cmu.sphinx.decoder.search.ActiveListFactory;
+import edu.cmu.sphinx.decoder.search.PartitionActiveListFactory;
+import edu.cmu.sphinx.decoder.search.SimpleActiveListManager;
+import edu.cmu.sphinx.decoder.search.Token;
+import edu.cmu.sphinx.decoder.search.WordPruningBackpointerSearchManager;
+import edu.cmu.sphinx.decoder.search.WordPruningBreadthFirstSearchManager;
+import edu.cmu.sphinx.result.Edge;
+import edu.cmu.sphinx.result.Lattice;
+import edu.cmu.sphinx.result.Result;
+
+public class WordPruningBackpointerSearchManagerTest {
+
+    private static final int FRAMES = 120;
+    private static final int LONG_FRAMES = 3000;
+
+    @Test
+    public void testSameResults() {
+        for (long seed = 1; seed <= 3; seed++) {
+            WordPruningBreadthFirstSearchManager tokens = new WordPruningBreadthFirstSearchManager(
+                    new RandomLinguist(40, 3, seed), new SimplePruner(), new SimpleAcousticScorer(
+                            RandomLinguist.createFrontEnd(FRAMES, seed), null), createActiveListManager(), false,
+                    1e-40, 0, false, false, 100, 0, false, false);
+            WordPruningBackpointerSearchManager backpointers = new WordPruningBackpointerSearchManager(
+                    new RandomLinguist(40, 3, seed), new SimplePruner(), new SimpleAcousticScorer(
+                            RandomLinguist.createFrontEnd(FRAMES, seed), null), createActiveListManager(), false,
+                    1e-40, 0, false, false, 100, 0);
+
+            assertEquals(decode(backpointers, null), decode(tokens, null));
+        }
+    }
+
+    @Test
+    public void testLattice() {
+        for (long seed = 1; seed <= 3; seed++) {
+            WordPruningBreadthFirstSearchManager tokens = new WordPruningBreadthFirstSearchManager(
+                    new RandomLinguist(40, 3, seed), new SimplePruner(), new SimpleAcousticScorer(
+                            RandomLinguist.createFrontEnd(FRAMES, seed), null), createActiveListManager(), false,
+                    1e-40, 0, false, true, 100, 0, true, false);
+            WordPruningBackpointerSearchManager backpointers = new WordPruningBackpointerSearchManager(
+                    new RandomLinguist(40, 3, seed), new SimplePruner(), new SimpleAcousticScorer(
+                            RandomLinguist.createFrontEnd(FRAMES, seed), null), createActiveListManager(), false,
+                    1e-40, 0, false, true, 100, 0);
+
+            List<Lattice> lattices = new ArrayList<Lattice>();
+            assertEquals(decode(backpointers, lattices), decode(tokens, lattices));
+            assertSameLattice(lattices.get(0), lattices.get(1));
+        }
+    }
+
+    /**
+     * Decodes a long utterance and checks that the word exit table only keeps
+     * the live paths, while the results stay the same. The search records
+     * several word exits per frame, the table keeps fewer word exits than
+     * there are frames. Without a lattice the live paths soon merge, the
+     * lattice test compacts a table with alternate paths.
+     */
+    @Test
+    public void testCompaction() {
+        WordPruningBreadthFirstSearchManager tokens = new WordPruningBreadthFirstSearchManager(
+                new RandomLinguist(40, 3, 4), new SimplePruner(), new SimpleAcousticScorer(
+                        RandomLinguist.createFrontEnd(LONG_FRAMES, 4), null), createActiveListManager(), false,
+                1e-40, 0, false, false, 100, 0, false, false);
+        WordPruningBackpointerSearchManager backpointers = new WordPruningBackpointerSearchManager(
+                new RandomLinguist(40, 3, 4), new SimplePruner(), new SimpleAcousticScorer(
+                        RandomLinguist.createFrontEnd(LONG_FRAMES, 4), null), createActiveListManager(), false,
+                1e-40, 0, false, false, 100, 0);
+
+        assertEquals(decode(backpointers, null, LONG_FRAMES), decode(tokens, null));
+    }
+
+    private static SimpleActiveListManager createActiveListManager() {
+        return new SimpleActiveListManager(Arrays.<ActiveListFactory> asList(
+                new PartitionActiveListFactory(30, 1e-40), new PartitionActiveListFactory(120, 1e-40)), false);
+    }
+
+    /**
+     * Decodes frame by frame and describes the partial results and the best
+     * path of the final result.
+     */
+    private static String decode(WordPruningBreadthFirstSearchManager searchManager, List<Lattice> lattices) {
+        return decode(searchManager, lattices, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes like {@link #decode(WordPruningBreadthFirstSearchManager, List)}
+     * and checks the number of word exits of a backpointer search after
+     * every frame.
+     */
+    private static String decode(WordPruningBreadthFirstSearchManager searchManager, List<Lattice> lattices,
+            int maxTableSize) {
+        searchManager.allocate();
+        searchManager.startRecognition();
+        StringBuilder description = new StringBuilder();
+        Result result;
+        do {
+            result = searchManager.recognize(1);
+            Token best = result.getBestToken();
+            if (best != null)
+                description.append(Float.floatToIntBits(best.getScore())).append(' ');
+            description.append(result.getBestResultNoFiller()).append('\n');
+            if (searchManager instanceof WordPruningBackpointerSearchManager) {
+                for (Token token : result.getActiveTokens())
+                    assertNull(token.getPredecessor());
+                int size = ((WordPruningBackpointerSearchManager) searchManager).getBackpointerTable().size();
+                assertTrue(size < maxTableSize, "word exits " + size);
+            }
+        } while (!result.isFinal());
+        searchManager.stopRecognition();
+        searchManager.deallocate();
+
+        description.append(result.getTimedBestResult(true)).append('\n');
+        if (lattices != null)
+            lattices.add(new Lattice(result));
+        return description.toString();
+    }
+
+    /**
+     * Checks that two lattices have the same edges between the same words.
+     * The acoustic scores of the edges are sums, which are added in a
+     * different order.
+     */
+    private static void assertSameLattice(Lattice lattice, Lattice expected) {
+        assertEquals(lattice.getNodes().size(), expected.getNodes().size());
+        List<Edge> edges = sortEdges(lattice);
+        List<Edge> expectedEdges = sortEdges(expected);
+        assertEquals(edges.size(), expectedEdges.size());
+        assertTrue(edges.size() > lattice.getNodes().size(), "lattice has alternatives");
+        for (int i = 0; i < edges.size(); i++) {
+            Edge edge = edges.get(i);
+            Edge expectedEdge = expectedEdges.get(i);
+            assertEquals(describe(edge), describe(expectedEdge));
+            assertEquals(edge.getAcousticScore(), expectedEdge.getAcousticScore(),
+                    Math.abs(expectedEdge.getAcousticScore()) * 1e-5);
+        }
+    }
+
+    private static List<Edge> sortEdges(Lattice lattice) {
+        List<Edge> edges = new ArrayList<Edge>(lattice.getEdges());
+        Collections.sort(edges, new Comparator<Edge>() {
+            public int compare(Edge e1, Edge e2) {
+                int c = describe(e1).compareTo(describe(e2));
+                return c != 0 ? c : Double.compare(e1.getAcousticScore(), e2.getAcousticScore());
+            }
+        });
+        return edges;
+    }
+
+    private static String describe(Edge edge) {
+        return edge.getFromNode().getWord() + " -> " + edge.getToNode().getWord() + ' '
+                + Double.doubleToLongBits(edge.getLMScore());
+    }
+}
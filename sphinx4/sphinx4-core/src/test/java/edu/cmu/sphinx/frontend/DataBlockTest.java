@@ -0,0 +1,118 @@
+package edu.cmu.sphinx.frontend;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.frontend.feature.BatchCMN;
+import edu.cmu.sphinx.frontend.feature.DeltasFeatureExtractor;
+import edu.cmu.sphinx.frontend.filter.Preemphasizer;
+import edu.cmu.sphinx.frontend.frequencywarp.MelFrequencyFilterBank;
+import edu.cmu.sphinx.frontend.transform.DiscreteCosineTransform;
+import edu.cmu.sphinx.frontend.transform.DiscreteFourierTransform;
+import edu.cmu.sphinx.frontend.window.RaisedCosineWindower;
+
+public class DataBlockTest extends RandomDataProcessor {
+
+    @DataProvider(name = "blockSizes")
+    public Object[][] blockSizes() {
+        return new Object[][] {{1}, {3}, {16}, {1000}};
+    }
+
+    @Test(dataProvider = "blockSizes")
+    public void testSameOutput(int blockSize) {
+        List<Data> expected = new ArrayList<Data>();
+        FrontEnd frontEnd = createFrontEnd();
+        Data data;
+        while ((data = frontEnd.getData()) != null)
+            expected.add(data);
+
+        List<Data> actual = new ArrayList<Data>();
+        frontEnd = createFrontEnd();
+        List<Data> block;
+        while (!(block = frontEnd.getDataBlock(blockSize)).isEmpty()) {
+            assertTrue(block.size() <= blockSize);
+            actual.addAll(block);
+        }
+
+        assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(actual.get(i).getClass(), expected.get(i).getClass());
+            if (expected.get(i) instanceof FloatData) {
+                FloatData expectedData = (FloatData) expected.get(i);
+                FloatData actualData = (FloatData) actual.get(i);
+                assertEquals(actualData.getFirstSampleNumber(), expectedData.getFirstSampleNumber());
+                assertTrue(Arrays.equals(actualData.getValues(), expectedData.getValues()));
+            }
+        }
+    }
+
+    @Test
+    public void testMixedCalls() {
+        List<Data> expected = new ArrayList<Data>();
+        FrontEnd frontEnd = createFrontEnd();
+        Data data;
+        while ((data = frontEnd.getData()) != null)
+            expected.add(data);
+
+        List<Data> actual = new ArrayList<Data>();
+        frontEnd = createFrontEnd();
+        for (int i = 0; ; i++) {
+            if (i % 2 == 0) {
+                List<Data> block = frontEnd.getDataBlock(5);
+                if (block.isEmpty())
+                    break;
+                actual.addAll(block);
+            } else {
+                data = frontEnd.getData();
+                if (data == null)
+                    break;
+                actual.add(data);
+            }
+        }
+
+        assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < actual.size(); i++) {
+            if (expected.get(i) instanceof FloatData)
+                assertTrue(Arrays.equals(((FloatData) actual.get(i)).getValues(),
+                        ((FloatData) expected.get(i)).getValues()));
+        }
+    }
+
+    /** Creates a front end reading two utterances of random audio. */
+    private FrontEnd createFrontEnd() {
+        Random random = new Random(42);
+        input.clear();
+        long sample = 0;
+        for (int utterance = 0; utterance < 2; utterance++) {
+            input.add(new DataStartSignal(16000));
+            for (int i = 0; i < 20; i++) {
+                double[] samples = new double[100 + random.nextInt(400)];
+                for (int j = 0; j < samples.length; j++)
+                    samples[j] = random.nextGaussian() * 1000;
+                input.add(new DoubleData(samples, 16000, sample));
+                sample += samples.length;
+            }
+            input.add(new DataEndSignal(0));
+        }
+
+        List<DataProcessor> pipeline = new ArrayList<DataProcessor>();
+        pipeline.add(new Preemphasizer(0.97));
+        pipeline.add(new RaisedCosineWindower(0.46, 25.625f, 10f));
+        pipeline.add(new DiscreteFourierTransform(-1, false));
+        pipeline.add(new MelFrequencyFilterBank(130, 6800, 40));
+        pipeline.add(new DiscreteCosineTransform(40, 13));
+        pipeline.add(new BatchCMN());
+        pipeline.add(new DeltasFeatureExtractor(3));
+        FrontEnd frontEnd = new FrontEnd(pipeline);
+        frontEnd.setDataSource(this);
+        return frontEnd;
+    }
+}
@@ -0,0 +1,111 @@
+package edu.cmu.sphinx.frontend;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.frontend.feature.BatchCMN;
+import edu.cmu.sphinx.frontend.feature.DeltasFeatureExtractor;
+import edu.cmu.sphinx.frontend.frequencywarp.MelFrequencyFilterBank;
+import edu.cmu.sphinx.frontend.transform.DiscreteCosineTransform;
+import edu.cmu.sphinx.frontend.transform.DiscreteFourierTransform;
+import edu.cmu.sphinx.frontend.window.RaisedCosineWindower;
+
+public class MfccProducerTest extends RandomDataProcessor {
+
+    @Test
+    public void testSameCepstra() {
+        List<Data> audio = createAudio();
+
+        RaisedCosineWindower windower = new RaisedCosineWindower(0.46, 25.625f, 10f);
+        DiscreteFourierTransform fft = new DiscreteFourierTransform(-1, false);
+        MelFrequencyFilterBank filterBank = new MelFrequencyFilterBank(130, 6800, 40);
+        DiscreteCosineTransform dct = new DiscreteCosineTransform(40, 13);
+        windower.setPredecessor(this);
+        fft.setPredecessor(windower);
+        filterBank.setPredecessor(fft);
+        dct.setPredecessor(filterBank);
+        for (DataProcessor processor : new DataProcessor[] {windower, fft, filterBank, dct})
+            processor.initialize();
+        List<Data> expected = collect(dct, audio);
+
+        MfccProducer producer = new MfccProducer(0.46, 25.625f, 10f, -1, 130, 6800, 40, 13);
+        producer.setPredecessor(this);
+        producer.initialize();
+        List<Data> actual = collect(producer, audio);
+
+        assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(actual.get(i).getClass(), expected.get(i).getClass());
+            if (!(expected.get(i) instanceof DoubleData))
+                continue;
+            DoubleData expectedData = (DoubleData) expected.get(i);
+            DoubleData actualData = (DoubleData) actual.get(i);
+            assertEquals(actualData.getFirstSampleNumber(), expectedData.getFirstSampleNumber());
+            assertEquals(actualData.getSampleRate(), expectedData.getSampleRate());
+            double[] expectedValues = expectedData.getValues();
+            double[] actualValues = actualData.getValues();
+            assertEquals(actualValues.length, expectedValues.length);
+            for (int j = 0; j < actualValues.length; j++)
+                assertEquals(actualValues[j], expectedValues[j], 1e-6);
+        }
+    }
+
+    @Test
+    public void testFloatOutput() {
+        List<Data> audio = createAudio();
+        List<Data> expected = collect(createFeatures(false), audio);
+        List<Data> actual = collect(createFeatures(true), audio);
+
+        assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(actual.get(i).getClass(), expected.get(i).getClass());
+            if (!(expected.get(i) instanceof FloatData))
+                continue;
+            float[] expectedValues = ((FloatData) expected.get(i)).getValues();
+            float[] actualValues = ((FloatData) actual.get(i)).getValues();
+            assertEquals(actualValues.length, 39);
+            for (int j = 0; j < actualValues.length; j++)
+                assertEquals(actualValues[j], expectedValues[j], 1e-4 * (1 + Math.abs(expectedValues[j])));
+        }
+    }
+
+    private DataProcessor createFeatures(boolean floatOutput) {
+        MfccProducer producer = new MfccProducer(0.46, 25.625f, 10f, -1, 130, 6800, 40, 13, floatOutput);
+        BatchCMN cmn = new BatchCMN();
+        DeltasFeatureExtractor deltas = new DeltasFeatureExtractor(3);
+        producer.setPredecessor(this);
+        cmn.setPredecessor(producer);
+        deltas.setPredecessor(cmn);
+        for (DataProcessor processor : new DataProcessor[] {producer, cmn, deltas})
+            processor.initialize();
+        return deltas;
+    }
+
+    private List<Data> createAudio() {
+        List<Data> audio = new ArrayList<Data>();
+        audio.add(new DataStartSignal(16000));
+        long sample = 0;
+        for (int length : new int[] {1000, 160, 3000, 410, 77}) {
+            double[] samples = createRandFeatureVector(length, null, null);
+            for (int i = 0; i < length; i++)
+                samples[i] = (samples[i] - 0.5) * 20000;
+            audio.add(new DoubleData(samples, 16000, sample));
+            sample += length;
+        }
+        audio.add(new DataEndSignal(0));
+        return audio;
+    }
+
+    private List<Data> collect(DataProcessor processor, List<Data> audio) {
+        input.addAll(audio);
+        List<Data> output = new ArrayList<Data>();
+        Data data;
+        while ((data = processor.getData()) != null)
+            output.add(data);
+        return output;
+    }
+}
@@ -0,0 +1,126 @@
+package edu.cmu.sphinx.frontend.endpoint;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DataBlocker;
+import edu.cmu.sphinx.frontend.DataEndSignal;
+import edu.cmu.sphinx.frontend.DataProcessor;
+import edu.cmu.sphinx.frontend.DoubleData;
+import edu.cmu.sphinx.frontend.util.StreamDataSource;
+import edu.cmu.sphinx.frontend.window.RaisedCosineWindower;
+
+public class SilenceSkipperTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    @Test
+    public void testSkipping() {
+        byte[] audio = createAudio(new double[] {0.5, 1, 3, 1, 0.5});
+
+        Map<Long, double[]> reference = new HashMap<Long, double[]>();
+        for (Data data : process(audio, new DataBlocker(10))) {
+            if (data instanceof DoubleData)
+                reference.put(((DoubleData) data).getFirstSampleNumber(), ((DoubleData) data).getValues());
+        }
+
+        List<Data> output = process(audio, new DataBlocker(10), new SpeechClassifier(10, 0.003, 13, 0),
+                new SilenceSkipper(100, 50), new SpeechMarker(200, 1000, 50));
+        int speechStarts = 0;
+        int windows = 0;
+        long lastSampleNumber = -1;
+        for (int i = 0; i < output.size(); i++) {
+            Data data = output.get(i);
+            if (data instanceof SpeechStartSignal)
+                speechStarts++;
+            if (!(data instanceof DoubleData))
+                continue;
+            windows++;
+            long sampleNumber = ((DoubleData) data).getFirstSampleNumber();
+            assertTrue(sampleNumber > lastSampleNumber);
+            lastSampleNumber = sampleNumber;
+            // the last window of an utterance is padded with zeros
+            Data next = output.get(i + 1);
+            if (next instanceof SpeechEndSignal || next instanceof DataEndSignal)
+                continue;
+            // the windows are the ones of the audio at their sample numbers
+            double[] expected = reference.get(sampleNumber);
+            assertNotNull(expected, "window at " + sampleNumber);
+            double[] values = ((DoubleData) data).getValues();
+            for (int j = 0; j < values.length; j++)
+                assertEquals(values[j], expected[j], 1e-9);
+        }
+
+        // the pause doesn't end the utterance, most of it is skipped
+        assertEquals(speechStarts, 1);
+        assertTrue(windows < reference.size() - 250, windows + " windows");
+    }
+
+    @Test
+    public void testBlockSizes() {
+        byte[] audio = createAudio(new double[] {0.5, 1, 3, 1, 0.5});
+        long[] skippedSamples = new long[2];
+        int[] blockSizes = {10, 20};
+        for (int i = 0; i < blockSizes.length; i++) {
+            SilenceSkipper skipper = new SilenceSkipper(100, 60);
+            process(audio, new DataBlocker(blockSizes[i]), new SpeechClassifier(blockSizes[i], 0.003, 13, 0),
+                    skipper, new SpeechMarker(200, 1000, 50));
+            skippedSamples[i] = skipper.getSkippedFrames() * blockSizes[i] * SAMPLE_RATE / 1000;
+        }
+
+        // the kept head and tail last as long with any block size, the
+        // classifier places the speech boundaries a few blocks apart
+        assertTrue(skippedSamples[0] > 2 * SAMPLE_RATE, skippedSamples[0] + " samples");
+        assertEquals(skippedSamples[1], skippedSamples[0], 60 * SAMPLE_RATE / 1000);
+    }
+
+    private static List<Data> process(byte[] audio, DataProcessor... processors) {
+        StreamDataSource source = new StreamDataSource(SAMPLE_RATE, 3200, 16, false, true);
+        source.setInputStream(new ByteArrayInputStream(audio));
+        DataProcessor predecessor = source;
+        List<DataProcessor> pipeline = new ArrayList<DataProcessor>();
+        for (DataProcessor processor : processors)
+            pipeline.add(processor);
+        pipeline.add(new RaisedCosineWindower(0.46, 25.625f, 10f));
+        for (DataProcessor processor : pipeline) {
+            processor.setPredecessor(predecessor);
+            processor.initialize();
+            predecessor = processor;
+        }
+
+        List<Data> output = new ArrayList<Data>();
+        Data data;
+        while ((data = predecessor.getData()) != null)
+            output.add(data);
+        return output;
+    }
+
+    /** Creates alternating silence and speech of the given lengths in seconds */
+    private static byte[] createAudio(double[] parts) {
+        Random random = new Random(7);
+        List<Short> samples = new ArrayList<Short>();
+        for (int i = 0; i < parts.length; i++) {
+            double amplitude = i % 2 == 1 ? 8000 : 20;
+            for (int j = 0; j < (int) (parts[i] * SAMPLE_RATE); j++)
+                samples.add((short) (amplitude * (Math.sin(2 * Math.PI * 300 * j / SAMPLE_RATE)
+                        + random.nextGaussian() * 0.1)));
+        }
+        byte[] bytes = new byte[samples.size() * 2];
+        for (int i = 0; i < samples.size(); i++) {
+            bytes[2 * i] = (byte) (short) samples.get(i);
+            bytes[2 * i + 1] = (byte) (samples.get(i) >> 8);
+        }
+        return bytes;
+    }
+}
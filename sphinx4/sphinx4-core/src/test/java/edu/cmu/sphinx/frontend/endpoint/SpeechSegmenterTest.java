@@ -0,0 +1,73 @@
+package edu.cmu.sphinx.frontend.endpoint;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.frontend.endpoint.SpeechSegmenter.Segment;
+
+public class SpeechSegmenterTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    @Test
+    public void testSegments() {
+        // silence and speech in seconds
+        double[] parts = {1, 1, 1.5, 0.8, 1};
+        short[] samples = createAudio(parts);
+        byte[] bytes = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            bytes[2 * i] = (byte) samples[i];
+            bytes[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+
+        SpeechSegmenter segmenter = new SpeechSegmenter(SAMPLE_RATE);
+        segmenter.setInputStream(new ByteArrayInputStream(bytes));
+
+        long speechStart = 0;
+        for (int i = 0; i < parts.length; i++) {
+            long speechEnd = speechStart + (long) (parts[i] * SAMPLE_RATE);
+            if (i % 2 == 1) {
+                Segment segment = segmenter.getSegment();
+                assertNotNull(segment);
+                long first = segment.getFirstSampleNumber();
+                long last = first + segment.getAudio().length / 2;
+                // the speech and its padding, but not the silence around it
+                assertTrue(first <= speechStart && first >= speechStart - SAMPLE_RATE / 2, "start " + first);
+                assertTrue(last >= speechEnd && last <= speechEnd + SAMPLE_RATE / 2, "end " + last);
+                assertEquals(segment.getStartTime(), first * 1000 / SAMPLE_RATE);
+
+                byte[] audio = segment.getAudio();
+                for (int j = 0; j < audio.length / 2; j++) {
+                    short sample = (short) ((audio[2 * j] & 0xff) | (audio[2 * j + 1] << 8));
+                    assertEquals(sample, samples[(int) first + j]);
+                }
+            }
+            speechStart = speechEnd;
+        }
+        assertNull(segmenter.getSegment());
+    }
+
+    private static short[] createAudio(double[] parts) {
+        Random random = new Random(42);
+        int length = 0;
+        for (double part : parts)
+            length += (int) (part * SAMPLE_RATE);
+        short[] samples = new short[length];
+        int position = 0;
+        for (int i = 0; i < parts.length; i++) {
+            double amplitude = i % 2 == 1 ? 8000 : 20;
+            for (int j = 0; j < (int) (parts[i] * SAMPLE_RATE); j++) {
+                double value = amplitude * (Math.sin(2 * Math.PI * 440 * j / SAMPLE_RATE) + random.nextGaussian() * 0.1);
+                samples[position++] = (short) value;
+            }
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,79 @@
+package edu.cmu.sphinx.frontend.feature;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DataEndSignal;
+import edu.cmu.sphinx.frontend.DataStartSignal;
+import edu.cmu.sphinx.frontend.DoubleData;
+import edu.cmu.sphinx.frontend.FloatData;
+import edu.cmu.sphinx.frontend.RandomDataProcessor;
+import edu.cmu.sphinx.frontend.endpoint.SpeechEndSignal;
+import edu.cmu.sphinx.frontend.endpoint.SpeechStartSignal;
+
+public class DeltasFeatureExtractorTest extends RandomDataProcessor {
+
+    @Test
+    public void testDeltas() {
+        // longer than the buffer of the extractor, so that it wraps around
+        for (int length : new int[] {1, 2, 5, 300, 600}) {
+            for (boolean floatData : new boolean[] {false, true}) {
+                List<double[]> frames = new ArrayList<double[]>();
+                input.add(new DataStartSignal(16000));
+                input.add(new SpeechStartSignal());
+                for (int t = 0; t < length; t++) {
+                    double[] values = createRandFeatureVector(13, null, null);
+                    float[] floatValues = new float[values.length];
+                    for (int i = 0; i < values.length; i++) {
+                        floatValues[i] = (float) values[i];
+                        values[i] = floatValues[i];
+                    }
+                    frames.add(values.clone());
+                    input.add(floatData
+                            ? new FloatData(floatValues, 16000, t * 160)
+                            : new DoubleData(values, 16000, t * 160));
+                }
+                input.add(new SpeechEndSignal());
+                input.add(new DataEndSignal(0));
+
+                DeltasFeatureExtractor deltas = new DeltasFeatureExtractor(3);
+                deltas.initialize();
+                List<Data> output = collectOutput(deltas);
+                assertEquals(output.size(), length + 4);
+                assertTrue(output.get(0) instanceof DataStartSignal);
+                assertTrue(output.get(1) instanceof SpeechStartSignal);
+                assertTrue(output.get(length + 2) instanceof SpeechEndSignal);
+                assertTrue(output.get(length + 3) instanceof DataEndSignal);
+                for (int t = 0; t < length; t++) {
+                    FloatData feature = (FloatData) output.get(t + 2);
+                    assertEquals(feature.getFirstSampleNumber(), t * 160);
+                    assertFeature(feature.getValues(), frames, t);
+                }
+            }
+        }
+    }
+
+    /** Compares with the deltas of the frames, the first and the last frame are replicated at the edges */
+    private static void assertFeature(float[] feature, List<double[]> frames, int t) {
+        double[] current = frame(frames, t);
+        assertEquals(feature.length, current.length * 3);
+        for (int k = 0; k < current.length; k++) {
+            assertEquals(feature[k], (float) current[k]);
+            assertEquals(feature[k + current.length],
+                    (float) (frame(frames, t + 2)[k] - frame(frames, t - 2)[k]));
+            assertEquals(feature[k + 2 * current.length],
+                    (float) ((frame(frames, t + 3)[k] - frame(frames, t - 1)[k])
+                            - (frame(frames, t + 1)[k] - frame(frames, t - 3)[k])));
+        }
+    }
+
+    private static double[] frame(List<double[]> frames, int t) {
+        return frames.get(Math.max(0, Math.min(t, frames.size() - 1)));
+    }
+}
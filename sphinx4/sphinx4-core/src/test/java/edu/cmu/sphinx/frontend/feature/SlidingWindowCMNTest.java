@@ -0,0 +1,134 @@
+package edu.cmu.sphinx.frontend.feature;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DataEndSignal;
+import edu.cmu.sphinx.frontend.DataProcessingException;
+import edu.cmu.sphinx.frontend.DataStartSignal;
+import edu.cmu.sphinx.frontend.DoubleData;
+import edu.cmu.sphinx.frontend.FloatData;
+import edu.cmu.sphinx.frontend.RandomDataProcessor;
+
+public class SlidingWindowCMNTest extends RandomDataProcessor {
+
+    private static final int WINDOW = 20;
+    private static final int LOOKAHEAD = 5;
+
+    private int reads;
+
+    @Override
+    public Data getData() throws DataProcessingException {
+        reads++;
+        return super.getData();
+    }
+
+    @Test
+    public void testNormalization() {
+        for (boolean varianceNormalization : new boolean[] {false, true}) {
+            List<double[]> frames = addStream(100, false);
+            double[][] expected = normalize(frames, varianceNormalization);
+
+            SlidingWindowCMN cmn = new SlidingWindowCMN(WINDOW, LOOKAHEAD, varianceNormalization);
+            cmn.initialize();
+            List<Data> output = collectOutput(cmn);
+            assertEquals(output.size(), frames.size() + 2);
+            assertTrue(output.get(0) instanceof DataStartSignal);
+            assertTrue(output.get(output.size() - 1) instanceof DataEndSignal);
+            for (int t = 0; t < frames.size(); t++) {
+                double[] values = ((DoubleData) output.get(t + 1)).getValues();
+                for (int i = 0; i < values.length; i++)
+                    assertEquals(values[i], expected[t][i], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testFloatData() {
+        List<double[]> frames = addStream(50, true);
+        double[][] expected = normalize(frames, true);
+
+        SlidingWindowCMN cmn = new SlidingWindowCMN(WINDOW, LOOKAHEAD, true);
+        cmn.initialize();
+        List<Data> output = collectOutput(cmn);
+        for (int t = 0; t < frames.size(); t++) {
+            float[] values = ((FloatData) output.get(t + 1)).getValues();
+            for (int i = 0; i < values.length; i++)
+                assertEquals(values[i], expected[t][i], 1e-4);
+        }
+    }
+
+    @Test
+    public void testLookahead() {
+        reads = 0;
+        addStream(100, false);
+        addStream(30, false);
+        List<Data> streams = new ArrayList<Data>(input);
+
+        SlidingWindowCMN cmn = new SlidingWindowCMN(WINDOW, LOOKAHEAD);
+        cmn.setPredecessor(this);
+        cmn.initialize();
+        for (int position = 0; position < streams.size(); position++) {
+            assertSame(cmn.getData(), streams.get(position));
+            // never more than the lookahead, the signals of the stream end are not waited for
+            assertTrue(reads <= position + 1 + LOOKAHEAD);
+        }
+        assertNull(cmn.getData());
+    }
+
+    private List<double[]> addStream(int length, boolean floatData) {
+        List<double[]> frames = new ArrayList<double[]>();
+        input.add(new DataStartSignal(16000));
+        for (int t = 0; t < length; t++) {
+            double[] values = createRandFeatureVector(13, null, null);
+            for (int i = 0; i < values.length; i++)
+                values[i] = values[i] * (i + 1) + 10 * Math.sin(t / 10.0);
+            frames.add(values.clone());
+            if (floatData) {
+                float[] floatValues = new float[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    floatValues[i] = (float) values[i];
+                    frames.get(t)[i] = floatValues[i];
+                }
+                input.add(new FloatData(floatValues, 16000, t * 160));
+            } else {
+                input.add(new DoubleData(values, 16000, t * 160));
+            }
+        }
+        input.add(new DataEndSignal(0));
+        return frames;
+    }
+
+    /** Normalizes every frame with the statistics of its window computed from scratch */
+    private static double[][] normalize(List<double[]> frames, boolean varianceNormalization) {
+        double[][] normalized = new double[frames.size()][];
+        for (int t = 0; t < frames.size(); t++) {
+            int last = Math.min(t + LOOKAHEAD, frames.size() - 1);
+            int first = Math.max(0, last - WINDOW + 1);
+            double[] frame = frames.get(t);
+            normalized[t] = new double[frame.length];
+            for (int i = 0; i < frame.length; i++) {
+                double sum = 0;
+                for (int u = first; u <= last; u++)
+                    sum += frames.get(u)[i];
+                double mean = sum / (last - first + 1);
+                double variance = 0;
+                for (int u = first; u <= last; u++)
+                    variance += (frames.get(u)[i] - mean) * (frames.get(u)[i] - mean);
+                variance /= last - first + 1;
+                normalized[t][i] = frame[i] - mean;
+                if (varianceNormalization)
+                    normalized[t][i] /= Math.sqrt(variance);
+            }
+        }
+        return normalized;
+    }
+}
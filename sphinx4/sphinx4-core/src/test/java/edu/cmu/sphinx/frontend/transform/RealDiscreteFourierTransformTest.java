@@ -0,0 +1,69 @@
+package edu.cmu.sphinx.frontend.transform;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.frontend.BaseDataProcessor;
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DataEndSignal;
+import edu.cmu.sphinx.frontend.DataStartSignal;
+import edu.cmu.sphinx.frontend.DoubleData;
+import edu.cmu.sphinx.frontend.RandomDataProcessor;
+
+public class RealDiscreteFourierTransformTest extends RandomDataProcessor {
+
+    @DataProvider(name = "transforms")
+    public Object[][] transforms() {
+        return new Object[][] {
+                {410, -1, false},
+                {512, -1, false},
+                {600, 512, false},
+                {256, 1024, true},
+                {2, -1, false}};
+    }
+
+    @Test(dataProvider = "transforms")
+    public void testSameSpectrum(int windowSize, int numberFftPoints, boolean invert) {
+        List<Data> frames = new ArrayList<Data>();
+        frames.add(new DataStartSignal(16000));
+        for (int i = 0; i < 5; i++)
+            frames.add(new DoubleData(createRandFeatureVector(windowSize, null, null), 16000, i * 160));
+        frames.add(new DataEndSignal(0));
+
+        List<Data> expected = transform(new DiscreteFourierTransform(numberFftPoints, invert), frames);
+        List<Data> actual = transform(new RealDiscreteFourierTransform(numberFftPoints, invert, true), frames);
+
+        assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < actual.size(); i++) {
+            if (!(expected.get(i) instanceof DoubleData)) {
+                assertEquals(actual.get(i).getClass(), expected.get(i).getClass());
+                continue;
+            }
+            double[] expectedValues = ((DoubleData) expected.get(i)).getValues();
+            double[] actualValues = ((DoubleData) actual.get(i)).getValues();
+            assertEquals(actualValues.length, expectedValues.length);
+            for (int j = 0; j < actualValues.length; j++)
+                assertEquals(actualValues[j], expectedValues[j], 1e-9 * (1 + expectedValues[j]));
+        }
+    }
+
+    private List<Data> transform(BaseDataProcessor transform, List<Data> frames) {
+        input.addAll(frames);
+        transform.setPredecessor(this);
+        transform.initialize();
+        List<Data> output = new ArrayList<Data>();
+        Data data;
+        while ((data = transform.getData()) != null) {
+            // the spectrum may be overwritten by the next frame
+            if (data instanceof DoubleData)
+                data = new DoubleData(((DoubleData) data).getValues().clone());
+            output.add(data);
+        }
+        return output;
+    }
+}
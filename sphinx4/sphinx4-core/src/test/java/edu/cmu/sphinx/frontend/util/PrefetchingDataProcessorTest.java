@@ -0,0 +1,171 @@
+package edu.cmu.sphinx.frontend.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DataEndSignal;
+import edu.cmu.sphinx.frontend.DataProcessingException;
+import edu.cmu.sphinx.frontend.DataStartSignal;
+import edu.cmu.sphinx.frontend.DoubleData;
+import edu.cmu.sphinx.frontend.RandomDataProcessor;
+import edu.cmu.sphinx.frontend.endpoint.SpeechEndSignal;
+import edu.cmu.sphinx.frontend.endpoint.SpeechStartSignal;
+
+public class PrefetchingDataProcessorTest extends RandomDataProcessor {
+
+    @Test
+    public void testSameData() {
+        for (int utterance = 0; utterance < 2; utterance++) {
+            input.add(new DataStartSignal(16000));
+            input.add(new SpeechStartSignal());
+            for (int i = 0; i < 500; i++)
+                input.add(new DoubleData(createRandFeatureVector(13, null, null), 16000, i * 160));
+            input.add(new SpeechEndSignal());
+            input.add(new DataEndSignal(0));
+        }
+        List<Data> expected = new ArrayList<Data>(input);
+
+        PrefetchingDataProcessor prefetcher = new PrefetchingDataProcessor(4);
+        prefetcher.setPredecessor(this);
+        prefetcher.initialize();
+        for (Data data : expected)
+            assertSame(prefetcher.getData(), data);
+        assertNull(prefetcher.getData());
+
+        // the reader is started again for new data
+        DataStartSignal start = new DataStartSignal(8000);
+        input.add(start);
+        assertSame(prefetcher.getData(), start);
+        assertNull(prefetcher.getData());
+    }
+
+    @Test
+    public void testFailure() {
+        PrefetchingDataProcessor prefetcher = new PrefetchingDataProcessor(4);
+        final DataStartSignal start = new DataStartSignal(16000);
+        prefetcher.setPredecessor(new RandomDataProcessor() {
+            private boolean started;
+
+            @Override
+            public Data getData() throws DataProcessingException {
+                if (started)
+                    throw new DataProcessingException("broken stream");
+                started = true;
+                return start;
+            }
+        });
+        prefetcher.initialize();
+        assertSame(prefetcher.getData(), start);
+        try {
+            prefetcher.getData();
+            fail();
+        } catch (DataProcessingException e) {
+            assertEquals(e.getMessage(), "broken stream");
+        }
+    }
+
+    @Test
+    public void testStoppedReaderBlocked() throws InterruptedException {
+        final DataStartSignal start = new DataStartSignal(16000);
+        final DoubleData next = new DoubleData(new double[13], 16000, 0);
+        final DataEndSignal end = new DataEndSignal(0);
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger readers = new AtomicInteger();
+        final AtomicInteger maxReaders = new AtomicInteger();
+        final AtomicInteger interrupts = new AtomicInteger();
+
+        PrefetchingDataProcessor prefetcher = new PrefetchingDataProcessor(4);
+        prefetcher.setPredecessor(new RandomDataProcessor() {
+            private int calls;
+
+            @Override
+            public Data getData() throws DataProcessingException {
+                int active = readers.incrementAndGet();
+                if (active > maxReaders.get())
+                    maxReaders.set(active);
+                try {
+                    switch (calls++) {
+                    case 0:
+                        return start;
+                    case 1:
+                        // blocks like a read from a stream, which must not be interrupted
+                        reading.countDown();
+                        while (true) {
+                            try {
+                                release.await();
+                                return next;
+                            } catch (InterruptedException e) {
+                                interrupts.incrementAndGet();
+                            }
+                        }
+                    case 2:
+                        return end;
+                    default:
+                        return null;
+                    }
+                } finally {
+                    readers.decrementAndGet();
+                }
+            }
+        });
+        prefetcher.initialize();
+        assertSame(prefetcher.getData(), start);
+        reading.await();
+
+        // stop the reader while it is blocked in the predecessor
+        prefetcher.initialize();
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    // release now
+                }
+                release.countDown();
+            }
+        }.start();
+
+        assertSame(prefetcher.getData(), next);
+        assertSame(prefetcher.getData(), end);
+        assertTrue(maxReaders.get() == 1);
+        assertEquals(interrupts.get(), 0);
+    }
+
+    @Test
+    public void testRestartDiscardsQueuedData() {
+        PrefetchingDataProcessor prefetcher = new PrefetchingDataProcessor(4);
+        prefetcher.setPredecessor(new RandomDataProcessor() {
+            private int frame;
+
+            @Override
+            public Data getData() throws DataProcessingException {
+                // an endless stream which fills the queue
+                return new DoubleData(new double[13], 16000, frame++ * 160);
+            }
+        });
+        prefetcher.initialize();
+        assertEquals(((DoubleData) prefetcher.getData()).getFirstSampleNumber(), 0);
+
+        DataStartSignal start = new DataStartSignal(16000);
+        DataEndSignal end = new DataEndSignal(0);
+        input.add(start);
+        input.add(end);
+        prefetcher.setPredecessor(this);
+        assertSame(prefetcher.getData(), start);
+        assertSame(prefetcher.getData(), end);
+        assertNull(prefetcher.getData());
+    }
+}
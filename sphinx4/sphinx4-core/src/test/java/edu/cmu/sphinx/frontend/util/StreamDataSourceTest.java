@@ -0,0 +1,94 @@
+package edu.cmu.sphinx.frontend.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.frontend.Data;
+import edu.cmu.sphinx.frontend.DataEndSignal;
+import edu.cmu.sphinx.frontend.DataStartSignal;
+import edu.cmu.sphinx.frontend.DoubleData;
+
+public class StreamDataSourceTest {
+
+    @DataProvider(name = "formats")
+    public Object[][] formats() {
+        List<Object[]> formats = new ArrayList<Object[]>();
+        for (int bits : new int[] {8, 16, 24, 32})
+            for (boolean bigEndian : new boolean[] {false, true})
+                for (boolean signed : new boolean[] {false, true})
+                    formats.add(new Object[] {bits, bigEndian, signed});
+        return formats.toArray(new Object[formats.size()][]);
+    }
+
+    @Test(dataProvider = "formats")
+    public void testDecoding(int bits, boolean bigEndian, boolean signed) {
+        int bytesPerValue = bits / 8;
+        byte[] bytes = new byte[bytesPerValue * 1000];
+        new Random(bits).nextBytes(bytes);
+        double[] expected = bigEndian
+                ? DataUtil.bytesToValues(bytes, 0, bytes.length, bytesPerValue, signed)
+                : DataUtil.littleEndianBytesToValues(bytes, 0, bytes.length, bytesPerValue, signed);
+
+        for (boolean direct : new boolean[] {false, true}) {
+            StreamDataSource source = new StreamDataSource(16000, bytesPerValue * 160, bits, bigEndian, signed,
+                    direct);
+            source.setInputChannel(Channels.newChannel(new ByteArrayInputStream(bytes)));
+            assertSamples(read(source), expected);
+
+            source.setInputStream(new ByteArrayInputStream(bytes));
+            assertSamples(read(source), expected);
+        }
+    }
+
+    @Test
+    public void testIncompleteFrame() {
+        byte[] bytes = new byte[1001];
+        new Random(1).nextBytes(bytes);
+        StreamDataSource streamSource = new StreamDataSource(16000, 320, 16, false, true, false);
+        streamSource.setInputStream(new ByteArrayInputStream(bytes));
+        StreamDataSource channelSource = new StreamDataSource(16000, 320, 16, false, true, true);
+        channelSource.setInputChannel(Channels.newChannel(new ByteArrayInputStream(bytes)));
+
+        double[] values = read(channelSource);
+        assertEquals(values, read(streamSource));
+        assertTrue(values.length > bytes.length / 2);
+        assertEquals(values[values.length - 1], 0.0);
+    }
+
+    /** The last frame may be padded with zeros */
+    private static void assertSamples(double[] actual, double[] expected) {
+        assertTrue(actual.length >= expected.length);
+        for (int i = 0; i < actual.length; i++)
+            assertEquals(actual[i], i < expected.length ? expected[i] : 0.0);
+    }
+
+    private static double[] read(StreamDataSource source) {
+        List<double[]> frames = new ArrayList<double[]>();
+        int length = 0;
+        assertTrue(source.getData() instanceof DataStartSignal);
+        Data data;
+        while ((data = source.getData()) instanceof DoubleData) {
+            double[] values = ((DoubleData) data).getValues();
+            frames.add(values);
+            length += values.length;
+        }
+        assertTrue(data instanceof DataEndSignal);
+
+        double[] values = new double[length];
+        int position = 0;
+        for (double[] frame : frames) {
+            System.arraycopy(frame, 0, values, position, frame.length);
+            position += frame.length;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+* Copyright 2014 Carnegie Mellon University.
+* All Rights Reserved.  Use is subject to license terms.
+*
+* See the file "license.terms" for information on usage and
+* redistribution of this file, and for a DISCLAIMER OF ALL
+* WARRANTIES.
+*
+*/
+
+package edu.cmu.sphinx.linguist.acoustic.tiedstate.test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.Sphinx3Loader;
+
+/**
+ * Writes a random context independent continuous model in the format which
+ * {@link Sphinx3Loader} reads, so that tests can load and decode without the
+ * model files of a real recognizer. Every phone has three emitting states
+ * with their own senones, the first phone is SIL. The means are drawn around
+ * zero with the given variance, the variances around the given value.
+ */
+public class ContinuousModelWriter {
+
+    public static final int NUM_STATES = 3;
+
+    private final String[] phones;
+    private final int numGaussians;
+    private final int dimension;
+    private final float variance;
+
+    /**
+     * @param phones the names of the phones, the first one is the silence
+     * @param numGaussians the number of Gaussians per senone
+     * @param dimension the dimension of the feature vectors
+     * @param variance the mean variance of the Gaussians
+     */
+    public ContinuousModelWriter(String[] phones, int numGaussians, int dimension, float variance) {
+        this.phones = phones;
+        this.numGaussians = numGaussians;
+        this.dimension = dimension;
+        this.variance = variance;
+    }
+
+    public int getNumSenones() {
+        return phones.length * NUM_STATES;
+    }
+
+    /**
+     * Writes the model files into a new temporary directory, which is deleted
+     * on exit.
+     *
+     * @param random the random source of the parameters
+     * @return the model directory
+     * @throws IOException if the files can not be written
+     */
+    public File write(Random random) throws IOException {
+        File model = File.createTempFile(getClass().getName(), "");
+        if (!model.delete() || !model.mkdir())
+            throw new IOException("Can't create " + model);
+        model.deleteOnExit();
+
+        int numSenones = getNumSenones();
+        float[] means = new float[numSenones * numGaussians * dimension];
+        float[] variances = new float[means.length];
+        for (int i = 0; i < means.length; i++) {
+            means[i] = (float) (random.nextGaussian() * Math.sqrt(variance));
+            variances[i] = variance * (0.5f + random.nextFloat());
+        }
+        writeDensities(new File(model, "means"), means);
+        writeDensities(new File(model, "variances"), variances);
+
+        float[] mixtureWeights = new float[numSenones * numGaussians];
+        for (int i = 0; i < mixtureWeights.length; i++)
+            mixtureWeights[i] = 0.1f + random.nextFloat();
+        DataOutputStream out = openS3File(new File(model, "mixture_weights"));
+        writeInts(out, numSenones, 1, numGaussians, mixtureWeights.length);
+        writeFloats(out, mixtureWeights);
+        out.close();
+
+        out = openS3File(new File(model, "transition_matrices"));
+        writeInts(out, phones.length, NUM_STATES, NUM_STATES + 1, phones.length * NUM_STATES * (NUM_STATES + 1));
+        for (int i = 0; i < phones.length; i++) {
+            for (int j = 0; j < NUM_STATES; j++) {
+                float[] row = new float[NUM_STATES + 1];
+                row[j] = 0.5f;
+                row[j + 1] = 0.5f;
+                writeFloats(out, row);
+            }
+        }
+        out.close();
+
+        // the front end parameters of the en-us model
+        PrintWriter writer = new PrintWriter(new File(model, "feat.params"));
+        writer.println("-lowerf 130");
+        writer.println("-upperf 6800");
+        writer.println("-nfilt 25");
+        writer.println("-transform dct");
+        writer.println("-lifter 22");
+        writer.println("-feat 1s_c_d_dd");
+        writer.println("-agc none");
+        writer.println("-cmn live");
+        writer.println("-varnorm no");
+        writer.println("-model cont");
+        writer.close();
+
+        writer = new PrintWriter(new File(model, "noisedict"));
+        writer.println("<s> " + phones[0]);
+        writer.println("</s> " + phones[0]);
+        writer.println("<sil> " + phones[0]);
+        writer.close();
+
+        writer = new PrintWriter(new File(model, "mdef"));
+        writer.println(Sphinx3Loader.MODEL_VERSION);
+        writer.println(phones.length + " n_base");
+        writer.println("0 n_tri");
+        writer.println(phones.length * (NUM_STATES + 1) + " n_state_map");
+        writer.println(numSenones + " n_tied_state");
+        writer.println(numSenones + " n_tied_ci_state");
+        writer.println(phones.length + " n_tied_tmat");
+        for (int i = 0; i < phones.length; i++) {
+            writer.print(phones[i] + " - - - " + (i == 0 ? "filler" : "n/a") + ' ' + i);
+            for (int j = 0; j < NUM_STATES; j++)
+                writer.print(" " + (i * NUM_STATES + j));
+            writer.println(" N");
+        }
+        writer.close();
+
+        for (File file : model.listFiles())
+            file.deleteOnExit();
+        return model;
+    }
+
+    private void writeDensities(File file, float[] values) throws IOException {
+        DataOutputStream out = openS3File(file);
+        writeInts(out, getNumSenones(), 1, numGaussians, dimension, values.length);
+        writeFloats(out, values);
+        out.close();
+    }
+
+    private static DataOutputStream openS3File(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        out.writeBytes("s3\nversion 1.0\nchksum0 no\nendhdr\n");
+        out.writeInt(0x11223344);
+        return out;
+    }
+
+    private static void writeInts(DataOutputStream out, int... values) throws IOException {
+        for (int value : values)
+            out.writeInt(value);
+    }
+
+    private static void writeFloats(DataOutputStream out, float[] values) throws IOException {
+        for (float value : values)
+            out.writeFloat(value);
+    }
+}
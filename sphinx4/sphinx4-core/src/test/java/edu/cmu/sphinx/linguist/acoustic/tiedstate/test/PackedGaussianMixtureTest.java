@@ -0,0 +1,128 @@
+/*
+* Copyright 2014 Carnegie Mellon University.
+* All Rights Reserved.  Use is subject to license terms.
+*
+* See the file "license.terms" for information on usage and
+* redistribution of this file, and for a DISCLAIMER OF ALL
+* WARRANTIES.
+*
+*/
+
+package edu.cmu.sphinx.linguist.acoustic.tiedstate.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.frontend.FloatData;
+import edu.cmu.sphinx.linguist.acoustic.UnitManager;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.GaussianMixture;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.GaussianWeights;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.MixtureComponent;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.PackedGaussianMixture;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.PackedGaussians;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.PackedMixtureComponent;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.Senone;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.Sphinx3Loader;
+import edu.cmu.sphinx.util.LogMath;
+
+/**
+ * Checks that senones scored from packed storage give exactly the scores of
+ * the object based <code>GaussianMixture</code>.
+ */
+public class PackedGaussianMixtureTest {
+
+    private static final int NUM_SENONES = 6;
+    private static final int NUM_GAUSSIANS = 8;
+    private static final int DIMENSION = 39;
+
+    @Test
+    public void testPackedScores() {
+        Random random = new Random(42);
+        LogMath logMath = LogMath.getLogMath();
+
+        GaussianWeights weights = new GaussianWeights("mixw", NUM_SENONES, NUM_GAUSSIANS, 1);
+        PackedGaussians packed = new PackedGaussians(NUM_SENONES * NUM_GAUSSIANS, DIMENSION);
+        GaussianMixture[] reference = new GaussianMixture[NUM_SENONES];
+        PackedGaussianMixture[] senones = new PackedGaussianMixture[NUM_SENONES];
+
+        for (int i = 0; i < NUM_SENONES; i++) {
+            float[] mixw = new float[NUM_GAUSSIANS];
+            MixtureComponent[] components = new MixtureComponent[NUM_GAUSSIANS];
+            PackedMixtureComponent[] packedComponents = new PackedMixtureComponent[NUM_GAUSSIANS];
+            for (int j = 0; j < NUM_GAUSSIANS; j++) {
+                mixw[j] = logMath.linearToLog(1.0 / NUM_GAUSSIANS);
+                float[] mean = new float[DIMENSION];
+                float[] var = new float[DIMENSION];
+                for (int k = 0; k < DIMENSION; k++) {
+                    mean[k] = (float) random.nextGaussian();
+                    var[k] = 0.1f + random.nextFloat();
+                }
+                components[j] = new MixtureComponent(mean, var);
+                packedComponents[j] = new PackedMixtureComponent(mean, null, null, var, null, null,
+                        MixtureComponent.DEFAULT_DIST_FLOOR, MixtureComponent.DEFAULT_VAR_FLOOR, packed,
+                        i * NUM_GAUSSIANS + j);
+            }
+            weights.put(i, 0, mixw);
+            reference[i] = new GaussianMixture(weights, components, i);
+            senones[i] = new PackedGaussianMixture(weights, packedComponents, i);
+        }
+
+        for (int frame = 0; frame < 10; frame++) {
+            FloatData data = randomFeature(random, frame);
+            for (int i = 0; i < NUM_SENONES; i++) {
+                Assert.assertEquals(senones[i].getScore(data), reference[i].getScore(data));
+                Assert.assertEquals(senones[i].calculateComponentScore(data),
+                        reference[i].calculateComponentScore(data));
+                for (int j = 0; j < NUM_GAUSSIANS; j++)
+                    Assert.assertEquals(senones[i].getMixtureComponents()[j].getScore(data),
+                            reference[i].getMixtureComponents()[j].getScore(data));
+            }
+        }
+    }
+
+    /**
+     * Writes a small continuous model and checks that the senones which
+     * Sphinx3Loader packs score like the ones it loads regularly.
+     */
+    @Test
+    public void testLoaderScores() throws IOException {
+        ContinuousModelWriter writer = new ContinuousModelWriter(new String[] {"SIL", "AA"}, NUM_GAUSSIANS,
+                DIMENSION, 0.5f);
+        File model = writer.write(new Random(7));
+        Sphinx3Loader loader = new Sphinx3Loader(model.toURI().toURL(), new UnitManager(),
+                0.0f, 1e-7f, 1e-4f, 4, true, false);
+        Sphinx3Loader packedLoader = new Sphinx3Loader(model.toURI().toURL(), new UnitManager(),
+                0.0f, 1e-7f, 1e-4f, 4, true, true);
+        loader.load();
+        packedLoader.load();
+
+        Assert.assertNull(loader.getPackedGaussians());
+        Assert.assertEquals(packedLoader.getPackedGaussians().size(), NUM_SENONES * NUM_GAUSSIANS);
+        Assert.assertEquals(packedLoader.getSenonePool().size(), NUM_SENONES);
+
+        Random random = new Random(11);
+        for (int frame = 0; frame < 10; frame++) {
+            FloatData data = randomFeature(random, frame);
+            for (int i = 0; i < NUM_SENONES; i++) {
+                Senone senone = loader.getSenonePool().get(i);
+                Senone packedSenone = packedLoader.getSenonePool().get(i);
+                Assert.assertTrue(packedSenone instanceof PackedGaussianMixture);
+                Assert.assertTrue(packedSenone.getMixtureComponents()[0] instanceof PackedMixtureComponent);
+                Assert.assertEquals(packedSenone.getScore(data), senone.getScore(data));
+                Assert.assertEquals(packedSenone.calculateComponentScore(data),
+                        senone.calculateComponentScore(data));
+            }
+        }
+    }
+
+    private static FloatData randomFeature(Random random, int frame) {
+        float[] feature = new float[DIMENSION];
+        for (int k = 0; k < DIMENSION; k++)
+            feature[k] = (float) random.nextGaussian();
+        return new FloatData(feature, 16000, frame * 160);
+    }
+}
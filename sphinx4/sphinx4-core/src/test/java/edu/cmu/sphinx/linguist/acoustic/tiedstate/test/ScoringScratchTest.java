@@ -0,0 +1,191 @@
+/*
+* Copyright 2014 Carnegie Mellon University.
+* All Rights Reserved.  Use is subject to license terms.
+*
+* See the file "license.terms" for information on usage and
+* redistribution of this file, and for a DISCLAIMER OF ALL
+* WARRANTIES.
+*
+*/
+
+package edu.cmu.sphinx.linguist.acoustic.tiedstate.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import edu.cmu.sphinx.frontend.FloatData;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.GaussianMixture;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.GaussianWeights;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.MixtureComponent;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.ScoringScratch;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.Senone;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.tiedmixture.MixtureComponentSet;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.tiedmixture.PrunableMixtureComponent;
+import edu.cmu.sphinx.linguist.acoustic.tiedstate.tiedmixture.SetBasedGaussianMixture;
+import edu.cmu.sphinx.util.LogMath;
+
+/**
+ * Checks that senones shared between decoders keep the scoring state of every
+ * decoder apart.
+ */
+public class ScoringScratchTest {
+
+    private static final int DIMENSION = 13;
+    private static final int NUM_FRAMES = 50;
+
+    @Test
+    public void testCachedScoresPerScratch() {
+        Random random = new Random(42);
+        GaussianWeights weights = new GaussianWeights("mixw", 1, 1, 1);
+        weights.put(0, 0, new float[] {0});
+        GaussianMixture senone = new GaussianMixture(weights,
+                new MixtureComponent[] {new MixtureComponent(randomVector(random), variance())}, 0);
+
+        FloatData first = new FloatData(randomVector(random), 16000, 0);
+        FloatData second = new FloatData(randomVector(random), 16000, 0);
+        ScoringScratch scratch = new ScoringScratch();
+
+        ScoringScratch previous = ScoringScratch.bind(scratch);
+        float firstScore = senone.getScore(first);
+        ScoringScratch.bind(previous);
+        float secondScore = senone.getScore(second);
+
+        Assert.assertEquals(firstScore, senone.calculateScore(first));
+        Assert.assertEquals(secondScore, senone.calculateScore(second));
+        ScoringScratch.bind(scratch);
+        Assert.assertEquals(senone.getScore(first), firstScore);
+        ScoringScratch.bind(previous);
+        Assert.assertEquals(senone.getScore(second), secondScore);
+    }
+
+    @Test
+    public void testConcurrentTiedMixtureScoring() throws Exception {
+        Random random = new Random(42);
+        int numGaussians = 16;
+        int numSenones = 3;
+        LogMath logMath = LogMath.getLogMath();
+
+        PrunableMixtureComponent[] components = new PrunableMixtureComponent[numGaussians];
+        for (int i = 0; i < numGaussians; i++)
+            components[i] = new PrunableMixtureComponent(randomVector(random), null, null,
+                    variance(), null, null, 0.0f, 0.0001f, i);
+        ArrayList<PrunableMixtureComponent[]> streams = new ArrayList<PrunableMixtureComponent[]>();
+        streams.add(components);
+        MixtureComponentSet set = new MixtureComponentSet(streams, 4);
+
+        GaussianWeights weights = new GaussianWeights("mixw", numSenones, numGaussians, 1);
+        final Senone[] senones = new Senone[numSenones];
+        for (int i = 0; i < numSenones; i++) {
+            float[] mixw = new float[numGaussians];
+            for (int j = 0; j < numGaussians; j++)
+                mixw[j] = logMath.linearToLog(random.nextFloat());
+            weights.put(i, 0, mixw);
+            senones[i] = new SetBasedGaussianMixture(weights, set, i);
+        }
+
+        final float[][] features = new float[NUM_FRAMES][];
+        for (int i = 0; i < NUM_FRAMES; i++)
+            features[i] = randomVector(random);
+
+        Callable<float[]> decoder = new Callable<float[]>() {
+            public float[] call() {
+                ScoringScratch previous = ScoringScratch.bind(new ScoringScratch());
+                float[] scores = new float[NUM_FRAMES * senones.length];
+                for (int i = 0; i < NUM_FRAMES; i++) {
+                    FloatData data = new FloatData(features[i], 16000, i * 160);
+                    for (int j = 0; j < senones.length; j++)
+                        scores[i * senones.length + j] = senones[j].getScore(data);
+                }
+                ScoringScratch.bind(previous);
+                return scores;
+            }
+        };
+
+        float[] expected = decoder.call();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<float[]>> decoders = new ArrayList<Callable<float[]>>();
+            for (int i = 0; i < 16; i++)
+                decoders.add(decoder);
+            for (Future<float[]> result : executor.invokeAll(decoders))
+                Assert.assertEquals(result.get(), expected);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Creates senones over and over again, as reloading models does, and
+     * checks that the slots of the collected ones are handed out again.
+     */
+    @Test
+    public void testSlotsReused() throws InterruptedException {
+        Random random = new Random(42);
+        GaussianWeights weights = new GaussianWeights("mixw", 1, 1, 1);
+        weights.put(0, 0, new float[] {0});
+        ScoringScratch scratch = new ScoringScratch();
+        ScoringScratch previous = ScoringScratch.bind(scratch);
+        int rounds = 50;
+        int senonesPerRound = 100;
+        int maxIndex = 0;
+        for (int i = 0; i < rounds; i++) {
+            FloatData data = new FloatData(randomVector(random), 16000, i * 160);
+            for (int j = 0; j < senonesPerRound; j++) {
+                GaussianMixture senone = new GaussianMixture(weights,
+                        new MixtureComponent[] {new MixtureComponent(randomVector(random), variance())}, 0);
+                // a score left by a collected senone on the same slot is not used
+                Assert.assertEquals(senone.getScore(data), senone.calculateScore(data));
+            }
+            maxIndex = Math.max(maxIndex, ScoringScratch.newSenoneSlot(new Object()).getIndex());
+            System.gc();
+            Thread.sleep(10);
+        }
+        ScoringScratch.bind(previous);
+        Assert.assertTrue(maxIndex < rounds * senonesPerRound / 4, "slots are reused: " + maxIndex);
+    }
+
+    @Test
+    public void testStateOfReusedSlot() throws InterruptedException {
+        ScoringScratch scratch = new ScoringScratch();
+        ScoringScratch.Slot slot = ScoringScratch.newStateSlot(new Object());
+        scratch.putState(slot, "state");
+        Assert.assertEquals(scratch.getState(slot), "state");
+
+        List<Object> owners = new ArrayList<Object>();
+        ScoringScratch.Slot reused = null;
+        for (int i = 0; i < 100 && reused == null; i++) {
+            System.gc();
+            Thread.sleep(10);
+            Object owner = new Object();
+            owners.add(owner);
+            ScoringScratch.Slot next = ScoringScratch.newStateSlot(owner);
+            if (next.getIndex() == slot.getIndex())
+                reused = next;
+        }
+        Assert.assertNotNull(reused, "slot of a collected owner is handed out again");
+        Assert.assertNull(scratch.getState(reused));
+        Assert.assertEquals(scratch.getState(slot), "state");
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++)
+            vector[i] = (float) random.nextGaussian();
+        return vector;
+    }
+
+    private static float[] variance() {
+        float[] variance = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++)
+            variance[i] = 1.0f;
+        return variance;
+    }
+}
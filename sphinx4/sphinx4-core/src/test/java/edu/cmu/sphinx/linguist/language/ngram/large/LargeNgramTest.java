@@ -69,4 +69,49 @@ public class LargeNgramTest {
         assertThat((double) model.getProbability(new WordSequence(words1)),
                    closeTo(-67625.77, .01));
     }
+
+    @Test
+    public void testMappedNgram() throws IOException {
+        URL dictUrl = getClass().getResource("100.dict");
+        URL noisedictUrl = getClass()
+                .getResource("/edu/cmu/sphinx/models/en-us/en-us/noisedict");
+
+        Dictionary dictionary = new TextDictionary(dictUrl,
+                                                   noisedictUrl,
+                                                   null,
+                                                   null,
+                                                   new UnitManager());
+
+        URL lm = getClass().getResource("100.arpa.dmp");
+        LargeNGramModel model = new LargeNGramModel("",
+                                                    lm,
+                                                    null,
+                                                    100,
+                                                    false,
+                                                    3,
+                                                    dictionary,
+                                                    false,
+                                                    1.0f,
+                                                    1.0f,
+                                                    1.0f,
+                                                    false,
+                                                    true,
+                                                    true);
+        dictionary.allocate();
+        model.allocate();
+
+        Word[] words = {
+            new Word("huggins", null, false),
+            new Word("daines", null, false)};
+        assertThat((double) model.getProbability(new WordSequence(words)),
+                   closeTo(-830.862, .001));
+
+        Word[] words1 = {
+            new Word("huggins", null, false),
+            new Word("daines", null, false),
+            new Word("david", null, false)};
+        assertThat((double) model.getProbability(new WordSequence(words1)),
+                   closeTo(-67625.77, .01));
+        model.deallocate();
+    }
 }
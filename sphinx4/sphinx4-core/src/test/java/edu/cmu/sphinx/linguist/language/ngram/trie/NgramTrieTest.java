@@ -11,6 +11,7 @@ package edu.cmu.sphinx.linguist.language.ngram.trie;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 
 import java.io.IOException;
 import java.net.URL;
@@ -67,4 +68,41 @@ public class NgramTrieTest {
         assertThat((double) model.getProbability(new WordSequence(words1)),
                    closeTo(-67637, .01));
     }
+
+    @Test
+    public void testMappedNgram() throws IOException {
+        URL dictUrl = getClass().getResource("100.dict");
+        URL noisedictUrl = getClass()
+                .getResource("/edu/cmu/sphinx/models/en-us/en-us/noisedict");
+
+        Dictionary dictionary = new TextDictionary(dictUrl,
+                                                   noisedictUrl,
+                                                   null,
+                                                   null,
+                                                   new UnitManager());
+
+        URL lm = getClass().getResource("100.arpa.bin");
+        NgramTrieModel model = new NgramTrieModel("",
+                                                  lm,
+                                                  null,
+                                                  100,
+                                                  false,
+                                                  3,
+                                                  dictionary,
+                                                  false,
+                                                  1.0f,
+                                                  1.0f,
+                                                  1.0f,
+                                                  true);
+        dictionary.allocate();
+        model.allocate();
+        assertThat(model.trie.getMem(), nullValue());
+
+        Word[] words = {
+            new Word("huggins", null, false),
+            new Word("daines", null, false),
+            new Word("david", null, false)};
+        assertThat((double) model.getProbability(new WordSequence(words)),
+                   closeTo(-67637, .01));
+    }
 }
@@ -0,0 +1,59 @@
+package edu.cmu.sphinx.linguist.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class LongFloatCacheTest {
+
+    @Test
+    public void testEviction() {
+        LongFloatCache cache = new LongFloatCache(100);
+        Map<Long, Float> reference = new HashMap<Long, Float>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(300);
+            float value = cache.get(key);
+            if (Float.isNaN(value)) {
+                value = random.nextFloat();
+                cache.put(key, value);
+                reference.put(key, value);
+            } else {
+                assertThat(value, equalTo(reference.get(key)));
+            }
+            assertThat(cache.size(), lessThanOrEqualTo(100));
+        }
+        assertThat(cache.size(), equalTo(100));
+
+        cache.clear();
+        assertThat(cache.size(), equalTo(0));
+        assertThat(Float.isNaN(cache.get(0)), is(true));
+    }
+
+    @Test
+    public void testReferencedEntriesKept() {
+        LongFloatCache cache = new LongFloatCache(10);
+        cache.put(1000, 1.0f);
+        for (long key = 0; key < 100; key++) {
+            assertThat(cache.get(1000), equalTo(1.0f));
+            cache.put(key, key);
+        }
+        assertThat(cache.get(1000), equalTo(1.0f));
+    }
+
+    @Test
+    public void testKeys() {
+        int bits = LongFloatCache.getKeyBits(3, 4);
+        assertThat(bits, equalTo(2));
+        long key = LongFloatCache.appendKey(0, 0, bits);
+        assertThat(LongFloatCache.appendKey(key, 0, bits),
+                not(equalTo(key)));
+        assertThat(LongFloatCache.getKeyBits(1 << 16, 4), equalTo(0));
+    }
+}